@@ -30,6 +30,15 @@ public interface SocketEndpoint extends Closeable {
   
   ResultType readTo(ByteBuffer[] ref) throws IOException;
 
+  /**
+   * Writes out anything the endpoint still holds back from earlier calls to {@link #writeFrom}.
+   *
+   * @return SUCCESS once nothing is held back, ZERO while the socket can not take it yet
+   */
+  default ResultType flush() throws IOException {
+    return ResultType.SUCCESS;
+  }
+
   enum ResultType {
     EOF,  // end of file
     ZERO, // zero bytes produced or consumed
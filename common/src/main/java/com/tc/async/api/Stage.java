@@ -46,4 +46,13 @@ public interface Stage<EC> {
   public boolean isStarted();
   
   public Map<String, ?> getState();
+
+  /**
+   * Changes the number of threads an elastic stage may use.
+   *
+   * @return false if the stage has a fixed number of threads
+   */
+  public default boolean setThreadBounds(int minThreads, int maxThreads) {
+    return false;
+  }
 }
@@ -27,6 +27,11 @@ import java.util.List;
 public interface StageManager extends PrettyPrintable {
   public <EC> Stage<EC> createStage(String name, Class<EC> verification, EventHandler<EC> handler, int threads);
   public <EC> Stage<EC> createStage(String name, Class<EC> verification, EventHandler<EC> handler, int threads, int maxSize, boolean canBeDirect, boolean stallWarn);
+/**
+ * Create a stage whose thread count moves between the bounds with the load on the stage.  Events are keyed
+ * across {@code maxThreads} queues just as a stage created with that many threads.
+ */
+  public <EC> Stage<EC> createElasticStage(String name, Class<EC> verification, EventHandler<EC> handler, int minThreads, int maxThreads, int maxSize);
 /**
  * Start all the stages created on this stage manager.
  * @param context 
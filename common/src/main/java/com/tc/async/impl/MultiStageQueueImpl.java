@@ -28,6 +28,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * This StageQueueImpl represents the sink and gives a handle to the source. We are internally just using a queue
@@ -62,6 +63,7 @@ public class MultiStageQueueImpl<EC extends MultiThreadedEventContext> extends A
   final int PARTITION_MAX_MASK;
   private final MultiSourceQueueImpl[] sourceQueues;
   private volatile int fcheck = 0;  // used to start the shortest queue search
+  private volatile IntConsumer putListener = i->{};
   AtomicInteger partitionHand =new AtomicInteger(0);
 
   /**
@@ -132,10 +134,18 @@ public class MultiStageQueueImpl<EC extends MultiThreadedEventContext> extends A
     }
 
     for (int i = 0; i < queueCount; i++) {
-      this.sourceQueues[i] = new MultiSourceQueueImpl(queueFactory.createInstance(type, queueSize), v->this.fcheck = v, i);
+      this.sourceQueues[i] = new MultiSourceQueueImpl(queueFactory.createInstance(type, queueSize), v->this.fcheck = v, v->this.putListener.accept(v), i);
     }
   }
 
+  /**
+   * Called with the index of the queue after every put, including the moves of flushing events from one queue to
+   * the next, so an elastic stage can find a thread for the queue.
+   */
+  void setPutListener(IntConsumer listener) {
+    this.putListener = listener;
+  }
+
   @Override
   public Source getSource(int index) {
     return (index < 0 || index >= this.sourceQueues.length) ? null : this.sourceQueues[index];
@@ -247,12 +257,14 @@ public class MultiStageQueueImpl<EC extends MultiThreadedEventContext> extends A
   private static final class MultiSourceQueueImpl implements SourceQueue {
 
     private final Consumer<Integer> hint;
+    private final IntConsumer onPut;
     private final BlockingQueue<Event> queue;
     private final int                      sourceIndex;
 
-    public MultiSourceQueueImpl(BlockingQueue<Event> queue, Consumer<Integer> hint, int sourceIndex) {
+    public MultiSourceQueueImpl(BlockingQueue<Event> queue, Consumer<Integer> hint, IntConsumer onPut, int sourceIndex) {
       this.queue = queue;
       this.hint = hint;
+      this.onPut = onPut;
       this.sourceIndex = sourceIndex;
     }
 
@@ -283,7 +295,9 @@ public class MultiStageQueueImpl<EC extends MultiThreadedEventContext> extends A
     @Override
     public int put(Event context) throws InterruptedException {
       this.queue.put(context);
-      return this.queue.size();
+      int size = this.queue.size();
+      onPut.accept(this.sourceIndex);
+      return size;
     }
 
     @Override
@@ -36,12 +36,20 @@ import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
 import com.tc.util.concurrent.QueueFactory;
 import com.tc.util.concurrent.ThreadUtil;
+import com.tc.util.runtime.ThreadPlacement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import org.terracotta.tripwire.StageMonitor;
 import org.terracotta.tripwire.TripwireFactory;
@@ -52,10 +60,13 @@ import org.terracotta.tripwire.TripwireFactory;
 public class StageImpl<EC> implements Stage<EC> {
   private static final long    pollTime = 3000; // This is the poor man's solution for
                                                 // stage
+  private static final int     LANE_BATCH = 64; // events an elastic lane handles before giving up its thread
+  private static final int     RESIZE_HISTORY = 16;
   private final String         name;
   private final EventHandler<EC> handler;
   private final StageQueue<EC> stageQueue;
   private final WorkerThread[] threads;
+  private final ElasticPool    elastic;
   private final ThreadGroup    group;
   private final StageListener  listener;
   private final Logger logger;
@@ -83,17 +94,46 @@ public class StageImpl<EC> implements Stage<EC> {
    * @param listener
    * @param queueSize : Max queue Size allowed
    */
-  @SuppressWarnings("unchecked")
   public StageImpl(TCLoggerProvider loggerProvider, String name, Class<EC> type, EventHandler<EC> handler, int queueCount,
                    ThreadGroup group, QueueFactory queueFactory, StageListener listener, int queueSize, boolean canBeDirect, boolean stallLogging) {
+    this(loggerProvider, name, type, handler, queueCount, 0, group, queueFactory, listener, queueSize, canBeDirect, stallLogging);
+  }
+
+  /**
+   * An elastic stage.  The stage has {@code maxThreads} queues, keyed exactly as a fixed stage with that many
+   * threads would be, but the queues share a pool of between {@code minThreads} and {@code maxThreads} threads.  A
+   * queue is only ever drained by one thread at a time so per-key ordering is kept.  The pool adds threads while the
+   * stage has a backlog and retires threads that sit idle, see {@link #setThreadBounds(int, int)}.
+   *
+   * @param minThreads : Threads kept even when the stage is idle
+   * @param maxThreads : Number of queues and the most threads the stage will use
+   */
+  public StageImpl(TCLoggerProvider loggerProvider, String name, Class<EC> type, EventHandler<EC> handler, int minThreads, int maxThreads,
+                   ThreadGroup group, QueueFactory queueFactory, StageListener listener, int queueSize, boolean stallLogging) {
+    this(loggerProvider, name, type, handler, maxThreads, Math.max(1, minThreads), group, queueFactory, listener, queueSize, false, stallLogging);
+  }
+
+  @SuppressWarnings("unchecked")
+  private StageImpl(TCLoggerProvider loggerProvider, String name, Class<EC> type, EventHandler<EC> handler, int queueCount, int elasticMin,
+                   ThreadGroup group, QueueFactory queueFactory, StageListener listener, int queueSize, boolean canBeDirect, boolean stallLogging) {
     this.logger = loggerProvider.getLogger(Stage.class.getName() + ": " + name);
     this.name = name;
     if (queueCount > 1 && !MultiThreadedEventContext.class.isAssignableFrom(type)) {
       throw new IllegalArgumentException("the requested queue count is greater than one but the event type is not multi-threaded for stage:" + this.name);
     }
-    this.threads = new WorkerThread[queueCount];
+    if (elasticMin > 0 && (queueCount < 2 || elasticMin > queueCount)) {
+      throw new IllegalArgumentException("an elastic stage needs at least two queues and no more threads than queues for stage:" + this.name);
+    }
     this.handler = handler;
     this.stageQueue = StageQueue.FACTORY.factory(queueCount, queueFactory, type, eventCreator(canBeDirect), loggerProvider, name, queueSize);
+    if (elasticMin > 0) {
+      this.threads = new WorkerThread[0];
+      this.elastic = new ElasticPool(elasticMin, queueCount);
+      ((MultiStageQueueImpl<?>)this.stageQueue).setPutListener(this.elastic::schedule);
+    } else {
+      this.threads = new WorkerThread[queueCount];
+      this.elastic = null;
+    }
     this.group = group;
     this.listener = listener;
     this.sleepMs = TCPropertiesImpl.getProperties().getInt("seda." + name + ".sleepMs", 0);
@@ -216,7 +256,15 @@ public class StageImpl<EC> implements Stage<EC> {
     paused = false;
   }
  
+  @Override
+  public boolean setThreadBounds(int minThreads, int maxThreads) {
+    return elastic != null && elastic.setBounds(minThreads, maxThreads);
+  }
+
   private synchronized void startThreads(String contextId) {
+    if (elastic != null) {
+      elastic.start(contextId);
+    }
     for (int i = 0; i < threads.length; i++) {
       String threadName = contextId != null ? contextId + " - " : "";
       threadName += "WorkerThread(" + name + ", " + i;
@@ -225,12 +273,15 @@ public class StageImpl<EC> implements Stage<EC> {
       } else {
         threadName = threadName + ")";
       }
-      threads[i] = new WorkerThread<>(threadName, this.stageQueue.getSource(i));
+      threads[i] = new WorkerThread<>(threadName, this.stageQueue.getSource(i), i);
       threads[i].start();
     }
   }
 
   private synchronized void stopThreads() {
+    if (elastic != null) {
+      elastic.stop();
+    }
     for (WorkerThread thread : threads) {
       try {
         thread.join();
@@ -251,6 +302,11 @@ public class StageImpl<EC> implements Stage<EC> {
   }
 // for testing
   void waitForIdle() {
+    if (elastic != null) {
+      while (!elastic.isIdle()) {
+        ThreadUtil.reallySleep(500);
+      }
+    }
     Arrays.stream(threads).forEach(t->{
       while (!t.isIdle()) {
         ThreadUtil.reallySleep(500);
@@ -264,37 +320,30 @@ public class StageImpl<EC> implements Stage<EC> {
     List<Object> tl = new ArrayList<>(threads.length);
     Arrays.stream(threads).forEach(t->{if (t != null) tl.add(t.getStats());});
     data.put("name", name);
-    data.put("threadCount", threads.length);
+    data.put("threadCount", elastic != null ? elastic.liveThreads.get() : threads.length);
     data.put("backlog", inflight.sum());
     data.put("sink", this.stageQueue.getState());
     data.put("threads", tl);
+    if (elastic != null) {
+      data.put("elastic", elastic.getState());
+    }
     return data;
   }
 
   private class WorkerThread<EC> extends Thread {
     private final Source       source;
+    private final int          lane;
     private volatile boolean idle = false;
     // these are single threaded, don't need special handling
     private long idleTime  = 0;
     private long runTime = 0;
     private long count = 0;
 
-    public WorkerThread(String name, Source source) {
+    public WorkerThread(String name, Source source, int lane) {
       super(group, name);
       setDaemon(true);
       this.source = source;
-    }
-
-    private void handleStageDebugPauses() {
-      if (sleepMs > 0) {
-        ThreadUtil.reallySleep(sleepMs);
-      }
-      while (paused || (pausable && "paused".equalsIgnoreCase(System.getProperty(name)))) {
-        if (!paused) {
-          logger.info("Stage paused, sleeping for 1s");
-        }
-        ThreadUtil.reallySleep(1000);
-      }
+      this.lane = lane;
     }
     
     public boolean isIdle() {
@@ -303,6 +352,7 @@ public class StageImpl<EC> implements Stage<EC> {
 
     @Override
     public void run() {
+      ThreadPlacement.getInstance().placeCurrentThread(lane);
       int spinCount = 0;
       boolean spinner = spinning > 0;
       while (!shutdown || !source.isEmpty()) {
@@ -366,6 +416,249 @@ public class StageImpl<EC> implements Stage<EC> {
       return state;
     }
   }
+
+  private void handleStageDebugPauses() {
+    if (sleepMs > 0) {
+      ThreadUtil.reallySleep(sleepMs);
+    }
+    while (paused || (pausable && "paused".equalsIgnoreCase(System.getProperty(name)))) {
+      if (!paused) {
+        logger.info("Stage paused, sleeping for 1s");
+      }
+      ThreadUtil.reallySleep(1000);
+    }
+  }
+
+  /**
+   * The threads of an elastic stage.  Each queue of the stage is a lane that is handed to the pool whenever it
+   * has work and no thread is draining it.  A lane drains at most {@link #LANE_BATCH} events before it goes to the
+   * back of the pool's queue so a busy key cannot starve the others.
+   */
+  private class ElasticPool {
+    private final List<Lane> lanes;
+    private final LaneQueue waiting = new LaneQueue();
+    private final int growBacklog = TCPropertiesImpl.getProperties()
+                                                   .getInt(TCPropertiesConsts.L2_SEDA_STAGE_ELASTIC_GROW_BACKLOG, 16);
+    private final long idleMs = TCPropertiesImpl.getProperties()
+                                                   .getLong(TCPropertiesConsts.L2_SEDA_STAGE_ELASTIC_IDLE, 30000);
+    private final AtomicInteger threadIndex = new AtomicInteger();
+    private final AtomicInteger liveThreads = new AtomicInteger();
+    private final AtomicLong grown = new AtomicLong();
+    private final AtomicLong shrunk = new AtomicLong();
+    private final LongAdder processed = new LongAdder();
+    private final Deque<String> resizes = new ArrayDeque<>(RESIZE_HISTORY);
+    private volatile ThreadPoolExecutor executor;
+    private volatile int minThreads;
+    private volatile int maxThreads;
+
+    private ElasticPool(int minThreads, int lanes) {
+      this.minThreads = minThreads;
+      this.maxThreads = lanes;
+      this.lanes = new ArrayList<>(lanes);
+      for (int x = 0; x < lanes; x++) {
+        this.lanes.add(new Lane(x, stageQueue.getSource(x)));
+      }
+    }
+
+    void schedule(int lane) {
+      lanes.get(lane).schedule();
+    }
+
+    synchronized void start(String contextId) {
+      String prefix = (contextId != null ? contextId + " - " : "") + "WorkerThread(" + name + ", pool-";
+      executor = new ThreadPoolExecutor(minThreads, maxThreads, idleMs, TimeUnit.MILLISECONDS, waiting,
+          r -> {
+            int index = threadIndex.getAndIncrement();
+            // pool threads serve every lane, each lane places the thread running it on its node
+            Thread t = new Thread(group, () -> {
+              try {
+                r.run();
+              } finally {
+                resized("shrink", liveThreads.decrementAndGet());
+                shrunk.incrementAndGet();
+              }
+            }, prefix + index + ")");
+            t.setDaemon(true);
+            resized("grow", liveThreads.incrementAndGet());
+            grown.incrementAndGet();
+            return t;
+          },
+          (r, pool) -> {
+            if (!pool.isShutdown()) {
+              waiting.force(r);
+            }
+          });
+      executor.prestartAllCoreThreads();
+      for (Lane lane : lanes) {
+        // a lane turned away by the last executor as it shut down is still marked
+        lane.scheduled.set(false);
+        if (!lane.source.isEmpty()) {
+          lane.schedule();
+        }
+      }
+    }
+
+    void stop() {
+      ThreadPoolExecutor pool = executor;
+      if (pool == null) {
+        return;
+      }
+      pool.shutdown();
+      try {
+        while (!pool.awaitTermination(pollTime, TimeUnit.MILLISECONDS)) {
+          logger.info("waiting for the threads of stage {} to finish", name);
+        }
+      } catch (InterruptedException ie) {
+        throw new RuntimeException(ie);
+      }
+    }
+
+    synchronized boolean setBounds(int min, int max) {
+      if (min < 1 || min > max || max > lanes.size()) {
+        throw new IllegalArgumentException("thread bounds for stage " + name + " must satisfy 1 <= min <= max <= " + lanes.size());
+      }
+      ThreadPoolExecutor pool = executor;
+      if (pool != null) {
+        // the core size can never be above the maximum, order the updates to keep it that way
+        if (max >= pool.getCorePoolSize()) {
+          pool.setMaximumPoolSize(max);
+          pool.setCorePoolSize(min);
+        } else {
+          pool.setCorePoolSize(min);
+          pool.setMaximumPoolSize(max);
+        }
+      }
+      minThreads = min;
+      maxThreads = max;
+      resized("bounds " + min + ".." + max, liveThreads.get());
+      logger.info("thread bounds of stage {} set to {}..{}", name, min, max);
+      return true;
+    }
+
+    private void resized(String what, int threads) {
+      synchronized (resizes) {
+        if (resizes.size() == RESIZE_HISTORY) {
+          resizes.removeFirst();
+        }
+        resizes.addLast(System.currentTimeMillis() + " " + what + " " + threads);
+      }
+    }
+
+    boolean isIdle() {
+      for (Lane lane : lanes) {
+        if (lane.scheduled.get() || !lane.source.isEmpty()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    Map<String, ?> getState() {
+      Map<String, Object> state = new LinkedHashMap<>();
+      ThreadPoolExecutor pool = executor;
+      state.put("min", minThreads);
+      state.put("max", maxThreads);
+      state.put("lanes", lanes.size());
+      state.put("poolSize", pool != null ? pool.getPoolSize() : 0);
+      state.put("active", pool != null ? pool.getActiveCount() : 0);
+      state.put("largest", pool != null ? pool.getLargestPoolSize() : 0);
+      state.put("grown", grown.get());
+      state.put("shrunk", shrunk.get());
+      state.put("processed", processed.sum());
+      synchronized (resizes) {
+        state.put("resizes", new ArrayList<>(resizes));
+      }
+      return state;
+    }
+
+    /**
+     * Turning a lane away makes the executor add a thread.  That is only done when every thread is busy and the
+     * stage has built up a backlog, otherwise the lane waits for the next free thread.
+     */
+    private class LaneQueue extends LinkedBlockingQueue<Runnable> {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public boolean offer(Runnable lane) {
+        ThreadPoolExecutor pool = executor;
+        int size = pool.getPoolSize();
+        if (size < pool.getMaximumPoolSize() && pool.getActiveCount() >= size && inflight.sum() >= (long) growBacklog * size) {
+          return false;
+        }
+        return super.offer(lane);
+      }
+
+      void force(Runnable lane) {
+        super.offer(lane);
+      }
+    }
+
+    private class Lane implements Runnable {
+      private final int index;
+      private final Source source;
+      private final AtomicBoolean scheduled = new AtomicBoolean();
+
+      private Lane(int index, Source source) {
+        this.index = index;
+        this.source = source;
+      }
+
+      void schedule() {
+        ThreadPoolExecutor pool = executor;
+        if (pool != null && scheduled.compareAndSet(false, true)) {
+          pool.execute(this);
+        }
+      }
+
+      @Override
+      public void run() {
+        ThreadPlacement.getInstance().placeCurrentThreadOnNode(index);
+        try {
+          for (int count = 0; count < LANE_BATCH || shutdown; count++) {
+            Event ctxt = source.poll(0);
+            if (ctxt == null) {
+              break;
+            }
+            handleStageDebugPauses();
+            long start = System.nanoTime();
+            call(ctxt);
+            processed.increment();
+            event.eventOccurred(size(), System.nanoTime() - start);
+          }
+        } catch (InterruptedException ie) {
+          if (!shutdown) {
+            throw new TCRuntimeException(ie);
+          }
+        } finally {
+          scheduled.set(false);
+          if (!source.isEmpty()) {
+            schedule();
+          }
+        }
+      }
+
+      private void call(Event ctxt) {
+        try {
+          ctxt.call();
+        } catch (EventHandlerException ie) {
+          if (!shutdown) {
+            throw new TCRuntimeException(ie);
+          }
+        } catch (TCServerRestartException | TCShutdownServerException exit) {
+          throw exit;
+        } catch (Exception e) {
+          if (isTCNotRunningException(e)) {
+            if (!shutdown) {
+              logger.info("Ignoring " + TCNotRunningException.class.getSimpleName() + " while handling context: " + ctxt);
+            }
+          } else {
+            logger.error("Uncaught exception in stage", e);
+            throw new TCRuntimeException("Uncaught exception in stage", e);
+          }
+        }
+      }
+    }
+  }
   
   
 
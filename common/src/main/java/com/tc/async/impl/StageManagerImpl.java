@@ -34,6 +34,7 @@ import com.tc.text.MapListPrettyPrint;
 import com.tc.util.Assert;
 import com.tc.util.concurrent.QueueFactory;
 import com.tc.util.concurrent.ThreadUtil;
+import com.tc.util.runtime.ThreadPlacement;
 import java.util.ArrayList;
 
 import java.util.Arrays;
@@ -134,6 +135,21 @@ public class StageManagerImpl implements StageManager {
     return s;
   }
 
+  @Override
+  public synchronized <EC> Stage<EC> createElasticStage(String name, Class<EC> verification, EventHandler<EC> handler, int minThreads, int maxThreads, int maxSize) {
+    if (maxThreads < 2) {
+      // nothing to resize
+      return createStage(name, verification, handler, 1, maxSize, false, true);
+    }
+    if (started) {
+      throw new IllegalStateException("A new stage cannot be created, because StageManager is already started.");
+    }
+    Stage<EC> s = new StageImpl<>(loggerProvider, name, verification, handler, Math.min(minThreads, maxThreads), maxThreads, group, queueFactory, listener, maxSize, true);
+    addStage(name, s);
+    this.classVerifications.put(name,  verification);
+    return s;
+  }
+
   private synchronized <EC> void addStage(String name, Stage<EC> s) {
     Object prev = stages.put(name, s);
     Assert.assertNull(prev);
@@ -205,6 +221,7 @@ public class StageManagerImpl implements StageManager {
     Map<String,Object> map = new LinkedHashMap<>();
     map.put("className", this.getClass().getName());
     map.put("monitor", MONITOR);
+    map.put("placement", ThreadPlacement.getInstance().getState());
     List<Object> list = new ArrayList<>(stages.size());
     for (Stage<?> stage : stages.values()) {
       if (stage.isStarted()) {
@@ -30,6 +30,7 @@ import com.tc.util.Assert;
 import com.tc.util.Util;
 import com.tc.util.concurrent.SetOnceFlag;
 import com.tc.util.runtime.Os;
+import com.tc.util.runtime.ThreadPlacement;
 
 import java.io.IOException;
 import java.net.Socket;
@@ -68,6 +69,7 @@ class CoreNIOServices implements TCListenerEventListener, TCConnectionEventListe
   private static final Logger logger = LoggerFactory.getLogger(CoreNIOServices.class);
   private final TCWorkerCommManager            workerCommMgr;
   private final String                         commThreadName;
+  private final int                            placementLane;
   private final SocketParams                   socketParams;
   private final CommThread                     readerComm;
   private final CommThread                     writerComm;
@@ -84,7 +86,15 @@ class CoreNIOServices implements TCListenerEventListener, TCConnectionEventListe
   }
 
   public CoreNIOServices(String commThreadName, TCWorkerCommManager workerCommManager, SocketParams socketParams) {
+    this(commThreadName, workerCommManager, socketParams, -1);
+  }
+
+  /**
+   * @param placementLane the lane used to place the reader and writer threads on cpus, see {@link ThreadPlacement}
+   */
+  public CoreNIOServices(String commThreadName, TCWorkerCommManager workerCommManager, SocketParams socketParams, int placementLane) {
     this.commThreadName = commThreadName;
+    this.placementLane = placementLane;
     this.workerCommMgr = workerCommManager;
     this.socketParams = socketParams;
     this.readerComm = new CommThread(COMM_THREAD_MODE.NIO_READER);
@@ -381,6 +391,7 @@ class CoreNIOServices implements TCListenerEventListener, TCConnectionEventListe
 
     @Override
     public void run() {
+      ThreadPlacement.getInstance().placeCurrentThread(placementLane);
       try {
         selectLoop();
       } catch (Throwable t) {
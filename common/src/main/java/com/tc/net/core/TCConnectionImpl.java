@@ -29,6 +29,7 @@ import com.tc.io.TCDirectByteBufferOutputStream;
 import com.tc.net.core.event.TCConnectionEventCaller;
 import com.tc.net.core.event.TCConnectionEventListener;
 import com.tc.net.protocol.TCNetworkMessage;
+import com.tc.net.protocol.transport.PayloadCompression;
 import com.tc.net.protocol.transport.WireProtocolGroupMessageImpl;
 import com.tc.net.protocol.transport.WireProtocolHeader;
 import com.tc.net.protocol.transport.WireProtocolMessage;
@@ -114,6 +115,8 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
   private final LongAdder totalWrite = new LongAdder();
   private final Queue<WriteContext>  writeContexts = new ConcurrentLinkedQueue<>();
   private final ReentrantLock writeContextControl = new ReentrantLock();
+  private volatile PayloadCompression payloadCompression;
+  private volatile byte wireFeatures;
 
   private static final boolean MSG_GROUPING_ENABLED = TCPropertiesImpl
                           .getProperties()
@@ -192,6 +195,11 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
     state.put("transportConnected", isTransportEstablished());
     state.put("buffers.cached", buffers.size());
     state.put("buffers.referenced", buffers.referenced());
+    state.put("wireFeatures", this.wireFeatures);
+    PayloadCompression compression = this.payloadCompression;
+    if (compression != null) {
+      state.put("compression", compression.getState());
+    }
     if (socket instanceof PrettyPrintable) {
       state.put("buffer", ((PrettyPrintable)this.socket).getStateMap());
     } else {
@@ -469,13 +477,24 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
       context = writeContexts.poll();
     }
     
-    if (!this.closed.isSet() && context == null && !buildWriteContextsFromMessages(false)) {
+    if (!this.closed.isSet() && context == null && !buildWriteContextsFromMessages(false) && flushSocket()) {
       this.commWorker.removeWriteInterest(this, this.channel);
     }
 
     return totalBytesWritten;
   }
 
+  /**
+   * @return true once the endpoint holds nothing back, otherwise the write interest stays to send the rest
+   */
+  private boolean flushSocket() throws IOException {
+    SocketEndpoint.ResultType result = socket.flush();
+    if (result == SocketEndpoint.ResultType.EOF) {
+      throw new EOFException();
+    }
+    return result != SocketEndpoint.ResultType.ZERO;
+  }
+
   private void putMessageImpl(TCNetworkMessage message) {
     // ??? Does the message queue and the WriteContext belong in the base connection class?
     final boolean debug = logger.isDebugEnabled();
@@ -815,6 +834,26 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
     }
   }
 
+  @Override
+  public PayloadCompression getPayloadCompression() {
+    return this.payloadCompression;
+  }
+
+  @Override
+  public void setPayloadCompression(PayloadCompression compression) {
+    this.payloadCompression = compression;
+  }
+
+  @Override
+  public byte getWireFeatures() {
+    return this.wireFeatures;
+  }
+
+  @Override
+  public void setWireFeatures(byte features) {
+    this.wireFeatures = features;
+  }
+
   @Override
   public TCByteBufferOutputStream createOutput() {
     return MESSAGE_PACKUP ? new TCDirectByteBufferOutputStream(buffers) : new TCByteBufferOutputStream();
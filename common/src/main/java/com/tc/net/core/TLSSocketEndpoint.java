@@ -0,0 +1,463 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.net.core;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.bytes.TCDirectByteBufferCache;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+
+/**
+ * A {@link SocketEndpoint} which encrypts with an {@link SSLEngine}.
+ * <p>
+ * Writes wrap straight from the caller's buffers, the engine gathers across them, and a batch of TLS records is
+ * collected in one pooled direct buffer before it goes to the socket in a single write.  Records the socket does not
+ * take stay with the endpoint and go out first on the next {@link #writeFrom} or {@link #flush}, so a writer keeps
+ * its interest in writability until {@link #flush} reports them gone rather than waiting on the socket.  Reads pull
+ * as many records as are available into a pooled direct buffer and unwrap them straight into the caller's buffers.
+ * Plain text is only copied when a record does not fit into what the caller offered, in which case it is unwrapped
+ * into a pooled staging buffer and handed out from there.  Pooled buffers go back to the pool as soon as they are
+ * drained so idle connections hold none.
+ * <p>
+ * The handshake is driven from whichever of {@link #readTo} and {@link #writeFrom} runs first and both report
+ * {@link ResultType#ZERO} until it is done.  Inbound state is guarded by one lock and outbound state by another,
+ * always taken in that order.
+ */
+public class TLSSocketEndpoint implements SocketEndpoint {
+
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  private final SocketChannel socket;
+  private final SSLEngine engine;
+  private final TCDirectByteBufferCache pool;
+  private final Object inbound = new Object();
+  private final Object outbound = new Object();
+  private volatile boolean open = true;
+
+  // encrypted bytes read from the socket and not yet unwrapped, in fill mode
+  private TCByteBuffer netIn;
+  private ByteBuffer netInBytes;
+  // plain text unwrapped but not yet handed to a reader, in drain mode
+  private TCByteBuffer appIn;
+  private ByteBuffer appInBytes;
+  // encrypted records not yet written to the socket, in fill mode
+  private TCByteBuffer netOut;
+  private ByteBuffer netOutBytes;
+
+  public TLSSocketEndpoint(SocketChannel socket, SSLEngine engine, TCDirectByteBufferCache pool) throws IOException {
+    this.socket = socket;
+    this.engine = engine;
+    this.pool = pool;
+    this.engine.beginHandshake();
+  }
+
+  @Override
+  public ResultType writeFrom(ByteBuffer[] ref) throws IOException {
+    if (!open) return ResultType.EOF;
+    if (isHandshaking()) {
+      ResultType handshake = handshake();
+      if (handshake != ResultType.SUCCESS) {
+        return handshake;
+      }
+    }
+    synchronized (outbound) {
+      if (!flushRecords()) {
+        return ResultType.ZERO;
+      }
+      long consumed = 0;
+      acquireNetOut();
+      try {
+        while (hasRemaining(ref)) {
+          SSLEngineResult result = engine.wrap(ref, netOutBytes);
+          consumed += result.bytesConsumed();
+          if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+            return ResultType.EOF;
+          } else if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+            // the batch of records is full
+            if (!flushRecords()) {
+              break;
+            }
+          } else if (result.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING &&
+                     result.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.FINISHED) {
+            // the peer asked for a new handshake, finish it on the next call
+            break;
+          }
+        }
+        // whatever the socket does not take now stays batched for the next write or flush
+        flushRecords();
+      } finally {
+        releaseNetOut();
+      }
+      return (consumed > 0) ? ResultType.SUCCESS : ResultType.ZERO;
+    }
+  }
+
+  @Override
+  public ResultType flush() throws IOException {
+    if (!open) return ResultType.EOF;
+    synchronized (outbound) {
+      try {
+        return flushRecords() ? ResultType.SUCCESS : ResultType.ZERO;
+      } finally {
+        releaseNetOut();
+      }
+    }
+  }
+
+  @Override
+  public ResultType readTo(ByteBuffer[] ref) throws IOException {
+    if (!open) return ResultType.EOF;
+    if (isHandshaking()) {
+      ResultType handshake = handshake();
+      if (handshake != ResultType.SUCCESS) {
+        return handshake;
+      }
+    }
+    synchronized (inbound) {
+      try {
+        long produced = drainStaged(ref);
+        while (hasRemaining(ref)) {
+          if (netInBytes == null || netInBytes.position() == 0) {
+            ResultType read = fill();
+            if (read != ResultType.SUCCESS) {
+              return (produced > 0) ? ResultType.SUCCESS : read;
+            }
+          }
+          netInBytes.flip();
+          SSLEngineResult result;
+          try {
+            result = engine.unwrap(netInBytes, ref);
+          } finally {
+            netInBytes.compact();
+          }
+          produced += result.bytesProduced();
+          switch (result.getStatus()) {
+            case CLOSED:
+              return (produced > 0) ? ResultType.SUCCESS : ResultType.EOF;
+            case BUFFER_OVERFLOW:
+              // the next record does not fit, stage it and hand out what fits
+              ResultType staged = unwrapStaged();
+              produced += drainStaged(ref);
+              if (produced > 0) {
+                return ResultType.SUCCESS;
+              }
+              return (staged == ResultType.SUCCESS) ? ResultType.ZERO : staged;
+            case BUFFER_UNDERFLOW:
+              // only part of a record is in, fetch more unless something was already produced
+              if (produced > 0) {
+                return ResultType.SUCCESS;
+              }
+              ResultType read = fill();
+              if (read != ResultType.SUCCESS) {
+                return read;
+              }
+              break;
+            case OK:
+              if (result.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING &&
+                  result.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.FINISHED) {
+                // post handshake messages, answer them before going on
+                ResultType handshake = handshake();
+                if (handshake != ResultType.SUCCESS) {
+                  return (produced > 0) ? ResultType.SUCCESS : handshake;
+                }
+              }
+              break;
+            default:
+              throw new AssertionError(result.getStatus());
+          }
+        }
+        return (produced > 0) ? ResultType.SUCCESS : ResultType.ZERO;
+      } finally {
+        releaseNetIn();
+      }
+    }
+  }
+
+  private boolean isHandshaking() {
+    SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+    return status != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING && status != SSLEngineResult.HandshakeStatus.FINISHED;
+  }
+
+  /**
+   * Moves the handshake along as far as the socket allows.
+   *
+   * @return SUCCESS once the handshake is done, ZERO if the peer has to be heard from first
+   */
+  private ResultType handshake() throws IOException {
+    synchronized (inbound) {
+      synchronized (outbound) {
+        try {
+          while (true) {
+            switch (engine.getHandshakeStatus()) {
+              case NOT_HANDSHAKING:
+              case FINISHED:
+                return flushRecords() ? ResultType.SUCCESS : ResultType.ZERO;
+              case NEED_TASK:
+                Runnable task = engine.getDelegatedTask();
+                while (task != null) {
+                  task.run();
+                  task = engine.getDelegatedTask();
+                }
+                break;
+              case NEED_WRAP:
+                acquireNetOut();
+                SSLEngineResult wrapped = engine.wrap(EMPTY, netOutBytes);
+                if (wrapped.getStatus() == SSLEngineResult.Status.CLOSED) {
+                  flushRecords();
+                  return ResultType.EOF;
+                }
+                if (!flushRecords()) {
+                  return ResultType.ZERO;
+                }
+                break;
+              default:
+                // NEED_UNWRAP, or NEED_UNWRAP_AGAIN on newer runtimes
+                if (!flushRecords()) {
+                  return ResultType.ZERO;
+                }
+                if (netInBytes == null || netInBytes.position() == 0) {
+                  ResultType read = fill();
+                  if (read != ResultType.SUCCESS) {
+                    return read;
+                  }
+                }
+                acquireAppIn();
+                appInBytes.compact();
+                netInBytes.flip();
+                SSLEngineResult unwrapped;
+                try {
+                  // application data may follow the last handshake message so it is staged rather than dropped
+                  unwrapped = engine.unwrap(netInBytes, appInBytes);
+                } finally {
+                  netInBytes.compact();
+                  appInBytes.flip();
+                }
+                if (unwrapped.getStatus() == SSLEngineResult.Status.CLOSED) {
+                  return ResultType.EOF;
+                } else if (unwrapped.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                  ResultType read = fill();
+                  if (read != ResultType.SUCCESS) {
+                    return read;
+                  }
+                } else if (unwrapped.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                  throw new SSLException("handshake record larger than the staging buffer");
+                }
+                break;
+            }
+          }
+        } finally {
+          releaseNetOut();
+          releaseNetIn();
+          releaseAppIn();
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads whatever the socket has into the inbound buffer.
+   */
+  private ResultType fill() throws IOException {
+    acquireNetIn();
+    if (!netInBytes.hasRemaining()) {
+      throw new SSLException("record larger than the network buffer");
+    }
+    int read = socket.read(netInBytes);
+    if (read < 0) {
+      return ResultType.EOF;
+    } else if (read == 0) {
+      return ResultType.ZERO;
+    } else {
+      return ResultType.SUCCESS;
+    }
+  }
+
+  /**
+   * @return false if encrypted bytes are still waiting for the socket
+   */
+  private boolean flushRecords() throws IOException {
+    if (netOutBytes == null || netOutBytes.position() == 0) {
+      return true;
+    }
+    netOutBytes.flip();
+    try {
+      if (socket.write(netOutBytes) < 0) {
+        throw new EOFException();
+      }
+      return !netOutBytes.hasRemaining();
+    } finally {
+      netOutBytes.compact();
+    }
+  }
+
+  /**
+   * Unwraps the next record into the staging buffer.  The engine reports an overflow before it looks at whether the
+   * record is complete so this is also where the rest of a partly read record is fetched.
+   */
+  private ResultType unwrapStaged() throws IOException {
+    acquireAppIn();
+    while (true) {
+      appInBytes.compact();
+      netInBytes.flip();
+      SSLEngineResult result;
+      try {
+        result = engine.unwrap(netInBytes, appInBytes);
+      } finally {
+        netInBytes.compact();
+        appInBytes.flip();
+      }
+      switch (result.getStatus()) {
+        case BUFFER_OVERFLOW:
+          throw new SSLException("record larger than the staging buffer");
+        case BUFFER_UNDERFLOW:
+          ResultType read = fill();
+          if (read != ResultType.SUCCESS) {
+            return read;
+          }
+          break;
+        case CLOSED:
+          return ResultType.EOF;
+        default:
+          return ResultType.SUCCESS;
+      }
+    }
+  }
+
+  private long drainStaged(ByteBuffer[] ref) {
+    long moved = 0;
+    if (appInBytes != null) {
+      for (ByteBuffer dest : ref) {
+        if (!appInBytes.hasRemaining()) {
+          break;
+        }
+        int count = Math.min(dest.remaining(), appInBytes.remaining());
+        if (count > 0) {
+          ByteBuffer slice = appInBytes.duplicate();
+          slice.limit(slice.position() + count);
+          dest.put(slice);
+          appInBytes.position(appInBytes.position() + count);
+          moved += count;
+        }
+      }
+      releaseAppIn();
+    }
+    return moved;
+  }
+
+  private static boolean hasRemaining(ByteBuffer[] ref) {
+    for (ByteBuffer b : ref) {
+      if (b.hasRemaining()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void acquireNetIn() {
+    if (netIn == null) {
+      netIn = pool.poll();
+      netInBytes = netIn.getNioBuffer();
+      netInBytes.clear();
+    }
+  }
+
+  private void releaseNetIn() {
+    if (netIn != null && netInBytes.position() == 0) {
+      netIn.returnNioBuffer(netInBytes);
+      pool.offer(netIn.reInit());
+      netIn = null;
+      netInBytes = null;
+    }
+  }
+
+  private void acquireAppIn() {
+    if (appIn == null) {
+      appIn = pool.poll();
+      appInBytes = appIn.getNioBuffer();
+      // drain mode, nothing staged
+      appInBytes.clear().flip();
+    }
+  }
+
+  private void releaseAppIn() {
+    if (appIn != null && !appInBytes.hasRemaining()) {
+      appIn.returnNioBuffer(appInBytes);
+      pool.offer(appIn.reInit());
+      appIn = null;
+      appInBytes = null;
+    }
+  }
+
+  private void acquireNetOut() {
+    if (netOut == null) {
+      netOut = pool.poll();
+      netOutBytes = netOut.getNioBuffer();
+      netOutBytes.clear();
+    }
+  }
+
+  private void releaseNetOut() {
+    if (netOut != null && netOutBytes.position() == 0) {
+      netOut.returnNioBuffer(netOutBytes);
+      pool.offer(netOut.reInit());
+      netOut = null;
+      netOutBytes = null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!open) {
+      return;
+    }
+    open = false;
+    synchronized (inbound) {
+      synchronized (outbound) {
+        try {
+          engine.closeOutbound();
+          if (socket.isOpen()) {
+            // best effort close_notify, the peer may already be gone
+            acquireNetOut();
+            engine.wrap(EMPTY, netOutBytes);
+            flushRecords();
+          }
+        } catch (IOException ioe) {
+          // ignore, closing anyway
+        } finally {
+          if (netOut != null) {
+            netOutBytes.clear();
+          }
+          if (netIn != null) {
+            netInBytes.clear();
+          }
+          if (appIn != null) {
+            appInBytes.position(appInBytes.limit());
+          }
+          releaseNetOut();
+          releaseNetIn();
+          releaseAppIn();
+        }
+      }
+    }
+  }
+}
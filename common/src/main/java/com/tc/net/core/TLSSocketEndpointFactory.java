@@ -0,0 +1,89 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.net.core;
+
+import com.tc.bytes.TCDirectByteBufferCache;
+import com.tc.text.PrettyPrintable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+
+/**
+ * Creates {@link TLSSocketEndpoint}s from an {@link SSLContext}.  All endpoints share one pool of direct buffers,
+ * each large enough for a batch of TLS records.
+ * <p>
+ * Nothing selects this factory by configuration and it is not registered as a service, the default stays
+ * {@link ClearTextSocketEndpointFactory}.  It is only used when a plugin provides it, as the
+ * {@link SocketEndpointFactory} service of the server's platform service registry and through a
+ * {@link SocketEndpointFactorySupplier} on the client, built around the plugin's own {@link SSLContext}.
+ */
+public class TLSSocketEndpointFactory implements SocketEndpointFactory, PrettyPrintable {
+
+  private static final int RECORDS_PER_WRITE = 4;
+
+  private final SSLContext context;
+  private final Consumer<SSLEngine> configurer;
+  private final int bufferSize;
+  private final TCDirectByteBufferCache buffers;
+
+  public TLSSocketEndpointFactory(SSLContext context) {
+    this(context, engine->{});
+  }
+
+  /**
+   * @param context the context to create engines from
+   * @param configurer applied to every engine after the client or server mode is set, to pick protocols, cipher
+   *  suites or client authentication
+   */
+  public TLSSocketEndpointFactory(SSLContext context, Consumer<SSLEngine> configurer) {
+    this.context = context;
+    this.configurer = configurer;
+    SSLSession session = context.createSSLEngine().getSession();
+    this.bufferSize = Math.max(session.getPacketBufferSize() * RECORDS_PER_WRITE, session.getApplicationBufferSize());
+    this.buffers = new TCDirectByteBufferCache(this.bufferSize);
+  }
+
+  @Override
+  public SocketEndpoint createSocketEndpoint(SocketChannel socketChannel, boolean client) throws IOException {
+    SocketAddress remote = socketChannel.getRemoteAddress();
+    SSLEngine engine = (remote instanceof InetSocketAddress)
+        ? context.createSSLEngine(((InetSocketAddress)remote).getHostString(), ((InetSocketAddress)remote).getPort())
+        : context.createSSLEngine();
+    engine.setUseClientMode(client);
+    configurer.accept(engine);
+    return new TLSSocketEndpoint(socketChannel, engine, buffers);
+  }
+
+  @Override
+  public Map<String, ?> getStateMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("className", this.getClass().getName());
+    map.put("protocol", context.getProtocol());
+    map.put("bufferSize", bufferSize);
+    map.put("pooledBuffers", buffers.size());
+    map.put("allocatedBuffers", buffers.referenced());
+    return map;
+  }
+}
@@ -23,7 +23,9 @@ import org.slf4j.LoggerFactory;
 import com.tc.bytes.TCByteBuffer;
 import com.tc.bytes.TCReference;
 import com.tc.io.TCByteBufferInputStream;
+import com.tc.net.core.TCConnection;
 import com.tc.net.protocol.TCNetworkMessage;
+import com.tc.net.protocol.transport.WireProtocolMessage;
 import com.tc.util.HexDump;
 
 /**
@@ -58,6 +60,15 @@ class TCMessageParser {
     }
     
     TCAction converted = factory.createMessage(source, type, hdr, helper);
+
+    if (hdr.isBodyCompressed()) {
+      // left for hydrate() to inflate on the decode stage rather than here on the comm thread
+      if (!(converted instanceof TCActionImpl)) {
+        throw new RuntimeException("Compressed body on a message that cannot inflate it: " + type);
+      }
+      TCConnection connection = (msg instanceof WireProtocolMessage) ? ((WireProtocolMessage) msg).getSource() : null;
+      ((TCActionImpl) converted).setBodyCodec(connection == null ? null : connection.getPayloadCompression());
+    }
     
     return converted;
   }
@@ -304,6 +304,11 @@ public class ClientMessageTransport extends MessageTransportBase {
         // This is a reconnect
         Assert.eval(getConnectionID().equals(synAck.getConnectionId()));
       }
+      if (!synAck.hasErrorContext()) {
+        enableCompression(getConnection(), PayloadCompression.negotiate(synAck.getCompressionCodecs(), getSupportedCompressionCodecs()));
+        // the server settles the features out of those offered in the syn
+        getConnection().setWireFeatures(synAck.getWireFeatures());
+      }
       getConnection().setTransportEstablished();
       setSynAckResult(synAck);
     }
@@ -396,7 +401,8 @@ public class ClientMessageTransport extends MessageTransportBase {
       // get the stack layer list and pass it in
       short stackLayerFlags = getCommunicationStackFlags(this);
       TransportHandshakeMessage syn = this.messageFactory.createSyn(getConnectionID(), getConnection(),
-                                                                    stackLayerFlags);
+                                                                    stackLayerFlags, getSupportedCompressionCodecs(),
+                                                                    getSupportedWireFeatures());
       // send syn message
       try {
         this.sendToConnection(syn);
@@ -30,6 +30,8 @@ import com.tc.net.protocol.TCNetworkMessage;
 import com.tc.net.protocol.tcm.ChannelID;
 import com.tc.net.core.ProductID;
 import com.tc.object.session.SessionID;
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
 import com.tc.util.Assert;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
@@ -43,6 +45,19 @@ import java.util.concurrent.atomic.AtomicReference;
  * Implementation of MessaageTransport
  */
 abstract class MessageTransportBase extends AbstractMessageTransport implements TCConnectionEventListener {
+  private static final boolean COMPRESSION_ENABLED = TCPropertiesImpl.getProperties()
+                          .getBoolean(TCPropertiesConsts.TC_MESSAGE_COMPRESSION_ENABLED, false);
+  private static final int COMPRESSION_THRESHOLD = TCPropertiesImpl.getProperties()
+                          .getInt(TCPropertiesConsts.TC_MESSAGE_COMPRESSION_THRESHOLD, 8192);
+  private static final int COMPRESSION_LEVEL = TCPropertiesImpl.getProperties()
+                          .getInt(TCPropertiesConsts.TC_MESSAGE_COMPRESSION_LEVEL, 1);
+  private static final int COMPRESSION_MAX_INFLATED_KB = TCPropertiesImpl.getProperties()
+                          .getInt(TCPropertiesConsts.TC_MESSAGE_COMPRESSION_MAX_INFLATED_KB, PayloadCompression.DEFAULT_MAX_INFLATED_SIZE / 1024);
+  private static final boolean CHECKSUM_CRC32C = TCPropertiesImpl.getProperties()
+                          .getBoolean(TCPropertiesConsts.TC_MESSAGE_CHECKSUM_CRC32C, true);
+  private static final boolean CHECKSUM_PAYLOAD = TCPropertiesImpl.getProperties()
+                          .getBoolean(TCPropertiesConsts.TC_MESSAGE_CHECKSUM_PAYLOAD, false);
+
   private volatile TCConnection                             connection;
 
   private ConnectionID                           connectionId           = new ConnectionID(JvmIDUtil.getJvmID(),
@@ -237,6 +252,50 @@ abstract class MessageTransportBase extends AbstractMessageTransport implements
     wireNewConnection(newConnection);
   }
 
+  /**
+   * Codecs this side offers in a SYN or can accept from one.
+   */
+  static byte getSupportedCompressionCodecs() {
+    return COMPRESSION_ENABLED ? PayloadCompression.CODEC_DEFLATE : PayloadCompression.CODEC_NONE;
+  }
+
+  /**
+   * Applies the codec agreed at handshake to the payloads of the connection.  Until a codec is agreed a compressed
+   * incoming payload is a protocol error.
+   */
+  static void enableCompression(TCConnection connection, byte codec) {
+    if (codec == PayloadCompression.CODEC_DEFLATE) {
+      connection.setPayloadCompression(new PayloadCompression(COMPRESSION_LEVEL, COMPRESSION_THRESHOLD,
+                                                             (int) Math.min(Integer.MAX_VALUE, COMPRESSION_MAX_INFLATED_KB * 1024L)));
+    }
+  }
+
+  /**
+   * Wire features this side offers in a SYN or can accept from one.  A payload checksum is only offered alongside
+   * CRC32C headers.
+   */
+  static byte getSupportedWireFeatures() {
+    byte features = 0;
+    if (CHECKSUM_CRC32C) {
+      features |= WireProtocolHeader.FEATURE_CRC32C;
+      if (CHECKSUM_PAYLOAD) {
+        features |= WireProtocolHeader.FEATURE_PAYLOAD_CHECKSUM;
+      }
+    }
+    return features;
+  }
+
+  /**
+   * A payload checksum is sent when either side asked for one, as long as both sides speak CRC32C.
+   */
+  static byte negotiateWireFeatures(byte offered) {
+    byte supported = getSupportedWireFeatures();
+    if ((offered & supported & WireProtocolHeader.FEATURE_CRC32C) == 0) {
+      return 0;
+    }
+    return (byte) (WireProtocolHeader.FEATURE_CRC32C | ((offered | supported) & WireProtocolHeader.FEATURE_PAYLOAD_CHECKSUM));
+  }
+
   /*********************************************************************************************************************
    * TCConnection listener interface
    */
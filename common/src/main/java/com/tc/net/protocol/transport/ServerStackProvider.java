@@ -246,6 +246,8 @@ public class ServerStackProvider implements NetworkStackProvider, MessageTranspo
     private volatile boolean                     isSynReceived    = false;
     private volatile boolean                     isHandshakeError = false;
     private volatile MessageTransport            transport;
+    private volatile byte                        compressionCodecs = PayloadCompression.CODEC_NONE;
+    private volatile byte                        wireFeatures      = 0;
 
     private MessageSink(TransportHandshakeErrorHandler handshakeErrorHandler) {
       this.handshakeErrorHandler = handshakeErrorHandler;
@@ -319,6 +321,8 @@ public class ServerStackProvider implements NetworkStackProvider, MessageTranspo
     private void handleSyn(SynMessage syn) throws RejectReconnectionException, ProductNotSupportedException {
       ConnectionID connectionId = syn.getConnectionId();
       boolean isMaxConnectionReached = false;
+      this.compressionCodecs = syn.getCompressionCodecs();
+      this.wireFeatures = syn.getWireFeatures();
 
       if (connectionId == null) {
         this.transport = messageTransportFactory.createNewTransport(syn.getSource(),
@@ -415,7 +419,12 @@ public class ServerStackProvider implements NetworkStackProvider, MessageTranspo
                 source, isMaxConnectionsReached, maxConnections);
         }
       } else {
-        synAck = handshakeMessageFactory.createSynAck(connectionId, source, isMaxConnectionsReached, maxConnections);
+        byte codec = PayloadCompression.negotiate(compressionCodecs, MessageTransportBase.getSupportedCompressionCodecs());
+        byte features = MessageTransportBase.negotiateWireFeatures(wireFeatures);
+        synAck = handshakeMessageFactory.createSynAck(connectionId, source, isMaxConnectionsReached, maxConnections, codec,
+                                                      features);
+        MessageTransportBase.enableCompression(source, codec);
+        source.setWireFeatures(features);
         source.setTransportEstablished();
       }
       sendMessage(synAck);
@@ -55,6 +55,18 @@ public interface TCPropertiesConsts {
   public static final String L2_SEDA_STAGE_ALWAYS_HYDRATE                                    = "l2.seda.stage.always.hydrate";
   public static final String L2_TCCOM_WORKERTHREADS                                                          = "l2.tccom.workerthreads";
   public static final String L2_SEDA_STAGE_WORKERTHREADS                                                     = "l2.seda.stage.workerthreads";
+  public static final String L2_SEDA_VOLTRON_STAGE_THREADS                                                   = "l2.seda.stage.voltron.threads";
+  public static final String L2_SEDA_FASTPATH_STAGE_THREADS                                                  = "l2.seda.stage.fastpath.threads";
+  public static final String L2_SEDA_STAGE_ELASTIC_MIN_THREADS                                               = "l2.seda.stage.elastic.min";
+  public static final String L2_SEDA_STAGE_ELASTIC_IDLE                                                      = "l2.seda.stage.elastic.idle";
+  public static final String L2_SEDA_STAGE_ELASTIC_GROW_BACKLOG                                              = "l2.seda.stage.elastic.grow.backlog";
+  public static final String L2_THREAD_AFFINITY                                                              = "l2.thread.affinity";
+  public static final String L2_THREAD_AFFINITY_CPUS                                                         = "l2.thread.affinity.cpus";
+  public static final String L2_MONITORING_ASYNC                                                             = "l2.monitoring.async";
+  public static final String L2_RESEND_REPLAY_THREADS                                                        = "l2.resend.replay.threads";
+  public static final String L2_RESEND_REPLAY_PARALLEL_THRESHOLD                                             = "l2.resend.replay.parallel.threshold";
+  public static final String L2_RESPONSE_LINGER_BATCH                                                        = "l2.response.linger.batch";
+  public static final String L2_RESPONSE_LINGER_BACKLOG                                                      = "l2.response.linger.backlog";
 
   /*********************************************************************************************************************
    * <code>
@@ -66,6 +78,8 @@ public interface TCPropertiesConsts {
    * tcgroupcomm.discovery.interval       - tc-group-comm member discovery interval milliseconds
    * send.timeout.millis                  - Number of milliseconds to retry sending a message
    * dirtydb.backup.enabled               - Creates BackUp of DirtyDB only If it is set to true.
+   * ack.ranges                           - Collapse acks of consecutive activities into ranges, turn off while
+   *                                        servers of the stripe still run a version which can not read them
    * </code>
    ********************************************************************************************************************/
   public static final String L2_NHA_TCGROUPCOMM_HANDSHAKE_TIMEOUT                           = "l2.nha.tcgroupcomm.handshake.timeout";
@@ -74,6 +88,7 @@ public interface TCPropertiesConsts {
   public static final String L2_NHA_TCGROUPCOMM_RECONNECT_L2PROXY_TO_PORT                   = "l2.nha.tcgroupcomm.l2proxytoport";
   public static final String L2_NHA_DIRTYDB_AUTODELETE                                      = "l2.nha.dirtydb.autoDelete";
   public static final String L2_NHA_AUTORESTART                                             = "l2.nha.autoRestart";
+  public static final String L2_NHA_ACK_RANGES                                              = "l2.nha.ack.ranges";
 
   /*********************************************************************************************************************
    * <code>
@@ -144,6 +159,12 @@ public interface TCPropertiesConsts {
    * bytebuffer.pooling.enabled           : Enable/disable tc byte buffer pooling
    * bytebuffer.common.pool.maxcount      : Max size of pool for tc byte buffer
    * bytebuffer.threadlocal.pool.maxcount : Thread pool size
+   * messages.compression.enabled         : <true/false>    - Offer and accept deflate compression at transport handshake
+   * messages.compression.threshold       : int             - smallest payload in bytes that is compressed
+   * messages.compression.level           : int             - deflate level, 1 (fastest) to 9 (smallest)
+   * messages.compression.maxInflatedKiloBytes : int         - largest compressed payload accepted once inflated
+   * messages.checksum.crc32c             : <true/false>    - Offer and accept CRC32C (wire version 3) header checksums
+   * messages.checksum.payload            : <true/false>    - Also checksum every payload with CRC32C
    * </code>
    ********************************************************************************************************************/
   
@@ -155,6 +176,12 @@ public interface TCPropertiesConsts {
   public static final String TC_MESSAGE_GROUPING_MAXSIZE_KB                                 = "tc.messages.grouping.maxSizeKiloBytes";
   public static final String TC_MESSAGE_GROUPING_MAX_COUNT                                  = "tc.messages.grouping.maxCount";
   public static final String TC_MESSAGE_PACKUP_ENABLED                                      = "tc.messages.packup.enabled";
+  public static final String TC_MESSAGE_COMPRESSION_ENABLED                                 = "tc.messages.compression.enabled";
+  public static final String TC_MESSAGE_COMPRESSION_THRESHOLD                               = "tc.messages.compression.threshold";
+  public static final String TC_MESSAGE_COMPRESSION_LEVEL                                   = "tc.messages.compression.level";
+  public static final String TC_MESSAGE_COMPRESSION_MAX_INFLATED_KB                         = "tc.messages.compression.maxInflatedKiloBytes";
+  public static final String TC_MESSAGE_CHECKSUM_CRC32C                                     = "tc.messages.checksum.crc32c";
+  public static final String TC_MESSAGE_CHECKSUM_PAYLOAD                                    = "tc.messages.checksum.payload";
 
   /*********************************************************************************************************************
    * <code>
@@ -288,6 +315,18 @@ public interface TCPropertiesConsts {
       ENTITY_PROCESSOR_THREADS,
       L2_TCCOM_WORKERTHREADS,
       L2_SEDA_STAGE_WORKERTHREADS,
+      L2_SEDA_VOLTRON_STAGE_THREADS,
+      L2_SEDA_FASTPATH_STAGE_THREADS,
+      L2_SEDA_STAGE_ELASTIC_MIN_THREADS,
+      L2_SEDA_STAGE_ELASTIC_IDLE,
+      L2_SEDA_STAGE_ELASTIC_GROW_BACKLOG,
+      L2_THREAD_AFFINITY,
+      L2_THREAD_AFFINITY_CPUS,
+      L2_MONITORING_ASYNC,
+      L2_RESEND_REPLAY_THREADS,
+      L2_RESEND_REPLAY_PARALLEL_THRESHOLD,
+      L2_RESPONSE_LINGER_BATCH,
+      L2_RESPONSE_LINGER_BACKLOG,
       L2_SEDA_STAGE_DISABLE_DIRECT_SINKS,
       L2_SEDA_STAGE_USE_BACKOFF,
       L2_SEDA_STAGE_SINGLE_THREAD,
@@ -0,0 +1,164 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe map keyed by primitive longs built from lock-striped {@link LongObjectHashMap} segments.  It is meant
+ * for hot, short-lived mappings such as in-flight transactions where a ConcurrentHashMap would box every key and
+ * allocate a node per entry.
+ * <p>
+ * Iteration methods work on a snapshot taken one segment at a time so they are weakly consistent, like the iterators
+ * of ConcurrentHashMap.
+ */
+public class ConcurrentLongObjectHashMap<V> {
+  private final LongObjectHashMap<V>[] segments;
+  private final int segmentShift;
+  private final AtomicInteger size = new AtomicInteger();
+
+  public ConcurrentLongObjectHashMap() {
+    this(Runtime.getRuntime().availableProcessors() * 4);
+  }
+
+  @SuppressWarnings("unchecked")
+  public ConcurrentLongObjectHashMap(int concurrency) {
+    int count = Integer.highestOneBit(Math.max(2, concurrency) - 1) << 1;
+    segments = new LongObjectHashMap[count];
+    for (int x = 0; x < count; x++) {
+      segments[x] = new LongObjectHashMap<>();
+    }
+    segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(count);
+  }
+
+  public V get(long key) {
+    LongObjectHashMap<V> segment = segmentFor(key);
+    synchronized (segment) {
+      return segment.get(key);
+    }
+  }
+
+  public boolean containsKey(long key) {
+    return get(key) != null;
+  }
+
+  public V put(long key, V value) {
+    LongObjectHashMap<V> segment = segmentFor(key);
+    V previous;
+    synchronized (segment) {
+      previous = segment.put(key, value);
+    }
+    if (previous == null) {
+      size.incrementAndGet();
+    }
+    return previous;
+  }
+
+  public V putIfAbsent(long key, V value) {
+    LongObjectHashMap<V> segment = segmentFor(key);
+    V previous;
+    synchronized (segment) {
+      previous = segment.putIfAbsent(key, value);
+    }
+    if (previous == null) {
+      size.incrementAndGet();
+    }
+    return previous;
+  }
+
+  public V remove(long key) {
+    LongObjectHashMap<V> segment = segmentFor(key);
+    V previous;
+    synchronized (segment) {
+      previous = segment.remove(key);
+    }
+    if (previous != null) {
+      size.decrementAndGet();
+    }
+    return previous;
+  }
+
+  public boolean remove(long key, V expected) {
+    LongObjectHashMap<V> segment = segmentFor(key);
+    boolean removed;
+    synchronized (segment) {
+      removed = segment.remove(key, expected);
+    }
+    if (removed) {
+      size.decrementAndGet();
+    }
+    return removed;
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  public boolean isEmpty() {
+    return size.get() == 0;
+  }
+
+  public void clear() {
+    for (LongObjectHashMap<V> segment : segments) {
+      synchronized (segment) {
+        size.addAndGet(-segment.size());
+        segment.clear();
+      }
+    }
+  }
+
+  public void forEach(LongObjectHashMap.Visitor<? super V> visitor) {
+    for (LongObjectHashMap<V> segment : segments) {
+      long[] keys;
+      List<V> values;
+      synchronized (segment) {
+        keys = segment.keys();
+        values = segment.values();
+      }
+      // visit outside of the lock so the visitor is free to modify the map
+      for (int x = 0; x < keys.length; x++) {
+        visitor.visit(keys[x], values.get(x));
+      }
+    }
+  }
+
+  /**
+   * @return a snapshot of the values currently in the map
+   */
+  public List<V> values() {
+    List<V> list = new ArrayList<>(size());
+    for (LongObjectHashMap<V> segment : segments) {
+      synchronized (segment) {
+        segment.forEach((k, v) -> list.add(v));
+      }
+    }
+    return list;
+  }
+
+  private LongObjectHashMap<V> segmentFor(long key) {
+    // segments take the top bits and slots the bottom ones so they never overlap, however large a segment grows
+    return segments[LongObjectHashMap.mix(key) >>> segmentShift];
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrentLongObjectHashMap{" + "size=" + size + '}';
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An open-addressing hash map keyed by primitive longs.  Keys are stored in a flat long[] next to their values so no
+ * boxed keys or entry objects are created.  Collisions are resolved with linear probing and removal shifts the
+ * following entries back so no tombstones are left behind.
+ * <p>
+ * Null values are not permitted.  This class is not thread-safe, see {@link ConcurrentLongObjectHashMap}.
+ */
+public class LongObjectHashMap<V> {
+  private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+  private long[] keys;
+  private Object[] values;
+  private int mask;
+  private int size;
+  private int resizeAt;
+
+  public LongObjectHashMap() {
+    this(16);
+  }
+
+  public LongObjectHashMap(int expectedSize) {
+    allocate(capacityFor(expectedSize));
+  }
+
+  public V get(long key) {
+    int slot = slot(key);
+    Object value = values[slot];
+    while (value != null) {
+      if (keys[slot] == key) {
+        return cast(value);
+      }
+      slot = (slot + 1) & mask;
+      value = values[slot];
+    }
+    return null;
+  }
+
+  public boolean containsKey(long key) {
+    return get(key) != null;
+  }
+
+  public V put(long key, V value) {
+    Objects.requireNonNull(value);
+    int slot = slot(key);
+    Object current = values[slot];
+    while (current != null) {
+      if (keys[slot] == key) {
+        values[slot] = value;
+        return cast(current);
+      }
+      slot = (slot + 1) & mask;
+      current = values[slot];
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > resizeAt) {
+      resize(values.length << 1);
+    }
+    return null;
+  }
+
+  public V putIfAbsent(long key, V value) {
+    V current = get(key);
+    if (current == null) {
+      put(key, value);
+    }
+    return current;
+  }
+
+  public V remove(long key) {
+    int slot = slot(key);
+    Object value = values[slot];
+    while (value != null) {
+      if (keys[slot] == key) {
+        shiftBack(slot);
+        size -= 1;
+        return cast(value);
+      }
+      slot = (slot + 1) & mask;
+      value = values[slot];
+    }
+    return null;
+  }
+
+  public boolean remove(long key, V expected) {
+    V current = get(key);
+    if (current != null && current.equals(expected)) {
+      remove(key);
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  public void forEach(Visitor<? super V> visitor) {
+    for (int x = 0; x < values.length; x++) {
+      Object value = values[x];
+      if (value != null) {
+        visitor.visit(keys[x], cast(value));
+      }
+    }
+  }
+
+  /**
+   * @return a copy of the values currently in the map
+   */
+  public List<V> values() {
+    List<V> list = new ArrayList<>(size);
+    forEach((k, v) -> list.add(v));
+    return list;
+  }
+
+  /**
+   * @return a copy of the keys currently in the map
+   */
+  public long[] keys() {
+    long[] list = new long[size];
+    int pos = 0;
+    for (int x = 0; x < values.length; x++) {
+      if (values[x] != null) {
+        list[pos++] = keys[x];
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Removes the entry in the given slot and moves any following entries of the same probe run back into the gap so
+   * lookups never stop early at an empty slot.
+   */
+  private void shiftBack(int gap) {
+    int slot = (gap + 1) & mask;
+    while (values[slot] != null) {
+      int home = slot(keys[slot]);
+      // move the entry only if the gap lies cyclically between its home slot and its current slot
+      if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+        keys[gap] = keys[slot];
+        values[gap] = values[slot];
+        gap = slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    values[gap] = null;
+  }
+
+  private void resize(int capacity) {
+    if (capacity > MAXIMUM_CAPACITY) {
+      throw new IllegalStateException("map is full");
+    }
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(capacity);
+    for (int x = 0; x < oldValues.length; x++) {
+      if (oldValues[x] != null) {
+        int slot = slot(oldKeys[x]);
+        while (values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[x];
+        values[slot] = oldValues[x];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    // keep the table at most 3/4 full
+    resizeAt = capacity - (capacity >>> 2);
+  }
+
+  private int slot(long key) {
+    return mix(key) & mask;
+  }
+
+  static int mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private static int capacityFor(int expectedSize) {
+    int wanted = Math.max(4, (int) Math.min(MAXIMUM_CAPACITY, (long) expectedSize * 4 / 3 + 1));
+    return Integer.highestOneBit(wanted - 1) << 1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> V cast(Object value) {
+    return (V) value;
+  }
+
+  @Override
+  public String toString() {
+    return "LongObjectHashMap{" + "size=" + size + '}';
+  }
+
+  @FunctionalInterface
+  public interface Visitor<V> {
+    void visit(long key, V value);
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A growable double-ended queue of primitive longs backed by a power of two sized ring.  Elements can also be read by
+ * position, counting from the head, which allows binary searches over monotonic sequences.  This class is not
+ * thread-safe.
+ */
+public class LongRingDeque {
+  private long[] ring;
+  private int head;
+  private int size;
+
+  public LongRingDeque() {
+    this(16);
+  }
+
+  public LongRingDeque(int initialCapacity) {
+    ring = new long[Integer.highestOneBit(Math.max(2, initialCapacity) - 1) << 1];
+  }
+
+  public void addLast(long value) {
+    if (size == ring.length) {
+      grow();
+    }
+    ring[(head + size) & (ring.length - 1)] = value;
+    size += 1;
+  }
+
+  public void addFirst(long value) {
+    if (size == ring.length) {
+      grow();
+    }
+    head = (head - 1) & (ring.length - 1);
+    ring[head] = value;
+    size += 1;
+  }
+
+  public long peekFirst() {
+    checkNotEmpty();
+    return ring[head];
+  }
+
+  public long peekLast() {
+    checkNotEmpty();
+    return ring[(head + size - 1) & (ring.length - 1)];
+  }
+
+  public long removeFirst() {
+    checkNotEmpty();
+    long value = ring[head];
+    head = (head + 1) & (ring.length - 1);
+    size -= 1;
+    return value;
+  }
+
+  public long removeLast() {
+    checkNotEmpty();
+    size -= 1;
+    return ring[(head + size) & (ring.length - 1)];
+  }
+
+  /**
+   * @param index position counted from the head of the deque
+   */
+  public long get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index:" + index + " size:" + size);
+    }
+    return ring[(head + index) & (ring.length - 1)];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  public long[] toArray() {
+    long[] copy = new long[size];
+    for (int x = 0; x < size; x++) {
+      copy[x] = ring[(head + x) & (ring.length - 1)];
+    }
+    return copy;
+  }
+
+  private void grow() {
+    long[] next = new long[ring.length << 1];
+    int first = Math.min(size, ring.length - head);
+    System.arraycopy(ring, head, next, 0, first);
+    System.arraycopy(ring, 0, next, first, size - first);
+    ring = next;
+    head = 0;
+  }
+
+  private void checkNotEmpty() {
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "LongRingDeque{" + "size=" + size + '}';
+  }
+}
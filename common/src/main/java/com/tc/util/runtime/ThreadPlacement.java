@@ -0,0 +1,286 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.util.runtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Optional placement of the server pipeline threads on cpus, set with {@code l2.thread.affinity}.
+ * <ul>
+ * <li>{@code off} - the default, threads are left to the OS scheduler</li>
+ * <li>{@code node} - a thread may run on any cpu of one NUMA node</li>
+ * <li>{@code core} - a thread is pinned to a single cpu of one NUMA node</li>
+ * </ul>
+ * The node is picked from the lane of the thread, its comm worker or stage queue index, so lane {@code n} of every
+ * stage lands on the same node.  Stages keyed by client with a queue count that is a multiple of the node count so
+ * keep a client's messages on one node.  Within a node the cpus are handed out in turn across all stages so the same
+ * lane of two stages does not share a cpu.  {@code l2.thread.affinity.cpus} restricts placement to a cpu list, in
+ * the format taskset accepts, a list that does not parse is logged and turns placement off.
+ * <p>
+ * The affinity is set by running {@code taskset} against the thread id found through {@code /proc/thread-self} so
+ * this only works on Linux and needs no native code.  Each thread remembers what it was placed on and only forks
+ * {@code taskset} again when that changes.  The first failure is logged and turns placement off.
+ */
+public class ThreadPlacement {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ThreadPlacement.class);
+
+  public enum Mode {
+    OFF, NODE, CORE
+  }
+
+  private static final ThreadPlacement INSTANCE = fromProperties();
+
+  private final Mode mode;
+  private final List<int[]> nodes;
+  private final String[] nodeCpus;
+  // the next cpu of each node to pin a thread to in core mode, shared by every stage
+  private final AtomicInteger[] nextCpu;
+  private final ThreadLocal<String> applied = new ThreadLocal<>();
+  private final AtomicInteger placed = new AtomicInteger();
+  private volatile boolean failed;
+
+  ThreadPlacement(Mode mode, List<int[]> nodes) {
+    this.mode = nodes.isEmpty() ? Mode.OFF : mode;
+    this.nodes = nodes;
+    this.nodeCpus = new String[nodes.size()];
+    this.nextCpu = new AtomicInteger[nodes.size()];
+    for (int x = 0; x < nodes.size(); x++) {
+      nodeCpus[x] = Arrays.stream(nodes.get(x)).mapToObj(Integer::toString).collect(Collectors.joining(","));
+      nextCpu[x] = new AtomicInteger();
+    }
+  }
+
+  public static ThreadPlacement getInstance() {
+    return INSTANCE;
+  }
+
+  private static ThreadPlacement fromProperties() {
+    String setting = TCPropertiesImpl.getProperties().getProperty(TCPropertiesConsts.L2_THREAD_AFFINITY, true);
+    Mode mode = parseMode(setting);
+    if (mode == Mode.OFF) {
+      return new ThreadPlacement(Mode.OFF, new ArrayList<>());
+    }
+    if (!Os.isLinux()) {
+      LOGGER.warn("thread affinity is only supported on linux, {} ignored", TCPropertiesConsts.L2_THREAD_AFFINITY);
+      return new ThreadPlacement(Mode.OFF, new ArrayList<>());
+    }
+    String allowed = TCPropertiesImpl.getProperties().getProperty(TCPropertiesConsts.L2_THREAD_AFFINITY_CPUS, true);
+    BitSet allowedCpus;
+    try {
+      allowedCpus = allowed == null ? null : parseCpuList(allowed);
+    } catch (NumberFormatException e) {
+      LOGGER.warn("invalid {} value '{}', thread affinity is off", TCPropertiesConsts.L2_THREAD_AFFINITY_CPUS, allowed, e);
+      return new ThreadPlacement(Mode.OFF, new ArrayList<>());
+    }
+    List<int[]> nodes = restrict(readNodes(Paths.get("/sys/devices/system/node")), allowedCpus);
+    ThreadPlacement placement = new ThreadPlacement(mode, nodes);
+    LOGGER.info("thread affinity {} over {} numa node(s): {}", placement.mode, nodes.size(), placement.describeNodes());
+    return placement;
+  }
+
+  /**
+   * A setting that is not one of the modes is logged and treated as off rather than failing every stage thread.
+   */
+  static Mode parseMode(String setting) {
+    if (setting == null) {
+      return Mode.OFF;
+    }
+    try {
+      return Mode.valueOf(setting.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      LOGGER.warn("unknown {} value '{}', expected one of {}, thread affinity is off", TCPropertiesConsts.L2_THREAD_AFFINITY,
+                  setting, Arrays.stream(Mode.values()).map(m -> m.name().toLowerCase()).collect(Collectors.joining(", ")));
+      return Mode.OFF;
+    }
+  }
+
+  /**
+   * Places the calling thread for the given lane, a negative lane leaves the thread alone.
+   */
+  public void placeCurrentThread(int lane) {
+    if (mode == Mode.OFF || failed || lane < 0) {
+      return;
+    }
+    apply(cpusFor(lane));
+  }
+
+  /**
+   * Places the calling thread on the node of the given lane, for threads shared by all the lanes of a stage.  Only
+   * the node matters to them so a thread moving between lanes of one node keeps its placement.
+   */
+  public void placeCurrentThreadOnNode(int lane) {
+    if (mode == Mode.OFF || failed || lane < 0) {
+      return;
+    }
+    apply(nodeCpus(lane));
+  }
+
+  private void apply(String cpus) {
+    if (cpus.equals(applied.get())) {
+      return;
+    }
+    try {
+      String tid = Paths.get("/proc/thread-self").toRealPath().getFileName().toString();
+      Process taskset = new ProcessBuilder("taskset", "-p", "-c", cpus, tid).redirectErrorStream(true).start();
+      String output = readFully(taskset.getInputStream());
+      if (taskset.waitFor() != 0) {
+        throw new IOException(output.trim());
+      }
+      applied.set(cpus);
+      placed.incrementAndGet();
+      LOGGER.debug("{} placed on cpus {}", Thread.currentThread().getName(), cpus);
+    } catch (IOException e) {
+      failed = true;
+      LOGGER.warn("unable to set the affinity of {}, thread affinity is now off", Thread.currentThread().getName(), e);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  String cpusFor(int lane) {
+    if (mode == Mode.CORE) {
+      int index = lane % nodes.size();
+      int[] node = nodes.get(index);
+      return Integer.toString(node[Math.floorMod(nextCpu[index].getAndIncrement(), node.length)]);
+    }
+    return nodeCpus(lane);
+  }
+
+  String nodeCpus(int lane) {
+    return nodeCpus[lane % nodes.size()];
+  }
+
+  public boolean isEnabled() {
+    return mode != Mode.OFF && !failed;
+  }
+
+  public Map<String, ?> getState() {
+    Map<String, Object> state = new LinkedHashMap<>();
+    state.put("mode", mode);
+    state.put("failed", failed);
+    state.put("nodes", describeNodes());
+    state.put("placed", placed.get());
+    return state;
+  }
+
+  private String describeNodes() {
+    return nodes.stream().map(Arrays::toString).collect(Collectors.joining(" "));
+  }
+
+  /**
+   * Reads the cpus of each NUMA node, a machine without node information is one node of all the online cpus.
+   */
+  static List<int[]> readNodes(Path root) {
+    List<int[]> nodes = new ArrayList<>();
+    try {
+      if (Files.isDirectory(root)) {
+        List<Path> dirs;
+        try (Stream<Path> list = Files.list(root)) {
+          dirs = list.filter(p -> p.getFileName().toString().matches("node\\d+"))
+              .sorted((a, b) -> Integer.compare(nodeNumber(a), nodeNumber(b)))
+              .collect(Collectors.toList());
+        }
+        for (Path dir : dirs) {
+          BitSet cpus = parseCpuList(new String(Files.readAllBytes(dir.resolve("cpulist")), StandardCharsets.US_ASCII));
+          if (!cpus.isEmpty()) {
+            nodes.add(cpus.stream().toArray());
+          }
+        }
+      }
+      if (nodes.isEmpty()) {
+        Path online = Paths.get("/sys/devices/system/cpu/online");
+        BitSet cpus = Files.isReadable(online) ? parseCpuList(new String(Files.readAllBytes(online), StandardCharsets.US_ASCII)) : new BitSet();
+        if (cpus.isEmpty()) {
+          cpus.set(0, Runtime.getRuntime().availableProcessors());
+        }
+        nodes.add(cpus.stream().toArray());
+      }
+    } catch (IOException e) {
+      LOGGER.warn("unable to read the numa layout", e);
+    }
+    return nodes;
+  }
+
+  private static int nodeNumber(Path dir) {
+    return Integer.parseInt(dir.getFileName().toString().substring("node".length()));
+  }
+
+  static List<int[]> restrict(List<int[]> nodes, BitSet allowed) {
+    if (allowed == null) {
+      return nodes;
+    }
+    List<int[]> restricted = new ArrayList<>(nodes.size());
+    for (int[] node : nodes) {
+      int[] cpus = Arrays.stream(node).filter(allowed::get).toArray();
+      if (cpus.length > 0) {
+        restricted.add(cpus);
+      }
+    }
+    return restricted;
+  }
+
+  /**
+   * Parses a cpu list such as {@code 0-3,8,10-11}.
+   */
+  static BitSet parseCpuList(String list) {
+    BitSet cpus = new BitSet();
+    for (String part : list.trim().split(",")) {
+      part = part.trim();
+      if (part.isEmpty()) {
+        continue;
+      }
+      int dash = part.indexOf('-');
+      if (dash < 0) {
+        cpus.set(Integer.parseInt(part));
+      } else {
+        cpus.set(Integer.parseInt(part.substring(0, dash).trim()), Integer.parseInt(part.substring(dash + 1).trim()) + 1);
+      }
+    }
+    return cpus;
+  }
+
+  private static String readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[256];
+    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+      out.write(buffer, 0, read);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -17,6 +17,7 @@
  */
 package com.tc.async.impl;
 
+import com.tc.async.api.AbstractEventHandler;
 import com.tc.async.api.ConfigurationContext;
 import com.tc.async.api.EventHandler;
 import com.tc.async.api.EventHandlerException;
@@ -36,12 +37,17 @@ import org.mockito.invocation.InvocationOnMock;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -101,6 +107,61 @@ public class StageImplTest {
     
   }
   
+  @Test
+  public void testElasticStageKeepsKeyOrder() throws Exception {
+    TCLoggerProvider logger = new DefaultLoggerProvider();
+    Map<Object, Integer> last = new ConcurrentHashMap<>();
+    AtomicInteger outOfOrder = new AtomicInteger();
+    EventHandler<KeyedContext> handler = new AbstractEventHandler<KeyedContext>() {
+      @Override
+      public void handleEvent(KeyedContext context) throws EventHandlerException {
+        Integer prev = last.put(context.key, context.seq);
+        if (prev != null && prev != context.seq - 1) {
+          outOfOrder.incrementAndGet();
+        }
+      }
+    };
+    StageImpl<KeyedContext> instance = new StageImpl<>(logger, "elastic", KeyedContext.class, handler, 1, 4, null, new QueueFactory(), null, 64, false);
+    instance.start(mock(ConfigurationContext.class));
+    for (int seq = 0; seq < 200; seq++) {
+      for (int key = 0; key < 16; key++) {
+        instance.getSink().addToSink(new KeyedContext(key, seq));
+      }
+    }
+    instance.waitForIdle();
+    assertEquals(0, outOfOrder.get());
+    assertEquals(16, last.size());
+
+    assertTrue(instance.setThreadBounds(2, 2));
+    assertEquals(2, ((Map<?, ?>)instance.getState().get("elastic")).get("max"));
+    try {
+      instance.setThreadBounds(1, 5);
+      fail("more threads than queues");
+    } catch (IllegalArgumentException expected) {
+    }
+    instance.destroy();
+  }
+
+  private static class KeyedContext implements MultiThreadedEventContext {
+    private final int key;
+    private final int seq;
+
+    KeyedContext(int key, int seq) {
+      this.key = key;
+      this.seq = seq;
+    }
+
+    @Override
+    public Object getSchedulingKey() {
+      return key;
+    }
+
+    @Override
+    public boolean flush() {
+      return false;
+    }
+  }
+
   private void testMultiContextFlush(int size) throws Exception {
     System.out.println("test a multi context flush");
     TCLoggerProvider logger = new DefaultLoggerProvider();
@@ -0,0 +1,87 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.net.core;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams grouped messages over loopback through each endpoint and prints the throughput, so the cost of encryption
+ * can be compared with clear text on the same machine.
+ * <p>
+ * Arguments are the megabytes per run, default 1024, and the size of a message group, default 65536, which is sent
+ * as one small header buffer and three body buffers like a batch of grouped messages.
+ */
+public class SocketEndpointLoopbackBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    long megabytes = (args.length > 0) ? Long.parseLong(args[0]) : 1024;
+    int groupSize = (args.length > 1) ? Integer.parseInt(args[1]) : 64 * 1024;
+
+    SocketEndpointFactory clear = new ClearTextSocketEndpointFactory();
+    TLSSocketEndpointFactory tls = new TLSSocketEndpointFactory(TLSSocketEndpointTest.createContext());
+    // warm up both before measuring
+    run(clear, megabytes / 4, groupSize);
+    run(tls, megabytes / 4, groupSize);
+
+    double clearRate = run(clear, megabytes, groupSize);
+    double tlsRate = run(tls, megabytes, groupSize);
+    System.out.printf("clear text %.1f MB/s%n", clearRate);
+    System.out.printf("%s %.1f MB/s, %.0f%% of clear text%n", tls.getStateMap().get("protocol"), tlsRate, 100 * tlsRate / clearRate);
+    System.out.println(tls.getStateMap());
+  }
+
+  private static double run(SocketEndpointFactory factory, long megabytes, int groupSize) throws Exception {
+    long total = megabytes * 1024 * 1024;
+    long groups = total / groupSize;
+    int header = 32;
+    int body = (groupSize - header) / 3;
+    SocketChannel[] channels = TLSSocketEndpointTest.connect();
+    try (SocketEndpoint client = factory.createSocketEndpoint(channels[0], true);
+         SocketEndpoint server = factory.createSocketEndpoint(channels[1], false)) {
+      ByteBuffer[] group = new ByteBuffer[] {ByteBuffer.allocateDirect(header), ByteBuffer.allocateDirect(body),
+                                             ByteBuffer.allocateDirect(body), ByteBuffer.allocateDirect(groupSize - header - 2 * body)};
+      long start = System.nanoTime();
+      CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+        try {
+          for (long x = 0; x < groups; x++) {
+            for (ByteBuffer b : group) {
+              b.clear();
+            }
+            TLSSocketEndpointTest.writeFully(client, group);
+          }
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      });
+      ByteBuffer[] in = new ByteBuffer[] {ByteBuffer.allocateDirect(groupSize)};
+      for (long x = 0; x < groups; x++) {
+        in[0].clear();
+        TLSSocketEndpointTest.readFully(server, in);
+      }
+      writer.get(1, TimeUnit.MINUTES);
+      long elapsed = System.nanoTime() - start;
+      return (groups * groupSize / (1024.0 * 1024.0)) / (elapsed / 1_000_000_000.0);
+    } finally {
+      channels[0].close();
+      channels[1].close();
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.net.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.KeyStore;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class TLSSocketEndpointTest {
+
+  static SSLContext createContext() throws Exception {
+    char[] password = "terracotta".toCharArray();
+    KeyStore store = KeyStore.getInstance("PKCS12");
+    try (InputStream in = TLSSocketEndpointTest.class.getResourceAsStream("tls-test.p12")) {
+      store.load(in, password);
+    }
+    KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keys.init(store, password);
+    TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trust.init(store);
+    SSLContext context = SSLContext.getInstance("TLS");
+    context.init(keys.getKeyManagers(), trust.getTrustManagers(), null);
+    return context;
+  }
+
+  /**
+   * @return a connected client and server channel pair, both non-blocking
+   */
+  static SocketChannel[] connect() throws IOException {
+    try (ServerSocketChannel listen = ServerSocketChannel.open()) {
+      listen.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      SocketChannel client = SocketChannel.open(listen.getLocalAddress());
+      SocketChannel server = listen.accept();
+      client.configureBlocking(false);
+      server.configureBlocking(false);
+      return new SocketChannel[] {client, server};
+    }
+  }
+
+  /**
+   * Writes like the connection writer does, going around until everything is taken and then flushing until the
+   * endpoint holds nothing back.
+   */
+  static void writeFully(SocketEndpoint endpoint, ByteBuffer[] data) throws IOException {
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (hasRemaining(data)) {
+      if (endpoint.writeFrom(data) == SocketEndpoint.ResultType.EOF) {
+        throw new IOException("eof");
+      } else if (System.nanoTime() > end) {
+        throw new IOException("timed out");
+      }
+    }
+    SocketEndpoint.ResultType flushed = endpoint.flush();
+    while (flushed != SocketEndpoint.ResultType.SUCCESS) {
+      if (flushed == SocketEndpoint.ResultType.EOF) {
+        throw new IOException("eof");
+      } else if (System.nanoTime() > end) {
+        throw new IOException("timed out");
+      }
+      flushed = endpoint.flush();
+    }
+  }
+
+  static void readFully(SocketEndpoint endpoint, ByteBuffer[] data) throws IOException {
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (hasRemaining(data)) {
+      if (endpoint.readTo(data) == SocketEndpoint.ResultType.EOF) {
+        throw new IOException("eof");
+      } else if (System.nanoTime() > end) {
+        throw new IOException("timed out");
+      }
+    }
+  }
+
+  private static boolean hasRemaining(ByteBuffer[] data) {
+    for (ByteBuffer b : data) {
+      if (b.hasRemaining()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static ByteBuffer pattern(int size, int seed) {
+    ByteBuffer b = ByteBuffer.allocateDirect(size);
+    for (int x = 0; x < size; x++) {
+      b.put((byte)(x * 31 + seed));
+    }
+    b.flip();
+    return b;
+  }
+
+  @Test
+  public void testGroupedMessagesArriveIntact() throws Exception {
+    TLSSocketEndpointFactory factory = new TLSSocketEndpointFactory(createContext());
+    SocketChannel[] channels = connect();
+    try (SocketEndpoint client = factory.createSocketEndpoint(channels[0], true);
+         SocketEndpoint server = factory.createSocketEndpoint(channels[1], false)) {
+      // grouped messages are handed over as one gathering write of many buffers of mixed sizes
+      int[] sizes = new int[] {8, 120, 70000, 8, 4096, 33, 100000, 8, 16};
+      CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+        try {
+          for (int round = 0; round < 20; round++) {
+            ByteBuffer[] group = new ByteBuffer[sizes.length];
+            for (int x = 0; x < sizes.length; x++) {
+              group[x] = pattern(sizes[x], round + x);
+            }
+            writeFully(client, group);
+          }
+        } catch (IOException ioe) {
+          throw new RuntimeException(ioe);
+        }
+      });
+      // read back with buffers that do not line up with the records, small ones go through staging
+      for (int round = 0; round < 20; round++) {
+        for (int x = 0; x < sizes.length; x++) {
+          ByteBuffer in = ByteBuffer.allocate(sizes[x]);
+          readFully(server, new ByteBuffer[] {in});
+          in.flip();
+          Assert.assertEquals("round " + round + " part " + x, pattern(sizes[x], round + x), in);
+        }
+      }
+      writer.get(30, TimeUnit.SECONDS);
+
+      // and the other way
+      ByteBuffer reply = ByteBuffer.allocate(5);
+      writeFully(server, new ByteBuffer[] {ByteBuffer.wrap("hello".getBytes())});
+      readFully(client, new ByteBuffer[] {reply});
+      Assert.assertEquals("hello", new String(reply.array()));
+    } finally {
+      channels[0].close();
+      channels[1].close();
+    }
+    Map<String, ?> state = factory.getStateMap();
+    // every pooled buffer taken by the endpoints came back
+    Assert.assertEquals(state.get("allocatedBuffers"), state.get("pooledBuffers"));
+  }
+
+  @Test
+  public void testPeerCloseIsEndOfStream() throws Exception {
+    TLSSocketEndpointFactory factory = new TLSSocketEndpointFactory(createContext());
+    SocketChannel[] channels = connect();
+    try (SocketEndpoint client = factory.createSocketEndpoint(channels[0], true);
+         SocketEndpoint server = factory.createSocketEndpoint(channels[1], false)) {
+      CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+        try {
+          writeFully(client, new ByteBuffer[] {pattern(100, 1)});
+        } catch (IOException ioe) {
+          throw new RuntimeException(ioe);
+        }
+      });
+      readFully(server, new ByteBuffer[] {ByteBuffer.allocate(100)});
+      writer.get(30, TimeUnit.SECONDS);
+      // close_notify and then the end of the stream, the client never read the session tickets so a full close would
+      // reset the connection instead
+      client.close();
+      channels[0].shutdownOutput();
+      SocketEndpoint.ResultType result = SocketEndpoint.ResultType.ZERO;
+      long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (result == SocketEndpoint.ResultType.ZERO && System.nanoTime() < end) {
+        result = server.readTo(new ByteBuffer[] {ByteBuffer.allocate(10)});
+      }
+      Assert.assertEquals(SocketEndpoint.ResultType.EOF, result);
+    } finally {
+      channels[0].close();
+      channels[1].close();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class LongObjectHashMapTest {
+
+  @Test
+  public void testPutGetRemove() {
+    LongObjectHashMap<String> map = new LongObjectHashMap<>();
+    assertNull(map.put(1L, "one"));
+    assertNull(map.put(-1L, "minus one"));
+    assertEquals("one", map.put(1L, "uno"));
+    assertEquals("uno", map.get(1L));
+    assertEquals("minus one", map.get(-1L));
+    assertNull(map.get(2L));
+    assertEquals(2, map.size());
+    assertFalse(map.remove(1L, "one"));
+    assertTrue(map.remove(1L, "uno"));
+    assertEquals("minus one", map.remove(-1L));
+    assertTrue(map.isEmpty());
+  }
+
+  /**
+   * Compare against a HashMap with random operations on a small key space so probe runs collide and wrap.
+   */
+  @Test
+  public void testMatchesHashMap() {
+    Random r = new Random(7);
+    LongObjectHashMap<Long> map = new LongObjectHashMap<>(4);
+    ConcurrentLongObjectHashMap<Long> concurrent = new ConcurrentLongObjectHashMap<>(4);
+    Map<Long, Long> check = new HashMap<>();
+    for (int x = 0; x < 200000; x++) {
+      long key = r.nextInt(2048) * 1024L;
+      if (r.nextBoolean()) {
+        assertEquals(check.put(key, (long) x), map.put(key, (long) x));
+        concurrent.put(key, (long) x);
+      } else {
+        assertEquals(check.remove(key), map.remove(key));
+        concurrent.remove(key);
+      }
+      assertEquals(check.size(), map.size());
+      assertEquals(check.size(), concurrent.size());
+    }
+    for (Map.Entry<Long, Long> e : check.entrySet()) {
+      assertEquals(e.getValue(), map.get(e.getKey()));
+      assertEquals(e.getValue(), concurrent.get(e.getKey()));
+    }
+    map.forEach((k, v) -> assertEquals(check.get(k), v));
+    assertEquals(check.size(), concurrent.values().size());
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    ConcurrentLongObjectHashMap<Object> map = new ConcurrentLongObjectHashMap<>();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final long base = t * 1000000L;
+      threads[t] = new Thread(() -> {
+        for (long x = 0; x < 10000; x++) {
+          map.put(base + x, Boolean.TRUE);
+        }
+        for (long x = 0; x < 10000; x += 2) {
+          map.remove(base + x);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(4 * 5000, map.size());
+    assertTrue(map.containsKey(1L));
+    assertFalse(map.containsKey(2L));
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.util;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class LongRingDequeTest {
+
+  @Test
+  public void testWrapAndGrow() {
+    LongRingDeque deque = new LongRingDeque(4);
+    ArrayDeque<Long> check = new ArrayDeque<>();
+    for (long x = 0; x < 1000; x++) {
+      deque.addLast(x);
+      check.addLast(x);
+      if (x % 3 == 0) {
+        assertEquals((long) check.removeFirst(), deque.removeFirst());
+      }
+      if (x % 7 == 0) {
+        deque.addFirst(-x);
+        check.addFirst(-x);
+      }
+    }
+    assertEquals(check.size(), deque.size());
+    int pos = 0;
+    for (Long l : check) {
+      assertEquals((long) l, deque.get(pos++));
+    }
+    assertEquals((long) check.peekLast(), deque.peekLast());
+    assertEquals((long) check.removeLast(), deque.removeLast());
+    assertEquals(check.size(), deque.toArray().length);
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testEmpty() {
+    LongRingDeque deque = new LongRingDeque();
+    deque.addLast(1L);
+    deque.clear();
+    assertTrue(deque.isEmpty());
+    deque.peekFirst();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.util.runtime;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class ThreadPlacementTest {
+
+  @Test
+  public void testParseCpuList() {
+    BitSet cpus = ThreadPlacement.parseCpuList("0-3, 8,10-11\n");
+    assertArrayEquals(new int[] {0, 1, 2, 3, 8, 10, 11}, cpus.stream().toArray());
+    assertTrue(ThreadPlacement.parseCpuList("").isEmpty());
+  }
+
+  @Test
+  public void testParseMode() {
+    assertEquals(ThreadPlacement.Mode.OFF, ThreadPlacement.parseMode(null));
+    assertEquals(ThreadPlacement.Mode.CORE, ThreadPlacement.parseMode(" Core "));
+    assertEquals(ThreadPlacement.Mode.OFF, ThreadPlacement.parseMode("cores"));
+  }
+
+  @Test
+  public void testLanesSpreadOverNodes() {
+    List<int[]> nodes = Arrays.asList(new int[] {0, 1, 2, 3}, new int[] {4, 5, 6, 7});
+    ThreadPlacement node = new ThreadPlacement(ThreadPlacement.Mode.NODE, nodes);
+    assertEquals("0,1,2,3", node.cpusFor(0));
+    assertEquals("4,5,6,7", node.cpusFor(1));
+    assertEquals("0,1,2,3", node.cpusFor(6));
+
+    ThreadPlacement core = new ThreadPlacement(ThreadPlacement.Mode.CORE, nodes);
+    assertEquals("0", core.cpusFor(0));
+    assertEquals("4", core.cpusFor(1));
+    assertEquals("1", core.cpusFor(2));
+    // lane 0 of another stage takes the next cpu of the node rather than sharing cpu 0
+    assertEquals("2", core.cpusFor(0));
+    assertEquals("5", core.cpusFor(7));
+    assertEquals("3", core.cpusFor(4));
+    assertEquals("0", core.cpusFor(6));
+    // threads shared by every lane only follow the node
+    assertEquals("4,5,6,7", core.nodeCpus(3));
+  }
+
+  @Test
+  public void testRestrictDropsEmptyNodes() {
+    List<int[]> nodes = Arrays.asList(new int[] {0, 1, 2, 3}, new int[] {4, 5, 6, 7});
+    List<int[]> restricted = ThreadPlacement.restrict(nodes, ThreadPlacement.parseCpuList("2-3"));
+    assertEquals(1, restricted.size());
+    assertArrayEquals(new int[] {2, 3}, restricted.get(0));
+    assertFalse(new ThreadPlacement(ThreadPlacement.Mode.CORE, ThreadPlacement.restrict(nodes, new BitSet())).isEnabled());
+  }
+
+  @Test
+  public void testReadNodes() throws Exception {
+    Path root = Files.createTempDirectory("nodes");
+    Files.createDirectories(root.resolve("node1"));
+    Files.createDirectories(root.resolve("node0"));
+    Files.write(root.resolve("node0").resolve("cpulist"), "0-1\n".getBytes());
+    Files.write(root.resolve("node1").resolve("cpulist"), "2,3\n".getBytes());
+    Files.createFile(root.resolve("possible"));
+    List<int[]> nodes = ThreadPlacement.readNodes(root);
+    assertEquals(2, nodes.size());
+    assertArrayEquals(new int[] {0, 1}, nodes.get(0));
+    assertArrayEquals(new int[] {2, 3}, nodes.get(1));
+  }
+}
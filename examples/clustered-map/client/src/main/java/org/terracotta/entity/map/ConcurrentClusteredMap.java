@@ -18,6 +18,8 @@
 package org.terracotta.entity.map;
 
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
 import org.terracotta.connection.entity.Entity;
@@ -34,4 +36,32 @@ public interface ConcurrentClusteredMap<K, V> extends ConcurrentMap<K, V>, Entit
   void setTypes(Class<K> keyClass, Class<V> valueClass);
   
   Future<?> insert(K key, V value);
+
+  /**
+   * Reads many keys at once.  The keys are split by the segment holding them and each
+   * segment is read with a single request, all segments in parallel.
+   *
+   * @param keys the keys to read
+   * @return the mappings present for those keys, absent keys are left out
+   */
+  Map<K, V> getAll(Collection<? extends K> keys);
+
+  /**
+   * Removes many keys at once, split by segment in the same way as {@link #getAll(Collection)}.
+   * {@link #putAll(Map)} is split the same way.
+   *
+   * @param keys the keys to remove
+   */
+  void removeAll(Collection<? extends K> keys);
+
+  /**
+   * Near cache counters for this client: size, hits, misses, evictions and invalidations.
+   * The near cache is sized with the {@code clustered-map.nearcache.entries} system
+   * property and is off, with no counters, when that is zero.  The server clears the whole
+   * near cache of a client once it tracks {@code clustered-map.nearcache.maxTrackedKeys}
+   * keys for it, so that server property should stay well above the client size.
+   *
+   * @return the current counters
+   */
+  Map<String, Long> getNearCacheStatistics();
 }
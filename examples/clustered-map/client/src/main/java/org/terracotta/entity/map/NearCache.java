@@ -0,0 +1,106 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of the mappings a client has read, kept coherent by invalidations
+ * pushed from the server.
+ * <p>
+ * A read registers a token before it is sent and only caches its result if the token is
+ * still there when the response arrives, so an invalidation or a local write that races
+ * with the read, in either order, keeps the stale value out of the cache.
+ */
+class NearCache<K, V> {
+
+  static final Object MISS = new Object();
+  private static final Object NULL = new Object();
+
+  private final LinkedHashMap<K, Object> entries;
+  private final Map<K, Object> reading = new HashMap<>();
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long invalidations;
+
+  NearCache(int maxEntries) {
+    this.entries = new LinkedHashMap<K, Object>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Object> eldest) {
+        if (size() > maxEntries) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @return the cached value, which may be null, or {@link #MISS}
+   */
+  synchronized Object get(K key) {
+    Object value = entries.get(key);
+    if (value == null) {
+      misses++;
+      return MISS;
+    }
+    hits++;
+    return value == NULL ? null : value;
+  }
+
+  synchronized Object startRead(K key) {
+    Object token = new Object();
+    reading.put(key, token);
+    return token;
+  }
+
+  synchronized void completeRead(K key, Object token, V value) {
+    if (reading.remove(key, token)) {
+      entries.put(key, value == null ? NULL : value);
+    }
+  }
+
+  synchronized void invalidate(K key) {
+    reading.remove(key);
+    if (entries.remove(key) != null) {
+      invalidations++;
+    }
+  }
+
+  synchronized void clear() {
+    reading.clear();
+    invalidations += entries.size();
+    entries.clear();
+  }
+
+  synchronized Map<String, Long> getStatistics() {
+    Map<String, Long> stats = new LinkedHashMap<>();
+    stats.put("size", (long) entries.size());
+    stats.put("hits", hits);
+    stats.put("misses", misses);
+    stats.put("evictions", evictions);
+    stats.put("invalidations", invalidations);
+    return stats;
+  }
+}
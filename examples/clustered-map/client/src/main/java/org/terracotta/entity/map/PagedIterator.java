@@ -0,0 +1,131 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map;
+
+import org.terracotta.entity.map.common.MapOperation;
+import org.terracotta.entity.map.common.MapResponse;
+import org.terracotta.entity.map.common.PageOperation;
+import org.terracotta.entity.map.common.PageResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Walks the segments of a clustered map one bounded page at a time.  The request for the
+ * following page is sent as soon as a page arrives so the next page is usually already on
+ * its way while the caller consumes the current one.  Like the server side views the
+ * iteration is weakly consistent.
+ */
+class PagedIterator<T> implements Iterator<T> {
+
+  interface PageReader<T> {
+    T read(PageResponse page, int index) throws IOException;
+  }
+
+  private final Function<MapOperation, Future<MapResponse>> invoker;
+  private final int segments;
+  private final int pageSize;
+  private final boolean keys;
+  private final boolean values;
+  private final PageReader<T> reader;
+  private final Consumer<T> remover;
+
+  private Future<MapResponse> pending;
+  private int pendingSegment;
+  private PageResponse current;
+  private int index;
+  private T last;
+  private boolean removable;
+
+  PagedIterator(Function<MapOperation, Future<MapResponse>> invoker, int segments, int pageSize,
+                boolean keys, boolean values, PageReader<T> reader, Consumer<T> remover) {
+    this.invoker = invoker;
+    this.segments = segments;
+    this.pageSize = pageSize;
+    this.keys = keys;
+    this.values = values;
+    this.reader = reader;
+    this.remover = remover;
+    if (segments > 0) {
+      request(1, 0);
+    }
+  }
+
+  private void request(int segment, int cursor) {
+    pendingSegment = segment;
+    pending = invoker.apply(new PageOperation(segment, cursor, pageSize, keys, values));
+  }
+
+  private void advance() {
+    while (current == null || index >= current.size()) {
+      if (pending == null) {
+        current = null;
+        return;
+      }
+      int segment = pendingSegment;
+      try {
+        current = (PageResponse) pending.get();
+      } catch (Exception e) {
+        throw new RuntimeException("Exception while paging segment " + segment, e);
+      }
+      pending = null;
+      index = 0;
+      if (current.getNextCursor() != PageResponse.END) {
+        request(segment, current.getNextCursor());
+      } else if (segment < segments) {
+        request(segment + 1, 0);
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    advance();
+    return current != null;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      last = reader.read(current, index++);
+      removable = true;
+      return last;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void remove() {
+    if (remover == null) {
+      throw new UnsupportedOperationException();
+    } else if (!removable) {
+      throw new IllegalStateException();
+    }
+    remover.accept(last);
+    removable = false;
+  }
+}
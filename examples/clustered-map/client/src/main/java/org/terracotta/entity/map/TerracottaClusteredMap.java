@@ -18,38 +18,46 @@
 package org.terracotta.entity.map;
 
 import org.terracotta.entity.EntityClientEndpoint;
+import org.terracotta.entity.EndpointDelegate;
 import org.terracotta.entity.map.common.BooleanResponse;
+import org.terracotta.entity.map.common.BulkGetOperation;
+import org.terracotta.entity.map.common.BulkGetResponse;
+import org.terracotta.entity.map.common.BulkPutOperation;
+import org.terracotta.entity.map.common.BulkRemoveOperation;
+import org.terracotta.entity.map.common.CachingGetOperation;
 import org.terracotta.entity.map.common.ClearOperation;
 import org.terracotta.entity.map.common.ConditionalRemoveOperation;
 import org.terracotta.entity.map.common.ConditionalReplaceOperation;
 import org.terracotta.entity.map.common.ContainsKeyOperation;
 import org.terracotta.entity.map.common.ContainsValueOperation;
-import org.terracotta.entity.map.common.EntrySetOperation;
-import org.terracotta.entity.map.common.EntrySetResponse;
 import org.terracotta.entity.map.common.GetOperation;
-import org.terracotta.entity.map.common.KeySetOperation;
-import org.terracotta.entity.map.common.KeySetResponse;
+import org.terracotta.entity.map.common.InvalidationResponse;
 import org.terracotta.entity.map.common.MapOperation;
 import org.terracotta.entity.map.common.MapResponse;
 import org.terracotta.entity.map.common.MapValueResponse;
-import org.terracotta.entity.map.common.PutAllOperation;
 import org.terracotta.entity.map.common.PutIfAbsentOperation;
 import org.terracotta.entity.map.common.PutIfPresentOperation;
 import org.terracotta.entity.map.common.PutOperation;
 import org.terracotta.entity.map.common.RemoveOperation;
+import org.terracotta.entity.map.common.Segments;
 import org.terracotta.entity.map.common.SizeOperation;
 import org.terracotta.entity.map.common.SizeResponse;
-import org.terracotta.entity.map.common.ValueCollectionResponse;
-import org.terracotta.entity.map.common.ValuesOperation;
 
+import java.util.AbstractCollection;
 import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import org.terracotta.entity.InvocationCallback;
 
 import static org.terracotta.entity.map.ValueCodecFactory.getCodecForClass;
@@ -57,7 +65,12 @@ import static org.terracotta.entity.map.ValueCodecFactory.getCodecForClass;
 @SuppressWarnings("unchecked")
 public class TerracottaClusteredMap<K, V> implements ConcurrentClusteredMap<K, V> {
 
+  private static final int PAGE_SIZE = Integer.getInteger("clustered-map.page.size", 1000);
+  private static final int NEAR_CACHE_ENTRIES = Integer.getInteger("clustered-map.nearcache.entries", 0);
+
   private final EntityClientEndpoint<MapOperation, MapResponse> endpoint;
+  private final int concurrency;
+  private final NearCache<K, V> nearCache;
 
   private Class<K> keyClass;
   private Class<V> valueClass;
@@ -66,6 +79,48 @@ public class TerracottaClusteredMap<K, V> implements ConcurrentClusteredMap<K, V
 
   public TerracottaClusteredMap(EntityClientEndpoint<MapOperation, MapResponse> endpoint) {
     this.endpoint = endpoint;
+    this.concurrency = new MapConfig(endpoint.getEntityConfiguration()).getConcurrency();
+    if (NEAR_CACHE_ENTRIES > 0) {
+      this.nearCache = new NearCache<>(NEAR_CACHE_ENTRIES);
+      endpoint.setDelegate(new EndpointDelegate<MapResponse>() {
+        @Override
+        public void handleMessage(MapResponse messageFromServer) {
+          if (messageFromServer instanceof InvalidationResponse) {
+            InvalidationResponse invalidation = (InvalidationResponse) messageFromServer;
+            if (invalidation.isAll() || keyValueCodec == null) {
+              nearCache.clear();
+            } else {
+              nearCache.invalidate(keyValueCodec.decode(invalidation.getKey()));
+            }
+          }
+        }
+
+        @Override
+        public byte[] createExtendedReconnectData() {
+          // a new active knows nothing of what this client caches
+          nearCache.clear();
+          return new byte[0];
+        }
+
+        @Override
+        public void didDisconnectUnexpectedly() {
+          nearCache.clear();
+        }
+      });
+    } else {
+      this.nearCache = null;
+    }
+  }
+
+  @Override
+  public Map<String, Long> getNearCacheStatistics() {
+    return nearCache == null ? Collections.emptyMap() : nearCache.getStatistics();
+  }
+
+  private void invalidate(Object key) {
+    if (nearCache != null) {
+      nearCache.invalidate((K) key);
+    }
   }
 
   @Override
@@ -119,18 +174,31 @@ public class TerracottaClusteredMap<K, V> implements ConcurrentClusteredMap<K, V
     if (!keyClass.isAssignableFrom(key.getClass())) {
       return null;
     }
-    MapValueResponse response = (MapValueResponse) invokeWithReturn(new GetOperation(keyValueCodec.encode((K) key)));
-    return valueValueCodec.decode(response.getValue());
+    if (nearCache == null) {
+      MapValueResponse response = (MapValueResponse) invokeWithReturn(new GetOperation(keyValueCodec.encode((K) key)));
+      return valueValueCodec.decode(response.getValue());
+    }
+    Object cached = nearCache.get((K) key);
+    if (cached != NearCache.MISS) {
+      return (V) cached;
+    }
+    Object token = nearCache.startRead((K) key);
+    MapValueResponse response = (MapValueResponse) invokeWithReturn(new CachingGetOperation(keyValueCodec.encode((K) key)));
+    V value = valueValueCodec.decode(response.getValue());
+    nearCache.completeRead((K) key, token, value);
+    return value;
   }
 
   @Override
   public V put(K key, V value) {
-    MapValueResponse response = (MapValueResponse) invokeWithReturn(new PutOperation(keyValueCodec.encode(key), valueValueCodec.encode(value)));
+    MapValueResponse response = (MapValueResponse) invokeWrite(key, new PutOperation(keyValueCodec.encode(key), valueValueCodec.encode(value)));
     return valueValueCodec.decode(response.getValue());
   }
   
   @Override
   public Future<?> insert(K key, V value) {
+    // the server invalidation covers any read racing with this write
+    invalidate(key);
     return fireAndForget(new PutOperation(keyValueCodec.encode(key), valueValueCodec.encode(value)));
   }
 
@@ -139,7 +207,7 @@ public class TerracottaClusteredMap<K, V> implements ConcurrentClusteredMap<K, V
     if (!keyClass.isAssignableFrom(key.getClass())) {
       return null;
     }
-    MapValueResponse mapValueResponse = (MapValueResponse) invokeWithReturn(new RemoveOperation(keyValueCodec.encode((K) key)));
+    MapValueResponse mapValueResponse = (MapValueResponse) invokeWrite(key, new RemoveOperation(keyValueCodec.encode((K) key)));
     return valueValueCodec.decode(mapValueResponse.getValue());
   }
   
@@ -152,6 +220,28 @@ public class TerracottaClusteredMap<K, V> implements ConcurrentClusteredMap<K, V
     }
   }
 
+  private Future<MapResponse> invokeAsync(MapOperation operation) {
+    try {
+      return endpoint.message(operation)
+          .invoke();
+    } catch (Exception e) {
+      throw new RuntimeException("Exception while processing map operation " + operation, e);
+    }
+  }
+
+  /**
+   * Drops the key from the near cache both before and after the write so a read of this
+   * client racing with the write cannot leave the old value cached once the write returns.
+   */
+  private MapResponse invokeWrite(Object key, MapOperation operation) {
+    invalidate(key);
+    try {
+      return invokeWithReturn(operation);
+    } finally {
+      invalidate(key);
+    }
+  }
+
   private MapResponse invokeWithReturn(MapOperation operation) {
     try {
       return endpoint.message(operation)
@@ -164,51 +254,181 @@ public class TerracottaClusteredMap<K, V> implements ConcurrentClusteredMap<K, V
 
   @Override
   public void putAll(Map<? extends K, ? extends V> m) {
-    HashMap<Object, Object> input = new HashMap<Object, Object>();
+    List<Entry<Object, Object>> entries = new ArrayList<>(m.size());
     for (Entry<? extends K, ? extends V> entry : m.entrySet()) {
-      input.put(keyValueCodec.encode(entry.getKey()), valueValueCodec.encode(entry.getValue()));
+      entries.add(new AbstractMap.SimpleImmutableEntry<>(keyValueCodec.encode(entry.getKey()), valueValueCodec.encode(entry.getValue())));
+    }
+    m.keySet().forEach(this::invalidate);
+    try {
+      awaitAll(sendBySegment(entries, Entry::getKey, (segment, batch) -> {
+        Map<Object, Object> values = new HashMap<>();
+        batch.forEach(e -> values.put(e.getKey(), e.getValue()));
+        return new BulkPutOperation(segment, values);
+      }));
+    } finally {
+      m.keySet().forEach(this::invalidate);
+    }
+  }
+
+  @Override
+  public Map<K, V> getAll(Collection<? extends K> keys) {
+    Map<K, V> result = new HashMap<>();
+    Map<K, Object> readTokens = new HashMap<>();
+    List<Object> misses = new ArrayList<>(keys.size());
+    for (K key : keys) {
+      if (nearCache != null) {
+        Object cached = nearCache.get(key);
+        if (cached != NearCache.MISS) {
+          if (cached != null) {
+            result.put(key, (V) cached);
+          }
+          continue;
+        }
+        readTokens.put(key, nearCache.startRead(key));
+      }
+      misses.add(keyValueCodec.encode(key));
+    }
+    boolean caching = nearCache != null;
+    for (MapResponse response : awaitAll(sendBySegment(misses, Function.identity(),
+        (segment, batch) -> new BulkGetOperation(segment, batch, caching)))) {
+      for (Entry<Object, Object> entry : ((BulkGetResponse) response).getValues().entrySet()) {
+        result.put(keyValueCodec.decode(entry.getKey()), valueValueCodec.decode(entry.getValue()));
+      }
     }
-    invokeWithReturn(new PutAllOperation(input));
+    readTokens.forEach((key, token) -> nearCache.completeRead(key, token, result.get(key)));
+    return result;
+  }
+
+  @Override
+  public void removeAll(Collection<? extends K> keys) {
+    List<Object> encoded = new ArrayList<>(keys.size());
+    keys.forEach(key -> encoded.add(keyValueCodec.encode(key)));
+    keys.forEach(this::invalidate);
+    try {
+      awaitAll(sendBySegment(encoded, Function.identity(), BulkRemoveOperation::new));
+    } finally {
+      keys.forEach(this::invalidate);
+    }
+  }
+
+  /**
+   * Groups the items by the segment of their encoded key and sends one operation per
+   * segment, or several once a segment collects more than a page of items, without waiting
+   * for earlier ones to complete.  The server runs each segment on its own concurrency key
+   * so the operations of different segments proceed in parallel.
+   */
+  private <T> List<Future<MapResponse>> sendBySegment(Collection<T> items, Function<T, Object> keyOf,
+                                                      BiFunction<Integer, List<T>, MapOperation> operation) {
+    List<Future<MapResponse>> pending = new ArrayList<>();
+    Map<Integer, List<T>> batches = new HashMap<>();
+    for (T item : items) {
+      int segment = Segments.concurrencyKey(keyOf.apply(item), concurrency);
+      List<T> batch = batches.computeIfAbsent(segment, s -> new ArrayList<>());
+      batch.add(item);
+      if (batch.size() >= PAGE_SIZE) {
+        pending.add(invokeAsync(operation.apply(segment, batch)));
+        batches.remove(segment);
+      }
+    }
+    batches.forEach((segment, batch) -> pending.add(invokeAsync(operation.apply(segment, batch))));
+    return pending;
+  }
+
+  private List<MapResponse> awaitAll(List<Future<MapResponse>> pending) {
+    List<MapResponse> responses = new ArrayList<>(pending.size());
+    for (Future<MapResponse> future : pending) {
+      try {
+        responses.add(future.get());
+      } catch (Exception e) {
+        throw new RuntimeException("Exception while processing bulk map operation", e);
+      }
+    }
+    return responses;
   }
 
   @Override
   public void clear() {
-    invokeWithReturn(new ClearOperation());
+    try {
+      invokeWithReturn(new ClearOperation());
+    } finally {
+      if (nearCache != null) {
+        nearCache.clear();
+      }
+    }
+  }
+
+  private <T> PagedIterator<T> pages(boolean keys, boolean values, PagedIterator.PageReader<T> reader, Consumer<T> remover) {
+    return new PagedIterator<>(this::invokeAsync, concurrency, PAGE_SIZE, keys, values, reader, remover);
   }
 
+  /**
+   * The collection views page through the map a segment at a time rather than copying
+   * the whole map in one message.  They are live and weakly consistent.
+   */
   @Override
   public Set<K> keySet() {
-    Set<K> result = new HashSet<K>();
-    KeySetResponse keySetResponse = (KeySetResponse) invokeWithReturn(new KeySetOperation());
-    for (Object o : keySetResponse.getKeySet()) {
-      result.add(keyValueCodec.decode(o));
-    }
-    return result;
+    return new AbstractSet<K>() {
+      @Override
+      public Iterator<K> iterator() {
+        return pages(true, false, (page, i) -> keyValueCodec.decode(page.keyAt(i)), TerracottaClusteredMap.this::remove);
+      }
+
+      @Override
+      public int size() {
+        return TerracottaClusteredMap.this.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return containsKey(o);
+      }
+
+      @Override
+      public boolean remove(Object o) {
+        return TerracottaClusteredMap.this.remove(o) != null;
+      }
+    };
   }
 
   @Override
   public Collection<V> values() {
-    ArrayList<V> result = new ArrayList<V>();
-    ValueCollectionResponse response = (ValueCollectionResponse) invokeWithReturn(new ValuesOperation());
-    for (Object o : response.getValues()) {
-      result.add(valueValueCodec.decode(o));
-    }
-    return result;
+    return new AbstractCollection<V>() {
+      @Override
+      public Iterator<V> iterator() {
+        return pages(false, true, (page, i) -> valueValueCodec.decode(page.valueAt(i)), null);
+      }
+
+      @Override
+      public int size() {
+        return TerracottaClusteredMap.this.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return containsValue(o);
+      }
+    };
   }
 
   @Override
   public Set<Map.Entry<K, V>> entrySet() {
-    HashSet<Entry<K, V>> result = new HashSet<Entry<K, V>>();
-    EntrySetResponse response = (EntrySetResponse) invokeWithReturn(new EntrySetOperation());
-    for (Entry<Object, Object> entry : response.getEntrySet()) {
-      result.add(new AbstractMap.SimpleEntry<K, V > (keyValueCodec.decode(entry.getKey()), valueValueCodec.decode(entry.getValue())));
-    }
-    return result;
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return pages(true, true, (page, i) -> new AbstractMap.SimpleEntry<K, V>(keyValueCodec.decode(page.keyAt(i)), valueValueCodec.decode(page.valueAt(i))),
+            e -> TerracottaClusteredMap.this.remove(e.getKey(), e.getValue()));
+      }
+
+      @Override
+      public int size() {
+        return TerracottaClusteredMap.this.size();
+      }
+    };
   }
 
   @Override
   public V putIfAbsent(K key, V value) {
-    MapValueResponse response = (MapValueResponse) invokeWithReturn(new PutIfAbsentOperation(keyValueCodec.encode(key), valueValueCodec.encode(value)));
+    MapValueResponse response = (MapValueResponse) invokeWrite(key, new PutIfAbsentOperation(keyValueCodec.encode(key), valueValueCodec.encode(value)));
     return valueValueCodec.decode(response.getValue());
   }
 
@@ -221,19 +441,19 @@ public class TerracottaClusteredMap<K, V> implements ConcurrentClusteredMap<K, V
       return false;
     }
     MapOperation operation = new ConditionalRemoveOperation(keyValueCodec.encode((K) key), valueValueCodec.encode((V) value));
-    return ((BooleanResponse) invokeWithReturn(operation)).isTrue();
+    return ((BooleanResponse) invokeWrite(key, operation)).isTrue();
   }
 
   @Override
   public boolean replace(K key, V oldValue, V newValue) {
     MapOperation operation = new ConditionalReplaceOperation(keyValueCodec.encode(key), valueValueCodec.encode(oldValue), valueValueCodec.encode(newValue));
-    return ((BooleanResponse) invokeWithReturn(operation)).isTrue();
+    return ((BooleanResponse) invokeWrite(key, operation)).isTrue();
   }
 
   @Override
   public V replace(K key, V value) {
     MapOperation operation = new PutIfPresentOperation(keyValueCodec.encode(key), valueValueCodec.encode(value));
-    MapValueResponse response = (MapValueResponse) invokeWithReturn(operation);
+    MapValueResponse response = (MapValueResponse) invokeWrite(key, operation);
     return valueValueCodec.decode(response.getValue());
   }
 }
@@ -0,0 +1,71 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads several keys of one segment.  When {@code caching} the keys are tracked for near
+ * cache invalidation as with {@link CachingGetOperation}.
+ */
+public class BulkGetOperation implements SegmentOperation {
+  private final int segment;
+  private final List<Object> keys;
+  private final boolean caching;
+
+  public BulkGetOperation(int segment, List<Object> keys, boolean caching) {
+    this.segment = segment;
+    this.keys = keys;
+    this.caching = caching;
+  }
+
+  @Override
+  public int getSegment() {
+    return segment;
+  }
+
+  public List<Object> getKeys() {
+    return keys;
+  }
+
+  public boolean isCaching() {
+    return caching;
+  }
+
+  @Override
+  public Type operationType() {
+    return Type.BULK_GET;
+  }
+
+  @Override
+  public void writeTo(DataOutput output) throws IOException {
+    output.writeInt(segment);
+    output.writeBoolean(caching);
+    PrimitiveCodec.writeTo(output, keys);
+  }
+
+  @SuppressWarnings("unchecked")
+  static BulkGetOperation readFrom(DataInput input) throws IOException {
+    int segment = input.readInt();
+    boolean caching = input.readBoolean();
+    return new BulkGetOperation(segment, (List<Object>) PrimitiveCodec.readFrom(input), caching);
+  }
+}
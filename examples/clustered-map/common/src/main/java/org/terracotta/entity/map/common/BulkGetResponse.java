@@ -0,0 +1,53 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The mappings found by a {@link BulkGetOperation}, absent keys are left out.
+ */
+public class BulkGetResponse implements MapResponse {
+  private final Map<Object, Object> values;
+
+  public BulkGetResponse(Map<Object, Object> values) {
+    this.values = values;
+  }
+
+  public Map<Object, Object> getValues() {
+    return values;
+  }
+
+  @Override
+  public Type responseType() {
+    return Type.BULK_VALUES;
+  }
+
+  @Override
+  public void writeTo(DataOutput output) throws IOException {
+    PrimitiveCodec.writeTo(output, values);
+  }
+
+  @SuppressWarnings("unchecked")
+  static BulkGetResponse readFrom(DataInput input) throws IOException {
+    return new BulkGetResponse((Map<Object, Object>) PrimitiveCodec.readFrom(input));
+  }
+}
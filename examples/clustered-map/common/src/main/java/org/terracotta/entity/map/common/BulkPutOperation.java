@@ -0,0 +1,62 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes several mappings of one segment.
+ */
+public class BulkPutOperation implements SegmentOperation {
+  private final int segment;
+  private final Map<Object, Object> map;
+
+  public BulkPutOperation(int segment, Map<Object, Object> map) {
+    this.segment = segment;
+    this.map = map;
+  }
+
+  @Override
+  public int getSegment() {
+    return segment;
+  }
+
+  public Map<Object, Object> getMap() {
+    return map;
+  }
+
+  @Override
+  public Type operationType() {
+    return Type.BULK_PUT;
+  }
+
+  @Override
+  public void writeTo(DataOutput output) throws IOException {
+    output.writeInt(segment);
+    PrimitiveCodec.writeTo(output, map);
+  }
+
+  @SuppressWarnings("unchecked")
+  static BulkPutOperation readFrom(DataInput input) throws IOException {
+    int segment = input.readInt();
+    return new BulkPutOperation(segment, (Map<Object, Object>) PrimitiveCodec.readFrom(input));
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Pushed by the server to the clients caching a key when the mapping changes.  A null
+ * key invalidates every key the client holds.
+ */
+public class InvalidationResponse implements MapResponse {
+  private final Object key;
+
+  public InvalidationResponse(Object key) {
+    this.key = key;
+  }
+
+  public Object getKey() {
+    return key;
+  }
+
+  public boolean isAll() {
+    return key == null;
+  }
+
+  @Override
+  public Type responseType() {
+    return Type.INVALIDATION;
+  }
+
+  @Override
+  public void writeTo(DataOutput output) throws IOException {
+    PrimitiveCodec.writeTo(output, key);
+  }
+
+  static InvalidationResponse readFrom(DataInput input) throws IOException {
+    return new InvalidationResponse(PrimitiveCodec.readFrom(input));
+  }
+}
@@ -40,7 +40,12 @@ public interface MapOperation extends EntityMessage {
     PUT_IF_ABSENT,
     PUT_IF_PRESENT,
     CONDITIONAL_REMOVE,
-    CONDITIONAL_REPLACE;
+    CONDITIONAL_REPLACE,
+    PAGE,
+    CACHING_GET,
+    BULK_GET,
+    BULK_PUT,
+    BULK_REMOVE;
   }
 
   Type operationType();
@@ -34,6 +34,9 @@ public interface MapResponse extends EntityResponse {
     KEY_SET,
     VALUE_COLLECTION,
     ENTRY_SET,
+    PAGE,
+    INVALIDATION,
+    BULK_VALUES,
   }
 
   Type responseType();
@@ -60,6 +60,16 @@ class OperationCodec {
         return ConditionalRemoveOperation.readFrom(input);
       case CONDITIONAL_REPLACE:
         return ConditionalReplaceOperation.readFrom(input);
+      case PAGE:
+        return PageOperation.readFrom(input);
+      case CACHING_GET:
+        return CachingGetOperation.readFrom(input);
+      case BULK_GET:
+        return BulkGetOperation.readFrom(input);
+      case BULK_PUT:
+        return BulkPutOperation.readFrom(input);
+      case BULK_REMOVE:
+        return BulkRemoveOperation.readFrom(input);
       default:
         throw new IllegalArgumentException("Unknown map operation type " + type);
     }
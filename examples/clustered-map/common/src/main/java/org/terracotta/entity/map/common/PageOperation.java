@@ -0,0 +1,83 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Requests the next bounded page of mappings held by one segment of the map.  Segments
+ * are numbered from one and double as the concurrency key of the operation so paging a
+ * segment is ordered with the keyed operations on that segment.  The cursor is opaque,
+ * zero starts at the beginning of the segment.
+ */
+public class PageOperation implements SegmentOperation {
+  private final int segment;
+  private final int cursor;
+  private final int maxEntries;
+  private final boolean keys;
+  private final boolean values;
+
+  public PageOperation(int segment, int cursor, int maxEntries, boolean keys, boolean values) {
+    this.segment = segment;
+    this.cursor = cursor;
+    this.maxEntries = maxEntries;
+    this.keys = keys;
+    this.values = values;
+  }
+
+  @Override
+  public int getSegment() {
+    return segment;
+  }
+
+  public int getCursor() {
+    return cursor;
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public boolean includesKeys() {
+    return keys;
+  }
+
+  public boolean includesValues() {
+    return values;
+  }
+
+  @Override
+  public Type operationType() {
+    return Type.PAGE;
+  }
+
+  @Override
+  public void writeTo(DataOutput output) throws IOException {
+    output.writeInt(segment);
+    output.writeInt(cursor);
+    output.writeInt(maxEntries);
+    output.writeBoolean(keys);
+    output.writeBoolean(values);
+  }
+
+  static PageOperation readFrom(DataInput input) throws IOException {
+    return new PageOperation(input.readInt(), input.readInt(), input.readInt(), input.readBoolean(), input.readBoolean());
+  }
+}
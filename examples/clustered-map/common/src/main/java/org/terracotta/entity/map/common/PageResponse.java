@@ -0,0 +1,102 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a segment.  Keys and values travel in the serialized form the server
+ * stores them in and are only deserialized as they are read on the client.
+ */
+public class PageResponse implements MapResponse {
+  public static final int END = -1;
+
+  private final int nextCursor;
+  private final List<byte[]> keys;
+  private final List<byte[]> values;
+
+  public PageResponse(int nextCursor, List<byte[]> keys, List<byte[]> values) {
+    this.nextCursor = nextCursor;
+    this.keys = keys;
+    this.values = values;
+  }
+
+  /**
+   * @return the cursor to request the following page with or {@link #END} once the
+   *   segment is exhausted
+   */
+  public int getNextCursor() {
+    return nextCursor;
+  }
+
+  public int size() {
+    return Math.max(keys.size(), values.size());
+  }
+
+  public Object keyAt(int index) throws IOException {
+    return PrimitiveCodec.decode(keys.get(index));
+  }
+
+  public Object valueAt(int index) throws IOException {
+    return PrimitiveCodec.decode(values.get(index));
+  }
+
+  @Override
+  public Type responseType() {
+    return Type.PAGE;
+  }
+
+  @Override
+  public void writeTo(DataOutput output) throws IOException {
+    output.writeInt(nextCursor);
+    writeList(output, keys);
+    writeList(output, values);
+  }
+
+  private static void writeList(DataOutput output, List<byte[]> list) throws IOException {
+    output.writeInt(list.size());
+    for (byte[] bytes : list) {
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  private static List<byte[]> readList(DataInput input) throws IOException {
+    int size = input.readInt();
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    List<byte[]> list = new ArrayList<>(size);
+    for (int x = 0; x < size; x++) {
+      byte[] bytes = new byte[input.readInt()];
+      input.readFully(bytes);
+      list.add(bytes);
+    }
+    return list;
+  }
+
+  static PageResponse readFrom(DataInput input) throws IOException {
+    int nextCursor = input.readInt();
+    return new PageResponse(nextCursor, readList(input), readList(input));
+  }
+}
@@ -44,6 +44,12 @@ class ResponseCodec {
         return ValueCollectionResponse.readFrom(input);
       case ENTRY_SET:
         return EntrySetResponse.readFrom(input);
+      case PAGE:
+        return PageResponse.readFrom(input);
+      case INVALIDATION:
+        return InvalidationResponse.readFrom(input);
+      case BULK_VALUES:
+        return BulkGetResponse.readFrom(input);
       default:
         throw new IllegalArgumentException("Unknown map response type " + type);
     }
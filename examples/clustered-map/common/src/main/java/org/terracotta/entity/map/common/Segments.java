@@ -0,0 +1,45 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map.common;
+
+/**
+ * Maps keys, in the encoded form sent over the wire, to the segment holding them.  Shared
+ * by the client, to split bulk operations, and the server so both always agree.
+ */
+public final class Segments {
+
+  private static final int MIXER = 31;
+
+  private Segments() {
+  }
+
+  /**
+   * @return the zero based index of the segment holding the key
+   */
+  public static int indexOf(Object key, int segments) {
+    return Math.abs((key.hashCode() * MIXER) % segments);
+  }
+
+  /**
+   * @return the concurrency key of the segment holding the key, segments are numbered
+   *   from one as zero is reserved by the platform
+   */
+  public static int concurrencyKey(Object key, int segments) {
+    return indexOf(key, segments) + 1;
+  }
+}
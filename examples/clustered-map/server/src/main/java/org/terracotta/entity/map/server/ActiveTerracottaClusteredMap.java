@@ -19,20 +19,30 @@ package org.terracotta.entity.map.server;
 
 import org.terracotta.entity.ActiveInvokeContext;
 import org.terracotta.entity.ActiveServerEntity;
+import org.terracotta.entity.ClientCommunicator;
 import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.entity.EntityUserException;
+import org.terracotta.entity.MessageCodecException;
 import org.terracotta.entity.PassiveSynchronizationChannel;
 import org.terracotta.entity.map.common.BooleanResponse;
+import org.terracotta.entity.map.common.BulkGetOperation;
+import org.terracotta.entity.map.common.BulkGetResponse;
+import org.terracotta.entity.map.common.BulkPutOperation;
+import org.terracotta.entity.map.common.BulkRemoveOperation;
 import org.terracotta.entity.map.common.ConditionalRemoveOperation;
 import org.terracotta.entity.map.common.ConditionalReplaceOperation;
 import org.terracotta.entity.map.common.ContainsKeyOperation;
 import org.terracotta.entity.map.common.ContainsValueOperation;
 import org.terracotta.entity.map.common.EntrySetResponse;
-import org.terracotta.entity.map.common.GetOperation;
+import org.terracotta.entity.map.common.InvalidationResponse;
+import org.terracotta.entity.map.common.KeyedOperation;
 import org.terracotta.entity.map.common.KeySetResponse;
 import org.terracotta.entity.map.common.MapOperation;
 import org.terracotta.entity.map.common.MapResponse;
 import org.terracotta.entity.map.common.MapValueResponse;
 import org.terracotta.entity.map.common.NullResponse;
+import org.terracotta.entity.map.common.PageOperation;
+import org.terracotta.entity.map.common.PageResponse;
 import org.terracotta.entity.map.common.PutAllOperation;
 import org.terracotta.entity.map.common.PutIfAbsentOperation;
 import org.terracotta.entity.map.common.PutIfPresentOperation;
@@ -41,30 +51,164 @@ import org.terracotta.entity.map.common.RemoveOperation;
 import org.terracotta.entity.map.common.SizeResponse;
 import org.terracotta.entity.map.common.ValueCollectionResponse;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 
 public class ActiveTerracottaClusteredMap implements ActiveServerEntity<MapOperation, MapResponse>  {
 
+  // keeps each page well under the transport's large message warning
+  private static final int MAX_PAGE_BYTES = 256 * 1024;
+  // the platform waits for the passive to receive each sync message before sending the
+  // next, so this bounds what either side holds on heap while a segment synchronizes
+  private static final int SYNC_CHUNK_BYTES = Integer.getInteger("clustered-map.sync.chunkBytes", 1024 * 1024);
+  // clients do not report their near cache evictions so each one's tracked keys are
+  //  bounded instead, past this many the client is told to drop its whole near cache
+  private static final int MAX_TRACKED_KEYS = Integer.getInteger("clustered-map.nearcache.maxTrackedKeys", 64 * 1024);
+
   private final String name;
   private final Map<String, CompoundMap<Object, Object>> root;
   private final CompoundMap<Object, Object> map;
+  private final ClientCommunicator communicator;
+  // clients which may hold each key in their near cache, sets are only changed inside compute
+  //  under the registrations read lock
+  private final ConcurrentMap<Object, Set<ClientDescriptor>> cachedBy = new ConcurrentHashMap<>();
+  // the reverse of cachedBy, each set is guarded by itself and only changed inside the compute
+  //  of the key being added or removed so the two always agree
+  private final ConcurrentMap<ClientDescriptor, Set<Object>> trackedKeys = new ConcurrentHashMap<>();
+  // registrations share it, invalidate-all takes it exclusively so no registration slips past it
+  private final ReadWriteLock registrations = new ReentrantReadWriteLock();
 
-  public ActiveTerracottaClusteredMap(String name, int concurrency, Map<String, CompoundMap<Object, Object>> root) {
+  public ActiveTerracottaClusteredMap(String name, int concurrency, Map<String, CompoundMap<Object, Object>> root, OffHeapMemory memory, ClientCommunicator communicator) {
     this.name = name;
     this.root = root;
-    this.map = root.computeIfAbsent(name, v->new CompoundMap<>(concurrency));
+    this.map = root.computeIfAbsent(name, v->new CompoundMap<>(concurrency, memory));
+    this.communicator = communicator;
   }
   
   @Override
   public void connected(ClientDescriptor clientDescriptor) {
   }
 
+  /**
+   * Records that the client may cache the key.  A client tracked for too many keys is
+   * forgotten, apart from this key, and told to clear its near cache.  Its pending reads
+   * are dropped along with the cache so none of them can cache an untracked value.
+   */
+  private void cachedBy(ClientDescriptor client, Object key) {
+    registrations.readLock().lock();
+    try {
+      Set<Object> keys = trackedKeys.computeIfAbsent(client, c -> new HashSet<>());
+      track(client, key, keys);
+      boolean over;
+      synchronized (keys) {
+        over = keys.size() > MAX_TRACKED_KEYS;
+      }
+      if (over) {
+        forget(client);
+        send(client, new InvalidationResponse(null));
+        track(client, key, keys);
+      }
+    } finally {
+      registrations.readLock().unlock();
+    }
+  }
+
+  private void track(ClientDescriptor client, Object key, Set<Object> keys) {
+    cachedBy.compute(key, (k, clients) -> {
+      Set<ClientDescriptor> set = clients == null ? new HashSet<>() : clients;
+      if (set.add(client)) {
+        synchronized (keys) {
+          keys.add(k);
+        }
+      }
+      return set;
+    });
+  }
+
+  private void forget(ClientDescriptor client) {
+    Set<Object> keys = trackedKeys.get(client);
+    if (keys == null) {
+      return;
+    }
+    Object[] tracked;
+    synchronized (keys) {
+      tracked = keys.toArray();
+    }
+    for (Object key : tracked) {
+      cachedBy.computeIfPresent(key, (k, clients) -> {
+        if (clients.remove(client)) {
+          synchronized (keys) {
+            keys.remove(k);
+          }
+        }
+        return clients.isEmpty() ? null : clients;
+      });
+    }
+  }
+
+  /**
+   * Tells every client caching the key, including the writer, to drop it.  The clients
+   * are forgotten until they read the key again.
+   */
+  private void invalidate(Object key) {
+    Set<ClientDescriptor> removed = new HashSet<>();
+    cachedBy.computeIfPresent(key, (k, clients) -> {
+      for (ClientDescriptor client : clients) {
+        Set<Object> keys = trackedKeys.get(client);
+        if (keys != null) {
+          synchronized (keys) {
+            keys.remove(k);
+          }
+        }
+      }
+      removed.addAll(clients);
+      return null;
+    });
+    InvalidationResponse invalidation = new InvalidationResponse(key);
+    removed.forEach(c -> send(c, invalidation));
+  }
+
+  private void invalidateAll() {
+    Set<ClientDescriptor> clients = new HashSet<>();
+    registrations.writeLock().lock();
+    try {
+      cachedBy.values().forEach(clients::addAll);
+      cachedBy.clear();
+      for (Set<Object> keys : trackedKeys.values()) {
+        synchronized (keys) {
+          keys.clear();
+        }
+      }
+    } finally {
+      registrations.writeLock().unlock();
+    }
+    InvalidationResponse invalidation = new InvalidationResponse(null);
+    clients.forEach(c -> send(c, invalidation));
+  }
+
+  private void send(ClientDescriptor client, InvalidationResponse invalidation) {
+    try {
+      communicator.sendNoResponse(client, invalidation);
+    } catch (MessageCodecException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   @Override
   public ActiveServerEntity.ReconnectHandler startReconnect() {
     return (ClientDescriptor clientDescriptor, byte[] extendedReconnectData)->{
@@ -74,23 +218,72 @@ public class ActiveTerracottaClusteredMap implements ActiveServerEntity<MapOpera
 
   @Override
   public void disconnected(ClientDescriptor clientDescriptor) {
+    registrations.readLock().lock();
+    try {
+      forget(clientDescriptor);
+      trackedKeys.remove(clientDescriptor);
+    } finally {
+      registrations.readLock().unlock();
+    }
   }
 
   @Override
-  public MapResponse invokeActive(ActiveInvokeContext<MapResponse> context, MapOperation input) {
+  public MapResponse invokeActive(ActiveInvokeContext<MapResponse> context, MapOperation input) throws EntityUserException {
+    try {
+      map.checkSegment(input);
+    } catch (IllegalArgumentException misplaced) {
+      throw new EntityUserException(misplaced.getMessage(), misplaced);
+    }
+    try {
+      // register before reading so a concurrent change is always invalidated
+      if (input.operationType() == MapOperation.Type.CACHING_GET) {
+        cachedBy(context.getClientDescriptor(), ((KeyedOperation) input).getKey());
+      } else if (input.operationType() == MapOperation.Type.BULK_GET && ((BulkGetOperation) input).isCaching()) {
+        ((BulkGetOperation) input).getKeys().forEach(k -> cachedBy(context.getClientDescriptor(), k));
+      }
+      MapResponse response = invoke(input);
+      switch (input.operationType()) {
+        case PUT:
+        case REMOVE:
+        case PUT_IF_ABSENT:
+        case PUT_IF_PRESENT:
+        case CONDITIONAL_REMOVE:
+        case CONDITIONAL_REPLACE:
+          invalidate(((KeyedOperation) input).getKey());
+          break;
+        case PUT_ALL:
+          ((Map<?, ?>) ((PutAllOperation) input).getMap()).keySet().forEach(this::invalidate);
+          break;
+        case BULK_PUT:
+          ((BulkPutOperation) input).getMap().keySet().forEach(this::invalidate);
+          break;
+        case BULK_REMOVE:
+          ((BulkRemoveOperation) input).getKeys().forEach(this::invalidate);
+          break;
+        case CLEAR:
+          invalidateAll();
+          break;
+        default:
+          break;
+      }
+      return response;
+    } catch (StoreFullException full) {
+      throw new EntityUserException(full.getMessage(), full);
+    }
+  }
+
+  private MapResponse invoke(MapOperation input) {
     MapResponse response;
     
     switch (input.operationType()) {
       case PUT: {
         PutOperation putOperation = (PutOperation) input;
-        Object key = putOperation.getKey();
-        Object old = map.get(key);
-        map.put(key, putOperation.getValue());
-        response = new MapValueResponse(old);
+        response = new MapValueResponse(map.put(putOperation.getKey(), putOperation.getValue()));
         break;
       }
-      case GET: {
-        Object key = ((GetOperation) input).getKey();
+      case GET:
+      case CACHING_GET: {
+        Object key = ((KeyedOperation) input).getKey();
         response = new MapValueResponse(map.get(key));
         break;
       }
@@ -147,6 +340,33 @@ public class ActiveTerracottaClusteredMap implements ActiveServerEntity<MapOpera
         response = new SizeResponse(map.size());
         break;
       }
+      case BULK_GET: {
+        Map<Object, Object> values = new HashMap<>();
+        for (Object key : ((BulkGetOperation) input).getKeys()) {
+          Object value = map.get(key);
+          if (value != null) {
+            values.put(key, value);
+          }
+        }
+        response = new BulkGetResponse(values);
+        break;
+      }
+      case BULK_PUT: {
+        map.putAll(((BulkPutOperation) input).getMap());
+        response = new NullResponse();
+        break;
+      }
+      case BULK_REMOVE: {
+        ((BulkRemoveOperation) input).getKeys().forEach(map::remove);
+        response = new NullResponse();
+        break;
+      }
+      case PAGE: {
+        PageOperation operation = (PageOperation) input;
+        response = map.page(operation.getSegment(), operation.getCursor(), Math.max(1, operation.getMaxEntries()),
+            MAX_PAGE_BYTES, operation.includesKeys(), operation.includesValues());
+        break;
+      }
       case PUT_IF_ABSENT: {
         PutIfAbsentOperation operation = (PutIfAbsentOperation) input;
         response = new MapValueResponse(map.putIfAbsent(operation.getKey(), operation.getValue()));
@@ -184,12 +404,27 @@ public class ActiveTerracottaClusteredMap implements ActiveServerEntity<MapOpera
 
   @Override
   public void destroy() {
+    invalidateAll();
     map.clear();
     root.remove(name);
   }
 
   @Override
   public void synchronizeKeyToPassive(PassiveSynchronizationChannel<MapOperation> syncChannel, int concurrencyKey) {
-    syncChannel.synchronizeToPassive(new SyncOperation(concurrencyKey, map.mapForSegment(concurrencyKey)));
+    // operations on this concurrency key wait for the sync so the segment is stable between chunks
+    ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(chunk);
+    try {
+      int cursor = 0;
+      do {
+        chunk.reset();
+        cursor = map.snapshot(concurrencyKey, cursor, SYNC_CHUNK_BYTES, out);
+        if (chunk.size() > 0) {
+          syncChannel.synchronizeToPassive(new SyncOperation(concurrencyKey, ByteBuffer.wrap(chunk.toByteArray())));
+        }
+      } while (cursor != PageResponse.END);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
   }
 }
@@ -22,18 +22,13 @@ import org.terracotta.entity.MessageCodecException;
 import org.terracotta.entity.SyncMessageCodec;
 import org.terracotta.entity.map.common.MapOperation;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.EOFException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
 
 
 class ClusteredMapSyncCodec implements SyncMessageCodec<MapOperation> {
+    // leads every message so a passive rejects chunks laid out by a different version
+    private static final byte FORMAT = 1;
+
     @Override
     public byte[] encode(int concurrencyKey, MapOperation message) throws MessageCodecException {
         // Note that we only expect that a sync will operate on SYNC operations.
@@ -41,50 +36,18 @@ class ClusteredMapSyncCodec implements SyncMessageCodec<MapOperation> {
             throw new AssertionError("Invalid message type for SYNC_OP: " + message.operationType());
         }
 
-        SyncOperation operation = (SyncOperation)message;
-        try {
-            ByteArrayOutputStream raw = new ByteArrayOutputStream();
-            ObjectOutputStream out = new ObjectOutputStream(raw);
-            Map<Object, Object> elements = operation.getObjectMap();
-            for (Map.Entry<Object, Object> next : elements.entrySet()) {
-                out.writeObject(next.getKey());
-                out.writeObject(next.getValue());
-            }
-            out.close();
-            byte[] bytes = raw.toByteArray();
-            return bytes;
-        } catch (IOException ioe) {
-            throw new MessageCodecException("io error", ioe);
-        }
+        ByteBuffer records = ((SyncOperation)message).getRecords();
+        byte[] bytes = new byte[1 + records.remaining()];
+        bytes[0] = FORMAT;
+        records.get(bytes, 1, bytes.length - 1);
+        return bytes;
     }
 
     @Override
     public MapOperation decode(int concurrencyKey, byte[] payload) throws MessageCodecException {
-        try {
-            InputStream is = new ByteArrayInputStream(payload);
-            ObjectInputStream dis = new ObjectInputStream(is);
-            Map<Object, Object> map = new HashMap<>();
-            Object key = readKey(dis);
-            while (null != key) {
-              Object value = dis.readObject();
-              map.put(key, value);
-              key = readKey(dis);
-            }
-            return new SyncOperation(concurrencyKey, map);
-        } catch (IOException ioe) {
-            throw new RuntimeException(ioe);
-        } catch (ClassNotFoundException e) {
-          throw new RuntimeException(e);
-        }
-    }
-    
-    private Object readKey(ObjectInputStream objectInputStream) throws ClassNotFoundException, IOException {
-        Object key = null;
-        try {
-            key = objectInputStream.readObject();
-        } catch (EOFException e) {
-            // This means that we have reached the last key-value pair.
+        if (payload.length == 0 || payload[0] != FORMAT) {
+            throw new MessageCodecException("unsupported sync message format " + (payload.length == 0 ? "<empty>" : payload[0]), null);
         }
-        return key;
+        return new SyncOperation(concurrencyKey, ByteBuffer.wrap(payload, 1, payload.length - 1));
     }
 }
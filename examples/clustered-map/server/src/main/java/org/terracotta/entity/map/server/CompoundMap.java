@@ -17,112 +17,508 @@
  */
 package org.terracotta.entity.map.server;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.stream.Collectors;
+import org.terracotta.entity.map.common.BulkGetOperation;
+import org.terracotta.entity.map.common.BulkPutOperation;
+import org.terracotta.entity.map.common.BulkRemoveOperation;
+import org.terracotta.entity.map.common.MapOperation;
+import org.terracotta.entity.map.common.PageResponse;
+import org.terracotta.entity.map.common.PrimitiveCodec;
+import org.terracotta.entity.map.common.SegmentOperation;
+import org.terracotta.entity.map.common.Segments;
 
 /**
- *
+ * Map of serialized keys and values held off-heap in {@link OffHeapSegment}s.  The segment
+ * for a key is the same one {@link MapConcurrencyStrategy} derives the concurrency key from
+ * so operations on different concurrency keys never contend on a segment lock.
+ * <p>
+ * Keys are matched on their serialized form so they must serialize canonically, which
+ * holds for the strings, boxed primitives and {@code ValueWrapper}s sent by the client.
+ * Collection views are lazy and weakly consistent, entries are only deserialized as they
+ * are iterated.
  */
-public class CompoundMap<K, V> implements Map<K, V> {
+public class CompoundMap<K, V> extends AbstractMap<K, V> {
   
-  private final List<Map<K,V>> segments;
-  private static final int MIXER = 31;
+  private final List<OffHeapSegment> segments;
+  private final EntrySet<K, V> entrySet;
 
-  public CompoundMap(int concurrency) {
+  public CompoundMap(int concurrency, OffHeapMemory memory) {
     this.segments = new ArrayList<>(concurrency);
     for (int x=0;x<concurrency;x++) {
-      segments.add(new HashMap<>());
+      segments.add(new OffHeapSegment(memory));
     }
+    this.entrySet = new EntrySet<>(segments);
   }
 
   @Override
   public Set<Entry<K, V>> entrySet() {
-    return segments.stream().flatMap(seg->seg.entrySet().stream()).collect(Collectors.toSet());
+    return entrySet;
   }
 
   @Override
   public int size() {
-    return segments.stream().map(Map::size).reduce(0, (a, m)->a+m);
+    int size = 0;
+    for (OffHeapSegment seg : segments) {
+      seg.lock();
+      try {
+        size += seg.size();
+      } finally {
+        seg.unlock();
+      }
+    }
+    return size;
   }
 
   @Override
   public boolean isEmpty() {
-    return segments.stream().allMatch(Map::isEmpty);
+    return size() == 0;
   }
 
   @Override
   public boolean containsKey(Object key) {
-    return segment(key).containsKey(key);
+    OffHeapSegment seg = segment(key);
+    byte[] bytes = encode(key);
+    seg.lock();
+    try {
+      return seg.get(key.hashCode(), bytes) != null;
+    } finally {
+      seg.unlock();
+    }
   }
 
   @Override
   public boolean containsValue(Object value) {
-    return segments.stream().anyMatch(m->m.containsValue(value));
+    byte[] bytes = encode(value);
+    for (OffHeapSegment seg : segments) {
+      seg.lock();
+      try {
+        if (seg.containsValue(bytes)) {
+          return true;
+        }
+      } finally {
+        seg.unlock();
+      }
+    }
+    return false;
   }
 
   @Override
   public V get(Object key) {
-    return segment(key).get(key);
+    OffHeapSegment seg = segment(key);
+    byte[] bytes = encode(key);
+    seg.lock();
+    try {
+      return decode(seg.get(key.hashCode(), bytes));
+    } finally {
+      seg.unlock();
+    }
   }
 
   @Override
   public V put(K key, V value) {
-    return segment(key).put(key, value);
+    OffHeapSegment seg = segment(key);
+    byte[] keyBytes = encode(key);
+    byte[] valueBytes = encode(value);
+    seg.lock();
+    try {
+      return decode(seg.put(key.hashCode(), keyBytes, valueBytes));
+    } finally {
+      seg.unlock();
+    }
   }
 
   @Override
   public V remove(Object key) {
-    return segment(key).remove(key);
+    OffHeapSegment seg = segment(key);
+    byte[] bytes = encode(key);
+    seg.lock();
+    try {
+      return decode(seg.remove(key.hashCode(), bytes));
+    } finally {
+      seg.unlock();
+    }
   }
 
   @Override
-  public void putAll(Map<? extends K, ? extends V> m) {
-    m.entrySet().stream().forEach(e->put(e.getKey(), e.getValue()));
+  public V putIfAbsent(K key, V value) {
+    OffHeapSegment seg = segment(key);
+    byte[] keyBytes = encode(key);
+    byte[] valueBytes = encode(value);
+    seg.lock();
+    try {
+      byte[] current = seg.get(key.hashCode(), keyBytes);
+      if (current == null) {
+        seg.put(key.hashCode(), keyBytes, valueBytes);
+      }
+      return decode(current);
+    } finally {
+      seg.unlock();
+    }
   }
 
   @Override
-  public void clear() {
-    segments.stream().forEach(Map::clear);
+  public V replace(K key, V value) {
+    OffHeapSegment seg = segment(key);
+    byte[] keyBytes = encode(key);
+    byte[] valueBytes = encode(value);
+    seg.lock();
+    try {
+      byte[] current = seg.get(key.hashCode(), keyBytes);
+      if (current != null) {
+        seg.put(key.hashCode(), keyBytes, valueBytes);
+      }
+      return decode(current);
+    } finally {
+      seg.unlock();
+    }
   }
 
   @Override
-  public Set<K> keySet() {
-    return segments.stream().flatMap(m->m.keySet().stream()).collect(Collectors.toSet());
+  public boolean replace(K key, V oldValue, V newValue) {
+    OffHeapSegment seg = segment(key);
+    byte[] keyBytes = encode(key);
+    byte[] expected = encode(oldValue);
+    byte[] valueBytes = encode(newValue);
+    seg.lock();
+    try {
+      if (Arrays.equals(expected, seg.get(key.hashCode(), keyBytes))) {
+        seg.put(key.hashCode(), keyBytes, valueBytes);
+        return true;
+      }
+      return false;
+    } finally {
+      seg.unlock();
+    }
   }
 
   @Override
-  public Collection<V> values() {
-    return segments.stream().flatMap(m->m.values().stream()).collect(Collectors.toList());
+  public boolean remove(Object key, Object value) {
+    OffHeapSegment seg = segment(key);
+    byte[] keyBytes = encode(key);
+    byte[] expected = encode(value);
+    seg.lock();
+    try {
+      if (Arrays.equals(expected, seg.get(key.hashCode(), keyBytes))) {
+        seg.remove(key.hashCode(), keyBytes);
+        return true;
+      }
+      return false;
+    } finally {
+      seg.unlock();
+    }
   }
-  
-  private Map<K, V> segment(Object key) {
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> m) {
+    m.entrySet().stream().forEach(e->put(e.getKey(), e.getValue()));
+  }
+
+  @Override
+  public void clear() {
+    for (OffHeapSegment seg : segments) {
+      seg.lock();
+      try {
+        seg.clear();
+      } finally {
+        seg.unlock();
+      }
+    }
+  }
+
+  private OffHeapSegment segment(Object key) {
     return segments.get(segment(key, segments.size()));
   }
   
   public static int segment(Object key, int segments) {
-    return Math.abs(key.hashCode() * MIXER) % segments;
+    return Segments.indexOf(key, segments);
+  }
+
+  /**
+   * Bulk operations only hold the concurrency key of the segment they name so every key
+   * they carry must belong to it.
+   *
+   * @throws IllegalArgumentException if a bulk operation carries a key of another segment
+   */
+  public void checkSegment(MapOperation operation) {
+    Collection<?> keys;
+    switch (operation.operationType()) {
+      case BULK_GET:
+        keys = ((BulkGetOperation) operation).getKeys();
+        break;
+      case BULK_PUT:
+        keys = ((BulkPutOperation) operation).getMap().keySet();
+        break;
+      case BULK_REMOVE:
+        keys = ((BulkRemoveOperation) operation).getKeys();
+        break;
+      default:
+        return;
+    }
+    int seg = ((SegmentOperation) operation).getSegment();
+    for (Object key : keys) {
+      if (Segments.indexOf(key, segments.size()) != seg - 1) {
+        throw new IllegalArgumentException(operation.operationType() + " for segment " + seg
+            + " carries a key of segment " + (Segments.indexOf(key, segments.size()) + 1));
+      }
+    }
   }
   
+  /**
+   * @return a lazy view of the mappings held by one segment, numbered from one like the
+   *   synchronization concurrency keys
+   */
   public Map<K, V> mapForSegment(int seg) {
     if (seg < 1 || seg > segments.size()) {
       throw new IllegalArgumentException();
     }
-    return segments.get(seg - 1);
+    EntrySet<K, V> entries = new EntrySet<>(segments.subList(seg - 1, seg));
+    return new AbstractMap<K, V>() {
+      @Override
+      public Set<Entry<K, V>> entrySet() {
+        return entries;
+      }
+    };
   }
   
-  public Map<K, V> putMapForSegment(int seg, Map map) {
+  /**
+   * Reads the next page of a segment, numbered from one, in serialized form.  The page
+   * ends after {@code maxEntries} mappings or once it holds at least {@code maxBytes} but
+   * always carries at least one mapping when any remain.  The cursor survives the segment
+   * growing or shrinking between pages, see {@link OffHeapSegment#scan}.
+   *
+   * @param cursor zero or the cursor returned with the previous page
+   */
+  public PageResponse page(int seg, int cursor, int maxEntries, int maxBytes, boolean keys, boolean values) {
+    if (seg < 1 || seg > segments.size()) {
+      throw new IllegalArgumentException();
+    }
+    List<byte[]> keyPage = keys ? new ArrayList<>() : Collections.emptyList();
+    List<byte[]> valuePage = values ? new ArrayList<>() : Collections.emptyList();
+    OffHeapSegment segment = segments.get(seg - 1);
+    segment.lock();
+    try {
+      // mappings sharing a bucket always go out in the same page so a page can run over
+      //  its limits by the few mappings of one bucket
+      int[] sizes = new int[2];
+      int next = Math.max(0, cursor);
+      do {
+        next = segment.scan(next, slot -> {
+          if (keys) {
+            byte[] key = segment.keyAt(slot);
+            sizes[1] += key.length;
+            keyPage.add(key);
+          }
+          if (values) {
+            byte[] value = segment.valueAt(slot);
+            sizes[1] += value.length;
+            valuePage.add(value);
+          }
+          sizes[0]++;
+        });
+      } while (next != 0 && sizes[0] < maxEntries && sizes[1] < maxBytes);
+      return new PageResponse(next == 0 ? PageResponse.END : next, keyPage, valuePage);
+    } finally {
+      segment.unlock();
+    }
+  }
+
+  /**
+   * Writes the next chunk of a segment, numbered from one, in the layout the segment
+   * stores its records in, {@code [hash][key length][value length][key][value]}, so a
+   * passive can load them without deserializing anything.  Like {@link #page} the chunk
+   * ends once it holds at least {@code maxBytes} but always carries at least one mapping
+   * when any remain.
+   *
+   * @param cursor zero or the cursor returned for the previous chunk
+   * @return the cursor for the next chunk or {@link PageResponse#END}
+   */
+  public int snapshot(int seg, int cursor, int maxBytes, DataOutput out) throws IOException {
+    OffHeapSegment segment = segmentAt(seg);
+    segment.lock();
+    try {
+      int[] bytes = new int[1];
+      int next = Math.max(0, cursor);
+      do {
+        next = segment.scan(next, slot -> {
+          byte[] key = segment.keyAt(slot);
+          byte[] value = segment.valueAt(slot);
+          try {
+            out.writeInt(segment.hashAt(slot));
+            out.writeInt(key.length);
+            out.writeInt(value.length);
+            out.write(key);
+            out.write(value);
+          } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+          }
+          bytes[0] += 12 + key.length + value.length;
+        });
+      } while (next != 0 && bytes[0] < maxBytes);
+      return next == 0 ? PageResponse.END : next;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      segment.unlock();
+    }
+  }
+
+  /**
+   * Adds the records of a chunk written by {@link #snapshot} to a segment.
+   */
+  public void restore(int seg, ByteBuffer records) {
+    OffHeapSegment segment = segmentAt(seg);
+    segment.lock();
+    try {
+      while (records.hasRemaining()) {
+        int hash = records.getInt();
+        byte[] key = new byte[records.getInt()];
+        byte[] value = new byte[records.getInt()];
+        records.get(key);
+        records.get(value);
+        segment.put(hash, key, value);
+      }
+    } finally {
+      segment.unlock();
+    }
+  }
+
+  public void clearSegment(int seg) {
+    OffHeapSegment segment = segmentAt(seg);
+    segment.lock();
+    try {
+      segment.clear();
+    } finally {
+      segment.unlock();
+    }
+  }
+
+  private OffHeapSegment segmentAt(int seg) {
     if (seg < 1 || seg > segments.size()) {
       throw new IllegalArgumentException();
     }
-    return segments.set(seg - 1, map);
+    return segments.get(seg - 1);
   }
   
   public int concurrency() {
     return segments.size();
   }
+
+  private static byte[] encode(Object o) {
+    try {
+      return PrimitiveCodec.encode(o);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T decode(byte[] bytes) {
+    try {
+      return bytes == null ? null : (T)PrimitiveCodec.decode(bytes);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  private static class EntrySet<K, V> extends AbstractSet<Entry<K, V>> {
+
+    private final List<OffHeapSegment> segments;
+
+    EntrySet(List<OffHeapSegment> segments) {
+      this.segments = segments;
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (OffHeapSegment seg : segments) {
+        seg.lock();
+        try {
+          size += seg.size();
+        } finally {
+          seg.unlock();
+        }
+      }
+      return size;
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+      return new Iterator<Entry<K, V>>() {
+        private final Deque<byte[][]> pending = new ArrayDeque<>();
+        private int segment = 0;
+        private int cursor = 0;
+        private byte[][] next = advance();
+        private Entry<K, V> last;
+
+        private byte[][] advance() {
+          // a bucket at a time, like the pages, so puts that resize a segment between calls
+          //  do not make the iterator skip mappings
+          while (pending.isEmpty() && segment < segments.size()) {
+            OffHeapSegment seg = segments.get(segment);
+            seg.lock();
+            try {
+              do {
+                cursor = seg.scan(cursor, slot -> pending.add(new byte[][] {seg.keyAt(slot), seg.valueAt(slot)}));
+              } while (cursor != 0 && pending.isEmpty());
+            } finally {
+              seg.unlock();
+            }
+            if (cursor == 0) {
+              segment++;
+            }
+          }
+          return pending.poll();
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+          if (next == null) {
+            throw new NoSuchElementException();
+          }
+          last = new SimpleImmutableEntry<>(CompoundMap.<K>decode(next[0]), CompoundMap.<V>decode(next[1]));
+          next = advance();
+          return last;
+        }
+
+        @Override
+        public void remove() {
+          if (last == null) {
+            throw new IllegalStateException();
+          }
+          Object key = last.getKey();
+          OffHeapSegment seg = segments.get(segment(key, segments.size()));
+          byte[] bytes = encode(key);
+          seg.lock();
+          try {
+            seg.remove(key.hashCode(), bytes);
+          } finally {
+            seg.unlock();
+          }
+          last = null;
+        }
+      };
+    }
+  }
 }
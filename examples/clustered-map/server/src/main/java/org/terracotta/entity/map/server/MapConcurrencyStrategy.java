@@ -23,6 +23,8 @@ import java.util.stream.IntStream;
 import org.terracotta.entity.ConcurrencyStrategy;
 import org.terracotta.entity.map.common.KeyedOperation;
 import org.terracotta.entity.map.common.MapOperation;
+import org.terracotta.entity.map.common.SegmentOperation;
+import org.terracotta.entity.map.common.Segments;
 
 /**
  *
@@ -42,11 +44,17 @@ public class MapConcurrencyStrategy implements ConcurrencyStrategy<MapOperation>
       case PUT_IF_ABSENT:
       case PUT_IF_PRESENT:
       case GET:
+      case CACHING_GET:
       case CONDITIONAL_REMOVE:
       case CONDITIONAL_REPLACE:
       case CONTAINS_KEY:
       case REMOVE:
-        return CompoundMap.segment(((KeyedOperation)operation).getKey().hashCode(), concurrency);
+        return Segments.concurrencyKey(((KeyedOperation)operation).getKey(), concurrency);
+      case PAGE:
+      case BULK_GET:
+      case BULK_PUT:
+      case BULK_REMOVE:
+        return ((SegmentOperation)operation).getSegment();
       default:
         return ConcurrencyStrategy.MANAGEMENT_KEY;
     }
@@ -28,6 +28,8 @@ public class MapExecutionStrategy implements ExecutionStrategy<MapOperation> {
   @Override
   public Location getExecutionLocation(MapOperation m) {
     switch (m.operationType()) {
+      case BULK_PUT:
+      case BULK_REMOVE:
       case CLEAR:
       case CONDITIONAL_REMOVE:
       case CONDITIONAL_REPLACE:
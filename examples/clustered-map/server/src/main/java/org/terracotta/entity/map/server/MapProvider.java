@@ -19,7 +19,7 @@ package org.terracotta.entity.map.server;
 
 import com.tc.classloader.BuiltinService;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -36,6 +36,7 @@ import org.terracotta.entity.ServiceProviderConfiguration;
 public class MapProvider implements ServiceProvider {
   
   private final ConcurrentMap<Object, Object> map = new ConcurrentHashMap<>();
+  private final OffHeapMemory memory = OffHeapMemory.fromSystemProperties();
 
   @Override
   public boolean initialize(ServiceProviderConfiguration spc, PlatformConfiguration pc) {
@@ -46,6 +47,8 @@ public class MapProvider implements ServiceProvider {
   public <T> T getService(long l, ServiceConfiguration<T> sc) {
     if (sc.getServiceType().isAssignableFrom(Map.class)) {
       return (T)map;
+    } else if (sc.getServiceType().isAssignableFrom(OffHeapMemory.class)) {
+      return (T)memory;
     } else {
       return null;
     }
@@ -53,11 +56,12 @@ public class MapProvider implements ServiceProvider {
 
   @Override
   public Collection<Class<?>> getProvidedServiceTypes() {
-    return Collections.singleton(Map.class);
+    return Arrays.asList(Map.class, OffHeapMemory.class);
   }
 
   @Override
   public void prepareForSynchronization() throws ServiceProviderCleanupException {
+    map.values().stream().filter(CompoundMap.class::isInstance).forEach(m -> ((CompoundMap<?, ?>)m).clear());
     map.clear();
   }
   
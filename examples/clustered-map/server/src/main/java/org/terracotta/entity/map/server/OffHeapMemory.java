@@ -0,0 +1,75 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts for the direct memory used by all the clustered maps of a server against a
+ * single ceiling.  The ceiling is set with the {@value #MAX_BYTES_PROPERTY} system
+ * property and defaults to 512MB.
+ */
+public class OffHeapMemory {
+
+  public static final String MAX_BYTES_PROPERTY = "clustered-map.offheap.maxBytes";
+  private static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+
+  private final long limit;
+  private final AtomicLong reserved = new AtomicLong();
+
+  public OffHeapMemory(long limit) {
+    this.limit = limit;
+  }
+
+  public static OffHeapMemory fromSystemProperties() {
+    return new OffHeapMemory(Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+  }
+
+  /**
+   * @return a new direct buffer or null if allocating it would exceed the ceiling or the
+   *   JVM's own direct memory limit
+   */
+  ByteBuffer allocate(int size) {
+    long current = reserved.get();
+    while (current + size <= limit) {
+      if (reserved.compareAndSet(current, current + size)) {
+        try {
+          return ByteBuffer.allocateDirect(size);
+        } catch (OutOfMemoryError e) {
+          reserved.addAndGet(-size);
+          return null;
+        }
+      }
+      current = reserved.get();
+    }
+    return null;
+  }
+
+  void free(ByteBuffer buffer) {
+    reserved.addAndGet(-buffer.capacity());
+  }
+
+  public long getReserved() {
+    return reserved.get();
+  }
+
+  public long getLimit() {
+    return limit;
+  }
+}
@@ -0,0 +1,427 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map.server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * One segment of a {@link CompoundMap} held entirely in direct memory.
+ * <p>
+ * Records are appended to a log of pages as {@code [hash][key length][value length][key][value]}
+ * and located through an open addressing table of record addresses, also off-heap.  An
+ * address is the page number plus one in the high word and the offset into the page in the
+ * low word so it can never collide with the empty and removed slot markers.  Replacing or
+ * removing a mapping leaves the old record as garbage which is compacted in place once it
+ * makes up half the log, so compaction never needs memory beyond what the segment already
+ * holds.
+ * <p>
+ * All methods must be called with the segment lock held.
+ */
+class OffHeapSegment {
+
+  private static final int HEADER_SIZE = 12;
+  private static final int PAGE_SIZE = 1024 * 1024;
+  private static final int MIN_SLOTS = 64;
+  private static final long EMPTY = 0L;
+  private static final long REMOVED = -1L;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final OffHeapMemory memory;
+  private final List<ByteBuffer> pages = new ArrayList<>();
+  private ByteBuffer table;
+  private int slots;
+  private int count;
+  private int removed;
+  private long used;
+  private long garbage;
+
+  OffHeapSegment(OffHeapMemory memory) {
+    this.memory = memory;
+  }
+
+  void lock() {
+    lock.lock();
+  }
+
+  void unlock() {
+    lock.unlock();
+  }
+
+  int size() {
+    return count;
+  }
+
+  long getUsedBytes() {
+    return used;
+  }
+
+  long getGarbageBytes() {
+    return garbage;
+  }
+
+  byte[] get(int hash, byte[] key) {
+    int slot = find(hash, key);
+    return slot < 0 ? null : valueAt(slot);
+  }
+
+  /**
+   * @return the serialized value previously mapped to the key or null
+   * @throws StoreFullException if the new record does not fit under the ceiling, the
+   *   segment is unchanged in that case
+   */
+  byte[] put(int hash, byte[] key, byte[] value) {
+    int slot = find(hash, key);
+    if (slot < 0) {
+      // only an insert takes a slot, a replacement never grows the table
+      ensureCapacity(count + 1);
+    }
+    if (slot >= 0 && readInt(addressAt(slot), 8) == value.length) {
+      // same sized values are overwritten in place without creating garbage
+      byte[] previous = valueAt(slot);
+      long address = addressAt(slot);
+      write(address, HEADER_SIZE + key.length, value);
+      return previous;
+    }
+    long address = append(hash, key, value);
+    if (slot < 0) {
+      insert(hash, address);
+      count++;
+      return null;
+    } else {
+      // re-read the old address as appending may have compacted the log
+      long old = addressAt(slot);
+      byte[] previous = bytes(old, HEADER_SIZE + key.length, readInt(old, 8));
+      garbage += recordSize(old);
+      table.putLong(slot * 8, address);
+      return previous;
+    }
+  }
+
+  byte[] remove(int hash, byte[] key) {
+    int slot = find(hash, key);
+    if (slot < 0) {
+      return null;
+    }
+    byte[] previous = valueAt(slot);
+    garbage += recordSize(addressAt(slot));
+    table.putLong(slot * 8, REMOVED);
+    removed++;
+    count--;
+    return previous;
+  }
+
+  boolean containsValue(byte[] value) {
+    for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+      long address = addressAt(slot);
+      if (readInt(address, 8) == value.length && matches(address, HEADER_SIZE + readInt(address, 4), value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  void clear() {
+    pages.forEach(memory::free);
+    pages.clear();
+    if (table != null) {
+      memory.free(table);
+      table = null;
+    }
+    slots = 0;
+    count = 0;
+    removed = 0;
+    used = 0;
+    garbage = 0;
+  }
+
+  /**
+   * Visits the occupied slots of the mappings whose home bucket is {@code cursor} and
+   * returns the cursor of the following bucket, or zero once every bucket was visited.
+   * <p>
+   * Iterating with the cursor, starting from zero, is weakly consistent across table
+   * resizes.  A mapping present for the whole iteration is visited at least once, and
+   * only visited again if the table shrank in between.  This is the reverse binary cursor
+   * of Redis SCAN: a home bucket is the low bits of a hash that does not depend on the
+   * table size, so doubling the table splits bucket {@code b} into {@code b} and
+   * {@code b + slots}, and incrementing the reversed cursor visits both of those after
+   * everything already visited.  With linear probing the mappings of a bucket sit
+   * between the bucket and the next empty slot.
+   */
+  int scan(int cursor, IntConsumer visitor) {
+    if (table == null) {
+      return 0;
+    }
+    int mask = slots - 1;
+    int bucket = cursor & mask;
+    for (int slot = bucket; ; slot = (slot + 1) & mask) {
+      long address = table.getLong(slot * 8);
+      if (address == EMPTY) {
+        break;
+      } else if (address != REMOVED && index(readInt(address, 0)) == bucket) {
+        visitor.accept(slot);
+      }
+    }
+    int next = Integer.reverse(cursor | ~mask);
+    return Integer.reverse(next + 1);
+  }
+
+  /**
+   * @return the first occupied slot at or after {@code from} or -1
+   */
+  private int nextSlot(int from) {
+    for (int slot = from; slot < slots; slot++) {
+      long address = table.getLong(slot * 8);
+      if (address != EMPTY && address != REMOVED) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  int hashAt(int slot) {
+    return readInt(addressAt(slot), 0);
+  }
+
+  byte[] keyAt(int slot) {
+    long address = addressAt(slot);
+    return bytes(address, HEADER_SIZE, readInt(address, 4));
+  }
+
+  byte[] valueAt(int slot) {
+    long address = addressAt(slot);
+    return bytes(address, HEADER_SIZE + readInt(address, 4), readInt(address, 8));
+  }
+
+  private long addressAt(int slot) {
+    return table.getLong(slot * 8);
+  }
+
+  private int find(int hash, byte[] key) {
+    if (table == null) {
+      return -1;
+    }
+    for (int slot = index(hash); ; slot = (slot + 1) & (slots - 1)) {
+      long address = table.getLong(slot * 8);
+      if (address == EMPTY) {
+        return -1;
+      } else if (address != REMOVED && readInt(address, 0) == hash && readInt(address, 4) == key.length
+          && matches(address, HEADER_SIZE, key)) {
+        return slot;
+      }
+    }
+  }
+
+  private void insert(int hash, long address) {
+    for (int slot = index(hash); ; slot = (slot + 1) & (slots - 1)) {
+      long current = table.getLong(slot * 8);
+      if (current == EMPTY || current == REMOVED) {
+        if (current == REMOVED) {
+          removed--;
+        }
+        table.putLong(slot * 8, address);
+        return;
+      }
+    }
+  }
+
+  private int index(int hash) {
+    int h = hash * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & (slots - 1);
+  }
+
+  private void ensureCapacity(int required) {
+    if (table != null && (required + removed) * 4L <= slots * 3L) {
+      return;
+    }
+    int newSlots = MIN_SLOTS;
+    while (required * 2L > newSlots) {
+      newSlots <<= 1;
+    }
+    ByteBuffer newTable = memory.allocate(newSlots * 8);
+    if (newTable == null) {
+      throw new StoreFullException("unable to grow the map table to " + newSlots + " slots, "
+          + memory.getReserved() + " of " + memory.getLimit() + " off-heap bytes in use");
+    }
+    ByteBuffer oldTable = table;
+    int oldSlots = slots;
+    table = newTable;
+    slots = newSlots;
+    removed = 0;
+    for (int slot = 0; slot < oldSlots; slot++) {
+      long address = oldTable.getLong(slot * 8);
+      if (address != EMPTY && address != REMOVED) {
+        insert(readInt(address, 0), address);
+      }
+    }
+    if (oldTable != null) {
+      memory.free(oldTable);
+    }
+  }
+
+  private long append(int hash, byte[] key, byte[] value) {
+    int size = HEADER_SIZE + key.length + value.length;
+    ByteBuffer page = tail();
+    if (!fits(page, size) && garbage > 0 && garbage * 2 >= used) {
+      compact();
+      page = tail();
+    }
+    if (!fits(page, size)) {
+      ByteBuffer fresh = memory.allocate(Math.max(PAGE_SIZE, size));
+      if (fresh == null && garbage > 0) {
+        compact();
+        page = tail();
+      }
+      if (fresh == null && !fits(page, size)) {
+        // close to the ceiling, settle for a page holding just this record
+        fresh = memory.allocate(size);
+      }
+      if (fresh != null) {
+        pages.add(fresh);
+        page = fresh;
+      } else if (!fits(page, size)) {
+        throw new StoreFullException("unable to store a mapping of " + size + " bytes, "
+            + memory.getReserved() + " of " + memory.getLimit() + " off-heap bytes in use");
+      }
+    }
+    long address = ((long) pages.size() << 32) | page.position();
+    page.putInt(hash).putInt(key.length).putInt(value.length).put(key).put(value);
+    used += size;
+    return address;
+  }
+
+  private ByteBuffer tail() {
+    return pages.isEmpty() ? null : pages.get(pages.size() - 1);
+  }
+
+  private static boolean fits(ByteBuffer page, int size) {
+    return page != null && page.remaining() >= size;
+  }
+
+  /**
+   * Slides every live record towards the start of the log, dropping garbage and freeing
+   * the pages left empty at the end.  Table slots are updated in place so slot positions,
+   * and with them any iteration in progress, are unaffected.
+   */
+  private void compact() {
+    byte[] chunk = new byte[8192];
+    int writePage = 0;
+    int writeOffset = 0;
+    for (int readPage = 0; readPage < pages.size(); readPage++) {
+      ByteBuffer page = pages.get(readPage);
+      int end = page.position();
+      int readOffset = 0;
+      while (readOffset < end) {
+        long address = ((long) (readPage + 1) << 32) | readOffset;
+        int size = recordSize(address);
+        int slot = slotOf(address);
+        if (slot >= 0) {
+          while (writePage < readPage && pages.get(writePage).capacity() - writeOffset < size) {
+            pages.get(writePage).position(writeOffset);
+            writePage++;
+            writeOffset = 0;
+          }
+          if (writePage != readPage || writeOffset != readOffset) {
+            move(page, readOffset, pages.get(writePage), writeOffset, size, chunk);
+            table.putLong(slot * 8, ((long) (writePage + 1) << 32) | writeOffset);
+          }
+          writeOffset += size;
+        }
+        readOffset += size;
+      }
+    }
+    while (pages.size() > writePage + 1) {
+      memory.free(pages.remove(pages.size() - 1));
+    }
+    if (writeOffset == 0 && writePage == 0 && !pages.isEmpty()) {
+      memory.free(pages.remove(0));
+    } else if (!pages.isEmpty()) {
+      pages.get(writePage).position(writeOffset);
+    }
+    used -= garbage;
+    garbage = 0;
+  }
+
+  private int slotOf(long address) {
+    for (int slot = index(readInt(address, 0)); ; slot = (slot + 1) & (slots - 1)) {
+      long current = table.getLong(slot * 8);
+      if (current == address) {
+        return slot;
+      } else if (current == EMPTY) {
+        return -1;
+      }
+    }
+  }
+
+  private static void move(ByteBuffer from, int fromOffset, ByteBuffer to, int toOffset, int size, byte[] chunk) {
+    // forward chunked copy is safe for overlapping ranges as records only move down
+    ByteBuffer src = from.duplicate();
+    ByteBuffer dst = to.duplicate();
+    int done = 0;
+    while (done < size) {
+      int len = Math.min(chunk.length, size - done);
+      src.limit(fromOffset + done + len).position(fromOffset + done);
+      src.get(chunk, 0, len);
+      dst.limit(toOffset + done + len).position(toOffset + done);
+      dst.put(chunk, 0, len);
+      done += len;
+    }
+  }
+
+  private int recordSize(long address) {
+    return HEADER_SIZE + readInt(address, 4) + readInt(address, 8);
+  }
+
+  private ByteBuffer page(long address) {
+    return pages.get((int) (address >>> 32) - 1);
+  }
+
+  private int readInt(long address, int offset) {
+    return page(address).getInt((int) address + offset);
+  }
+
+  private byte[] bytes(long address, int offset, int length) {
+    ByteBuffer view = page(address).duplicate();
+    int start = (int) address + offset;
+    view.limit(start + length).position(start);
+    byte[] result = new byte[length];
+    view.get(result);
+    return result;
+  }
+
+  private void write(long address, int offset, byte[] data) {
+    ByteBuffer view = page(address).duplicate();
+    int start = (int) address + offset;
+    view.limit(start + data.length).position(start);
+    view.put(data);
+  }
+
+  private boolean matches(long address, int offset, byte[] expected) {
+    ByteBuffer page = page(address);
+    int start = (int) address + offset;
+    for (int x = 0; x < expected.length; x++) {
+      if (page.get(start + x) != expected[x]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
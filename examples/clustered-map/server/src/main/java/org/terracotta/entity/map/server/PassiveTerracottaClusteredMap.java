@@ -18,11 +18,14 @@
 package org.terracotta.entity.map.server;
 
 import java.util.Map;
+import org.terracotta.entity.EntityUserException;
 import org.terracotta.entity.InvokeContext;
 import org.terracotta.entity.PassiveServerEntity;
 import org.terracotta.entity.map.common.MapOperation;
 import org.terracotta.entity.map.common.MapResponse;
 
+import org.terracotta.entity.map.common.BulkPutOperation;
+import org.terracotta.entity.map.common.BulkRemoveOperation;
 import org.terracotta.entity.map.common.ConditionalRemoveOperation;
 import org.terracotta.entity.map.common.ConditionalReplaceOperation;
 import org.terracotta.entity.map.common.PutAllOperation;
@@ -40,20 +43,32 @@ class PassiveTerracottaClusteredMap implements PassiveServerEntity<MapOperation,
   private final Map<String, CompoundMap<Object, Object>> root;
   private final CompoundMap<Object, Object> map;
 
-  public PassiveTerracottaClusteredMap(String name, int concurrency, Map<String, CompoundMap<Object, Object>> root) {
+  public PassiveTerracottaClusteredMap(String name, int concurrency, Map<String, CompoundMap<Object, Object>> root, OffHeapMemory memory) {
     this.name = name;
     this.root = root;
-    this.map = root.computeIfAbsent(name, v -> new CompoundMap<>(concurrency));
+    this.map = root.computeIfAbsent(name, v -> new CompoundMap<>(concurrency, memory));
   }
 
   @Override
-  public void invokePassive(InvokeContext context, MapOperation input) {
+  public void invokePassive(InvokeContext context, MapOperation input) throws EntityUserException {
+    try {
+      // the active rejects the same operation, neither applies it
+      map.checkSegment(input);
+    } catch (IllegalArgumentException misplaced) {
+      throw new EntityUserException(misplaced.getMessage(), misplaced);
+    }
+    try {
+      invoke(input);
+    } catch (StoreFullException full) {
+      throw new EntityUserException(full.getMessage(), full);
+    }
+  }
+
+  private void invoke(MapOperation input) {
     switch (input.operationType()) {
       case PUT: {
         PutOperation putOperation = (PutOperation) input;
-        Object key = putOperation.getKey();
-        Object old = map.get(key);
-        map.put(key, putOperation.getValue());
+        map.put(putOperation.getKey(), putOperation.getValue());
         break;
       }
       case REMOVE: {
@@ -72,6 +87,14 @@ class PassiveTerracottaClusteredMap implements PassiveServerEntity<MapOperation,
         // There is no response from a put all.
         break;
       }
+      case BULK_PUT: {
+        map.putAll(((BulkPutOperation) input).getMap());
+        break;
+      }
+      case BULK_REMOVE: {
+        ((BulkRemoveOperation) input).getKeys().forEach(map::remove);
+        break;
+      }
       case PUT_IF_ABSENT: {
         PutIfAbsentOperation operation = (PutIfAbsentOperation) input;
         map.putIfAbsent(operation.getKey(), operation.getValue());
@@ -94,7 +117,7 @@ class PassiveTerracottaClusteredMap implements PassiveServerEntity<MapOperation,
       }
       case SYNC_OP: {
         SyncOperation op = (SyncOperation)input;
-        map.putMapForSegment(op.getConcurrency(), op.getObjectMap());
+        map.restore(op.getConcurrency(), op.getRecords());
         break;
       }
       default:
@@ -115,6 +138,8 @@ public void endSyncEntity() {
 
   @Override
 public void startSyncConcurrencyKey(int concurrencyKey) {
+    // chunks only ever add records, drop whatever an earlier sync attempt left behind
+    map.clearSegment(concurrencyKey);
 
 }
 
@@ -130,6 +155,7 @@ public void createNew() {
 
   @Override
 public void destroy() {
+    map.clear();
     root.remove(name);
   }
 }
@@ -17,21 +17,22 @@
  */
 package org.terracotta.entity.map.server;
 
-import java.io.ByteArrayOutputStream;
 import org.terracotta.entity.map.common.MapOperation;
 
 import java.io.DataOutput;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
-import java.util.Map;
-
+import java.nio.ByteBuffer;
 
+/**
+ * One chunk of a segment sent to a synchronizing passive, holding records in the layout
+ * written by {@link CompoundMap#snapshot}.
+ */
 class SyncOperation implements MapOperation {
-  private final Map<Object, Object> objects;
+  private final ByteBuffer records;
   private final int concurrency;
 
-  public SyncOperation(int concurrency, Map<Object, Object> objects) {
-    this.objects = objects;
+  public SyncOperation(int concurrency, ByteBuffer records) {
+    this.records = records;
     this.concurrency = concurrency;
   }
 
@@ -42,15 +43,14 @@ class SyncOperation implements MapOperation {
 
   @Override
   public void writeTo(DataOutput output) throws IOException {
-    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    ObjectOutputStream oo = new ObjectOutputStream(bos);
-    oo.writeObject(oo);
-    oo.close();
-    output.write(bos.toByteArray());
+    ByteBuffer view = getRecords();
+    byte[] bytes = new byte[view.remaining()];
+    view.get(bytes);
+    output.write(bytes);
   }
 
-  public Map<Object, Object> getObjectMap() {
-    return objects;
+  public ByteBuffer getRecords() {
+    return records.duplicate();
   }
 
   public int getConcurrency() {
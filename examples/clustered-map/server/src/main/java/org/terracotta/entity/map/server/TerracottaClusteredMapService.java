@@ -19,6 +19,7 @@ package org.terracotta.entity.map.server;
 
 import java.util.Map;
 import org.terracotta.entity.ActiveServerEntity;
+import org.terracotta.entity.ClientCommunicator;
 import org.terracotta.entity.ConcurrencyStrategy;
 import org.terracotta.entity.EntityServerService;
 import org.terracotta.entity.ExecutionStrategy;
@@ -50,7 +51,7 @@ public class TerracottaClusteredMapService implements EntityServerService<MapOpe
   public ActiveServerEntity<MapOperation, MapResponse> createActiveEntity(ServiceRegistry registry, byte[] configuration) {
     try {
       MapConfig config = new MapConfig(configuration);
-      return new ActiveTerracottaClusteredMap(config.getName(), config.getConcurrency(), registry.getService(()->Map.class));
+      return new ActiveTerracottaClusteredMap(config.getName(), config.getConcurrency(), registry.getService(()->Map.class), registry.getService(()->OffHeapMemory.class), registry.getService(()->ClientCommunicator.class));
     } catch (ServiceException se) {
       return null;
     }
@@ -60,7 +61,7 @@ public class TerracottaClusteredMapService implements EntityServerService<MapOpe
   public PassiveServerEntity<MapOperation, MapResponse> createPassiveEntity(ServiceRegistry registry, byte[] configuration) {
     try {
       MapConfig config = new MapConfig(configuration);
-      return new PassiveTerracottaClusteredMap(config.getName(), config.getConcurrency(), registry.getService(()->Map.class));
+      return new PassiveTerracottaClusteredMap(config.getName(), config.getConcurrency(), registry.getService(()->Map.class), registry.getService(()->OffHeapMemory.class));
     } catch (ServiceException se) {
       return null;
     }
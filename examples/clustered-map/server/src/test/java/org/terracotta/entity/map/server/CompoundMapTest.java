@@ -0,0 +1,131 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map.server;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Set;
+import org.junit.Test;
+import org.terracotta.entity.map.common.BulkRemoveOperation;
+import org.terracotta.entity.map.common.PageResponse;
+import org.terracotta.entity.map.common.Segments;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompoundMapTest {
+
+  // the smallest table holds 48 mappings, the 49th doubles it
+  private static final int FULL_TABLE = 48;
+
+  @Test
+  public void testPagingSurvivesGrowth() throws IOException {
+    CompoundMap<String, String> map = filledMap(1);
+
+    Set<Object> seen = new HashSet<>();
+    PageResponse page = map.page(1, 0, FULL_TABLE / 2, Integer.MAX_VALUE, true, false);
+    for (int i = 0; i < page.size(); i++) {
+      seen.add(page.keyAt(i));
+    }
+    for (int i = 0; i < 100; i++) {
+      map.put("grown-" + i, "value");
+    }
+    int cursor = page.getNextCursor();
+    while (cursor != PageResponse.END) {
+      page = map.page(1, cursor, 10, Integer.MAX_VALUE, true, false);
+      for (int i = 0; i < page.size(); i++) {
+        seen.add(page.keyAt(i));
+      }
+      cursor = page.getNextCursor();
+    }
+
+    for (int i = 0; i < FULL_TABLE; i++) {
+      assertTrue("key-" + i, seen.contains("key-" + i));
+    }
+  }
+
+  @Test
+  public void testIteratorSurvivesGrowth() {
+    CompoundMap<String, String> map = filledMap(1);
+
+    Set<String> seen = new HashSet<>();
+    Iterator<Entry<String, String>> it = map.entrySet().iterator();
+    for (int i = 0; i < FULL_TABLE / 2; i++) {
+      seen.add(it.next().getKey());
+    }
+    for (int i = 0; i < 100; i++) {
+      map.put("grown-" + i, "value");
+    }
+    while (it.hasNext()) {
+      seen.add(it.next().getKey());
+    }
+
+    for (int i = 0; i < FULL_TABLE; i++) {
+      assertTrue("key-" + i, seen.contains("key-" + i));
+    }
+  }
+
+  @Test
+  public void testBulkKeysMustBelongToTheirSegment() {
+    CompoundMap<String, String> map = new CompoundMap<>(4, new OffHeapMemory(64 * 1024 * 1024));
+    String key = "key";
+    int segment = Segments.concurrencyKey(key, 4);
+    map.checkSegment(new BulkRemoveOperation(segment, Collections.singletonList(key)));
+    try {
+      map.checkSegment(new BulkRemoveOperation(segment % 4 + 1, Collections.singletonList(key)));
+      fail();
+    } catch (IllegalArgumentException expected) {
+      // the key hashes to another segment
+    }
+  }
+
+  @Test
+  public void testPagingVisitsEachMappingOnce() throws IOException {
+    CompoundMap<String, String> map = new CompoundMap<>(1, new OffHeapMemory(64 * 1024 * 1024));
+    for (int i = 0; i < 1000; i++) {
+      map.put("key-" + i, "value-" + i);
+    }
+
+    int count = 0;
+    Set<Object> seen = new HashSet<>();
+    int cursor = 0;
+    do {
+      PageResponse page = map.page(1, cursor, 7, Integer.MAX_VALUE, true, false);
+      for (int i = 0; i < page.size(); i++) {
+        seen.add(page.keyAt(i));
+        count++;
+      }
+      cursor = page.getNextCursor();
+    } while (cursor != PageResponse.END);
+
+    assertEquals(1000, count);
+    assertEquals(1000, seen.size());
+  }
+
+  private static CompoundMap<String, String> filledMap(int concurrency) {
+    CompoundMap<String, String> map = new CompoundMap<>(concurrency, new OffHeapMemory(64 * 1024 * 1024));
+    for (int i = 0; i < FULL_TABLE; i++) {
+      map.put("key-" + i, "value-" + i);
+    }
+    return map;
+  }
+}
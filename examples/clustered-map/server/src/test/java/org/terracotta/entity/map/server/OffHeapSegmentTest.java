@@ -0,0 +1,172 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.entity.map.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapSegmentTest {
+
+  @Test
+  public void testSameSizedReplaceIsInPlace() {
+    OffHeapSegment segment = new OffHeapSegment(new OffHeapMemory(16 * 1024 * 1024));
+    put(segment, "key", "value-1");
+    long used = segment.getUsedBytes();
+
+    assertArrayEquals(bytes("value-1"), put(segment, "key", "value-2"));
+    assertArrayEquals(bytes("value-2"), get(segment, "key"));
+    assertEquals(used, segment.getUsedBytes());
+    assertEquals(0, segment.getGarbageBytes());
+    assertEquals(1, segment.size());
+  }
+
+  @Test
+  public void testResizingReplaceLeavesGarbage() {
+    OffHeapSegment segment = new OffHeapSegment(new OffHeapMemory(16 * 1024 * 1024));
+    put(segment, "key", "short");
+
+    assertArrayEquals(bytes("short"), put(segment, "key", "much longer"));
+    assertArrayEquals(bytes("much longer"), get(segment, "key"));
+    assertEquals(12 + 3 + 5, segment.getGarbageBytes());
+    assertEquals(1, segment.size());
+  }
+
+  @Test
+  public void testReplaceAtTheLoadFactorDoesNotGrowTheTable() {
+    OffHeapMemory memory = new OffHeapMemory(16 * 1024 * 1024);
+    OffHeapSegment segment = new OffHeapSegment(memory);
+    // 48 of the 64 initial slots, one more insert would double the table
+    for (int i = 0; i < 48; i++) {
+      put(segment, "key-" + i, "value");
+    }
+    long reserved = memory.getReserved();
+
+    assertArrayEquals(bytes("value"), put(segment, "key-0", "other"));
+    assertEquals(reserved, memory.getReserved());
+    assertEquals(48, segment.size());
+  }
+
+  @Test
+  public void testRemove() {
+    OffHeapSegment segment = new OffHeapSegment(new OffHeapMemory(16 * 1024 * 1024));
+    put(segment, "a", "1");
+    put(segment, "b", "2");
+
+    assertArrayEquals(bytes("1"), remove(segment, "a"));
+    assertNull(remove(segment, "a"));
+    assertNull(get(segment, "a"));
+    assertArrayEquals(bytes("2"), get(segment, "b"));
+    assertEquals(1, segment.size());
+  }
+
+  @Test
+  public void testCompactionAtTheCeiling() {
+    // room for the live mappings and their garbage but far less than every record written
+    OffHeapMemory memory = new OffHeapMemory(3 * 1024 * 1024);
+    OffHeapSegment segment = new OffHeapSegment(memory);
+    char[] padding = new char[10 * 1024];
+    for (int round = 0; round < 100; round++) {
+      Arrays.fill(padding, (char) ('a' + round % 26));
+      for (int i = 0; i < 50; i++) {
+        // alternate the value size so every replacement leaves garbage
+        String value = i + new String(padding, 0, padding.length - round % 2);
+        put(segment, "key-" + i, value);
+      }
+      for (int i = 0; i < 50; i++) {
+        String value = i + new String(padding, 0, padding.length - round % 2);
+        assertArrayEquals(bytes(value), get(segment, "key-" + i));
+      }
+    }
+    assertEquals(50, segment.size());
+    assertTrue(segment.getGarbageBytes() < segment.getUsedBytes());
+    assertTrue(memory.getReserved() <= memory.getLimit());
+
+    segment.clear();
+    assertEquals(0, memory.getReserved());
+  }
+
+  @Test
+  public void testIterationVisitsEveryMapping() {
+    OffHeapSegment segment = new OffHeapSegment(new OffHeapMemory(16 * 1024 * 1024));
+    Set<String> expected = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      put(segment, "key-" + i, "value-" + i);
+      expected.add("key-" + i);
+    }
+    for (int i = 0; i < 1000; i += 3) {
+      remove(segment, "key-" + i);
+      expected.remove("key-" + i);
+    }
+
+    Set<String> seen = new HashSet<>();
+    int cursor = 0;
+    do {
+      cursor = segment.scan(cursor, slot -> assertTrue(seen.add(new String(segment.keyAt(slot), StandardCharsets.UTF_8))));
+    } while (cursor != 0);
+    assertEquals(expected, seen);
+  }
+
+  @Test
+  public void testScanCursorSurvivesGrowth() {
+    OffHeapSegment segment = new OffHeapSegment(new OffHeapMemory(16 * 1024 * 1024));
+    for (int i = 0; i < 40; i++) {
+      put(segment, "key-" + i, "value");
+    }
+
+    Set<String> seen = new HashSet<>();
+    int cursor = 0;
+    int buckets = 0;
+    do {
+      cursor = segment.scan(cursor, slot -> seen.add(new String(segment.keyAt(slot), StandardCharsets.UTF_8)));
+      if (++buckets == 32) {
+        // doubles the table several times mid scan
+        for (int i = 0; i < 1000; i++) {
+          put(segment, "grown-" + i, "value");
+        }
+      }
+    } while (cursor != 0);
+
+    for (int i = 0; i < 40; i++) {
+      assertTrue("key-" + i, seen.contains("key-" + i));
+    }
+  }
+
+  private static byte[] put(OffHeapSegment segment, String key, String value) {
+    return segment.put(key.hashCode(), bytes(key), bytes(value));
+  }
+
+  private static byte[] get(OffHeapSegment segment, String key) {
+    return segment.get(key.hashCode(), bytes(key));
+  }
+
+  private static byte[] remove(OffHeapSegment segment, String key) {
+    return segment.remove(key.hashCode(), bytes(key));
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.benchmark;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Settings for a benchmark run.  Every value can be supplied as a {@code benchmark.*}
+ * system property so runs can be driven from the maven command line, e.g.
+ * {@code -Dbenchmark.clients=8 -Dbenchmark.payloadBytes=128,4096}.
+ */
+public class BenchmarkConfig {
+
+  public static final String PREFIX = "benchmark.";
+  public static final String THREAD_AFFINITY = "com.tc.l2.thread.affinity";
+
+  private final String name;
+  private final int passives;
+  private final int clients;
+  private final int threadsPerClient;
+  private final int concurrency;
+  private final int keys;
+  private final int[] payloadBytes;
+  private final int readPercent;
+  private final int warmupSeconds;
+  private final int durationSeconds;
+  private final int failoverAfterSeconds;
+  private final Path reportDir;
+  private final String threadAffinity;
+
+  public BenchmarkConfig(Properties props) {
+    this.name = props.getProperty(PREFIX + "name", "clustered-map");
+    this.passives = intValue(props, "passives", 1);
+    this.clients = intValue(props, "clients", 4);
+    this.threadsPerClient = intValue(props, "threadsPerClient", 4);
+    this.concurrency = intValue(props, "concurrency", 16);
+    this.keys = intValue(props, "keys", 10_000);
+    this.payloadBytes = Arrays.stream(props.getProperty(PREFIX + "payloadBytes", "1024").split(","))
+        .map(String::trim).filter(s -> !s.isEmpty()).mapToInt(Integer::parseInt).toArray();
+    this.readPercent = intValue(props, "readPercent", 50);
+    this.warmupSeconds = intValue(props, "warmupSeconds", 5);
+    this.durationSeconds = intValue(props, "durationSeconds", 30);
+    this.failoverAfterSeconds = intValue(props, "failoverAfterSeconds", -1);
+    this.reportDir = Paths.get(props.getProperty(PREFIX + "reportDir", "target/benchmark-reports"));
+    // read by the inline servers as the l2.thread.affinity tc property
+    this.threadAffinity = props.getProperty(THREAD_AFFINITY, "off");
+
+    if (clients < 1 || threadsPerClient < 1 || keys < 1 || concurrency < 1 || payloadBytes.length == 0) {
+      throw new IllegalArgumentException("clients, threadsPerClient, keys, concurrency and payloadBytes must all be positive");
+    }
+    if (readPercent < 0 || readPercent > 100) {
+      throw new IllegalArgumentException("readPercent must be between 0 and 100 " + readPercent);
+    }
+    if (failoverAfterSeconds >= 0 && passives < 1) {
+      throw new IllegalArgumentException("failover during load requires at least one passive");
+    }
+  }
+
+  public static BenchmarkConfig fromSystemProperties() {
+    return new BenchmarkConfig(System.getProperties());
+  }
+
+  private static int intValue(Properties props, String key, int def) {
+    String value = props.getProperty(PREFIX + key);
+    return value == null || value.trim().isEmpty() ? def : Integer.parseInt(value.trim());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getStripeSize() {
+    return passives + 1;
+  }
+
+  public int getPassives() {
+    return passives;
+  }
+
+  public int getClients() {
+    return clients;
+  }
+
+  public int getThreadsPerClient() {
+    return threadsPerClient;
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public int getKeys() {
+    return keys;
+  }
+
+  public int[] getPayloadBytes() {
+    return payloadBytes.clone();
+  }
+
+  public int getReadPercent() {
+    return readPercent;
+  }
+
+  public int getWarmupSeconds() {
+    return warmupSeconds;
+  }
+
+  public int getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  public boolean isFailoverEnabled() {
+    return failoverAfterSeconds >= 0;
+  }
+
+  public int getFailoverAfterSeconds() {
+    return failoverAfterSeconds;
+  }
+
+  public Path getReportDir() {
+    return reportDir;
+  }
+
+  public String getThreadAffinity() {
+    return threadAffinity;
+  }
+
+  /**
+   * the settings as recorded in the report so two reports can be checked for a like
+   * for like comparison
+   */
+  Properties toProperties() {
+    Properties props = new Properties();
+    props.setProperty("config.passives", Integer.toString(passives));
+    props.setProperty("config.clients", Integer.toString(clients));
+    props.setProperty("config.threadsPerClient", Integer.toString(threadsPerClient));
+    props.setProperty("config.concurrency", Integer.toString(concurrency));
+    props.setProperty("config.keys", Integer.toString(keys));
+    props.setProperty("config.payloadBytes", Arrays.toString(payloadBytes));
+    props.setProperty("config.readPercent", Integer.toString(readPercent));
+    props.setProperty("config.warmupSeconds", Integer.toString(warmupSeconds));
+    props.setProperty("config.durationSeconds", Integer.toString(durationSeconds));
+    props.setProperty("config.failoverAfterSeconds", Integer.toString(failoverAfterSeconds));
+    props.setProperty("config.threadAffinity", threadAffinity);
+    return props;
+  }
+
+  @Override
+  public String toString() {
+    return "BenchmarkConfig{" + "name=" + name + ", passives=" + passives + ", clients=" + clients
+        + ", threadsPerClient=" + threadsPerClient + ", concurrency=" + concurrency + ", keys=" + keys
+        + ", payloadBytes=" + Arrays.toString(payloadBytes) + ", readPercent=" + readPercent
+        + ", warmupSeconds=" + warmupSeconds + ", durationSeconds=" + durationSeconds
+        + ", failoverAfterSeconds=" + failoverAfterSeconds + ", threadAffinity=" + threadAffinity + '}';
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency results of a benchmark run.  Results are stored as flat
+ * {@code <phase>.<operation>.<statistic>} properties with latencies in microseconds so
+ * reports produced by different builds can be compared with {@link #compare}, or from
+ * the command line:
+ * <pre>
+ *   java -cp galvan-benchmark.jar org.terracotta.benchmark.BenchmarkReport baseline.properties current.properties
+ * </pre>
+ */
+public class BenchmarkReport {
+
+  private static final double[] PERCENTILES = {50d, 90d, 99d, 99.9d};
+
+  private final TreeMap<String, String> values = new TreeMap<>();
+
+  public BenchmarkReport(BenchmarkConfig config) {
+    config.toProperties().forEach((k, v) -> values.put((String)k, (String)v));
+    values.put("name", config.getName());
+    values.put("timestamp", Long.toString(System.currentTimeMillis()));
+    values.put("java.version", System.getProperty("java.version"));
+  }
+
+  private BenchmarkReport(Properties props) {
+    props.forEach((k, v) -> values.put((String)k, (String)v));
+  }
+
+  public static BenchmarkReport load(Path file) throws IOException {
+    Properties props = new Properties();
+    try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      props.load(r);
+    }
+    return new BenchmarkReport(props);
+  }
+
+  public void addPhase(String phase, Map<String, LatencyHistogram> operations, long errors, long elapsedNanos) {
+    double seconds = elapsedNanos / (double)TimeUnit.SECONDS.toNanos(1);
+    long total = 0;
+    for (Map.Entry<String, LatencyHistogram> op : operations.entrySet()) {
+      LatencyHistogram h = op.getValue();
+      String prefix = phase + "." + op.getKey() + ".";
+      total += h.getCount();
+      values.put(prefix + "count", Long.toString(h.getCount()));
+      values.put(prefix + "throughput", format(h.getCount() / seconds));
+      values.put(prefix + "mean", format(micros(h.getMean())));
+      for (double p : PERCENTILES) {
+        values.put(prefix + "p" + formatPercentile(p), format(micros(h.getValueAtPercentile(p))));
+      }
+      values.put(prefix + "max", format(micros(h.getMax())));
+    }
+    values.put(phase + ".errors", Long.toString(errors));
+    values.put(phase + ".seconds", format(seconds));
+    values.put(phase + ".throughput", format(total / seconds));
+  }
+
+  public String get(String key) {
+    return values.get(key);
+  }
+
+  public Path write(Path dir) throws IOException {
+    Files.createDirectories(dir);
+    Path file = dir.resolve(values.get("name") + "-" + values.get("timestamp") + ".properties");
+    try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (Map.Entry<String, String> e : values.entrySet()) {
+        w.write(e.getKey() + "=" + e.getValue());
+        w.newLine();
+      }
+    }
+    return file;
+  }
+
+  public void print(PrintStream out) {
+    values.forEach((k, v) -> out.println(k + "=" + v));
+  }
+
+  /**
+   * Lists each statistic present in both reports together with the relative change from
+   * the baseline.  Settings which differ are listed first since they make the numbers
+   * incomparable.
+   */
+  public static List<String> compare(BenchmarkReport baseline, BenchmarkReport current) {
+    List<String> lines = new ArrayList<>();
+    current.values.forEach((k, v) -> {
+      String base = baseline.values.get(k);
+      if (k.startsWith("config.") && !v.equals(base)) {
+        lines.add("WARNING " + k + " differs baseline=" + base + " current=" + v);
+      }
+    });
+    current.values.forEach((k, v) -> {
+      String base = baseline.values.get(k);
+      if (base != null && isStatistic(k)) {
+        double b = Double.parseDouble(base);
+        double c = Double.parseDouble(v);
+        String delta = b == 0 ? "n/a" : String.format(Locale.ROOT, "%+.1f%%", (c - b) / b * 100d);
+        lines.add(String.format(Locale.ROOT, "%-40s %14s %14s %10s", k, base, v, delta));
+      }
+    });
+    return lines;
+  }
+
+  private static boolean isStatistic(String key) {
+    return !key.startsWith("config.") && !key.equals("name") && !key.equals("timestamp") && !key.equals("java.version");
+  }
+
+  private static double micros(double nanos) {
+    return nanos / 1000d;
+  }
+
+  private static String format(double value) {
+    return String.format(Locale.ROOT, "%.2f", value);
+  }
+
+  private static String formatPercentile(double p) {
+    return p == Math.rint(p) ? Integer.toString((int)p) : Double.toString(p);
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("usage: BenchmarkReport <baseline report> <current report>");
+      System.exit(1);
+    }
+    compare(load(Paths.get(args[0])), load(Paths.get(args[1]))).forEach(System.out::println);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.connection.Connection;
+import org.terracotta.connection.entity.EntityRef;
+import org.terracotta.entity.map.ConcurrentClusteredMap;
+import org.terracotta.entity.map.MapConfig;
+import org.terracotta.testing.rules.Cluster;
+
+/**
+ * Drives the clustered-map example entity on a running galvan cluster.  One phase is run
+ * for each configured payload size.  Each phase opens its own client connections, warms
+ * up, measures for the configured duration and, when failover is enabled, kills the
+ * active part way through the measurement so the failover pause shows up in the tail
+ * latencies.
+ */
+public class ClusteredMapBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClusteredMapBenchmark.class);
+
+  private final BenchmarkConfig config;
+  private final Cluster cluster;
+
+  public ClusteredMapBenchmark(BenchmarkConfig config, Cluster cluster) {
+    this.config = config;
+    this.cluster = cluster;
+  }
+
+  public BenchmarkReport run() throws Exception {
+    LOGGER.info("running benchmark {}", config);
+    BenchmarkReport report = new BenchmarkReport(config);
+    String mapName = config.getName();
+    try (Connection admin = cluster.newConnection()) {
+      EntityRef<ConcurrentClusteredMap, MapConfig, Void> ref = admin.getEntityRef(ConcurrentClusteredMap.class, 1L, mapName);
+      ref.create(new MapConfig(config.getConcurrency(), mapName));
+      try {
+        for (int payload : config.getPayloadBytes()) {
+          runPhase(report, "payload" + payload, payload);
+        }
+      } finally {
+        ref.destroy();
+      }
+    }
+    return report;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void runPhase(BenchmarkReport report, String phaseName, int payload) throws Exception {
+    MapWorkload.Phase phase = new MapWorkload.Phase();
+    List<Connection> connections = new ArrayList<>();
+    List<MapWorkload> workloads = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    try {
+      for (int c = 0; c < config.getClients(); c++) {
+        Connection connection = cluster.newConnection();
+        connections.add(connection);
+        EntityRef<ConcurrentClusteredMap, MapConfig, Void> ref = connection.getEntityRef(ConcurrentClusteredMap.class, 1L, config.getName());
+        ConcurrentClusteredMap<Long, String> map = ref.fetchEntity(null);
+        map.setTypes(Long.class, String.class);
+        for (int t = 0; t < config.getThreadsPerClient(); t++) {
+          MapWorkload workload = new MapWorkload(map, phase, config.getKeys(), config.getReadPercent(), payload);
+          Thread thread = new Thread(workload, "benchmark-" + phaseName + "-client" + c + "-" + t);
+          thread.setDaemon(true);
+          workloads.add(workload);
+          threads.add(thread);
+        }
+      }
+      threads.forEach(Thread::start);
+
+      LOGGER.info("{} warming up for {}s", phaseName, config.getWarmupSeconds());
+      TimeUnit.SECONDS.sleep(config.getWarmupSeconds());
+      phase.startMeasuring();
+      long start = System.nanoTime();
+      LOGGER.info("{} measuring for {}s", phaseName, config.getDurationSeconds());
+      Thread failover = config.isFailoverEnabled() ? startFailover(phaseName) : null;
+      TimeUnit.SECONDS.sleep(config.getDurationSeconds());
+      if (failover != null) {
+        // a failover which has not completed is still part of the measurement
+        failover.join();
+      }
+      long elapsed = System.nanoTime() - start;
+      phase.stop();
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      Map<String, LatencyHistogram> results = new TreeMap<>();
+      workloads.forEach(w -> w.collect(results));
+      report.addPhase(phaseName, results, phase.errors.get(), elapsed);
+    } finally {
+      phase.stop();
+      for (Connection connection : connections) {
+        try {
+          connection.close();
+        } catch (IOException e) {
+          LOGGER.warn("unable to close benchmark connection", e);
+        }
+      }
+    }
+  }
+
+  private Thread startFailover(String phaseName) {
+    Thread failover = new Thread(() -> {
+      try {
+        TimeUnit.SECONDS.sleep(config.getFailoverAfterSeconds());
+        cluster.getClusterControl().waitForRunningPassivesInStandby();
+        LOGGER.info("{} terminating the active", phaseName);
+        cluster.getClusterControl().terminateActive();
+        cluster.getClusterControl().waitForActive();
+        cluster.getClusterControl().startOneServer();
+        cluster.getClusterControl().waitForRunningPassivesInStandby();
+        LOGGER.info("{} failover complete", phaseName);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        LOGGER.warn("failover during " + phaseName + " failed", e);
+      }
+    }, "benchmark-" + phaseName + "-failover");
+    failover.setDaemon(true);
+    failover.start();
+    return failover;
+  }
+}
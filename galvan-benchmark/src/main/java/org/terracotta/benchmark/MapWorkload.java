@@ -0,0 +1,114 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.benchmark;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.entity.map.ConcurrentClusteredMap;
+
+/**
+ * One load thread issuing a random mix of gets and puts over a fixed key range of a
+ * clustered map.  Latencies are only recorded while the owning phase is measuring so
+ * warmup and shutdown are excluded from the results.
+ */
+class MapWorkload implements Runnable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MapWorkload.class);
+
+  static final String GET = "get";
+  static final String PUT = "put";
+
+  private final ConcurrentClusteredMap<Long, String> map;
+  private final Phase phase;
+  private final int keys;
+  private final int readPercent;
+  private final String value;
+  private final LatencyHistogram gets = new LatencyHistogram();
+  private final LatencyHistogram puts = new LatencyHistogram();
+
+  MapWorkload(ConcurrentClusteredMap<Long, String> map, Phase phase, int keys, int readPercent, int payloadBytes) {
+    this.map = map;
+    this.phase = phase;
+    this.keys = keys;
+    this.readPercent = readPercent;
+    char[] payload = new char[payloadBytes];
+    Arrays.fill(payload, 'x');
+    this.value = new String(payload);
+  }
+
+  @Override
+  public void run() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    while (phase.isRunning()) {
+      long key = random.nextInt(keys);
+      boolean read = random.nextInt(100) < readPercent;
+      long start = System.nanoTime();
+      try {
+        if (read) {
+          map.get(key);
+        } else {
+          map.put(key, value);
+        }
+      } catch (RuntimeException e) {
+        if (phase.isMeasuring()) {
+          phase.errors.incrementAndGet();
+        }
+        LOGGER.debug("benchmark operation failed", e);
+        continue;
+      }
+      if (phase.isMeasuring()) {
+        (read ? gets : puts).record(System.nanoTime() - start);
+      }
+    }
+  }
+
+  void collect(Map<String, LatencyHistogram> results) {
+    results.computeIfAbsent(GET, k -> new LatencyHistogram()).merge(gets);
+    results.computeIfAbsent(PUT, k -> new LatencyHistogram()).merge(puts);
+  }
+
+  /**
+   * Shared run state of all the load threads of a single phase.
+   */
+  static class Phase {
+    private volatile boolean running = true;
+    private volatile boolean measuring = false;
+    final AtomicLong errors = new AtomicLong();
+
+    boolean isRunning() {
+      return running;
+    }
+
+    boolean isMeasuring() {
+      return measuring;
+    }
+
+    void startMeasuring() {
+      measuring = true;
+    }
+
+    void stop() {
+      measuring = false;
+      running = false;
+    }
+  }
+}
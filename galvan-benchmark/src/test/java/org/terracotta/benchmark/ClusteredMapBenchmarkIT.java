@@ -0,0 +1,67 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.benchmark;
+
+import java.nio.file.Path;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.testing.rules.BasicExternalClusterBuilder;
+import org.terracotta.testing.rules.Cluster;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Entry point for running the benchmark with maven, only run with the benchmark profile.
+ * <pre>
+ *   mvn verify -pl galvan-benchmark -Pbenchmark -Dbenchmark.passives=2 -Dbenchmark.failoverAfterSeconds=10
+ * </pre>
+ * The servers run inline so tc properties can be passed the same way, to measure thread placement run once
+ * without and once with {@code -Dcom.tc.l2.thread.affinity=node}, each with its own {@code benchmark.name}, and
+ * compare the two reports with {@link BenchmarkReport#main(String[])}.
+ */
+public class ClusteredMapBenchmarkIT {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClusteredMapBenchmarkIT.class);
+
+  private static final BenchmarkConfig CONFIG = BenchmarkConfig.fromSystemProperties();
+
+  @ClassRule
+  public static final Cluster CLUSTER = BasicExternalClusterBuilder.newCluster(CONFIG.getStripeSize())
+      .inline(true)
+      .withClientReconnectWindowTime(30)
+      .build();
+
+  @Test
+  public void runBenchmark() throws Exception {
+    CLUSTER.getClusterControl().waitForActive();
+    if (CONFIG.getPassives() > 0) {
+      CLUSTER.getClusterControl().waitForRunningPassivesInStandby();
+    }
+    BenchmarkReport report = new ClusteredMapBenchmark(CONFIG, CLUSTER).run();
+    Path file = report.write(CONFIG.getReportDir());
+    report.print(System.out);
+    LOGGER.info("benchmark report written to {}", file);
+    if (!CONFIG.isFailoverEnabled()) {
+      for (int payload : CONFIG.getPayloadBytes()) {
+        assertEquals("0", report.get("payload" + payload + ".errors"));
+      }
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.terracotta.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testSmallValuesAreExact() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (int x = 1; x <= 100; x++) {
+      h.record(x);
+    }
+    assertEquals(100, h.getCount());
+    assertEquals(1, h.getMin());
+    assertEquals(100, h.getMax());
+    assertEquals(50, h.getValueAtPercentile(50));
+    assertEquals(99, h.getValueAtPercentile(99));
+    assertEquals(100, h.getValueAtPercentile(100));
+    assertEquals(50.5d, h.getMean(), 0.001d);
+  }
+
+  @Test
+  public void testLargeValuesAreWithinPrecision() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (long x = 1; x <= 1_000_000; x++) {
+      h.record(x * 1000);
+    }
+    assertWithin(500_000_000L, h.getValueAtPercentile(50));
+    assertWithin(990_000_000L, h.getValueAtPercentile(99));
+    assertWithin(999_000_000L, h.getValueAtPercentile(99.9));
+    assertEquals(1_000_000_000L, h.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testBucketsAreContiguous() {
+    for (long v = 0; v < 1 << 20; v++) {
+      int index = LatencyHistogram.indexOf(v);
+      assertTrue(LatencyHistogram.highestValueOf(index) >= v);
+      if (index > 0) {
+        assertTrue(LatencyHistogram.highestValueOf(index - 1) < v);
+      }
+    }
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+  }
+
+  @Test
+  public void testMerge() {
+    LatencyHistogram a = new LatencyHistogram();
+    LatencyHistogram b = new LatencyHistogram();
+    a.record(10);
+    b.record(1_000_000);
+    b.record(20);
+    a.merge(b);
+    assertEquals(3, a.getCount());
+    assertEquals(10, a.getMin());
+    assertEquals(1_000_000, a.getMax());
+    assertEquals(20, a.getValueAtPercentile(50));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(expected + " vs " + actual, Math.abs(actual - expected) <= expected / 64);
+  }
+}
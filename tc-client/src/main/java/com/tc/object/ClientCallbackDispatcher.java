@@ -0,0 +1,180 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.object;
+
+import com.tc.text.PrettyPrintable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs entity callbacks off the transport reading thread.  Callbacks dispatched with the same key (one endpoint) run
+ * in the order they were dispatched; callbacks for different keys may run in parallel.  Each key is pinned to one of a
+ * fixed number of single threaded lanes so a slow callback only holds up the endpoints that share its lane.
+ * <p>
+ * With zero lanes every callback runs inline on the dispatching thread, which is the historical behavior.
+ */
+public class ClientCallbackDispatcher implements PrettyPrintable {
+
+  public static final String ATTACHMENT = "CallbackStats";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClientCallbackDispatcher.class);
+
+  private final ExecutorService[] lanes;
+  // set while the current thread runs a callback of this dispatcher, lane or inline
+  private final ThreadLocal<Boolean> running = new ThreadLocal<>();
+  private final AtomicInteger[] depth;
+  private final LongAdder dispatched = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder inline = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final LongAdder runNanos = new LongAdder();
+  private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0L);
+  private final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0L);
+  private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0L);
+
+  public ClientCallbackDispatcher(String name, int threads) {
+    this.lanes = new ExecutorService[Math.max(0, threads)];
+    this.depth = new AtomicInteger[this.lanes.length];
+    for (int x = 0; x < this.lanes.length; x++) {
+      String laneName = name + "-" + x;
+      this.lanes[x] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+        Thread t = new Thread(r, laneName);
+        t.setDaemon(true);
+        return t;
+      });
+      this.depth[x] = new AtomicInteger();
+    }
+  }
+
+  public static ClientCallbackDispatcher direct() {
+    return new ClientCallbackDispatcher("direct", 0);
+  }
+
+  public int getLaneCount() {
+    return lanes.length;
+  }
+
+  public void dispatch(Object key, Runnable callback) {
+    dispatched.increment();
+    if (lanes.length == 0) {
+      inline.increment();
+      run(callback, System.nanoTime());
+      return;
+    }
+    int lane = laneFor(key);
+    AtomicInteger count = depth[lane];
+    long queued = System.nanoTime();
+    maxDepth.accumulate(count.incrementAndGet());
+    try {
+      lanes[lane].execute(() -> {
+        count.decrementAndGet();
+        run(callback, queued);
+      });
+    } catch (RejectedExecutionException shutdown) {
+      // the dispatcher is stopped, don't drop the callback, the caller is waiting on it
+      count.decrementAndGet();
+      inline.increment();
+      run(callback, queued);
+    }
+  }
+
+  private int laneFor(Object key) {
+    int h = key == null ? 0 : key.hashCode();
+    h ^= (h >>> 16);
+    return (h & Integer.MAX_VALUE) % lanes.length;
+  }
+
+  private void run(Runnable callback, long queued) {
+    long start = System.nanoTime();
+    long wait = start - queued;
+    waitNanos.add(wait);
+    maxWaitNanos.accumulate(wait);
+    Boolean outer = running.get();
+    running.set(Boolean.TRUE);
+    try {
+      callback.run();
+    } catch (Throwable t) {
+      failures.increment();
+      if (lanes.length == 0) {
+        throw t;
+      }
+      LOGGER.error("unexpected error in client callback", t);
+    } finally {
+      if (outer == null) {
+        running.remove();
+      }
+      long ran = System.nanoTime() - start;
+      runNanos.add(ran);
+      maxRunNanos.accumulate(ran);
+      completed.increment();
+    }
+  }
+
+  /**
+   * @return true if the calling thread is running a callback dispatched here.  Such a thread must not wait for an
+   *  ack since acks are delivered by these same callbacks.
+   */
+  public boolean isCallbackThread() {
+    return running.get() != null;
+  }
+
+  public int getQueueDepth() {
+    int total = 0;
+    for (AtomicInteger d : depth) {
+      total += d.get();
+    }
+    return total;
+  }
+
+  public void shutdown() {
+    for (ExecutorService lane : lanes) {
+      lane.shutdown();
+    }
+  }
+
+  @Override
+  public Map<String, ?> getStateMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    long count = completed.sum();
+    map.put("lanes", lanes.length);
+    map.put("dispatched", dispatched.sum());
+    map.put("completed", count);
+    map.put("inline", inline.sum());
+    map.put("failures", failures.sum());
+    map.put("queueDepth", getQueueDepth());
+    map.put("maxQueueDepth", maxDepth.get());
+    if (count > 0) {
+      map.put("averageWaitMicros", TimeUnit.NANOSECONDS.toMicros(waitNanos.sum() / count));
+      map.put("averageCallbackMicros", TimeUnit.NANOSECONDS.toMicros(runNanos.sum() / count));
+    }
+    map.put("maxWaitMicros", TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()));
+    map.put("maxCallbackMicros", TimeUnit.NANOSECONDS.toMicros(maxRunNanos.get()));
+    return map;
+  }
+}
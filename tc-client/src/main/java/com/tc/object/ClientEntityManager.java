@@ -26,6 +26,7 @@ import org.terracotta.exception.EntityException;
 import com.tc.object.handshakemanager.ClientHandshakeCallback;
 import com.tc.object.request.RequestResponseHandler;
 import com.tc.text.PrettyPrintable;
+import java.util.concurrent.CompletableFuture;
 
 
 
@@ -46,11 +47,33 @@ public interface ClientEntityManager extends PrettyPrintable, RequestResponseHan
    */
   public EntityClientEndpoint fetchEntity(EntityID entity, long version, ClientInstanceID instance, MessageCodec<? extends EntityMessage, ? extends EntityResponse> codec) throws EntityException;
 
+  /**
+   * Non-blocking {@link #fetchEntity(EntityID, long, ClientInstanceID, MessageCodec)}.  Many fetches can be in flight
+   * at once; the future completes with the end-point or fails with the same exception the blocking call would throw.
+   */
+  public CompletableFuture<EntityClientEndpoint> fetchEntityAsync(EntityID entity, long version, ClientInstanceID instance, MessageCodec<? extends EntityMessage, ? extends EntityResponse> codec);
+
   byte[] createEntity(EntityID entityID, long version, byte[] config) throws EntityException;
+
+  CompletableFuture<byte[]> createEntityAsync(EntityID entityID, long version, byte[] config);
   
   boolean destroyEntity(EntityID entityID, long version) throws EntityException;
 
+  /**
+   * @return completes with false if the entity is still referenced
+   */
+  CompletableFuture<Boolean> destroyEntityAsync(EntityID entityID, long version);
+
   byte[] reconfigureEntity(EntityID entityID, long version, byte[] config) throws EntityException;
 
+  CompletableFuture<byte[]> reconfigureEntityAsync(EntityID entityID, long version, byte[] config);
+
+  /**
+   * Closes an end-point returned by this manager and releases the server side reference, without blocking.
+   *
+   * @return completes once the release has been acknowledged, close failures are logged and do not fail it
+   */
+  CompletableFuture<Void> releaseEntityAsync(EntityClientEndpoint endpoint);
+
   boolean isValid();
 }
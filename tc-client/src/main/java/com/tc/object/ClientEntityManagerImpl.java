@@ -20,8 +20,6 @@ package com.tc.object;
 import com.tc.bytes.TCByteBufferFactory;
 import com.tc.exception.EntityBusyException;
 import com.tc.exception.EntityReferencedException;
-import com.tc.exception.WrappedEntityException;
-import com.tc.util.Throwables;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +54,7 @@ import com.tc.object.tx.TransactionID;
 import com.tc.text.MapListPrettyPrint;
 import com.tc.text.PrettyPrintable;
 import com.tc.util.Assert;
+import com.tc.util.ConcurrentLongObjectHashMap;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
@@ -66,19 +65,16 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 
 import org.terracotta.exception.EntityNotFoundException;
-import org.terracotta.exception.EntityServerUncaughtException;
 
 import static com.tc.object.EntityDescriptor.createDescriptorForLifecycle;
-import static com.tc.object.SafeInvocationCallback.safe;
-import java.util.concurrent.Callable;
 import static java.util.stream.Collectors.toCollection;
 import static org.terracotta.entity.Invocation.uninterruptiblyGet;
 
@@ -87,22 +83,36 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
   private final Logger logger;
 
   private final ClientMessageChannel channel;
-  private final ConcurrentMap<TransactionID, InFlightMessage> inFlightMessages;
+  private final ConcurrentLongObjectHashMap<InFlightMessage> inFlightMessages;
   private final TransactionSource transactionSource;
 
   private final ClientEntityStateManager stateManager;
   private final ConcurrentMap<ClientInstanceID, EntityClientEndpointImpl<?, ?>> objectStoreMap;
 
-  private final ExecutorService endpointCloser = Executors.newWorkStealingPool();
+  private final ClientCallbackDispatcher callbacks;
+  // delays lifecycle retries while the cluster is busy and sends the releases a callback thread asks for, the
+  // thread is started on first use
+  private final ScheduledThreadPoolExecutor lifecycleExecutor = new ScheduledThreadPoolExecutor(1, r -> {
+    Thread t = new Thread(r, "lifecycle-executor");
+    t.setDaemon(true);
+    return t;
+  });
+  // releases handed to the lifecycle executor and not yet started, shutdown runs them so nobody waits on them
+  private final Set<Runnable> pendingReleases = ConcurrentHashMap.newKeySet();
 
   private final LongAdder msgCount = new LongAdder();
   private final LongAdder inflights = new LongAdder();
   private final LongAdder addWindow = new LongAdder();
 
   public ClientEntityManagerImpl(ClientMessageChannel channel) {
+    this(channel, ClientCallbackDispatcher.direct());
+  }
+
+  public ClientEntityManagerImpl(ClientMessageChannel channel, ClientCallbackDispatcher callbacks) {
     this.channel = channel;
+    this.callbacks = callbacks;
     this.logger = new ClientIDLogger(() -> channel.getClientID(), LoggerFactory.getLogger(ClientEntityManager.class));
-    this.inFlightMessages = new ConcurrentHashMap<>();
+    this.inFlightMessages = new ConcurrentLongObjectHashMap<>();
     this.transactionSource = new TransactionSource();
     this.stateManager = new ClientEntityStateManager();
     this.objectStoreMap = new ConcurrentHashMap<>(10240, 0.75f, 128);
@@ -117,7 +127,7 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
     if (this.stateManager.isShutdown()) {
       return false;
     } else {
-      inFlightMessages.put(msg.getTransactionID(), msg);
+      inFlightMessages.put(msg.getTransactionID().toLong(), msg);
       return true;
     }
   }
@@ -125,14 +135,20 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
   @SuppressWarnings("rawtypes")
   @Override
   public EntityClientEndpoint fetchEntity(EntityID entity, long version, ClientInstanceID instance, MessageCodec<? extends EntityMessage, ? extends EntityResponse> codec) throws EntityException {
-    return internalLookup(entity, version, instance, codec);
+    return uninterruptiblyGet(internalLookup(entity, version, instance, codec), EntityException.class);
+  }
+
+  @SuppressWarnings("rawtypes")
+  @Override
+  public CompletableFuture<EntityClientEndpoint> fetchEntityAsync(EntityID entity, long version, ClientInstanceID instance, MessageCodec<? extends EntityMessage, ? extends EntityResponse> codec) {
+    return internalLookup(entity, version, instance, codec).thenApply(e -> e);
   }
 
   @Override
   public void handleMessage(TransactionID tid, byte[] message) {
-    InFlightMessage msg = this.inFlightMessages.get(tid);
+    InFlightMessage msg = this.inFlightMessages.get(tid.toLong());
     if (msg != null) {
-      msg.handleMessage(message);
+      callbacks.dispatch(callbackKey(msg), ()->msg.handleMessage(message));
     } else {
       logger.info("transaction " + tid + " not found. Ignoring message.");
     }
@@ -140,7 +156,7 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
 
   @Override
   public void handleStatistics(TransactionID tid, long[] message) {
-    InFlightMessage msg = this.inFlightMessages.get(tid);
+    InFlightMessage msg = this.inFlightMessages.get(tid.toLong());
     if (msg != null) {
       msg.addServerStatistics(message);
     } else {
@@ -155,7 +171,7 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
   public void handleMessage(ClientInstanceID clientInstance, byte[] message) {
     EntityClientEndpoint<?, ?> endpoint = this.objectStoreMap.get(clientInstance);
     if (endpoint != null) {
-      deliverInboundMessage(endpoint, message);
+      callbacks.dispatch(clientInstance, ()->deliverInboundMessage(endpoint, message));
     } else {
       logger.info("Instance " + clientInstance + " not found. Ignoring message.");
     }
@@ -174,39 +190,78 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
 
   @Override
   public byte[] createEntity(EntityID entityID, long version, byte[] config) throws EntityException {
-    return lifecycleAndRetire(entityID, version, VoltronEntityMessage.Type.CREATE_ENTITY, config);
+    return uninterruptiblyGet(createEntityAsync(entityID, version, config), EntityException.class);
+  }
+
+  @Override
+  public CompletableFuture<byte[]> createEntityAsync(EntityID entityID, long version, byte[] config) {
+    return lifecycle(entityID, createDescriptorForLifecycle(entityID, version), VoltronEntityMessage.Type.CREATE_ENTITY, config, true);
   }
 
   @Override
   public byte[] reconfigureEntity(EntityID entityID, long version, byte[] config) throws EntityException {
-    return lifecycleAndRetire(entityID, version, VoltronEntityMessage.Type.RECONFIGURE_ENTITY, config);
+    return uninterruptiblyGet(reconfigureEntityAsync(entityID, version, config), EntityException.class);
   }
 
-  private byte[] lifecycleAndComplete(EntityID entityId, EntityDescriptor entityDescriptor, VoltronEntityMessage.Type type) throws EntityException {
-    return retryingWhileBusy(entityId, () -> uninterruptiblyGet(
-            lifecycle(entityId, entityDescriptor, type, new byte[0]).invoke(),
-            EntityException.class));
+  @Override
+  public CompletableFuture<byte[]> reconfigureEntityAsync(EntityID entityID, long version, byte[] config) {
+    return lifecycle(entityID, createDescriptorForLifecycle(entityID, version), VoltronEntityMessage.Type.RECONFIGURE_ENTITY, config, true);
   }
 
-  private byte[] lifecycleAndRetire(EntityID entityId, long version, VoltronEntityMessage.Type type, byte[] message) throws EntityException {
-    return retryingWhileBusy(entityId, () -> {
-      Invocation<byte[]> builder = lifecycle(entityId, createDescriptorForLifecycle(entityId, version), type, message);
-      return uninterruptiblyGet(builder.invokeAndRetire(), EntityException.class);
-    });
+  /**
+   * Sends a lifecycle message and completes the returned future with its result, either on the COMPLETE ack or, when
+   * {@code retire} is set, on the RETIRED ack.  A busy cluster is retried every 2 seconds without holding a thread.
+   */
+  private CompletableFuture<byte[]> lifecycle(EntityID entityID, EntityDescriptor entityDescriptor, VoltronEntityMessage.Type type, byte[] message, boolean retire) {
+    CompletableFuture<byte[]> result = new CompletableFuture<>();
+    sendLifecycle(entityID, entityDescriptor, type, message, retire, result);
+    return result;
   }
 
-  private Invocation<byte[]> lifecycle(EntityID entityID, EntityDescriptor entityDescriptor, VoltronEntityMessage.Type type, byte[] message) {
-    return (callback, callbacks) -> ClientEntityManagerImpl.this.invoke(entityID, entityDescriptor, callbacks, safe(callback), true, type, message);
+  private void sendLifecycle(EntityID entityID, EntityDescriptor entityDescriptor, VoltronEntityMessage.Type type, byte[] message, boolean retire, CompletableFuture<byte[]> result) {
+    Set<InvocationCallback.Types> acks = retire ? EnumSet.of(InvocationCallback.Types.COMPLETE, InvocationCallback.Types.RETIRED) : EnumSet.of(InvocationCallback.Types.COMPLETE);
+    invoke(entityID, entityDescriptor, acks, new LifecycleCallback(retire) {
+      @Override
+      void done(byte[] value, Throwable failure) {
+        if (failure instanceof EntityBusyException && !stateManager.isShutdown()) {
+          logger.info("Cluster is busy. Requested operation will be retried in 2 seconds");
+          try {
+            lifecycleExecutor.schedule(() -> sendLifecycle(entityID, entityDescriptor, type, message, retire, result), 2, TimeUnit.SECONDS);
+          } catch (RejectedExecutionException shutdown) {
+            result.completeExceptionally(failure);
+          }
+        } else if (failure != null) {
+          result.completeExceptionally(failure);
+        } else {
+          result.complete(value);
+        }
+      }
+    }, true, type, message);
+  }
+
+  @Override
+  public CompletableFuture<Void> releaseEntityAsync(EntityClientEndpoint endpoint) {
+    return ((EntityClientEndpointImpl<?, ?>)endpoint).releaseAsync();
   }
 
   @Override
   public boolean destroyEntity(EntityID entityID, long version) throws EntityException {
-    try {
-      lifecycleAndRetire(entityID, version, VoltronEntityMessage.Type.DESTROY_ENTITY, new byte[0]);
-      return true;
-    } catch (EntityReferencedException r) {
-      return false;
-    }
+    return uninterruptiblyGet(destroyEntityAsync(entityID, version), EntityException.class);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> destroyEntityAsync(EntityID entityID, long version) {
+    CompletableFuture<Boolean> destroyed = new CompletableFuture<>();
+    lifecycle(entityID, createDescriptorForLifecycle(entityID, version), VoltronEntityMessage.Type.DESTROY_ENTITY, new byte[0], true).whenComplete((raw, failure) -> {
+      if (failure == null) {
+        destroyed.complete(true);
+      } else if (failure instanceof EntityReferencedException) {
+        destroyed.complete(false);
+      } else {
+        destroyed.completeExceptionally(failure);
+      }
+    });
+    return destroyed;
   }
 
   private Set<VoltronEntityMessage.Acks> makeServerAcks(Set<InvocationCallback.Types> requestedCallbacks) {
@@ -273,9 +328,9 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
   @Override
   public void received(TransactionID id) {
     // Note that this call comes the platform, potentially concurrently with complete()/failure().
-    InFlightMessage inFlight = inFlightMessages.get(id);
+    InFlightMessage inFlight = inFlightMessages.get(id.toLong());
     if (inFlight != null) {
-      inFlight.received();
+      callbacks.dispatch(callbackKey(inFlight), inFlight::received);
     } else {
    // resend result or stop
     }
@@ -290,9 +345,9 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
   @Override
   public void complete(TransactionID id, byte[] value) {
     // Note that this call comes the platform, potentially concurrently with received().
-    InFlightMessage inFlight = inFlightMessages.get(id);
+    InFlightMessage inFlight = inFlightMessages.get(id.toLong());
     if (inFlight != null) {
-      inFlight.setResult(value, null);
+      callbacks.dispatch(callbackKey(inFlight), ()->inFlight.setResult(value, null));
     } else {
    // resend result or stop
     }
@@ -301,9 +356,9 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
   @Override
   public void failed(TransactionID id, Exception error) {
     // Note that this call comes the platform, potentially concurrently with received().
-    InFlightMessage inFlight = inFlightMessages.get(id);
+    InFlightMessage inFlight = inFlightMessages.get(id.toLong());
     if (inFlight != null) {
-      inFlight.setResult(null, error);
+      callbacks.dispatch(callbackKey(inFlight), ()->inFlight.setResult(null, error));
     } else {
    // resend result or stop
     }
@@ -313,9 +368,9 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
   public void retired(TransactionID id) {
     // We only retire the InFlightMessage from our mapping and release the request ticket once we get the retired ACK.
     try {
-      InFlightMessage inFlight = inFlightMessages.remove(id);
+      InFlightMessage inFlight = inFlightMessages.remove(id.toLong());
       if (inFlight != null) {
-        inFlight.retired();
+        callbacks.dispatch(callbackKey(inFlight), inFlight::retired);
       } else {
         // resend result or stop
       }
@@ -324,6 +379,14 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
     }
   }
 
+  /**
+   * Callbacks are ordered per endpoint.  Lifecycle messages carry no client instance so they are ordered by entity.
+   */
+  private static Object callbackKey(InFlightMessage inFlight) {
+    ClientInstanceID instance = inFlight.getMessage().getEntityDescriptor().getClientInstanceID();
+    return ClientInstanceID.NULL_ID.equals(instance) ? inFlight.getEntityID() : instance;
+  }
+
   @Override
   public synchronized void pause() {
     stateManager.pause();
@@ -383,7 +446,11 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
         logger.error("error in shutdown", t);
       }
     }
-    this.endpointCloser.shutdownNow(); // ignore the return.  nothing we can do
+    this.lifecycleExecutor.shutdownNow(); // ignore the return.  nothing we can do
+    // releases still queued fail at once now that the manager is stopped, run them so nobody waits on them
+    this.pendingReleases.forEach(Runnable::run);
+    // let callbacks already queued run out, anything dispatched from here on runs inline
+    this.callbacks.shutdown();
     // And then drop them.
     if (logger.isDebugEnabled()) {
       MapListPrettyPrint print = new MapListPrettyPrint();
@@ -400,88 +467,143 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
     msg.setResult(null, closed);
     msg.retired();
     // may or may not be there.
-    inFlightMessages.remove(msg.getTransactionID());
+    inFlightMessages.remove(msg.getTransactionID().toLong());
     transactionSource.retire(msg.getTransactionID());
   }
 
-  private <M extends EntityMessage, R extends EntityResponse> EntityClientEndpoint<M, R> internalLookup(final EntityID entity, long version, final ClientInstanceID instance, final MessageCodec<M, R> codec) throws EntityException {
+  private <M extends EntityMessage, R extends EntityResponse> CompletableFuture<EntityClientEndpointImpl<M, R>> internalLookup(final EntityID entity, long version, final ClientInstanceID instance, final MessageCodec<M, R> codec) {
     Assert.assertNotNull("Can't lookup null entity descriptor", instance);
     final EntityDescriptor fetchDescriptor = EntityDescriptor.createDescriptorForFetch(entity, version, instance);
-    EntityClientEndpointImpl<M, R> resolvedEndpoint = null;
-    // make sure release is only ever called once
-    Callable<Void> closeCall = new Callable<Void>() {
-      boolean released = false;
-      
-      @Override
-      public synchronized Void call() throws Exception {
-        if (!released) {
-          released = true;
-          internalRelease(entity, fetchDescriptor);
+    // make sure release is only ever sent once
+    final Release release = new Release(entity, fetchDescriptor);
+    CompletableFuture<EntityClientEndpointImpl<M, R>> result = new CompletableFuture<>();
+
+    // The fetch is done on the "COMPLETED" ack, there is no need to wait for retirement.
+    lifecycle(entity, fetchDescriptor, VoltronEntityMessage.Type.FETCH_ENTITY, new byte[0], false).whenComplete((raw, fetchFailure) -> {
+      Throwable failure = fetchFailure;
+      if (failure == null) {
+        try {
+          result.complete(resolveEndpoint(entity, version, instance, codec, raw, release));
+          return;
+        } catch (Throwable t) {
+          failure = t;
         }
-        return null;
       }
-    };
-    
-    try {
-      byte[] raw = internalRetrieve(fetchDescriptor);
-      ByteBuffer br = ByteBuffer.wrap(raw);
-      final long fetchID = br.getLong();
-      FetchID fetch = new FetchID(fetchID);
-      byte[] config = new byte[br.remaining()];
-      br.get(config);
-      // We can only fail to get the config if we threw an exception.
-      Assert.assertTrue(null != raw);
-
-      resolvedEndpoint = new EntityClientEndpointImpl<>(entity, version, EntityDescriptor.createDescriptorForInvoke(fetch, instance), this, config, codec, closeCall, this.endpointCloser);
-      
-      if (this.objectStoreMap.putIfAbsent(instance, resolvedEndpoint) != null) {
-        throw Assert.failure("Attempt to add an object that already exists: Object of class " + resolvedEndpoint.getClass()
-                             + " [Identity Hashcode : 0x" + Integer.toHexString(System.identityHashCode(resolvedEndpoint)) + "] ");
-      }
-    } catch (EntityNotFoundException notfound) {
-      throw notfound;
-    } catch (EntityException e) {
-      // Release the entity and re-throw to the higher level.
-      try {
-        closeCall.call();
-      } catch (Exception subE) {
-        e.addSuppressed(subE);
+      if (failure instanceof EntityNotFoundException) {
+        result.completeExceptionally(failure);
+      } else {
+        // Release the entity and pass the failure to the higher level.
+        // Clean up any client-side or server-side state regarding this failed connection.
+        Throwable cause = failure;
+        // this runs on the thread completing the fetch, usually a callback thread, hand the release off
+        releaseOffCallbackThread(release, true).whenComplete((v, releaseFailure) -> {
+          if (releaseFailure != null) {
+            cause.addSuppressed(releaseFailure);
+          }
+          result.completeExceptionally(cause);
+        });
       }
+    });
+    return result;
+  }
 
-      throw e;
-    } catch (Throwable t) {
-      // This is the unexpected case so clean up and re-throw as a RuntimeException
-      // Clean up any client-side or server-side state regarding this failed connection.
-      try {
-        closeCall.call();
-      } catch (Exception subE) {
-        t.addSuppressed(subE);
-      }
+  private <M extends EntityMessage, R extends EntityResponse> EntityClientEndpointImpl<M, R> resolveEndpoint(EntityID entity, long version, ClientInstanceID instance, MessageCodec<M, R> codec, byte[] raw, Release release) {
+    // We can only fail to get the config if we threw an exception.
+    Assert.assertTrue(null != raw);
+    ByteBuffer br = ByteBuffer.wrap(raw);
+    final long fetchID = br.getLong();
+    FetchID fetch = new FetchID(fetchID);
+    byte[] config = new byte[br.remaining()];
+    br.get(config);
 
-      throw Throwables.propagate(t);
-    }
+    EntityClientEndpointImpl<M, R> resolvedEndpoint = new EntityClientEndpointImpl<>(entity, version, EntityDescriptor.createDescriptorForInvoke(fetch, instance), this, config, codec, ()->releaseOffCallbackThread(release, false));
 
+    if (this.objectStoreMap.putIfAbsent(instance, resolvedEndpoint) != null) {
+      throw Assert.failure("Attempt to add an object that already exists: Object of class " + resolvedEndpoint.getClass()
+                           + " [Identity Hashcode : 0x" + Integer.toHexString(System.identityHashCode(resolvedEndpoint)) + "] ");
+    }
     return resolvedEndpoint;
   }
 
-  private void internalRelease(EntityID entityId, EntityDescriptor entityDescriptor) throws EntityException {
-    // We need to provide fully blocking semantics with this call so we will wait for the "COMPLETED" ack.
-    lifecycleAndComplete(entityId, entityDescriptor, VoltronEntityMessage.Type.RELEASE_ENTITY);
+  private CompletableFuture<Void> internalRelease(EntityID entityId, EntityDescriptor entityDescriptor) {
+    // The release is done on the "COMPLETED" ack, there is no need to wait for retirement.
+    return lifecycle(entityId, entityDescriptor, VoltronEntityMessage.Type.RELEASE_ENTITY, new byte[0], false).thenAccept(raw -> {
+      // Note that we remove the entity from the local object store only after this release call returns in order to avoid
+      // the case where a reconnect might happen before the message completes, thus causing a re-send.  If we don't include
+      // this reference in the reconnect handshake, the re-sent release will try to release a non-fetched entity.
+      EntityClientEndpointImpl<?, ?> ref = this.objectStoreMap.remove(entityDescriptor.getClientInstanceID());
+      if (ref != null && logger.isDebugEnabled()) {
+        MapListPrettyPrint print = new MapListPrettyPrint();
+        ref.getStatistics().prettyPrint(print);
+        logger.debug("Releasing " + ref.getEntityID() + "=" + print.toString());
+      }
+    });
+  }
 
-    // Note that we remove the entity from the local object store only after this release call returns in order to avoid
-    // the case where a reconnect might happen before the message completes, thus causing a re-send.  If we don't include
-    // this reference in the reconnect handshake, the re-sent release will try to release a non-fetched entity.
-    EntityClientEndpointImpl<?, ?> ref = this.objectStoreMap.remove(entityDescriptor.getClientInstanceID());
-    if (ref != null && logger.isDebugEnabled()) {
-      MapListPrettyPrint print = new MapListPrettyPrint();
-      ref.getStatistics().prettyPrint(print);
-      logger.debug("Releasing " + ref.getEntityID() + "=" + print.toString());
+  /**
+   * Sending can wait on back-pressure which only acks, delivered by the callback threads, relieve, so a release asked
+   * for on a callback thread is sent from the lifecycle executor instead.
+   *
+   * @param always hand the release off even if the calling thread does not deliver callbacks
+   */
+  private CompletableFuture<Void> releaseOffCallbackThread(Release release, boolean always) {
+    if (!always && !isCallbackThread()) {
+      return release.get();
+    }
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    Runnable send = new Runnable() {
+      @Override
+      public void run() {
+        if (pendingReleases.remove(this)) {
+          try {
+            release.get().whenComplete((v, failure)->{
+              if (failure != null) {
+                result.completeExceptionally(failure);
+              } else {
+                result.complete(v);
+              }
+            });
+          } catch (Throwable t) {
+            result.completeExceptionally(t);
+          }
+        }
+      }
+    };
+    pendingReleases.add(send);
+    try {
+      lifecycleExecutor.execute(send);
+    } catch (RejectedExecutionException shutdown) {
+      // the manager is shut down, the send fails without waiting
+      send.run();
     }
+    return result;
   }
-  
-  private byte[] internalRetrieve(EntityDescriptor entityDescriptor) throws EntityException {
-    // We need to provide fully blocking semantics with this call so we will wait for the "COMPLETED" ack.
-    return lifecycleAndComplete(entityDescriptor.getEntityID(), entityDescriptor, VoltronEntityMessage.Type.FETCH_ENTITY);
+
+  @Override
+  public boolean isCallbackThread() {
+    return callbacks.isCallbackThread();
+  }
+
+  /**
+   * The release of one fetch, sent at most once no matter how many times it is asked for.
+   */
+  private class Release implements Supplier<CompletableFuture<Void>> {
+    private final EntityID entity;
+    private final EntityDescriptor fetchDescriptor;
+    private CompletableFuture<Void> released;
+
+    Release(EntityID entity, EntityDescriptor fetchDescriptor) {
+      this.entity = entity;
+      this.fetchDescriptor = fetchDescriptor;
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> get() {
+      if (released == null) {
+        released = internalRelease(entity, fetchDescriptor);
+      }
+      return released;
+    }
   }
 
   private Invocation.Task queueInFlightMessage(EntityID eid, Supplier<NetworkVoltronEntityMessage> message, SafeInvocationCallback<byte[]> callback) {
@@ -511,7 +633,7 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
       }
       return () -> {
         if (inFlight.cancel()) {
-          inFlightMessages.remove(inFlight.getTransactionID(), inFlight);
+          inFlightMessages.remove(inFlight.getTransactionID().toLong(), inFlight);
           return true;
         } else {
           return false;
@@ -662,23 +784,52 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
       }
     }
   }
-  private <T> T retryingWhileBusy(EntityID entityID, EntityLifecycleTask<T> task) throws EntityException {
-    while (true) {
-      try {
-        return task.run();
-      } catch (EntityBusyException busy) {
-        logger.info("Cluster is busy. Requested operation will be retried in 2 seconds");
-        try {
-          TimeUnit.SECONDS.sleep(2);
-        } catch (InterruptedException in) {
-          throw new WrappedEntityException(new EntityServerUncaughtException(entityID.getClassName(), entityID.getEntityName(), "", in));
-        }
+  /**
+   * Collects the result of a lifecycle message and reports it once the requested final ack arrives.
+   */
+  private abstract static class LifecycleCallback implements SafeInvocationCallback<byte[]> {
+    private final boolean onRetire;
+    private byte[] value;
+    private Throwable failure;
+
+    LifecycleCallback(boolean onRetire) {
+      this.onRetire = onRetire;
+    }
+
+    abstract void done(byte[] value, Throwable failure);
+
+    @Override
+    public synchronized void result(byte[] response) {
+      this.value = response;
+    }
+
+    @Override
+    public synchronized void failure(Throwable failure) {
+      this.failure = failure;
+    }
+
+    @Override
+    public void complete() {
+      if (!onRetire) {
+        finish();
       }
     }
-  }
 
-  private interface EntityLifecycleTask<T> {
+    @Override
+    public void retired() {
+      if (onRetire) {
+        finish();
+      }
+    }
 
-    T run() throws EntityException;
+    private void finish() {
+      byte[] v;
+      Throwable f;
+      synchronized (this) {
+        v = value;
+        f = failure;
+      }
+      done(v, f);
+    }
   }
 }
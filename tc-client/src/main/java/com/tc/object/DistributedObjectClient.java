@@ -234,6 +234,10 @@ public class DistributedObjectClient {
     clientChannel.addAttachment("ChannelStats", (PrettyPrintable)() -> {
         Map<String, Object> map = new LinkedHashMap<>();
         map.put("messageHandler", mutil.getStateMap());
+        Object callbacks = clientChannel.getAttachment(ClientCallbackDispatcher.ATTACHMENT);
+        if (callbacks instanceof PrettyPrintable) {
+          map.put("callbacks", ((PrettyPrintable)callbacks).getStateMap());
+        }
         return map;
       }, true);
     
@@ -29,11 +29,9 @@ import org.terracotta.entity.MessageCodecException;
 import com.tc.util.Assert;
 
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,11 +49,10 @@ public class EntityClientEndpointImpl<M extends EntityMessage, R extends EntityR
   private final EntityID entityID;
   private final long version;
   private final MessageCodec<M, R> codec;
-  private final Callable<Void> closeHook;
-  private final ExecutorService closer;
+  private final Supplier<CompletableFuture<Void>> closeHook;
   private EndpointDelegate<R> delegate;
   private boolean isOpen;
-  private Future<Void> releaseFuture;
+  private CompletableFuture<Void> releaseFuture;
   private final InFlightStats stats = new InFlightStats();
   /**
    * @param eid The type name name of the target entity
@@ -63,9 +60,9 @@ public class EntityClientEndpointImpl<M extends EntityMessage, R extends EntityR
    * @param instance the combination of the FetchID from the server and the ClientInstanceID from the client
    * @param invocationHandler Called to handle "invokeAction" requests made on this end-point.
    * @param entityConfiguration Opaque byte[] describing how to configure the entity to be built on top of this end-point.
-   * @param closeHook A Runnable which will be run last when the end-point is closed.
+   * @param closeHook Started last when the end-point is closed, the returned future completes when the close is done.
    */
-  public EntityClientEndpointImpl(EntityID eid, long version, EntityDescriptor instance, InvocationHandler invocationHandler, byte[] entityConfiguration, MessageCodec<M, R> codec, Callable<Void> closeHook, ExecutorService closer) {
+  public EntityClientEndpointImpl(EntityID eid, long version, EntityDescriptor instance, InvocationHandler invocationHandler, byte[] entityConfiguration, MessageCodec<M, R> codec, Supplier<CompletableFuture<Void>> closeHook) {
     this.entityID = eid;
     this.version = version;
     this.invokeDescriptor = instance;
@@ -73,7 +70,6 @@ public class EntityClientEndpointImpl<M extends EntityMessage, R extends EntityR
     this.configuration = entityConfiguration;
     this.codec = codec;
     this.closeHook = closeHook;
-    this.closer = closer;
     // We start in the open state.
     this.isOpen = true;
   }
@@ -174,45 +170,43 @@ public class EntityClientEndpointImpl<M extends EntityMessage, R extends EntityR
 
   @Override
   public void close() {
-    // We can't close twice.
-    if (closeIfOpen()) {
-      if (this.closeHook != null) {
-        try {
-          this.closeHook.call();
-        } catch (Exception e) {
-          LOGGER.warn("Exception occured during close", e);
-        }
-        // log and swallow this exception closing
-      }
+    CompletableFuture<Void> closed = releaseAsync();
+    // a callback thread must not wait, the ack completing the release is delivered by one.  The release has still
+    // been sent and completes on its own.
+    if (!this.invocationHandler.isCallbackThread()) {
+      // join does not throw, failures are logged and swallowed by closeAsync
+      closed.join();
     }
   }
 
   @Override
-  public synchronized Future<Void> release() {
+  public Future<Void> release() {
+    return releaseAsync();
+  }
+
+  public synchronized CompletableFuture<Void> releaseAsync() {
     if (releaseFuture == null) {
-      if (this.closer == null) {
-        close();
-        releaseFuture = CompletableFuture.completedFuture(null);
-      } else {
-        try {
-          Callable<Void> call = new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-              close();
-              return null;
-            }
-          };
-          releaseFuture = this.closer.submit(call);
-        } catch (RejectedExecutionException re) {
-          // connection already shutdown
-          LOGGER.debug("connection already closed", re);
-          releaseFuture = CompletableFuture.completedFuture(null);
-        }
-      }
+      releaseFuture = closeAsync();
     }
     return releaseFuture;
   }
 
+  private CompletableFuture<Void> closeAsync() {
+    // We can't close twice.
+    if (closeIfOpen() && this.closeHook != null) {
+      try {
+        return this.closeHook.get().exceptionally(e -> {
+          // log and swallow this exception closing
+          LOGGER.warn("Exception occured during close", e);
+          return null;
+        });
+      } catch (RuntimeException e) {
+        LOGGER.warn("Exception occured during close", e);
+      }
+    }
+    return CompletableFuture.completedFuture(null);
+  }
+
   public void didCloseUnexpectedly() {
     // TODO:  Determine if we need to limit anything here on closed.  The call can come from another thread so it may not
     // yet know that we are closed when the call originated.
@@ -29,4 +29,11 @@ import java.util.Set;
  */
 public interface InvocationHandler {
   Invocation.Task invokeAction(EntityID eid, EntityDescriptor entityDescriptor, Set<InvocationCallback.Types> callbacks, SafeInvocationCallback<byte[]> callback, boolean requiresReplication, byte[] payload);
+
+  /**
+   * @return true if the calling thread delivers invocation callbacks and so must not block waiting for one
+   */
+  default boolean isCallbackThread() {
+    return false;
+  }
 }
@@ -39,6 +39,7 @@ import com.tc.net.protocol.transport.TransportHandshakeErrorHandlerForL1;
 import com.tc.object.handshakemanager.ClientHandshakeManager;
 import com.tc.object.handshakemanager.ClientHandshakeManagerImpl;
 import com.tc.object.msg.ClientHandshakeMessageFactory;
+import com.tc.properties.TCPropertiesImpl;
 
 import java.util.Map;
 import java.util.Properties;
@@ -92,7 +93,11 @@ public class StandardClientBuilder implements ClientBuilder {
 
   @Override
   public ClientEntityManager createClientEntityManager(ClientMessageChannel channel) {
-    return new ClientEntityManagerImpl(channel);
+    // zero lanes runs callbacks inline on the transport reader
+    int lanes = TCPropertiesImpl.getProperties().getInt("l1.callback.dispatcher.threads", Math.min(4, Runtime.getRuntime().availableProcessors()));
+    ClientCallbackDispatcher callbacks = new ClientCallbackDispatcher("client-callback", lanes);
+    channel.addAttachment(ClientCallbackDispatcher.ATTACHMENT, callbacks, true);
+    return new ClientEntityManagerImpl(channel, callbacks);
   }
 
   @Override
@@ -33,6 +33,7 @@ import com.tc.util.Assert;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.terracotta.entity.EntityClientEndpoint;
@@ -64,7 +65,7 @@ public class DiagnosticClientEntityManager implements ClientEntityManager {
       throw new AssertionError("wrong entity type " + entity.getClassName());
     }
     Assert.assertEquals("root", entity.getEntityName());
-    return new EntityClientEndpointImpl(entity, version, EntityDescriptor.NULL_ID, this, new byte[] {}, codec, null, null);
+    return new EntityClientEndpointImpl(entity, version, EntityDescriptor.NULL_ID, this, new byte[] {}, codec, null);
   }
 
   @Override
@@ -87,21 +88,58 @@ public class DiagnosticClientEntityManager implements ClientEntityManager {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public CompletableFuture<EntityClientEndpoint> fetchEntityAsync(EntityID entity, long version, ClientInstanceID instance, MessageCodec<? extends EntityMessage, ? extends EntityResponse> codec) {
+    CompletableFuture<EntityClientEndpoint> result = new CompletableFuture<>();
+    try {
+      result.complete(fetchEntity(entity, version, instance, codec));
+    } catch (EntityException | RuntimeException | AssertionError e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
   @Override
   public byte[] createEntity(EntityID entityID, long version, byte[] config) throws EntityException {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public CompletableFuture<byte[]> createEntityAsync(EntityID entityID, long version, byte[] config) {
+    return unsupported();
+  }
+
   @Override
   public boolean destroyEntity(EntityID entityID, long version) throws EntityException {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public CompletableFuture<Boolean> destroyEntityAsync(EntityID entityID, long version) {
+    return unsupported();
+  }
+
+  @Override
+  public CompletableFuture<Void> releaseEntityAsync(EntityClientEndpoint endpoint) {
+    return ((EntityClientEndpointImpl<?, ?>)endpoint).releaseAsync();
+  }
+
+  private static <T> CompletableFuture<T> unsupported() {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    result.completeExceptionally(new UnsupportedOperationException());
+    return result;
+  }
+
   @Override
   public byte[] reconfigureEntity(EntityID entityID, long version, byte[] config) throws EntityException {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public CompletableFuture<byte[]> reconfigureEntityAsync(EntityID entityID, long version, byte[] config) {
+    return unsupported();
+  }
+
   @Override
   public Map<String, ?> getStateMap() {
     return Collections.emptyMap();
@@ -0,0 +1,104 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.object;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClientCallbackDispatcherTest {
+
+  @Test
+  public void testOrderedPerKey() throws Exception {
+    ClientCallbackDispatcher dispatcher = new ClientCallbackDispatcher("test", 4);
+    List<List<Integer>> seen = new ArrayList<>();
+    for (int k = 0; k < 8; k++) {
+      seen.add(Collections.synchronizedList(new ArrayList<>()));
+    }
+    CountDownLatch done = new CountDownLatch(8 * 1000);
+    for (int x = 0; x < 1000; x++) {
+      for (int k = 0; k < 8; k++) {
+        int key = k;
+        int value = x;
+        dispatcher.dispatch(new ClientInstanceID(key), () -> {
+          seen.get(key).add(value);
+          done.countDown();
+        });
+      }
+    }
+    Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+    for (List<Integer> values : seen) {
+      Assert.assertEquals(1000, values.size());
+      for (int x = 0; x < values.size(); x++) {
+        Assert.assertEquals(x, (int)values.get(x));
+      }
+    }
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void testSlowCallbackDoesNotBlockOtherLanes() throws Exception {
+    ClientCallbackDispatcher dispatcher = new ClientCallbackDispatcher("test", 2);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch other = new CountDownLatch(1);
+    // ClientInstanceID hashes by id, 0 and 1 land on different lanes
+    dispatcher.dispatch(new ClientInstanceID(0), () -> {
+      try {
+        release.await();
+      } catch (InterruptedException ie) {
+        throw new RuntimeException(ie);
+      }
+    });
+    dispatcher.dispatch(new ClientInstanceID(1), other::countDown);
+    Assert.assertTrue(other.await(30, TimeUnit.SECONDS));
+    release.countDown();
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void testDirectRunsInline() {
+    ClientCallbackDispatcher dispatcher = ClientCallbackDispatcher.direct();
+    Thread caller = Thread.currentThread();
+    Thread[] ran = new Thread[1];
+    dispatcher.dispatch("key", () -> ran[0] = Thread.currentThread());
+    Assert.assertSame(caller, ran[0]);
+    Map<String, ?> state = dispatcher.getStateMap();
+    Assert.assertEquals(1L, state.get("inline"));
+    Assert.assertEquals(0, state.get("queueDepth"));
+  }
+
+  @Test
+  public void testIsCallbackThread() throws Exception {
+    ClientCallbackDispatcher dispatcher = new ClientCallbackDispatcher("test", 2);
+    boolean[] inside = new boolean[1];
+    CountDownLatch done = new CountDownLatch(1);
+    dispatcher.dispatch("key", () -> {
+      inside[0] = dispatcher.isCallbackThread();
+      done.countDown();
+    });
+    Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+    Assert.assertTrue(inside[0]);
+    Assert.assertFalse(dispatcher.isCallbackThread());
+    dispatcher.shutdown();
+  }
+}
@@ -57,10 +57,12 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 
@@ -605,6 +607,91 @@ public class ClientEntityManagerTest extends TestCase {
     // We are waiting for no ACKs so this should be available since the send will trigger the delivery.
   }
 
+  @SuppressWarnings("rawtypes")
+  public void testPipelinedAsyncFetch() throws Exception {
+    final byte[] resultObject = new byte[8];
+    ByteBuffer.wrap(resultObject).putLong(1L);
+    when(channel.createMessage(Mockito.eq(TCMessageType.VOLTRON_ENTITY_MESSAGE))).then(new Answer<TCAction>() {
+      @Override
+      public TCAction answer(InvocationOnMock invocation) throws Throwable {
+        return new TestRequestBatchMessage(manager, resultObject, null, true);
+      }
+    });
+    // issue every fetch before waiting on any of them
+    List<CompletableFuture<EntityClientEndpoint>> fetches = new CopyOnWriteArrayList<>();
+    for (int x = 1; x <= 100; x++) {
+      fetches.add(this.manager.fetchEntityAsync(this.entityID, 1L, new ClientInstanceID(x), mock(MessageCodec.class)));
+    }
+    for (CompletableFuture<EntityClientEndpoint> fetch : fetches) {
+      EntityClientEndpoint endpoint = fetch.get(10, TimeUnit.SECONDS);
+      endpoint.release().get(10, TimeUnit.SECONDS);
+    }
+  }
+
+  public void testAsyncFetchFailure() throws Exception {
+    final EntityException resultException = new EntityNotFoundException(null, null);
+    when(channel.createMessage(Mockito.eq(TCMessageType.VOLTRON_ENTITY_MESSAGE))).then(new Answer<TCAction>() {
+      @Override
+      public TCAction answer(InvocationOnMock invocation) throws Throwable {
+        return new TestRequestBatchMessage(manager, null, resultException, true);
+      }
+    });
+    try {
+      this.manager.fetchEntityAsync(this.entityID, 1L, this.instance, mock(MessageCodec.class)).get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(EntityNotFoundException.class));
+    }
+  }
+
+  public void testFetchFailureReleasesOffTheCompletingThread() throws Exception {
+    final EntityException resultException = new EntityException(this.entityID.getClassName(), this.entityID.getEntityName(), "", null) {};
+    List<String> senders = new CopyOnWriteArrayList<>();
+    when(channel.createMessage(Mockito.eq(TCMessageType.VOLTRON_ENTITY_MESSAGE))).then(new Answer<TCAction>() {
+      @Override
+      public TCAction answer(InvocationOnMock invocation) throws Throwable {
+        senders.add(Thread.currentThread().getName());
+        // the fetch fails, the release that follows succeeds
+        return new TestRequestBatchMessage(manager, senders.size() == 1 ? null : new byte[0], senders.size() == 1 ? resultException : null, true);
+      }
+    });
+    try {
+      this.manager.fetchEntityAsync(this.entityID, 1L, this.instance, mock(MessageCodec.class)).get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertSame(resultException, e.getCause());
+    }
+    assertEquals(2, senders.size());
+    assertEquals("lifecycle-executor", senders.get(1));
+  }
+
+  public void testCloseOnCallbackThreadDoesNotWait() throws Exception {
+    ClientCallbackDispatcher callbacks = new ClientCallbackDispatcher("test-callbacks", 1);
+    ClientEntityManager lanes = new ClientEntityManagerImpl(this.channel, callbacks);
+    final byte[] resultObject = new byte[8];
+    ByteBuffer.wrap(resultObject).putLong(1L);
+    AtomicInteger sends = new AtomicInteger();
+    when(channel.createMessage(Mockito.eq(TCMessageType.VOLTRON_ENTITY_MESSAGE))).then(new Answer<TCAction>() {
+      @Override
+      public TCAction answer(InvocationOnMock invocation) throws Throwable {
+        // the fetch is acked at once, the release never is
+        return new TestRequestBatchMessage(lanes, resultObject, null, sends.getAndIncrement() == 0);
+      }
+    });
+    @SuppressWarnings("unchecked")
+    MessageCodec<EntityMessage, EntityResponse> codec = mock(MessageCodec.class);
+    EntityClientEndpoint endpoint = lanes.fetchEntityAsync(this.entityID, 1L, this.instance, codec).get(10, TimeUnit.SECONDS);
+    CountDownLatch closed = new CountDownLatch(1);
+    callbacks.dispatch(this.instance, ()->{
+      endpoint.close();
+      closed.countDown();
+    });
+    assertTrue(closed.await(10, TimeUnit.SECONDS));
+    assertFalse(endpoint.release().isDone());
+    assertFalse(lanes.releaseEntityAsync(endpoint).isDone());
+    callbacks.shutdown();
+  }
+
   private boolean didFindEndpoint(TestFetcher fetcher) throws Exception {
     boolean didFind = false;
     try {
@@ -22,6 +22,7 @@ import com.tc.io.TCByteBufferOutputStream;
 import com.tc.net.protocol.tcm.MessageChannel;
 import com.tc.net.protocol.tcm.MessageMonitor;
 import com.tc.net.protocol.tcm.NetworkRecall;
+import com.tc.net.protocol.tcm.TCActionNetworkMessage;
 import com.tc.net.protocol.tcm.TCMessageHeader;
 import com.tc.net.protocol.tcm.TCMessageType;
 import com.tc.object.ClientInstanceID;
@@ -30,13 +31,15 @@ import com.tc.object.session.SessionID;
 import com.tc.object.tx.TransactionID;
 import com.tc.util.Assert;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
 
 
+/**
+ * A batch of acks, results and server messages for one client.  Operations are encoded into the message output
+ * stream as they are added so sending needs no second pass over the batch.  Both sides keep only compact arrays
+ * of the operation types, ids and payload references; transaction ids are materialized when the batch is replayed.
+ */
 public class LinearVoltronEntityMultiResponse extends DSOMessageBase implements VoltronEntityMultiResponse {
   
   private final byte OP_ID = 1;
@@ -76,86 +79,63 @@ public class LinearVoltronEntityMultiResponse extends DSOMessageBase implements
       return false;
     }
   }  
-    
-  private List<Op> timeline = new LinkedList<>();
-
-  private boolean stopAdding;
   
-  private static class Op {
-    private final Operation type;
-    private final long id;
-    private final byte[] data;
+  private static final Operation[] OPERATIONS = Operation.values();
+  private static final int INITIAL_CAPACITY = 8;
 
-    public Op(Operation type, long id, byte[] data) {
-      this.type = type;
-      this.id = id;
-      this.data = data;
-    }
-    
-    public Op(byte[] raw) {
-      ByteBuffer reader = ByteBuffer.wrap(raw);
-      this.type = Operation.values()[reader.getInt()];
-      this.id = reader.getLong();
-      this.data = new byte[reader.remaining()];
-      reader.get(this.data);
-    }
-    
-    public byte[] convert() {
-      ByteBuffer buffer = ByteBuffer.allocate(4 + 8 + data.length);
-      buffer.putInt(type.ordinal());
-      buffer.putLong(id);
-      if (data != null) {
-        buffer.put(data);
-      }
-      return buffer.array();
-    }
-  }
+  private byte[] types = new byte[INITIAL_CAPACITY];
+  private long[] ids = new long[INITIAL_CAPACITY];
+  //  byte[] for results and messages, long[] for stats.  on the sending side these are 
+  //  the references handed in by the caller, nothing is copied
+  private Object[] payloads = new Object[INITIAL_CAPACITY];
+  private int count;
+
+  private boolean stopAdding;
 
   @Override
   public int replay(ReplayReceiver receiver) {
-    int count = 0;
-    for (Op op : timeline) {
-      switch(op.type) {
+    //  only called once adding has stopped or the message has been hydrated
+    //  so the arrays are no longer changing
+    final byte[] types = this.types;
+    final long[] ids = this.ids;
+    final Object[] payloads = this.payloads;
+    final int size = this.count;
+    for (int x = 0; x < size; x++) {
+      long id = ids[x];
+      switch(OPERATIONS[types[x]]) {
         case INVOKE_MESSAGE:
-          receiver.message(new TransactionID(op.id), op.data);
+          receiver.message(new TransactionID(id), (byte[])payloads[x]);
           break;
         case RECEIVED:
-          receiver.received(new TransactionID(op.id));
+          receiver.received(new TransactionID(id));
           break;
         case RESULT:
-          receiver.result(new TransactionID(op.id), op.data);
+          receiver.result(new TransactionID(id), (byte[])payloads[x]);
           break;
         case SERVER_MESSAGE:
-          receiver.message(new ClientInstanceID(op.id), op.data);
+          receiver.message(new ClientInstanceID(id), (byte[])payloads[x]);
           break;
         case RESULT_RETIRED:
-          receiver.result(new TransactionID(op.id), op.data);
-      //  fallthrough
+          TransactionID tid = new TransactionID(id);
+          receiver.result(tid, (byte[])payloads[x]);
+          receiver.retired(tid);
+          break;
         case RETIRED:
-          receiver.retired(new TransactionID(op.id));
+          receiver.retired(new TransactionID(id));
           break;
         case DONE:
-          receiver.stats(TransactionID.NULL_ID, new long[] {op.id});
+          receiver.stats(TransactionID.NULL_ID, new long[] {id});
           break;
         case STATS:
-          ByteBuffer data = ByteBuffer.wrap(op.data);
-          long[] vals = new long[data.remaining() / Long.BYTES];
-          for (int x=0;x<vals.length;x++) {
-            vals[x] = data.getLong();
-          }
-          receiver.stats(new TransactionID(op.id), vals);
+          receiver.stats(new TransactionID(id), (long[])payloads[x]);
           break;
         default:
           throw new AssertionError("unknown op");
       }
-      count+=1;
     }
-    return count;
+    return size;
   }
   
-  
-  
-  
   public LinearVoltronEntityMultiResponse(SessionID sessionID, MessageMonitor monitor, TCByteBufferOutputStream out, MessageChannel channel, TCMessageType type) {
     super(sessionID, monitor, out, channel, type);
   }
@@ -174,10 +154,10 @@ public class LinearVoltronEntityMultiResponse extends DSOMessageBase implements
     return buildOp(Operation.RECEIVED, tid.toLong(), null);
   }
   
-  private synchronized boolean buildOp(Operation type, long id, byte[] data) {
+  private synchronized boolean buildOp(Operation type, long id, Object data) {
     if (!stopAdding) {
-      Op op = new Op(type, id, data);
-      timeline.add(op);
+      record(type, id, data);
+      encode(type, id, data);
       switch (type) {
         case DONE:
           stopAdding = true;
@@ -194,6 +174,38 @@ public class LinearVoltronEntityMultiResponse extends DSOMessageBase implements
 
     return false;
   }
+
+  private void record(Operation type, long id, Object data) {
+    if (count == types.length) {
+      int grow = count * 2;
+      types = Arrays.copyOf(types, grow);
+      ids = Arrays.copyOf(ids, grow);
+      payloads = Arrays.copyOf(payloads, grow);
+    }
+    types[count] = (byte)type.ordinal();
+    ids[count] = id;
+    payloads[count] = data;
+    count += 1;
+  }
+
+  private void encode(Operation type, long id, Object data) {
+    putNVPair(OP_ID, (short)type.ordinal());
+    TCByteBufferOutputStream out = getOutputStream();
+    out.writeLong(id);
+    if (type.hasData()) {
+      if (data instanceof long[]) {
+        long[] values = (long[])data;
+        out.writeInt(values.length * Long.BYTES);
+        for (long v : values) {
+          out.writeLong(v);
+        }
+      } else {
+        byte[] bytes = (byte[])data;
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+  }
   
   @Override
   public boolean addRetired(TransactionID tid) {
@@ -222,35 +234,34 @@ public class LinearVoltronEntityMultiResponse extends DSOMessageBase implements
 
   @Override
   public boolean addStats(TransactionID cid, long[] timings) {
-    ByteBuffer buffer = ByteBuffer.allocate(timings.length * Long.BYTES);
-    for (long t : timings) {
-      buffer.putLong(t);
-    }
-    return buildOp(Operation.STATS, cid.toLong(), buffer.array());
+    return buildOp(Operation.STATS, cid.toLong(), timings);
   }
   
   @Override
   public void stopAdding() {
     stopAddingTime = System.nanoTime();
     buildOp(Operation.DONE, stopAddingTime - startAddingTime, null);
-    timeline = Collections.unmodifiableList(timeline);
   }
   
   @Override
   protected boolean hydrateValue(byte name) throws IOException {
     if (name == OP_ID) {
-      Operation type = Operation.values()[getShortValue()];
+      Operation type = OPERATIONS[getShortValue()];
       long id = getLongValue();
-      byte[] data = null;
-      if (type.hasData()) {
-        int len = getIntValue();
-        data = new byte[len];
-        getInputStream().readFully(data);
+      Object data = null;
+      if (type == Operation.STATS) {
+        long[] values = new long[getIntValue() / Long.BYTES];
+        for (int x = 0; x < values.length; x++) {
+          values[x] = getLongValue();
+        }
+        data = values;
+      } else if (type.hasData()) {
+        data = getBytesArray();
       }
-      timeline.add(new Op(type, id, data));
+      record(type, id, data);
       return true;
     } else if (name == DONE_ID) {
-      Assert.assertEquals(getIntValue(), timeline.size());
+      Assert.assertEquals(getIntValue(), count);
       return true;
     }
     return false;
@@ -258,18 +269,8 @@ public class LinearVoltronEntityMultiResponse extends DSOMessageBase implements
 
   @Override
   protected void dehydrateValues() {
-    int count = 0;
-    for (Op op : timeline) {
-      putNVPair(OP_ID, (short)op.type.ordinal());
-      getOutputStream().writeLong(op.id);
-      if (op.type.hasData()) {
-        getOutputStream().writeInt(op.data.length);
-        getOutputStream().write(op.data);
-      }
-      count++;
-    }
-    putNVPair(DONE_ID,count);
-    
+    //  operations were encoded as they were added, only the count is left
+    putNVPair(DONE_ID, count);
   }
   
   private long stopAddingTime;
@@ -285,13 +286,17 @@ public class LinearVoltronEntityMultiResponse extends DSOMessageBase implements
     }
     return false;
   }
-  // the setter and getter on this variable is always the same 
-  // thread and it is used for a minor optimation which does not affect correctness.
-  // As a result it does not need synchronization or volatile  
-  private boolean immediateSend = false;
+  // set under the message lock by whichever thread adds an operation and read 
+  // without it by the response stage when deciding whether the message may wait 
+  // for more operations.  a stale read only delays the send so volatile is enough
+  private volatile boolean immediateSend = false;
   
   @Override
   public boolean shouldSend() {
     return immediateSend;
   }
+  // for tests
+  TCActionNetworkMessage getNetworkMessage() {
+    return convertToNetworkMessage();
+  }
 }
@@ -17,6 +17,7 @@
  */
 package com.tc.entity;
 
+import com.tc.async.api.MultiThreadedEventContext;
 import com.tc.bytes.TCByteBuffer;
 import org.terracotta.entity.EntityMessage;
 
@@ -25,7 +26,7 @@ import com.tc.object.EntityDescriptor;
 import com.tc.object.tx.TransactionID;
 
 
-public interface VoltronEntityMessage {
+public interface VoltronEntityMessage extends MultiThreadedEventContext {
   enum Type {
     /**
      * Called to add a reference from a client to an existing entity.
@@ -122,4 +123,39 @@ public interface VoltronEntityMessage {
    * @return The EntityMessage instance or null, if there isn't one.
    */
   public EntityMessage getEntityMessage();
+
+  /**
+   * The voltron stages on the active are partitioned by client so each client's messages are handled in the order
+   * they arrived.  Messages generated on the server carry no client and flush instead, see {@link #flush()}.
+   */
+  @Override
+  default Object getSchedulingKey() {
+    ClientID source = getSource();
+    return source == null ? ClientID.NULL_ID : source;
+  }
+
+  /**
+   * Lifecycle messages, pipeline flushes, entity collection, client disconnects and every message generated on the
+   * server wait for every message enqueued before them, on all partitions, to be handled first.  None of them belongs
+   * to a single client's order so no partition alone can place them.
+   */
+  @Override
+  default boolean flush() {
+    ClientID source = getSource();
+    if (source == null || source.isNull()) {
+      return true;
+    }
+    switch (getVoltronType()) {
+      case CREATE_ENTITY:
+      case DESTROY_ENTITY:
+      case RECONFIGURE_ENTITY:
+      case FETCH_ENTITY:
+      case LOCAL_PIPELINE_FLUSH:
+      case LOCAL_ENTITY_GC:
+      case DISCONNECT_CLIENT:
+        return true;
+      default:
+        return false;
+    }
+  }
 }
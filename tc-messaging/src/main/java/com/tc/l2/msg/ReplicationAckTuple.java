@@ -21,13 +21,34 @@ package com.tc.l2.msg;
 /**
  * Elements used in the ReplicationMessageAck batch.
  * The respondTo is the message to which we are responding.  The result determines if this is a RECEIVED, SUCCESS, or FAIL.
+ * A tuple may cover a range of count consecutive activity ids starting at respondTo, all with the same result.
  */
 public class ReplicationAckTuple {
   public final SyncReplicationActivity.ActivityID respondTo;
   public final ReplicationResultCode result;
+  public final int count;
   
   public ReplicationAckTuple(SyncReplicationActivity.ActivityID respondTo, ReplicationResultCode result) {
+    this(respondTo, result, 1);
+  }
+
+  public ReplicationAckTuple(SyncReplicationActivity.ActivityID respondTo, ReplicationResultCode result, int count) {
     this.respondTo = respondTo;
     this.result = result;
+    this.count = count;
+  }
+
+  /**
+   * @return the id of the last activity covered by this tuple
+   */
+  public long last() {
+    return this.respondTo.id + this.count - 1;
+  }
+
+  /**
+   * @return true if other continues the range of this tuple with the same result
+   */
+  boolean isFollowedBy(ReplicationAckTuple other) {
+    return this.result == other.result && this.respondTo.id + this.count == other.respondTo.id && this.count + other.count > 0;
   }
 }
@@ -24,6 +24,7 @@ import com.tc.util.Assert;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -33,17 +34,34 @@ public class ReplicationMessageAck extends AbstractGroupMessage implements IBatc
   public static final int START_SYNC                = 4; // Sent from the passive when it wants the active to start passive sync.
   public static final int BATCH                = 5; // Sent from the passive to ack a batch of messages.
 
+  // Set on the result code of a serialized tuple which covers more than one activity, the count follows the code.
+  // Servers which predate ranges can not decode such a tuple so every server of a stripe must run a version which
+  // reads ranges before any of them sends one.  A rolling upgrade runs with l2.nha.ack.ranges=false until then.
+  private static final int RANGE_FLAG = 0x100;
+
   // Factory methods.
   public static ReplicationMessageAck createSyncRequestMessage() {
     return new ReplicationMessageAck(START_SYNC);
   }
 
   public static ReplicationMessageAck createBatchAck() {
-    return new ReplicationMessageAck(BATCH);
+    return createBatchAck(true);
+  }
+
+  /**
+   * @param mergeRanges false to send every ack as a tuple of its own, which any version of the server can decode
+   */
+  public static ReplicationMessageAck createBatchAck(boolean mergeRanges) {
+    ReplicationMessageAck ack = new ReplicationMessageAck(BATCH);
+    ack.mergeRanges = mergeRanges;
+    return ack;
   }
 
 
   private List<ReplicationAckTuple> batch;
+  // The index in batch of the last tuple for each result code, the only tuple a new ack of that code may extend.
+  private int[] openRanges;
+  private boolean mergeRanges;
 
   public ReplicationMessageAck() {
     super(INVALID);
@@ -54,15 +72,29 @@ public class ReplicationMessageAck extends AbstractGroupMessage implements IBatc
     super(type);
     if (BATCH == type) {
       this.batch = new ArrayList<ReplicationAckTuple>();
+      this.openRanges = new int[ReplicationResultCode.values().length];
+      Arrays.fill(this.openRanges, -1);
     }
   }
 
   // Note that this does change the instance, so synchronized would be required if it were being called by multiple threads.
   // However, due to other races in how the using code decides to stop changing a message, it makes more sense for them to serialize on that level.
+  // An ack which directly follows the last range of the same result code extends that range rather than adding a
+  // tuple so runs of acks for consecutive activities collapse into one tuple.  Extending a range may move an ack
+  // ahead of acks of other codes batched after the range, which the active tolerates since every ack is tracked per
+  // activity.  Without merging every ack keeps a tuple of its own and the batch goes out in the old encoding.
   @Override
   public void addToBatch(ReplicationAckTuple element) {
     Assert.assertTrue(BATCH == this.getType());
-    this.batch.add(element);
+    int code = element.result.ordinal();
+    int open = this.openRanges[code];
+    if (this.mergeRanges && open >= 0 && this.batch.get(open).isFollowedBy(element)) {
+      ReplicationAckTuple range = this.batch.get(open);
+      this.batch.set(open, new ReplicationAckTuple(range.respondTo, range.result, range.count + element.count));
+    } else {
+      this.openRanges[code] = this.batch.size();
+      this.batch.add(element);
+    }
   }
 
   @Override
@@ -73,6 +105,17 @@ public class ReplicationMessageAck extends AbstractGroupMessage implements IBatc
   public List<ReplicationAckTuple> getBatch() {
     return this.batch;
   }
+
+  /**
+   * @return the number of activities acknowledged by this batch, counting every activity of each range
+   */
+  public long getAcknowledgedCount() {
+    long total = 0;
+    for (ReplicationAckTuple tuple : this.batch) {
+      total += tuple.count;
+    }
+    return total;
+  }
   
   @Override
   public void setSequenceID(long rid) {
@@ -93,8 +136,10 @@ public class ReplicationMessageAck extends AbstractGroupMessage implements IBatc
       this.batch = new ArrayList<ReplicationAckTuple>();
       for (int i = 0; i < batchSize; ++i) {
         SyncReplicationActivity.ActivityID respondTo = new SyncReplicationActivity.ActivityID(in.readLong());
-        ReplicationResultCode result = ReplicationResultCode.decode(in.readInt());
-        this.batch.add(new ReplicationAckTuple(respondTo, result));
+        int code = in.readInt();
+        int count = ((code & RANGE_FLAG) != 0) ? in.readInt() : 1;
+        ReplicationResultCode result = ReplicationResultCode.decode(code & ~RANGE_FLAG);
+        this.batch.add(new ReplicationAckTuple(respondTo, result, count));
       }
     }
   }
@@ -108,7 +153,12 @@ public class ReplicationMessageAck extends AbstractGroupMessage implements IBatc
       out.writeInt(size);
       for (ReplicationAckTuple tuple : this.batch) {
         out.writeLong(tuple.respondTo.id);
-        out.writeInt(tuple.result.code());
+        if (tuple.count == 1) {
+          out.writeInt(tuple.result.code());
+        } else {
+          out.writeInt(tuple.result.code() | RANGE_FLAG);
+          out.writeInt(tuple.count);
+        }
       }
     }
   }
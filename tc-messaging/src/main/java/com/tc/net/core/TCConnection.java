@@ -20,6 +20,7 @@ package com.tc.net.core;
 import com.tc.io.TCByteBufferOutputStream;
 import com.tc.net.core.event.TCConnectionEventListener;
 import com.tc.net.protocol.NetworkMessageSink;
+import com.tc.net.protocol.transport.PayloadCompression;
 import com.tc.util.TCTimeoutException;
 
 import java.io.IOException;
@@ -139,4 +140,27 @@ public interface TCConnection extends NetworkMessageSink {
   default TCByteBufferOutputStream createOutput() {
     return new TCByteBufferOutputStream();
   }
+
+  /**
+   * Payload compression negotiated for this connection during the transport handshake, null if none.
+   */
+  default PayloadCompression getPayloadCompression() {
+    return null;
+  }
+
+  default void setPayloadCompression(PayloadCompression compression) {
+    // not supported
+  }
+
+  /**
+   * Wire features negotiated for this connection during the transport handshake, see
+   * {@link com.tc.net.protocol.transport.WireProtocolHeader#FEATURE_CRC32C}.
+   */
+  default byte getWireFeatures() {
+    return 0;
+  }
+
+  default void setWireFeatures(byte features) {
+    // not supported
+  }
 }
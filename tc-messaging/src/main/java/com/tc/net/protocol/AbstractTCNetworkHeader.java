@@ -22,6 +22,7 @@ import com.tc.bytes.TCByteBufferFactory;
 import com.tc.util.Assert;
 
 import java.util.zip.Adler32;
+import java.util.zip.Checksum;
 
 /**
  * TODO: document me
@@ -119,16 +120,22 @@ public abstract class AbstractTCNetworkHeader implements TCNetworkHeader {
   }
 
   protected long computeAdler32Checksum(int pos, boolean set) {
-    Adler32 adler = new Adler32();
+    return computeChecksum(new Adler32(), pos, set);
+  }
+
+  protected long computeCrc32cChecksum(int pos, boolean set) {
+    return computeChecksum(WireChecksum.newChecksum(), pos, set);
+  }
 
+  private long computeChecksum(Checksum checksum, int pos, boolean set) {
     // save off the existing checksum
     byte cksum[] = getBytes(pos, 4);
 
     // zero out the checksum bytes before doing the calculation
     setBytes(pos, FOUR_ZERO_BYTES);
-    adler.update(data.array(), 0, getHeaderByteLength());
+    checksum.update(data.array(), 0, getHeaderByteLength());
 
-    long rv = adler.getValue();
+    long rv = checksum.getValue();
 
     if (set) {
       data.putUint(pos, rv);
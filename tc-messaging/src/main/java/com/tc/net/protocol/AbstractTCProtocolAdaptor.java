@@ -46,7 +46,8 @@ public abstract class AbstractTCProtocolAdaptor implements TCProtocolAdaptor {
   @Override
   public int getExpectedBytes() {
     if (mode == MODE_HEADER) {
-      return header.getDataBuffer().limit();
+      // only what is missing, a header with options is read in two steps
+      return header.getDataBuffer().remaining();
     } else {
       return dataBytesNeeded;
     }
@@ -80,15 +81,16 @@ public abstract class AbstractTCProtocolAdaptor implements TCProtocolAdaptor {
   }
 
   private TCNetworkMessage processHeaderData(TCConnection source, TCReference data) throws TCProtocolException {
-    final int headerLength = this.header.getHeaderByteLength();
     final int bufferLength = header.getDataBuffer().limit();
     
-    Assert.assertEquals(data.available(), bufferLength);
     // copy header length into header buffer
     TCByteBuffer headerBuf = header.getDataBuffer();
+    Assert.assertEquals(data.available(), headerBuf.remaining());
     for (TCByteBuffer b : data) {
       headerBuf.put(b);
     }
+    // read the length after the copy, it may announce options beyond the minimum header
+    final int headerLength = this.header.getHeaderByteLength();
 
     if (!this.header.isHeaderLengthAvail()) { return null; }
 
@@ -0,0 +1,129 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.net.protocol;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.bytes.TCReference;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.zip.Checksum;
+
+/**
+ * CRC32C (Castagnoli) checksums for the wire protocol.  Uses the hardware accelerated
+ * <code>java.util.zip.CRC32C</code> when the runtime has it and a table driven implementation of the same polynomial
+ * otherwise, so peers on different runtimes always agree.
+ */
+public final class WireChecksum {
+  private static final MethodHandle JDK_CRC32C = findJdkCrc32c();
+  private static final int[]        TABLE      = buildTable();
+  private static final int          SCRATCH    = 8 * 1024;
+
+  private WireChecksum() {
+    // static helpers only
+  }
+
+  public static Checksum newChecksum() {
+    if (JDK_CRC32C != null) {
+      try {
+        return (Checksum) JDK_CRC32C.invoke();
+      } catch (Throwable t) {
+        // fall through to the portable implementation
+      }
+    }
+    return new PortableCrc32c();
+  }
+
+  public static boolean isAccelerated() {
+    return JDK_CRC32C != null;
+  }
+
+  /**
+   * Checksum of the remaining bytes of every buffer in the reference, without moving their positions.
+   */
+  public static long checksum(TCReference data) {
+    Checksum crc = newChecksum();
+    byte[] scratch = null;
+    for (TCByteBuffer buffer : data) {
+      if (buffer.hasArray()) {
+        crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      } else {
+        if (scratch == null) {
+          scratch = new byte[SCRATCH];
+        }
+        TCByteBuffer src = buffer.duplicate();
+        while (src.hasRemaining()) {
+          int len = Math.min(src.remaining(), scratch.length);
+          src.get(scratch, 0, len);
+          crc.update(scratch, 0, len);
+        }
+      }
+    }
+    return crc.getValue();
+  }
+
+  private static MethodHandle findJdkCrc32c() {
+    try {
+      Class<?> type = Class.forName("java.util.zip.CRC32C");
+      return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class));
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  private static int[] buildTable() {
+    int[] table = new int[256];
+    for (int i = 0; i < table.length; i++) {
+      int c = i;
+      for (int k = 0; k < 8; k++) {
+        c = ((c & 1) != 0) ? (c >>> 1) ^ 0x82F63B78 : c >>> 1;
+      }
+      table[i] = c;
+    }
+    return table;
+  }
+
+  static final class PortableCrc32c implements Checksum {
+    private int crc = 0xFFFFFFFF;
+
+    @Override
+    public void update(int b) {
+      crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+      int c = crc;
+      for (int i = off; i < off + len; i++) {
+        c = (c >>> 8) ^ TABLE[(c ^ b[i]) & 0xFF];
+      }
+      crc = c;
+    }
+
+    @Override
+    public long getValue() {
+      return (~crc) & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+      crc = 0xFFFFFFFF;
+    }
+  }
+}
@@ -34,6 +34,13 @@ public interface TCAction {
    */
   public void hydrate() throws IOException, UnknownNameException;
 
+  /**
+   * True if the body arrived deflated, hydrate() inflates it so it is best left to a stage rather than the comm thread.
+   */
+  default boolean isBodyCompressed() {
+    return false;
+  }
+
   public NetworkRecall send();
 
   public MessageChannel getChannel();
@@ -29,6 +29,8 @@ import com.tc.io.TCByteBufferOutputStream;
 import com.tc.io.TCSerializable;
 import com.tc.net.NodeID;
 import com.tc.net.groups.NodeIDSerializer;
+import com.tc.net.protocol.TCProtocolException;
+import com.tc.net.protocol.transport.PayloadCompression;
 import com.tc.util.AbstractIdentifier;
 import com.tc.util.concurrent.SetOnceFlag;
 
@@ -48,8 +50,10 @@ public abstract class TCActionImpl implements TCAction {
   private final boolean                 isOutgoing;
   private int                           nvCount;
   private final TCByteBufferOutputStream      out;
-  private final TCByteBufferInputStream       bbis;
+  private TCByteBufferInputStream             bbis;
   private int                           messageVersion;
+  private final boolean                 bodyCompressed;
+  private PayloadCompression            bodyCodec;
 
   /**
    * Creates a new TCMessage to write data into (ie. to send to the network)
@@ -62,6 +66,7 @@ public abstract class TCActionImpl implements TCAction {
 
     this.out = output;
     this.bbis = null;
+    this.bodyCompressed = false;
 
     this.isOutgoing = true;
   }
@@ -78,6 +83,7 @@ public abstract class TCActionImpl implements TCAction {
     this.type = TCMessageType.getInstance(header.getMessageType());
     this.messageVersion = header.getMessageTypeVersion();
     this.bbis = data;
+    this.bodyCompressed = header.isBodyCompressed();
     this.out = null;
     this.channel = channel;
     this.isOutgoing = false;
@@ -133,6 +139,9 @@ public abstract class TCActionImpl implements TCAction {
   public synchronized void hydrate() throws IOException, UnknownNameException {
     if (processed.attemptSet()) {
       try {
+        if (this.bodyCompressed) {
+          inflateBody();
+        }
         final int count = bbis.readInt();
         if (count < 0) { throw new IOException("negative NV count: " + count); }
 
@@ -150,6 +159,32 @@ public abstract class TCActionImpl implements TCAction {
     }
   }
 
+  @Override
+  public boolean isBodyCompressed() {
+    return this.bodyCompressed;
+  }
+
+  /**
+   * The codec negotiated on the connection the message arrived on, used by hydrate() to inflate a compressed body.
+   */
+  public void setBodyCodec(PayloadCompression codec) {
+    this.bodyCodec = codec;
+  }
+
+  private void inflateBody() throws IOException {
+    if (this.bodyCodec == null) {
+      throw new IOException("Compressed " + type + " body on a connection that did not negotiate compression");
+    }
+    TCByteBufferInputStream packed = this.bbis;
+    try (TCReference raw = this.bodyCodec.decode(packed.readReference(packed.available()))) {
+      this.bbis = new TCByteBufferInputStream(raw);
+    } catch (TCProtocolException e) {
+      throw new IOException(e);
+    } finally {
+      packed.close();
+    }
+  }
+
   /**
    * Subclasses must implement this to set appropriate instance variables with the value of the given name.
    * Return false if the given name is unknown to your message class
@@ -27,6 +27,9 @@ public interface TCMessageHeader extends TCNetworkHeader {
 
   final int  MIN_LENGTH       = HEADER_LENGTH;
   final int  MAX_LENGTH       = HEADER_LENGTH;
+
+  // the body is deflated, see PayloadCompression
+  final int  FLAG_BODY_COMPRESSED = 0x01;
   
   public short getVersion();
 
@@ -40,4 +43,8 @@ public interface TCMessageHeader extends TCNetworkHeader {
 
   public void setMessageTypeVersion(int messageVersion);
 
+  public boolean isBodyCompressed();
+
+  public void setBodyCompressed(boolean compressed);
+
 }
@@ -87,6 +87,17 @@ public class TCMessageHeaderImpl extends AbstractTCNetworkHeader implements TCMe
     data.putUshort(4, version);
   }
 
+  @Override
+  public boolean isBodyCompressed() {
+    return (data.getUbyte(6) & FLAG_BODY_COMPRESSED) != 0;
+  }
+
+  @Override
+  public void setBodyCompressed(boolean compressed) {
+    short flags = data.getUbyte(6);
+    data.putUbyte(6, compressed ? (short) (flags | FLAG_BODY_COMPRESSED) : (short) (flags & ~FLAG_BODY_COMPRESSED));
+  }
+
   @Override
   public String toString() {
     StringBuffer buf = new StringBuffer();
@@ -101,6 +112,9 @@ public class TCMessageHeaderImpl extends AbstractTCNetworkHeader implements TCMe
     }
 
     buf.append(", msgVer=").append(getMessageTypeVersion());
+    if (isBodyCompressed()) {
+      buf.append(", compressed");
+    }
     buf.append('\n');
 
     return buf.toString();
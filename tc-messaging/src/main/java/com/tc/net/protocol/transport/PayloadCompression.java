@@ -0,0 +1,299 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.net.protocol.transport;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.bytes.TCByteBufferFactory;
+import com.tc.bytes.TCReference;
+import com.tc.bytes.TCReferenceSupport;
+import com.tc.net.core.TCConnection;
+import com.tc.net.protocol.TCProtocolException;
+import com.tc.net.protocol.tcm.TCActionNetworkMessage;
+import com.tc.net.protocol.tcm.TCMessageHeader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Per connection block compression of message bodies.  The codec is offered by the client in the transport SYN and
+ * accepted by the server in the SYN_ACK, after which either side deflates the body of any message at or above the
+ * threshold.  The message header stays as it is so that the comm thread can still route the message, the body is
+ * flagged in the message header and inflated when the message is hydrated.  A compressed body carries the inflated
+ * length followed by a raw deflate stream:
+ *
+ * <pre>
+ *        +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ *        |                       Inflated Length                         |
+ *        +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ *        |                       Deflate data                          ...
+ *        +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * </pre>
+ *
+ * Bodies that do not shrink are sent as they are.  A compressed body on a connection that did not negotiate a
+ * codec is a protocol error.  The inflated length is only trusted up to the maximum inflated size and to what deflate
+ * can possibly expand the received bytes to, and output buffers are allocated as the inflated data is produced
+ * rather than up front.
+ */
+public final class PayloadCompression {
+  public static final byte CODEC_NONE    = 0;
+  public static final byte CODEC_DEFLATE = 1;
+
+  public static final int  DEFAULT_MAX_INFLATED_SIZE = 256 * 1024 * 1024;
+
+  private static final int CHUNK_SIZE    = 64 * 1024;
+  // deflate cannot expand its input by more than this, stored blocks of a run of one byte come closest
+  private static final int MAX_RATIO     = 1032;
+
+  private final int        level;
+  private final int        threshold;
+  private final int        maxInflatedSize;
+
+  private final LongAdder  compressed    = new LongAdder();
+  private final LongAdder  skipped       = new LongAdder();
+  private final LongAdder  rawOut        = new LongAdder();
+  private final LongAdder  wireOut       = new LongAdder();
+  private final LongAdder  compressNanos = new LongAdder();
+  private final LongAdder  inflated      = new LongAdder();
+  private final LongAdder  wireIn        = new LongAdder();
+  private final LongAdder  rawIn         = new LongAdder();
+  private final LongAdder  inflateNanos  = new LongAdder();
+
+  public PayloadCompression(int level, int threshold) {
+    this(level, threshold, DEFAULT_MAX_INFLATED_SIZE);
+  }
+
+  /**
+   * @param maxInflatedSize the largest payload accepted from the peer once inflated
+   */
+  public PayloadCompression(int level, int threshold, int maxInflatedSize) {
+    this.level = level;
+    this.threshold = threshold;
+    this.maxInflatedSize = maxInflatedSize;
+  }
+
+  /**
+   * Picks the codec both sides support out of the codecs offered by the peer.
+   */
+  public static byte negotiate(byte offered, byte supported) {
+    return ((offered & supported & CODEC_DEFLATE) != 0) ? CODEC_DEFLATE : CODEC_NONE;
+  }
+
+  /**
+   * Compresses the body of a committed message for the given connection if a codec was negotiated and the body is
+   * large enough.
+   *
+   * @return the message header, flagged, followed by the compressed body or null if the message goes as it is
+   */
+  static TCReference encode(TCConnection connection, TCActionNetworkMessage message) {
+    PayloadCompression codec = (connection == null) ? null : connection.getPayloadCompression();
+    if (codec != null && message.getHeader() instanceof TCMessageHeader) {
+      TCReference packed = codec.compress(message.getPayload());
+      if (packed != null) {
+        TCMessageHeader header = (TCMessageHeader) message.getHeader();
+        header.setBodyCompressed(true);
+        try (TCReference headerRef = TCReferenceSupport.createGCReference(header.getDataBuffer().duplicate())) {
+          return TCReferenceSupport.createAggregateReference(headerRef, packed);
+        } finally {
+          packed.close();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Inflates a message body flagged as compressed in its header.  The passed body is always closed.
+   *
+   * @throws TCProtocolException if the body is not valid
+   */
+  public TCReference decode(TCReference body) throws TCProtocolException {
+    try {
+      return inflate(body);
+    } finally {
+      body.close();
+    }
+  }
+
+  TCReference compress(TCReference payload) {
+    long size = payload.available();
+    if (size < threshold || size > Integer.MAX_VALUE) {
+      return null;
+    }
+    long start = System.nanoTime();
+    Deflater deflater = new Deflater(level, true);
+    try {
+      List<TCByteBuffer> out = new ArrayList<>();
+      TCByteBuffer lengthBuffer = TCByteBufferFactory.getInstance(Integer.BYTES);
+      lengthBuffer.putInt((int) size);
+      lengthBuffer.flip();
+      out.add(lengthBuffer);
+      long packedSize = Integer.BYTES;
+      byte[] input = new byte[(int) Math.min(size, CHUNK_SIZE)];
+      byte[] chunk = new byte[CHUNK_SIZE];
+      int used = 0;
+      for (TCByteBuffer buffer : payload) {
+        TCByteBuffer src = buffer.duplicate();
+        while (src.hasRemaining()) {
+          int len = Math.min(src.remaining(), input.length);
+          src.get(input, 0, len);
+          deflater.setInput(input, 0, len);
+          while (!deflater.needsInput()) {
+            used = drain(deflater, chunk, used, out);
+            if (used == chunk.length) {
+              packedSize += used;
+              chunk = new byte[CHUNK_SIZE];
+              used = 0;
+            }
+          }
+          if (packedSize + used >= size) {
+            skipped.increment();
+            return null;
+          }
+        }
+      }
+      deflater.finish();
+      while (!deflater.finished()) {
+        used = drain(deflater, chunk, used, out);
+        if (used == chunk.length) {
+          packedSize += used;
+          chunk = new byte[CHUNK_SIZE];
+          used = 0;
+        }
+      }
+      packedSize += used;
+      if (packedSize >= size) {
+        skipped.increment();
+        return null;
+      }
+      if (used > 0) {
+        out.add(TCByteBufferFactory.wrap(chunk).limit(used));
+      }
+      compressed.increment();
+      rawOut.add(size);
+      wireOut.add(packedSize);
+      return TCReferenceSupport.createGCReference(out);
+    } finally {
+      deflater.end();
+      compressNanos.add(System.nanoTime() - start);
+    }
+  }
+
+  private static int drain(Deflater deflater, byte[] chunk, int used, List<TCByteBuffer> out) {
+    used += deflater.deflate(chunk, used, chunk.length - used);
+    if (used == chunk.length) {
+      out.add(TCByteBufferFactory.wrap(chunk));
+    }
+    return used;
+  }
+
+  private TCReference inflate(TCReference payload) throws TCProtocolException {
+    long start = System.nanoTime();
+    long packedSize = payload.available();
+    Inflater inflater = new Inflater(true);
+    try {
+      byte[] sizeBytes = new byte[Integer.BYTES];
+      int sizeRead = 0;
+      int size = -1;
+      long filled = 0;
+      List<TCByteBuffer> out = new ArrayList<>();
+      TCByteBuffer chunk = null;
+      byte[] input = new byte[CHUNK_SIZE];
+      for (TCByteBuffer buffer : payload) {
+        TCByteBuffer src = buffer.duplicate();
+        while (sizeRead < sizeBytes.length && src.hasRemaining()) {
+          sizeBytes[sizeRead++] = src.get();
+        }
+        if (size < 0 && sizeRead == sizeBytes.length) {
+          size = ((sizeBytes[0] & 0xff) << 24) | ((sizeBytes[1] & 0xff) << 16) | ((sizeBytes[2] & 0xff) << 8) | (sizeBytes[3] & 0xff);
+          checkInflatedSize(size, packedSize - Integer.BYTES);
+        }
+        while (src.hasRemaining()) {
+          int len = Math.min(src.remaining(), input.length);
+          src.get(input, 0, len);
+          inflater.setInput(input, 0, len);
+          while (!inflater.needsInput() && !inflater.finished()) {
+            if (chunk == null || !chunk.hasRemaining()) {
+              if (filled == size) {
+                throw new TCProtocolException("Compressed payload inflates past its declared length of " + size);
+              }
+              chunk = TCByteBufferFactory.getInstance((int) Math.min(CHUNK_SIZE, size - filled));
+              out.add(chunk);
+            }
+            int n = inflater.inflate(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+            if (n == 0 && inflater.needsDictionary()) {
+              throw new TCProtocolException("Compressed payload asks for a preset dictionary");
+            }
+            chunk.position(chunk.position() + n);
+            filled += n;
+          }
+        }
+      }
+      if (size < 0 || filled != size || !inflater.finished()) {
+        throw new TCProtocolException("Compressed payload inflated to " + filled + " bytes, expected "
+                                      + (size < 0 ? "a length header" : size));
+      }
+      for (TCByteBuffer b : out) {
+        b.flip();
+      }
+      inflated.increment();
+      wireIn.add(packedSize);
+      rawIn.add(size);
+      inflateNanos.add(System.nanoTime() - start);
+      return TCReferenceSupport.createGCReference(out);
+    } catch (DataFormatException e) {
+      throw new TCProtocolException(e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private void checkInflatedSize(int size, long packedSize) throws TCProtocolException {
+    if (size <= 0 || size > maxInflatedSize) {
+      throw new TCProtocolException("Invalid inflated payload length: " + size + ", limit " + maxInflatedSize);
+    }
+    if (size > packedSize * MAX_RATIO) {
+      throw new TCProtocolException("Inflated payload length " + size + " is not possible from " + packedSize + " compressed bytes");
+    }
+  }
+
+  public Map<String, Object> getState() {
+    Map<String, Object> state = new LinkedHashMap<>();
+    state.put("codec", "deflate");
+    state.put("level", level);
+    state.put("threshold", threshold);
+    state.put("maxInflatedSize", maxInflatedSize);
+    state.put("compressed", compressed.sum());
+    state.put("skipped", skipped.sum());
+    state.put("outRatio", ratio(rawOut.sum(), wireOut.sum()));
+    state.put("compressMicros", compressNanos.sum() / 1000);
+    state.put("inflated", inflated.sum());
+    state.put("inRatio", ratio(rawIn.sum(), wireIn.sum()));
+    state.put("inflateMicros", inflateNanos.sum() / 1000);
+    return state;
+  }
+
+  private static double ratio(long raw, long wire) {
+    return (wire == 0) ? 1.0 : (double) raw / wire;
+  }
+}
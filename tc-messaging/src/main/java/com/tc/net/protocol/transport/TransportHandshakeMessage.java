@@ -35,4 +35,15 @@ public interface TransportHandshakeMessage extends WireProtocolMessage {
   public boolean isAck();
 
   public short getStackLayerFlags();
+
+  /**
+   * Compression codecs offered in a SYN or the one codec accepted in a SYN_ACK, see {@link PayloadCompression}.
+   * Peers that predate compression send nothing and read as {@link PayloadCompression#CODEC_NONE}.
+   */
+  public byte getCompressionCodecs();
+
+  /**
+   * Wire features offered in a SYN or accepted in a SYN_ACK, see {@link WireProtocolHeader#FEATURE_CRC32C}.
+   */
+  public byte getWireFeatures();
 }
@@ -23,11 +23,18 @@ public interface TransportHandshakeMessageFactory {
 
   public TransportHandshakeMessage createSyn(ConnectionID connectionId, TCConnection source, short stackLayerFlags);
 
+  public TransportHandshakeMessage createSyn(ConnectionID connectionId, TCConnection source, short stackLayerFlags,
+                                             byte compressionCodecs, byte wireFeatures);
+
   public TransportHandshakeMessage createAck(ConnectionID connectionId, TCConnection source);
 
   public TransportHandshakeMessage createSynAck(ConnectionID connectionId, TCConnection source,
                                                 boolean isMaxConnectionsExceeded, int maxConnections);
 
+  public TransportHandshakeMessage createSynAck(ConnectionID connectionId, TCConnection source,
+                                                boolean isMaxConnectionsExceeded, int maxConnections,
+                                                byte compressionCodec, byte wireFeatures);
+
   public TransportHandshakeMessage createSynAck(ConnectionID connectionId, TransportHandshakeError error, String message, 
                                                 TCConnection source, boolean isMaxConnectionsExceeded,
                                                 int maxConnections);
@@ -44,8 +44,15 @@ public class TransportMessageFactoryImpl implements TransportHandshakeMessageFac
 
   @Override
   public TransportHandshakeMessage createSyn(ConnectionID connectionId, TCConnection source, short stackLayerFlags) {
+    return createSyn(connectionId, source, stackLayerFlags, PayloadCompression.CODEC_NONE, (byte) 0);
+  }
+
+  @Override
+  public TransportHandshakeMessage createSyn(ConnectionID connectionId, TCConnection source, short stackLayerFlags,
+                                             byte compressionCodecs, byte wireFeatures) {
     return createNewMessage(TransportMessageImpl.SYN, connectionId, null, null, source, false, 0,
-                            WireProtocolHeader.PROTOCOL_TRANSPORT_HANDSHAKE, stackLayerFlags);
+                            WireProtocolHeader.PROTOCOL_TRANSPORT_HANDSHAKE, stackLayerFlags, compressionCodecs,
+                            wireFeatures);
   }
 
   @Override
@@ -56,8 +63,17 @@ public class TransportMessageFactoryImpl implements TransportHandshakeMessageFac
   @Override
   public TransportHandshakeMessage createSynAck(ConnectionID connectionId, TCConnection source,
                                                 boolean isMaxConnectionsExceeded, int maxConnections) {
+    return createSynAck(connectionId, source, isMaxConnectionsExceeded, maxConnections, PayloadCompression.CODEC_NONE,
+                        (byte) 0);
+  }
+
+  @Override
+  public TransportHandshakeMessage createSynAck(ConnectionID connectionId, TCConnection source,
+                                                boolean isMaxConnectionsExceeded, int maxConnections,
+                                                byte compressionCodec, byte wireFeatures) {
     return createNewMessage(TransportMessageImpl.SYN_ACK, connectionId, null, null, source, isMaxConnectionsExceeded,
-                            maxConnections);
+                            maxConnections, WireProtocolHeader.PROTOCOL_TRANSPORT_HANDSHAKE, (short) -1,
+                            compressionCodec, wireFeatures);
   }
 
   @Override
@@ -72,26 +88,29 @@ public class TransportMessageFactoryImpl implements TransportHandshakeMessageFac
                                                        TransportHandshakeError errorContext, String message, TCConnection source,
                                                        boolean isMaxConnectionsExceeded, int maxConnections, short protocol) {
     return createNewMessage(type, connectionId, errorContext, message, source, isMaxConnectionsExceeded, maxConnections,
-                            protocol, (short) -1);
+                            protocol, (short) -1, PayloadCompression.CODEC_NONE, (byte) 0);
   }
 
   private static TransportMessageImpl createNewMessage(byte type, ConnectionID connectionId,
                                                        TransportHandshakeError errorContext, String message, TCConnection source,
                                                        boolean isMaxConnectionsExceeded, int maxConnections) {
     return createNewMessage(type, connectionId, errorContext, message, source, isMaxConnectionsExceeded, maxConnections,
-                            WireProtocolHeader.PROTOCOL_TRANSPORT_HANDSHAKE, (short) -1);
+                            WireProtocolHeader.PROTOCOL_TRANSPORT_HANDSHAKE, (short) -1, PayloadCompression.CODEC_NONE,
+                            (byte) 0);
   }
 
   /**
    * One more parameter is added in createNewMessage so that the syn message that clients send to the server can have
    * the flags set for the present layers in the communication stack All other kinds of packet will have it as -1 and
-   * this wouldn't be send to the server
+   * this wouldn't be send to the server. Syn and syn ack messages also carry the offered or accepted compression
+   * codecs and wire features as trailing bytes.
    */
   @SuppressWarnings("resource")
   private static TransportMessageImpl createNewMessage(byte type, ConnectionID connectionId,
                                                        TransportHandshakeError errorContext, String message, TCConnection source,
                                                        boolean isMaxConnectionsExceeded, int maxConnections, short protocol,
-                                                       short stackLayerFlags) {
+                                                       short stackLayerFlags, byte compressionCodecs,
+                                                       byte wireFeatures) {
     TCByteBufferOutputStream bbos = new TCByteBufferOutputStream();
 
     bbos.write(TransportMessageImpl.VERSION);
@@ -110,6 +129,10 @@ public class TransportMessageFactoryImpl implements TransportHandshakeMessageFac
     if (type == TransportMessageImpl.TIME_CHECK) {
       bbos.writeLong(System.currentTimeMillis()); // timestamp
     }
+    if (type == TransportMessageImpl.SYN || type == TransportMessageImpl.SYN_ACK) {
+      bbos.write(compressionCodecs);
+      bbos.write(wireFeatures);
+    }
 
     final WireProtocolHeader header = new WireProtocolHeader();
     header.setProtocol(protocol);
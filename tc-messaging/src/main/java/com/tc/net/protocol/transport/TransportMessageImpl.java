@@ -62,6 +62,8 @@ class TransportMessageImpl extends WireProtocolMessageImpl implements SynMessage
   private final TransportHandshakeError        errorType;
   private final int          callbackPort;
   private final long         timestamp;
+  private final byte         compressionCodecs;
+  private final byte         wireFeatures;
 
   @SuppressWarnings("resource")
   TransportMessageImpl(TCConnection source, TCNetworkHeader header, TCReference payload) throws TCProtocolException {
@@ -90,6 +92,9 @@ class TransportMessageImpl extends WireProtocolMessageImpl implements SynMessage
         this.errorContext = null;
       }
       this.timestamp = (type == TIME_CHECK) ? in.readLong() : -1;
+      // trailing and optional so that older peers can ignore it
+      this.compressionCodecs = (in.available() > 0) ? in.readByte() : PayloadCompression.CODEC_NONE;
+      this.wireFeatures = (in.available() > 0) ? in.readByte() : 0;
     } catch (TCProtocolException e) {
       throw e;
     } catch (Exception e) {
@@ -194,6 +199,16 @@ class TransportMessageImpl extends WireProtocolMessageImpl implements SynMessage
     return this.stackLayerFlags;
   }
 
+  @Override
+  public byte getCompressionCodecs() {
+    return this.compressionCodecs;
+  }
+
+  @Override
+  public byte getWireFeatures() {
+    return this.wireFeatures;
+  }
+
   @Override
   public int getCallbackPort() {
     return this.callbackPort;
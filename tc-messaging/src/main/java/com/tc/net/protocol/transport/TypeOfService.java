@@ -24,6 +24,8 @@ package com.tc.net.protocol.transport;
  */
 public class TypeOfService {
   public static final byte          TOS_UNSPECIFIED = 0;
+  // first option word holds the payload CRC32C, see WireProtocolHeader
+  public static final byte          TOS_PAYLOAD_CHECKSUM = 0x02;
   public static final TypeOfService DEFAULT_TOS     = TypeOfService.getInstance(TOS_UNSPECIFIED);
 
   private final byte                value;
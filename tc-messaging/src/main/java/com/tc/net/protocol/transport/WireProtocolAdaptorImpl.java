@@ -27,6 +27,7 @@ import com.tc.net.protocol.AbstractTCProtocolAdaptor;
 import com.tc.net.protocol.TCNetworkHeader;
 import com.tc.net.protocol.TCNetworkMessage;
 import com.tc.net.protocol.TCProtocolException;
+import com.tc.net.protocol.WireChecksum;
 
 import java.util.Iterator;
 
@@ -107,6 +108,9 @@ public class WireProtocolAdaptorImpl extends AbstractTCProtocolAdaptor implement
     if (wph.isHandshakeOrHealthCheckMessage()) {
       rv = new TransportMessageImpl(source, wph, data);
     } else {
+      if (wph.hasPayloadChecksum()) {
+        verifyPayloadChecksum(wph, data);
+      }
       if (wph.isMessagesGrouped()) {
         rv = new WireProtocolGroupMessageImpl(source, wph, data);
       } else {
@@ -116,4 +120,14 @@ public class WireProtocolAdaptorImpl extends AbstractTCProtocolAdaptor implement
 
     return rv;
   }
+
+  private static void verifyPayloadChecksum(WireProtocolHeader wph, TCReference data) throws TCProtocolException {
+    long expected = wph.getPayloadChecksum();
+    long actual = WireChecksum.checksum(data);
+    if (expected != actual) {
+      data.close();
+      throw new TCProtocolException("Payload checksum mismatch: " + actual + " != " + expected + "\n" + wph);
+    }
+    wph.clearPayloadChecksum();
+  }
 }
@@ -93,7 +93,9 @@ public class WireProtocolGroupMessageImpl extends TCNetworkMessageImpl implement
 
   @Override
   public boolean prepareToSend() {
-    setPayload(generatePayload());
+    TCReference payload = generatePayload();
+    WireProtocolMessageImpl.applyWireFeatures(sourceConnection, getWireProtocolHeader(), payload);
+    setPayload(payload);
     getWireProtocolHeader().setMessageCount(messagePayloads.size());
     getWireProtocolHeader().finalizeHeader(getTotalLength());
     return getWireProtocolHeader().getMessageCount() > 0;
@@ -105,8 +107,15 @@ public class WireProtocolGroupMessageImpl extends TCNetworkMessageImpl implement
     while (msgI.hasNext()) {
       TCActionNetworkMessage msg = msgI.next();
       if (msg.commit()) {
+        TCReference data = PayloadCompression.encode(sourceConnection, msg);
+        if (data != null) {
+          msg.addCompleteCallback(data::close);
+        } else {
+          // referring to the original payload buffers
+          data = msg.getEntireMessageData();
+        }
         TCByteBuffer tcb = TCByteBufferFactory.getInstance((Integer.SIZE + Short.SIZE) / 8);
-        tcb.putInt(msg.getTotalLength());
+        tcb.putInt((int) data.available());
         tcb.putShort(WireProtocolHeader.getProtocolForMessageClass(msg));
         tcb.flip();
 
@@ -114,8 +123,7 @@ public class WireProtocolGroupMessageImpl extends TCNetworkMessageImpl implement
         msgs.add(header);
         // not nescessary because its just GC but do for completness 
         msg.addCompleteCallback(header::close); 
-        // referring to the original payload buffers
-        msgs.add(msg.getEntireMessageData());
+        msgs.add(data);
       } else {
         msg.complete();
         msgI.remove();
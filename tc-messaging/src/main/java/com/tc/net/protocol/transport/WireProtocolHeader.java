@@ -18,8 +18,10 @@
 package com.tc.net.protocol.transport;
 
 import com.tc.bytes.TCByteBuffer;
+import com.tc.bytes.TCReference;
 import com.tc.net.protocol.AbstractTCNetworkHeader;
 import com.tc.net.protocol.TCNetworkMessage;
+import com.tc.net.protocol.WireChecksum;
 import com.tc.util.Assert;
 import com.tc.util.Conversion;
 import com.tc.net.protocol.tcm.TCMessageHeader;
@@ -38,7 +40,7 @@ import com.tc.net.protocol.tcm.TCMessageHeader;
  *        +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
  *        |                    32 Bit Total Length                        |
  *        +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
- *        |                Alder32 Header Checksum                        |
+ *        |         Adler32 (v2) or CRC32C (v3) Header Checksum           |
  *        +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
  *        |                       Source Address                          |
  *        +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
@@ -51,6 +53,9 @@ import com.tc.net.protocol.tcm.TCMessageHeader;
  *        |     Options                                |    Padding       |
  *        +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
  * </pre>
+ *
+ * Version 3 headers are checksummed with CRC32C.  When the payload checksum bit is set in the type of service the
+ * first option word holds the CRC32C of the payload as sent on the wire.
  * 
  * @author teck
  */
@@ -58,7 +63,14 @@ import com.tc.net.protocol.tcm.TCMessageHeader;
 public class WireProtocolHeader extends AbstractTCNetworkHeader implements Cloneable {
   public static final byte     VERSION_1                    = 1;
   public static final byte     VERSION_2                    = 2;
-  private static final byte[]  VALID_VERSIONS               = new byte[] { VERSION_1, VERSION_2 };
+  public static final byte     VERSION_3                    = 3;
+  private static final byte[]  VALID_VERSIONS               = new byte[] { VERSION_1, VERSION_2, VERSION_3 };
+
+  /**
+   * Wire features negotiated at transport handshake.
+   */
+  public static final byte     FEATURE_CRC32C               = 0x01;
+  public static final byte     FEATURE_PAYLOAD_CHECKSUM     = 0x02;
 
   public static final short    DEFAULT_TTL                  = 64;
   public static final int      MAX_MESSAGE_COUNT            = 0xFFFF;
@@ -125,6 +137,45 @@ public class WireProtocolHeader extends AbstractTCNetworkHeader implements Clone
     data.putUbyte(1, tos);
   }
 
+  /**
+   * Moves an outgoing header to the wire features negotiated for its connection.  The payload checksum is only sent
+   * with CRC32C headers.
+   */
+  public void applyFeatures(byte features, TCReference payload) {
+    if ((features & FEATURE_CRC32C) != 0) {
+      setVersion(VERSION_3);
+      if ((features & FEATURE_PAYLOAD_CHECKSUM) != 0) {
+        setPayloadChecksum(WireChecksum.checksum(payload));
+      }
+    }
+  }
+
+  public void setPayloadChecksum(long checksum) {
+    setOptions(Conversion.uint2bytes(checksum));
+    setTypeOfService((short) (getTypeOfService() | TypeOfService.TOS_PAYLOAD_CHECKSUM));
+  }
+
+  public boolean hasPayloadChecksum() {
+    return (getTypeOfService() & TypeOfService.TOS_PAYLOAD_CHECKSUM) != 0;
+  }
+
+  public long getPayloadChecksum() {
+    Assert.eval(hasPayloadChecksum());
+    return data.getUint(MIN_LENGTH);
+  }
+
+  /**
+   * Drops the payload checksum from a received header once it has been verified, so the header describes the
+   * payload handed up the stack.
+   */
+  public void clearPayloadChecksum() {
+    int optionBytes = getHeaderByteLength() - MIN_LENGTH;
+    setOptions(null);
+    setTypeOfService((short) (getTypeOfService() & ~TypeOfService.TOS_PAYLOAD_CHECKSUM));
+    setTotalPacketLength(getTotalPacketLength() - optionBytes);
+    computeChecksum();
+  }
+
   public void setTimeToLive(short ttl) {
     data.putUbyte(2, ttl);
   }
@@ -211,7 +262,11 @@ public class WireProtocolHeader extends AbstractTCNetworkHeader implements Clone
   }
 
   public void computeChecksum() {
-    computeAdler32Checksum(12, true);
+    if (getVersion() >= VERSION_3) {
+      computeCrc32cChecksum(12, true);
+    } else {
+      computeAdler32Checksum(12, true);
+    }
   }
 
   public void finalizeHeader(int totalLength) {
@@ -220,7 +275,11 @@ public class WireProtocolHeader extends AbstractTCNetworkHeader implements Clone
   }
 
   public boolean isChecksumValid() {
-    return getChecksum() == computeAdler32Checksum(12, false);
+    if (getVersion() >= VERSION_3) {
+      return getChecksum() == computeCrc32cChecksum(12, false);
+    } else {
+      return getChecksum() == computeAdler32Checksum(12, false);
+    }
   }
 
   @Override
@@ -316,7 +375,7 @@ public class WireProtocolHeader extends AbstractTCNetworkHeader implements Clone
     buf.append("Protocol: ").append(getProtocolString());
     buf.append("\n");
     buf.append("Total Packet Length: ").append(getTotalPacketLength()).append("\n");
-    buf.append("Adler32 Checksum: ").append(getChecksum()).append(" (valid: ").append(isChecksumValid()).append(")\n");
+    buf.append(getVersion() >= VERSION_3 ? "CRC32C Checksum: " : "Adler32 Checksum: ").append(getChecksum()).append(" (valid: ").append(isChecksumValid()).append(")\n");
     buf.append("Source Addresss: ");
 
     byte src[] = getSourceAddress();
@@ -70,8 +70,14 @@ public class WireProtocolMessageImpl extends TCNetworkMessageImpl implements Wir
       getWireProtocolHeader().finalizeHeader(this.getTotalLength());
       return true;
     } else if (this.message.get().commit()) {
-      // duplicate because the original message is closed as well
-      setPayload(this.message.get().getEntireMessageData().duplicate());
+      TCReference payload = PayloadCompression.encode(sourceConnection, this.message.get());
+      if (payload == null) {
+        // duplicate because the original message is closed as well
+        payload = this.message.get().getEntireMessageData().duplicate();
+      }
+      // options change the header length so they have to be in place before the payload is set
+      applyWireFeatures(sourceConnection, getWireProtocolHeader(), payload);
+      setPayload(payload);
       getWireProtocolHeader().finalizeHeader(this.getTotalLength());
       return true;
     } else {
@@ -79,6 +85,12 @@ public class WireProtocolMessageImpl extends TCNetworkMessageImpl implements Wir
     }
   }
   
+  static void applyWireFeatures(TCConnection connection, WireProtocolHeader header, TCReference payload) {
+    if (connection != null) {
+      header.applyFeatures(connection.getWireFeatures(), payload);
+    }
+  }
+
   @Override
   public short getMessageProtocol() {
     return ((WireProtocolHeader) getHeader()).getProtocol();
@@ -0,0 +1,125 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.entity;
+
+import com.tc.bytes.TCReference;
+import com.tc.io.TCByteBufferInputStream;
+import com.tc.io.TCByteBufferOutputStream;
+import com.tc.net.protocol.tcm.MessageMonitor;
+import com.tc.net.protocol.tcm.TCActionNetworkMessage;
+import com.tc.net.protocol.tcm.TCMessageHeader;
+import com.tc.net.protocol.tcm.TCMessageType;
+import com.tc.object.ClientInstanceID;
+import com.tc.object.session.SessionID;
+import com.tc.object.tx.TransactionID;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+
+public class LinearVoltronEntityMultiResponseTest {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    MessageMonitor monitor = mock(MessageMonitor.class);
+    TCByteBufferOutputStream outputStream = new TCByteBufferOutputStream(4, 4096);
+    LinearVoltronEntityMultiResponse message = new LinearVoltronEntityMultiResponse(new SessionID(0), monitor, outputStream, null, TCMessageType.VOLTRON_ENTITY_MULTI_RESPONSE);
+
+    assertTrue(message.startAdding());
+    assertTrue(message.addReceived(new TransactionID(1)));
+    assertTrue(message.addServerMessage(new TransactionID(1), new byte[] {1, 2}));
+    assertTrue(message.addResult(new TransactionID(1), new byte[] {3, 4, 5}));
+    assertTrue(message.addRetired(new TransactionID(1)));
+    assertTrue(message.addServerMessage(new ClientInstanceID(7), new byte[0]));
+    assertTrue(message.addStats(new TransactionID(2), new long[] {10, 20, 30}));
+    // larger than the initial capacity so the arrays have to grow
+    for (int x = 3; x < 40; x++) {
+      assertTrue(message.addResultAndRetire(new TransactionID(x), new byte[x]));
+    }
+    message.stopAdding();
+    assertFalse(message.addReceived(new TransactionID(99)));
+    assertTrue(message.shouldSend());
+
+    List<String> sent = new ArrayList<>();
+    int sentCount = message.replay(new Recorder(sent));
+
+    TCActionNetworkMessage msg = message.getNetworkMessage();
+    TCMessageHeader header = (TCMessageHeader) msg.getHeader();
+    msg.load();
+    TCReference payload = msg.getPayload();
+    outputStream.close();
+    LinearVoltronEntityMultiResponse decoded = new LinearVoltronEntityMultiResponse(SessionID.NULL_ID, monitor, null, header, new TCByteBufferInputStream(payload));
+    decoded.hydrate();
+
+    List<String> received = new ArrayList<>();
+    int receivedCount = decoded.replay(new Recorder(received));
+    assertEquals(sentCount, receivedCount);
+    // the final stats entry is the adding time, which is taken from the clock
+    assertEquals(sent.subList(0, sent.size() - 1), received.subList(0, received.size() - 1));
+    assertEquals("received:1", received.get(0));
+    assertEquals("message:1:[1, 2]", received.get(1));
+    assertEquals("result:1:[3, 4, 5]", received.get(2));
+    assertEquals("retired:1", received.get(3));
+    assertEquals("server:7:[]", received.get(4));
+    assertEquals("stats:2:[10, 20, 30]", received.get(5));
+  }
+
+  private static class Recorder implements VoltronEntityMultiResponse.ReplayReceiver {
+    private final List<String> events;
+
+    Recorder(List<String> events) {
+      this.events = events;
+    }
+
+    @Override
+    public void received(TransactionID tid) {
+      events.add("received:" + tid.toLong());
+    }
+
+    @Override
+    public void retired(TransactionID tid) {
+      events.add("retired:" + tid.toLong());
+    }
+
+    @Override
+    public void result(TransactionID tid, byte[] result) {
+      events.add("result:" + tid.toLong() + ":" + Arrays.toString(result));
+    }
+
+    @Override
+    public void message(ClientInstanceID cid, byte[] message) {
+      events.add("server:" + cid.getID() + ":" + Arrays.toString(message));
+    }
+
+    @Override
+    public void message(TransactionID tid, byte[] message) {
+      events.add("message:" + tid.toLong() + ":" + Arrays.toString(message));
+    }
+
+    @Override
+    public void stats(TransactionID tid, long[] message) {
+      events.add("stats:" + tid.toLong() + ":" + Arrays.toString(message));
+    }
+  }
+}
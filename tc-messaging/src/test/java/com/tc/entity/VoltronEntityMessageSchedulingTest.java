@@ -0,0 +1,127 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.entity;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.net.ClientID;
+import com.tc.object.ClientInstanceID;
+import com.tc.object.EntityDescriptor;
+import com.tc.object.FetchID;
+import com.tc.object.tx.TransactionID;
+import org.junit.Test;
+import org.terracotta.entity.EntityMessage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class VoltronEntityMessageSchedulingTest {
+  @Test
+  public void testClientMessagesArePartitionedByClient() {
+    ClientID client = new ClientID(7);
+    EntityDescriptor descriptor = EntityDescriptor.createDescriptorForInvoke(new FetchID(3), new ClientInstanceID(1));
+    assertEquals(client, new Message(client, descriptor, VoltronEntityMessage.Type.INVOKE_ACTION).getSchedulingKey());
+    assertEquals(client, new Message(client, descriptor, VoltronEntityMessage.Type.RELEASE_ENTITY).getSchedulingKey());
+  }
+
+  @Test
+  public void testServerMessagesFlush() {
+    EntityDescriptor descriptor = EntityDescriptor.createDescriptorForInvoke(new FetchID(3), ClientInstanceID.NULL_ID);
+    assertTrue(new Message(ClientID.NULL_ID, descriptor, VoltronEntityMessage.Type.INVOKE_ACTION).flush());
+    assertTrue(new Message(null, null, VoltronEntityMessage.Type.INVOKE_ACTION).flush());
+    assertEquals(ClientID.NULL_ID, new Message(null, null, VoltronEntityMessage.Type.INVOKE_ACTION).getSchedulingKey());
+  }
+
+  @Test
+  public void testLifecycleFlushes() {
+    for (VoltronEntityMessage.Type type : VoltronEntityMessage.Type.values()) {
+      boolean flush = new Message(new ClientID(1), null, type).flush();
+      switch (type) {
+        case INVOKE_ACTION:
+        case RELEASE_ENTITY:
+          assertFalse(type.name(), flush);
+          break;
+        default:
+          assertTrue(type.name(), flush);
+      }
+    }
+  }
+
+  private static class Message implements VoltronEntityMessage {
+    private final ClientID source;
+    private final EntityDescriptor descriptor;
+    private final Type type;
+
+    private Message(ClientID source, EntityDescriptor descriptor, Type type) {
+      this.source = source;
+      this.descriptor = descriptor;
+      this.type = type;
+    }
+
+    @Override
+    public ClientID getSource() {
+      return source;
+    }
+
+    @Override
+    public TransactionID getTransactionID() {
+      return TransactionID.NULL_ID;
+    }
+
+    @Override
+    public EntityDescriptor getEntityDescriptor() {
+      return descriptor;
+    }
+
+    @Override
+    public boolean doesRequireReplication() {
+      return false;
+    }
+
+    @Override
+    public boolean doesRequestReceived() {
+      return false;
+    }
+
+    @Override
+    public boolean doesRequestRetired() {
+      return false;
+    }
+
+    @Override
+    public Type getVoltronType() {
+      return type;
+    }
+
+    @Override
+    public TCByteBuffer getExtendedData() {
+      return null;
+    }
+
+    @Override
+    public TransactionID getOldestTransactionOnClient() {
+      return TransactionID.NULL_ID;
+    }
+
+    @Override
+    public EntityMessage getEntityMessage() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.l2.msg;
+
+import com.tc.io.TCByteBufferInputStream;
+import com.tc.io.TCByteBufferOutputStream;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReplicationMessageAckTest {
+
+  private static ReplicationAckTuple ack(long id, ReplicationResultCode code) {
+    return new ReplicationAckTuple(new SyncReplicationActivity.ActivityID(id), code);
+  }
+
+  @SuppressWarnings("resource")
+  private ReplicationMessageAck writeAndRead(ReplicationMessageAck ack) throws Exception {
+    TCByteBufferOutputStream bo = new TCByteBufferOutputStream();
+    ack.serializeTo(bo);
+    TCByteBufferInputStream bi = new TCByteBufferInputStream(bo.accessBuffers());
+    ReplicationMessageAck read = new ReplicationMessageAck();
+    read.deserializeFrom(bi);
+    return read;
+  }
+
+  @Test
+  public void testConsecutiveAcksCollapseIntoRanges() throws Exception {
+    ReplicationMessageAck ack = ReplicationMessageAck.createBatchAck();
+    for (long id = 1; id <= 1000; id++) {
+      ack.addToBatch(ack(id, ReplicationResultCode.RECEIVED));
+      ack.addToBatch(ack(id, ReplicationResultCode.SUCCESS));
+    }
+    // a gap starts a new range
+    ack.addToBatch(ack(1002, ReplicationResultCode.RECEIVED));
+    ack.addToBatch(ack(1001, ReplicationResultCode.FAIL));
+    assertEquals(4, ack.getBatchSize());
+    assertEquals(2002L, ack.getAcknowledgedCount());
+
+    List<ReplicationAckTuple> batch = writeAndRead(ack).getBatch();
+    assertEquals(4, batch.size());
+    assertEquals(1L, batch.get(0).respondTo.id);
+    assertEquals(ReplicationResultCode.RECEIVED, batch.get(0).result);
+    assertEquals(1000, batch.get(0).count);
+    assertEquals(1000L, batch.get(1).last());
+    assertEquals(ReplicationResultCode.SUCCESS, batch.get(1).result);
+    assertEquals(1002L, batch.get(2).respondTo.id);
+    assertEquals(1, batch.get(2).count);
+    assertEquals(ReplicationResultCode.FAIL, batch.get(3).result);
+    assertEquals(1001L, batch.get(3).last());
+  }
+
+  @Test
+  public void testAcksStayApartWithoutRanges() throws Exception {
+    ReplicationMessageAck ack = ReplicationMessageAck.createBatchAck(false);
+    for (long id = 1; id <= 10; id++) {
+      ack.addToBatch(ack(id, ReplicationResultCode.RECEIVED));
+    }
+    assertEquals(10, ack.getBatchSize());
+
+    List<ReplicationAckTuple> batch = writeAndRead(ack).getBatch();
+    assertEquals(10, batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      assertEquals(i + 1L, batch.get(i).respondTo.id);
+      assertEquals(1, batch.get(i).count);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.net.protocol;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.bytes.TCByteBufferFactory;
+import com.tc.bytes.TCReference;
+import com.tc.bytes.TCReferenceSupport;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Checksum;
+
+import static org.junit.Assert.assertEquals;
+
+public class WireChecksumTest {
+
+  @Test
+  public void testKnownValue() {
+    byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+    Checksum portable = new WireChecksum.PortableCrc32c();
+    portable.update(check, 0, check.length);
+    assertEquals(0xE3069283L, portable.getValue());
+
+    Checksum crc = WireChecksum.newChecksum();
+    crc.update(check, 0, check.length);
+    assertEquals(0xE3069283L, crc.getValue());
+  }
+
+  @Test
+  public void testChecksumAcrossBuffersMatchesSingleArray() {
+    byte[] data = new byte[10000];
+    new Random(7).nextBytes(data);
+    Checksum whole = new WireChecksum.PortableCrc32c();
+    whole.update(data, 0, data.length);
+
+    TCByteBuffer direct = TCByteBufferFactory.getDirectByteBuffer();
+    direct.put(data, 8000, 2000).flip();
+    TCByteBuffer heap = TCByteBufferFactory.wrap(data).limit(8000);
+    TCReference ref = TCReferenceSupport.createGCReference(heap, direct);
+
+    assertEquals(whole.getValue(), WireChecksum.checksum(ref));
+    assertEquals(10000, ref.available());
+  }
+}
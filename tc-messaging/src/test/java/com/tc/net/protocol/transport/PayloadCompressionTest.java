@@ -0,0 +1,167 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.net.protocol.transport;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.bytes.TCByteBufferFactory;
+import com.tc.bytes.TCReference;
+import com.tc.bytes.TCReferenceSupport;
+import com.tc.net.core.TCConnection;
+import com.tc.net.protocol.TCProtocolException;
+import com.tc.net.protocol.tcm.TCActionNetworkMessageImpl;
+import com.tc.net.protocol.tcm.TCMessageHeader;
+import com.tc.net.protocol.tcm.TCMessageHeaderImpl;
+import com.tc.net.protocol.tcm.TCMessageType;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PayloadCompressionTest {
+
+  @Test
+  public void testRoundTripAcrossBuffers() throws Exception {
+    byte[] data = compressible(300 * 1024);
+    PayloadCompression codec = new PayloadCompression(1, 1024);
+    TCReference packed = codec.compress(split(data, 7000));
+    assertNotNull(packed);
+    assertTrue(packed.available() < data.length / 4);
+
+    TCReference raw = codec.decode(packed);
+    assertArrayEquals(data, toArray(raw));
+  }
+
+  @Test
+  public void testMessageHeaderStaysReadable() throws Exception {
+    byte[] data = compressible(64 * 1024);
+    PayloadCompression codec = new PayloadCompression(1, 1024);
+    TCConnection connection = mock(TCConnection.class);
+    when(connection.getPayloadCompression()).thenReturn(codec);
+
+    TCActionNetworkMessageImpl message = new TCActionNetworkMessageImpl(new TCMessageHeaderImpl(TCMessageType.GROUP_WRAPPER_MESSAGE), () -> split(data, 4096));
+    assertTrue(message.load());
+    assertTrue(message.commit());
+    byte[] wire = toArray(PayloadCompression.encode(connection, message));
+    assertTrue(wire.length < data.length / 4);
+
+    // the comm thread routes on the header, the body is inflated when the message is hydrated
+    TCMessageHeaderImpl header = new TCMessageHeaderImpl(TCByteBufferFactory.wrap(Arrays.copyOf(wire, TCMessageHeader.HEADER_LENGTH)));
+    assertTrue(header.isBodyCompressed());
+    assertEquals(TCMessageType.GROUP_WRAPPER_MESSAGE.getType(), header.getMessageType());
+    TCReference body = split(Arrays.copyOfRange(wire, TCMessageHeader.HEADER_LENGTH, wire.length), 1000);
+    assertArrayEquals(data, toArray(codec.decode(body)));
+  }
+
+  @Test
+  public void testMessagesGoAsTheyAreWithoutCodec() {
+    TCActionNetworkMessageImpl message = new TCActionNetworkMessageImpl(new TCMessageHeaderImpl(TCMessageType.GROUP_WRAPPER_MESSAGE), () -> split(compressible(8192), 8192));
+    assertTrue(message.load());
+    assertTrue(message.commit());
+    assertNull(PayloadCompression.encode(null, message));
+    assertFalse(((TCMessageHeader) message.getHeader()).isBodyCompressed());
+  }
+
+  @Test
+  public void testSmallAndIncompressiblePayloadsAreSentAsIs() {
+    PayloadCompression codec = new PayloadCompression(1, 4096);
+    assertNull(codec.compress(split(new byte[1024], 1024)));
+
+    byte[] noise = new byte[64 * 1024];
+    new Random(42).nextBytes(noise);
+    assertNull(codec.compress(split(noise, 4096)));
+    assertEquals(1L, codec.getState().get("skipped"));
+  }
+
+  @Test
+  public void testDeclaredLengthIsNotTrusted() throws Exception {
+    byte[] data = new byte[64 * 1024];
+    PayloadCompression codec = new PayloadCompression(1, 1024, 32 * 1024);
+    // over the configured limit
+    assertRejected(codec, codec.compress(split(data, 4096)));
+
+    codec = new PayloadCompression(1, 1024);
+    byte[] packed = toArray(codec.compress(split(data, 4096)));
+    // more than deflate could expand the few compressed bytes to
+    assertRejected(codec, withLength(packed, 100 * 1024 * 1024));
+    // the stream inflates past the declared length
+    assertRejected(codec, withLength(packed, data.length - 1));
+    // the stream ends short of the declared length
+    assertRejected(codec, withLength(packed, data.length + 1));
+  }
+
+  private static TCReference withLength(byte[] packed, int length) {
+    byte[] copy = packed.clone();
+    ByteBuffer.wrap(copy).putInt(0, length);
+    return split(copy, 100);
+  }
+
+  private static void assertRejected(PayloadCompression codec, TCReference packed) {
+    try {
+      codec.decode(packed);
+      fail();
+    } catch (TCProtocolException expected) {
+      // rejected
+    }
+  }
+
+  @Test
+  public void testNegotiation() {
+    assertEquals(PayloadCompression.CODEC_DEFLATE, PayloadCompression.negotiate(PayloadCompression.CODEC_DEFLATE, PayloadCompression.CODEC_DEFLATE));
+    assertEquals(PayloadCompression.CODEC_NONE, PayloadCompression.negotiate(PayloadCompression.CODEC_DEFLATE, PayloadCompression.CODEC_NONE));
+    assertEquals(PayloadCompression.CODEC_NONE, PayloadCompression.negotiate(PayloadCompression.CODEC_NONE, PayloadCompression.CODEC_DEFLATE));
+  }
+
+  private static byte[] compressible(int size) {
+    byte[] data = new byte[size];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) ("replicated value " + (i % 97)).charAt(i % 17);
+    }
+    return data;
+  }
+
+  private static TCReference split(byte[] data, int size) {
+    TCByteBuffer[] buffers = new TCByteBuffer[(data.length + size - 1) / size];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = TCByteBufferFactory.wrap(Arrays.copyOfRange(data, i * size, Math.min(data.length, (i + 1) * size)));
+    }
+    return TCReferenceSupport.createGCReference(buffers);
+  }
+
+  private static byte[] toArray(TCReference ref) {
+    byte[] out = new byte[(int) ref.available()];
+    int pos = 0;
+    for (TCByteBuffer b : ref) {
+      int len = b.remaining();
+      b.duplicate().get(out, pos, len);
+      pos += len;
+    }
+    return out;
+  }
+}
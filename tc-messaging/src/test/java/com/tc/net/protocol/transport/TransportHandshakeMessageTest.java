@@ -48,4 +48,24 @@ public class TransportHandshakeMessageTest {
     assertEquals(isMaxConnectionsExceeded, message.isMaxConnectionsExceeded());
     assertEquals(maxConnections, message.getMaxConnections());
   }
+
+  @Test
+  public void testNegotiatedOptionsTravelWithSynAndSynAck() throws Exception {
+    ConnectionID connectionId = new ConnectionID("abc", 1L);
+    message = factory.createSyn(connectionId, null, (short) 0, PayloadCompression.CODEC_DEFLATE, (byte) 0);
+    assertEquals(PayloadCompression.CODEC_DEFLATE, reread(message).getCompressionCodecs());
+
+    message = factory.createSynAck(connectionId, null, false, 13, PayloadCompression.CODEC_DEFLATE, WireProtocolHeader.FEATURE_CRC32C);
+    assertEquals(PayloadCompression.CODEC_DEFLATE, reread(message).getCompressionCodecs());
+    assertEquals(WireProtocolHeader.FEATURE_CRC32C, reread(message).getWireFeatures());
+
+    message = factory.createAck(connectionId, null);
+    assertEquals(PayloadCompression.CODEC_NONE, reread(message).getCompressionCodecs());
+  }
+
+  private static TransportHandshakeMessage reread(TransportHandshakeMessage sent) throws Exception {
+    WireProtocolHeader header = new WireProtocolHeader();
+    header.setProtocol(WireProtocolHeader.PROTOCOL_TRANSPORT_HANDSHAKE);
+    return new TransportMessageImpl(null, header, sent.getPayload().duplicate());
+  }
 }
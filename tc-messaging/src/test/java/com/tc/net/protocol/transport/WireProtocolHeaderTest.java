@@ -22,10 +22,14 @@ import java.util.zip.Adler32;
 
 import com.tc.bytes.TCByteBuffer;
 import com.tc.bytes.TCByteBufferFactory;
+import com.tc.bytes.TCReference;
+import com.tc.bytes.TCReferenceSupport;
+import com.tc.net.protocol.WireChecksum;
 import com.tc.util.Conversion;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -162,4 +166,33 @@ public class WireProtocolHeaderTest {
     assertTrue(header.isChecksumValid());
   }
 
+  @Test
+  public void testCrc32cHeaderWithPayloadChecksum() {
+    TCReference payload = TCReferenceSupport.createGCReference(TCByteBufferFactory.wrap("payload".getBytes()));
+    WireProtocolHeader header = new WireProtocolHeader();
+    header.setProtocol(WireProtocolHeader.PROTOCOL_TCM);
+    header.applyFeatures((byte) (WireProtocolHeader.FEATURE_CRC32C | WireProtocolHeader.FEATURE_PAYLOAD_CHECKSUM), payload);
+    header.finalizeHeader(WireProtocolHeader.MIN_LENGTH + 4 + 7);
+
+    assertEquals(WireProtocolHeader.VERSION_3, header.getVersion());
+    assertEquals(WireProtocolHeader.MIN_LENGTH + 4, header.getHeaderByteLength());
+    assertTrue(header.isChecksumValid());
+    assertTrue(header.hasPayloadChecksum());
+    assertEquals(WireChecksum.checksum(payload), header.getPayloadChecksum());
+
+    header.clearPayloadChecksum();
+    assertFalse(header.hasPayloadChecksum());
+    assertEquals(WireProtocolHeader.MIN_LENGTH, header.getHeaderByteLength());
+    assertEquals(WireProtocolHeader.MIN_LENGTH + 7, header.getTotalPacketLength());
+    assertTrue(header.isChecksumValid());
+  }
+
+  @Test
+  public void testPayloadChecksumNeedsCrc32c() {
+    TCReference payload = TCReferenceSupport.createGCReference(TCByteBufferFactory.wrap("payload".getBytes()));
+    WireProtocolHeader header = new WireProtocolHeader();
+    header.applyFeatures(WireProtocolHeader.FEATURE_PAYLOAD_CHECKSUM, payload);
+    assertEquals(WireProtocolHeader.VERSION_2, header.getVersion());
+    assertFalse(header.hasPayloadChecksum());
+  }
 }
@@ -69,6 +69,7 @@ import com.tc.objectserver.handler.TCGroupMemberDiscoveryHandler;
 import com.tc.properties.TCProperties;
 import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
+import com.tc.services.SingleThreadedTimer;
 import com.tc.util.Assert;
 import com.tc.net.core.ProductID;
 import com.tc.net.protocol.transport.HealthCheckerConfig;
@@ -93,8 +94,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -125,9 +124,9 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
   private final AtomicBoolean                               isStopped                   = new AtomicBoolean(false);
   private final ConcurrentHashMap<ServerID, TCGroupMember>  members                     = new ConcurrentHashMap<>();
   private final ConcurrentHashMap<MessageChannel, ServerID>  memberReceiver                     = new ConcurrentHashMap<>();
-  private final Timer                                       handshakeTimer              = new Timer(ServerEnv.getServer().getIdentifier() +
-                                                                                                    " - TC Group Manager Handshake timer",
-                                                                                                    true);
+  private final SingleThreadedTimer                         handshakeTimer;
+  // a shared timer is started and stopped by its owner
+  private final boolean                                     ownsHandshakeTimer;
   private final Set<NodeID>                                 zappedSet                   = Collections
                                                                                             .synchronizedSet(new HashSet<NodeID>());
   private final StageManager                                stageManager;
@@ -151,19 +150,23 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
   public TCGroupManagerImpl(ServerConfigurationManager configSetupManager, StageManager stageManager,
                             TCConnectionManager comms,
                             ServerID thisNodeID, Node thisNode,
-                            WeightGeneratorFactory weightGenerator, SocketEndpointFactory bufferManagerFactory) {
+                            WeightGeneratorFactory weightGenerator, SocketEndpointFactory bufferManagerFactory,
+                            SingleThreadedTimer timer) {
     this(configSetupManager, new NullConnectionPolicy(), stageManager, comms, thisNodeID, thisNode, weightGenerator,
-         bufferManagerFactory);
+         bufferManagerFactory, timer);
   }
 
   public TCGroupManagerImpl(ServerConfigurationManager configSetupManager, ConnectionPolicy connectionPolicy,
                             StageManager stageManager, 
                             TCConnectionManager comms,
                             ServerID thisNodeID, Node thisNode,
-                            WeightGeneratorFactory weightGenerator, SocketEndpointFactory bufferManagerFactory) {
+                            WeightGeneratorFactory weightGenerator, SocketEndpointFactory bufferManagerFactory,
+                            SingleThreadedTimer timer) {
     this.connectionPolicy = connectionPolicy;
     this.stageManager = stageManager;
     this.connectionManager = comms;
+    this.handshakeTimer = timer;
+    this.ownsHandshakeTimer = false;
     this.thisNodeID = thisNodeID;
     this.bufferManagerFactory = bufferManagerFactory;
     this.version = configSetupManager.getProductInfo().version();
@@ -213,6 +216,9 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
     this.stageManager = stageManager;
     this.bufferManagerFactory = new ClearTextSocketEndpointFactory();
     this.configuredNodes = ()->new HashSet<>(Arrays.asList(servers));
+    this.handshakeTimer = new SingleThreadedTimer(null, null, ServerEnv.getServer().getIdentifier() +
+                                                  " - TC Group Manager Handshake timer", true);
+    this.ownsHandshakeTimer = true;
 
     this.groupPort = groupPort;
     this.relayLocation = null;
@@ -227,6 +233,9 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
 
     TCProperties tcProperties = TCPropertiesImpl.getProperties();
 
+    if (ownsHandshakeTimer) {
+      handshakeTimer.start();
+    }
     createTCGroupManagerStages();
     final NetworkStackHarnessFactory networkStackHarnessFactory = getNetworkStackHarnessFactory();
 
@@ -275,7 +284,15 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
   }
 
   private void initMessageRouter(TCMessageRouter messageRouter) {
-    messageRouter.routeMessageType(TCMessageType.GROUP_WRAPPER_MESSAGE, new TCMessageHydrateSink<>(receiveGroupMessageStage.getSink()));
+    TCMessageHydrateSink<TCGroupMessageWrapper> hydrateSink = new TCMessageHydrateSink<>(receiveGroupMessageStage.getSink());
+    messageRouter.routeMessageType(TCMessageType.GROUP_WRAPPER_MESSAGE, message -> {
+      if (message.isBodyCompressed()) {
+        // ReceiveGroupMessageHandler inflates and hydrates it off the comm thread
+        receiveGroupMessageStage.getSink().addToSink((TCGroupMessageWrapper) message);
+      } else {
+        hydrateSink.putMessage(message);
+      }
+    });
     messageRouter.routeMessageType(TCMessageType.GROUP_HANDSHAKE_MESSAGE, new TCMessageHydrateSink<>(handshakeMessageStage.getSink()));
   }
 
@@ -379,7 +396,14 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
     groupListener.stop(timeout);
     communicationsManager.shutdown();
     connectionManager.shutdown();
-    handshakeTimer.cancel();
+    if (ownsHandshakeTimer) {
+      handshakeTimer.cancelAll();
+      try {
+        handshakeTimer.stop();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
     for (TCGroupMember m : members.values()) {
       notifyAnyPendingRequests(m);
     }
@@ -720,7 +744,7 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
     return discover;
   }
 
-  private Timer getHandshakeTimer() {
+  private SingleThreadedTimer getHandshakeTimer() {
     return (handshakeTimer);
   }
 
@@ -1081,7 +1105,7 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
 
     private HandshakeMonitor         current;
     private ServerID                 peerNodeID;
-    private TimerTask                timerTask;
+    private long                     timerTask;
     private TCGroupMember            member;
 
     public TCGroupHandshakeStateMachine(TCGroupManagerImpl manager, MessageChannel channel, ServerID localNodeID,
@@ -1168,22 +1192,14 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
     }
 
     private synchronized void setTimerTask(long timeout) {
-      TimerTask task = new TimerTask() {
-        @Override
-        public void run() {
-          handshakeTimeout();
-        }
-      };
-      timerTask = task;
-      Timer timer = manager.getHandshakeTimer();
-      timer.purge();
-      timer.schedule(task, timeout);
+      SingleThreadedTimer timer = manager.getHandshakeTimer();
+      timerTask = timer.addDelayed(this::handshakeTimeout, timer.currentTimeMillis() + timeout);
     }
 
     private synchronized void cancelTimerTask() {
-      if (timerTask != null) {
-        this.timerTask.cancel();
-        timerTask = null;
+      if (timerTask != 0) {
+        manager.getHandshakeTimer().cancel(timerTask);
+        timerTask = 0;
       }
     }
 
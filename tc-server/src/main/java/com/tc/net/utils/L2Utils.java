@@ -31,6 +31,7 @@ import org.terracotta.server.ServerEnv;
 public class L2Utils {
   private static final int MAX_DEFAULT_COMM_THREADS = 16;
   private static final int MAX_DEFAULT_STAGE_THREADS = 16;
+  private static final int MAX_DEFAULT_VOLTRON_STAGE_THREADS = 4;
   private static final int MAX_ENTITY_PROCESSOR_THREADS = 128;
   public static final long MIN_COMMS_DIRECT_MEMORY_REQUIREMENT = 4 * 1024 * 1024;  // 4MiB
   public static final long MAX_COMMS_DIRECT_MEMORY_REQUIREMENT = 256 * 1024 * 1024; // 256MiB
@@ -57,6 +58,41 @@ public class L2Utils {
     return TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.L2_SEDA_STAGE_WORKERTHREADS, def);
   }
 
+  /**
+   * Number of partitions of the stages every client message passes through on its way to the entities,
+   * {@code l2.seda.stage.voltron.threads} overrides this value.  Forced to one when the server runs its
+   * pipeline single threaded.
+   */
+  public static int getOptimalVoltronStageThreads() {
+    if (TCPropertiesImpl.getProperties().getBoolean(TCPropertiesConsts.L2_SEDA_STAGE_SINGLE_THREAD, false)) {
+      return 1;
+    }
+    int halfProcs = Runtime.getRuntime().availableProcessors() >> 1;
+    int def = Math.max(1, Math.min(halfProcs, MAX_DEFAULT_VOLTRON_STAGE_THREADS));
+    return Math.max(1, TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.L2_SEDA_VOLTRON_STAGE_THREADS, def));
+  }
+
+  /**
+   * Number of partitions of the stage which hands client messages to the voltron stage,
+   * {@code l2.seda.stage.fastpath.threads} overrides this value.  The hand off is cheap so this defaults to one,
+   * which also keeps direct execution available for a single client.
+   */
+  public static int getVoltronFastPathThreads() {
+    if (TCPropertiesImpl.getProperties().getBoolean(TCPropertiesConsts.L2_SEDA_STAGE_SINGLE_THREAD, false)) {
+      return 1;
+    }
+    return Math.max(1, TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.L2_SEDA_FASTPATH_STAGE_THREADS, 1));
+  }
+
+  /**
+   * Threads an elastic stage keeps when it is idle, {@code l2.seda.stage.elastic.min} overrides this value.
+   * Defaults to a quarter of the most threads the stage may grow to.
+   */
+  public static int getElasticStageMinThreads(int maxThreads) {
+    int def = Math.max(1, maxThreads >> 2);
+    return Math.max(1, Math.min(maxThreads, TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.L2_SEDA_STAGE_ELASTIC_MIN_THREADS, def)));
+  }
+
   /**
    * Calculates the optimal number of worker threads for the apply stage.
    * <p/>{@code l2.seda.apply.stage.threads} configuration property overrides this value.
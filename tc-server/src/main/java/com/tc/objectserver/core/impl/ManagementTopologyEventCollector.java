@@ -63,7 +63,10 @@ public class ManagementTopologyEventCollector implements ITopologyEventCollector
   private final Map<ClientID, Collection<FetchID>> incomingDisconnects;
   private final Map<ClientID, Collection<ClientInstanceID>> incomingReleases;
   private final Map<ClientID, Collection<ResolvedDescriptors>> incomingFetches;
-  private boolean isActiveState;
+  // Guards the bookkeeping above.  Calls into serviceInterface are made outside of it so that
+  // fetch and release on different threads never queue behind each other here.
+  private final Object lock = new Object();
+  private volatile boolean isActiveState;
 
   public ManagementTopologyEventCollector(IMonitoringProducer serviceInterface) {
     this.serviceInterface = serviceInterface;
@@ -92,19 +95,20 @@ public class ManagementTopologyEventCollector implements ITopologyEventCollector
  *  actually changing state.  this and underlying methods must tolerate that
  */
   @Override
-  public synchronized void serverDidEnterState(State state, long activateTime) {
+  public void serverDidEnterState(State state, long activateTime) {
     // We track whether or not we are in an active state to ensure that entities are created/loaded in the expected state.
-    this.isActiveState = StateManager.ACTIVE_COORDINATOR.getName().equals(state.getName());
+    boolean isActive = StateManager.ACTIVE_COORDINATOR.getName().equals(state.getName());
+    this.isActiveState = isActive;
     boolean syncing = false;
     boolean standby = false;
-    if (!this.isActiveState) {
+    if (!isActive) {
       syncing = StateManager.PASSIVE_SYNCING.equals(state);
       if (!syncing) {
         standby = StateManager.PASSIVE_STANDBY.equals(state);
       }
     }
 
-    String stateValue = this.isActiveState ? 
+    String stateValue = isActive ? 
         PlatformMonitoringConstants.SERVER_STATE_ACTIVE : 
           (standby) ? PlatformMonitoringConstants.SERVER_STATE_PASSIVE : 
             (syncing) ? PlatformMonitoringConstants.SERVER_STATE_SYNCHRONIZING : 
@@ -118,12 +122,15 @@ public class ManagementTopologyEventCollector implements ITopologyEventCollector
   }
 
   @Override
-  public synchronized void clientDidConnect(MessageChannel channel, ClientID client) {
-    // Ensure that this client isn't already connected.
-    Assert.assertFalse(this.connectedClients.contains(client));
-    // Now, add it to the connected set.
-    this.connectedClients.add(client);
-    Collection<ResolvedDescriptors> earlyFetches = incomingFetches.remove(client);
+  public void clientDidConnect(MessageChannel channel, ClientID client) {
+    Collection<ResolvedDescriptors> earlyFetches;
+    synchronized (this.lock) {
+      // Ensure that this client isn't already connected.
+      Assert.assertFalse(this.connectedClients.contains(client));
+      // Now, add it to the connected set.
+      this.connectedClients.add(client);
+      earlyFetches = incomingFetches.remove(client);
+    }
     // Add it to the monitoring interface.
     if (null != this.serviceInterface) {
       // Create the structure to describe this client.
@@ -169,67 +176,88 @@ public class ManagementTopologyEventCollector implements ITopologyEventCollector
     LOGGER.debug("client did connect " + channel);
   }
 
-  public synchronized void clientDidDisconnect(ClientID client) {
-    // Ensure that this client was already connected.
-    Assert.assertTrue(this.connectedClients.contains(client));
-    // Now, remove it from the connected set.
-    this.connectedClients.remove(client);
+  public void clientDidDisconnect(ClientID client) {
+    boolean canRemove;
+    synchronized (this.lock) {
+      // Ensure that this client was already connected.
+      Assert.assertTrue(this.connectedClients.contains(client));
+      // Now, remove it from the connected set.
+      this.connectedClients.remove(client);
+      canRemove = canRemoveClient(client);
+    }
     
     // Remove it from the monitoring interface.
-    removeClientIfPossible(client);
+    if (canRemove) {
+      removeClientFromService(client);
+    }
     LOGGER.debug("client did disconnect " + client);
   }
 
   @Override
-  public synchronized void entityWasCreated(EntityID id, long consumerID, boolean isActive) {
+  public void entityWasCreated(EntityID id, long consumerID, boolean isActive) {
     // Ensure that this is the expected state.
     Assert.assertTrue(isActive == this.isActiveState);
-    // Ensure that this entity didn't already exist.
-    Assert.assertFalse(this.entities.containsKey(consumerID));
-    addEntityToTracking(id, consumerID, isActive);
+    synchronized (this.lock) {
+      // Ensure that this entity didn't already exist.
+      Assert.assertFalse(this.entities.containsKey(consumerID));
+      this.entities.put(consumerID, id);
+    }
+    addEntityToService(id, consumerID, isActive);
     LOGGER.debug("entity created " + id);
   }
 
   @Override
-  public synchronized void entityWasDestroyed(EntityID id, long consumerID) {
-    // Ensure that this entity already exists.
-    Assert.assertTrue(this.entities.containsKey(consumerID));
-    // Now, remove it from the set.
-    removeEntityFromTracking(id, consumerID);
+  public void entityWasDestroyed(EntityID id, long consumerID) {
+    synchronized (this.lock) {
+      // Ensure that this entity already exists.
+      Assert.assertTrue(this.entities.containsKey(consumerID));
+      // Now, remove it from the set.
+      this.entities.remove(consumerID);
+    }
+    removeEntityFromService(id, consumerID);
     LOGGER.debug("entity destroyed " + id);
   }
 
   @Override
-  public synchronized void entityWasReloaded(EntityID id, long consumerID, boolean isActive) {
+  public void entityWasReloaded(EntityID id, long consumerID, boolean isActive) {
     // terracotta-core issue-461:  reconfigured entities should be re-added, not remove-then-add.
-    addEntityToTracking(id, consumerID, isActive);
+    synchronized (this.lock) {
+      this.entities.put(consumerID, id);
+    }
+    addEntityToService(id, consumerID, isActive);
     LOGGER.debug("entity reloaded " + id);
   }
 
   @Override
-  public synchronized void clientDidFetchEntity(ClientID client, EntityID entity, long consumerID, ClientInstanceID instance) {
+  public void clientDidFetchEntity(ClientID client, EntityID entity, long consumerID, ClientInstanceID instance) {
     // Add it to the monitoring interface.
     if (null != this.serviceInterface) {
-      String clientIdentifier = clientIdentifierForService(client);
-      String entityIdentifier = entityIdentifierForService(entity, consumerID);
-      PlatformClientFetchedEntity record = new PlatformClientFetchedEntity(clientIdentifier, entityIdentifier, new ClientDescriptorImpl(client, instance));
-      if (connectedClients.contains(client)) {
+      boolean connected;
+      synchronized (this.lock) {
+        connected = connectedClients.contains(client);
+        if (!connected) {
+          // the client node is not there yet, clientDidConnect adds this fetch after it
+          Collection<ResolvedDescriptors> set = incomingFetches.computeIfAbsent(client, (c)->new HashSet<>());
+          set.add(new ResolvedDescriptors(entity, consumerID, instance));
+        }
+      }
+      if (connected) {
+        String clientIdentifier = clientIdentifierForService(client);
+        String entityIdentifier = entityIdentifierForService(entity, consumerID);
+        PlatformClientFetchedEntity record = new PlatformClientFetchedEntity(clientIdentifier, entityIdentifier, new ClientDescriptorImpl(client, instance));
         String fetchIdentifier = fetchIdentifierForService(client, entity, consumerID, instance);
         boolean didAdd = this.serviceInterface.addNode(PlatformMonitoringConstants.FETCHED_PATH, fetchIdentifier, record);
         // This MUST have been added (otherwise, it implies that there is a serious bug somewhere).
         if (!didAdd) {
           LOGGER.warn("unbalanced client fetch " + fetchIdentifier);
         }
-      } else {
-        Collection<ResolvedDescriptors> set = incomingFetches.computeIfAbsent(client, (c)->new HashSet<>());
-        set.add(new ResolvedDescriptors(entity, consumerID, instance));
       }
     }
     LOGGER.debug("client " + client + " fetched " + instance);
   }
 
   @Override
-  public synchronized void clientDidReleaseEntity(ClientID client, EntityID entity, long consumerID, ClientInstanceID instance) {
+  public void clientDidReleaseEntity(ClientID client, EntityID entity, long consumerID, ClientInstanceID instance) {
     // Remove it from the monitoring interface.
     if (null != this.serviceInterface) {
       String fetchIdentifier = fetchIdentifierForService(client, entity, consumerID, instance);
@@ -240,50 +268,67 @@ public class ManagementTopologyEventCollector implements ITopologyEventCollector
       }
     }
     
-    if (incomingReleases.containsKey(client)) {
-      Collection<ClientInstanceID> expected = incomingReleases.get(client);
-      Assert.assertTrue(expected.remove(instance));
-      if (expected.isEmpty()) {
-        incomingReleases.remove(client);
-        removeClientIfPossible(client);
+    boolean canRemove = false;
+    synchronized (this.lock) {
+      if (incomingReleases.containsKey(client)) {
+        Collection<ClientInstanceID> expected = incomingReleases.get(client);
+        Assert.assertTrue(expected.remove(instance));
+        if (expected.isEmpty()) {
+          incomingReleases.remove(client);
+          canRemove = canRemoveClient(client);
+        }
       }
     }
+    if (canRemove) {
+      removeClientFromService(client);
+    }
     LOGGER.debug("client " + client + " released " + entity);
   }
   
-  public synchronized void expectedDisconnects(ClientID cid, Collection<FetchID> releases) {
+  public void expectedDisconnects(ClientID cid, Collection<FetchID> releases) {
     if (null != serviceInterface) {
       if (!releases.isEmpty()) {
-        incomingDisconnects.put(cid, new ArrayList<>(releases));
+        synchronized (this.lock) {
+          incomingDisconnects.put(cid, new ArrayList<>(releases));
+        }
       } else {
-        Assert.assertFalse(incomingReleases.containsKey(cid));
-        Assert.assertTrue(removeClientIfPossible(cid));
+        synchronized (this.lock) {
+          Assert.assertFalse(incomingReleases.containsKey(cid));
+          Assert.assertTrue(canRemoveClient(cid));
+        }
+        removeClientFromService(cid);
       }
     }
   }  
   
-  public synchronized void clientDisconnectedFromEntity(ClientID cid, FetchID fetch, Collection<EntityDescriptor> fids) {
+  public void clientDisconnectedFromEntity(ClientID cid, FetchID fetch, Collection<EntityDescriptor> fids) {
     if (null != serviceInterface) {
-      Collection<FetchID> fetches = incomingDisconnects.get(cid);
-      expectedReleases(cid, fids);
-      Assert.assertTrue(fetches.remove(fetch));
-      if (fetches.isEmpty()) {
-        incomingDisconnects.remove(cid);
-        removeClientIfPossible(cid);
+      boolean canRemove = false;
+      synchronized (this.lock) {
+        Collection<FetchID> fetches = incomingDisconnects.get(cid);
+        expectedReleases(cid, fids);
+        Assert.assertTrue(fetches.remove(fetch));
+        if (fetches.isEmpty()) {
+          incomingDisconnects.remove(cid);
+          canRemove = canRemoveClient(cid);
+        }
+      }
+      if (canRemove) {
+        removeClientFromService(cid);
       }
     }
   }
   
-  private boolean removeClientIfPossible(ClientID client) {
-    if (!incomingReleases.containsKey(client) && !incomingDisconnects.containsKey(client)) {
-      // Remove it from the monitoring interface.
-      if (null != this.serviceInterface) {
-        String nodeName = clientIdentifierForService(client);
-        this.serviceInterface.removeNode(PlatformMonitoringConstants.CLIENTS_PATH, nodeName);
-      }
-      return true;
+  private boolean canRemoveClient(ClientID client) {
+    return !incomingReleases.containsKey(client) && !incomingDisconnects.containsKey(client);
+  }
+
+  private void removeClientFromService(ClientID client) {
+    // Remove it from the monitoring interface.
+    if (null != this.serviceInterface) {
+      String nodeName = clientIdentifierForService(client);
+      this.serviceInterface.removeNode(PlatformMonitoringConstants.CLIENTS_PATH, nodeName);
     }
-    return false;
   }
   
   private void expectedReleases(ClientID cid, Collection<EntityDescriptor> releases) {
@@ -299,9 +344,7 @@ public class ManagementTopologyEventCollector implements ITopologyEventCollector
   }
 
 
-  private void addEntityToTracking(EntityID id, long consumerID, boolean isActive) {
-    this.entities.put(consumerID, id);
-    
+  private void addEntityToService(EntityID id, long consumerID, boolean isActive) {
     // Add it to the monitoring interface.
     if (null != this.serviceInterface) {
       String entityClassName = id.getClassName();
@@ -312,9 +355,7 @@ public class ManagementTopologyEventCollector implements ITopologyEventCollector
     }
   }
 
-  private void removeEntityFromTracking(EntityID id, long consumerID) {
-    this.entities.remove(consumerID);
-    
+  private void removeEntityFromService(EntityID id, long consumerID) {
     // Remove it to the monitoring interface.
     if (null != this.serviceInterface) {
       String entityIdentifier = entityIdentifierForService(id, consumerID);
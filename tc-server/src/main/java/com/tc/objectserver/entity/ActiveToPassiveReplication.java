@@ -60,6 +60,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import org.terracotta.tripwire.Event;
 import org.terracotta.tripwire.TripwireFactory;
@@ -243,22 +244,53 @@ public class ActiveToPassiveReplication implements PassiveReplicationBroker, Gro
     ServerID messageFrom = context.messageFrom();
     SessionID session = this.passiveNodes.getOrDefault(messageFrom, SessionID.NULL_ID);
     if (session.isValid()) {
+      long highest = -1;
+      for (ReplicationAckTuple tuple : context.getBatch()) {
+        highest = Math.max(highest, tuple.last());
+      }
+      this.replicationSender.acknowledged(session, highest);
       this.receiveHandler.addToSink(new ReplicationReceivingAction(executionLane(session), ()->{
         for (ReplicationAckTuple tuple : context.getBatch()) {
           if (ReplicationResultCode.RECEIVED == tuple.result) {
-            ActivePassiveAckWaiter waiter = waiters.get(tuple.respondTo);
-            if (null != waiter) {
-              waiter.didReceiveOnPassive(messageFrom);
-            }
+            forEachWaiter(tuple, (activityID, waiter)->waiter.didReceiveOnPassive(messageFrom));
           } else {
             // This is a normal completion.
-            internalAckCompleted(tuple.respondTo, messageFrom, tuple.result);
+            forEachWaiter(tuple, (activityID, waiter)->internalAckCompleted(activityID, messageFrom, tuple.result));
           }
         }
       }));
     }
   }
 
+  /**
+   * Visits the waiters for the activities covered by an ack.  A range wider than the set of outstanding waiters is
+   * resolved with one pass over the waiters rather than a lookup for every activity in the range.
+   */
+  private void forEachWaiter(ReplicationAckTuple tuple, BiConsumer<SyncReplicationActivity.ActivityID, ActivePassiveAckWaiter> action) {
+    if (tuple.count == 1) {
+      ActivePassiveAckWaiter waiter = waiters.get(tuple.respondTo);
+      if (null != waiter) {
+        action.accept(tuple.respondTo, waiter);
+      }
+    } else if (tuple.count < waiters.size()) {
+      for (long id = tuple.respondTo.id; id <= tuple.last(); id++) {
+        SyncReplicationActivity.ActivityID activityID = new SyncReplicationActivity.ActivityID(id);
+        ActivePassiveAckWaiter waiter = waiters.get(activityID);
+        if (null != waiter) {
+          action.accept(activityID, waiter);
+        }
+      }
+    } else {
+      long first = tuple.respondTo.id;
+      long last = tuple.last();
+      waiters.forEach((activityID, waiter)->{
+        if (activityID.id >= first && activityID.id <= last) {
+          action.accept(activityID, waiter);
+        }
+      });
+    }
+  }
+
   /**
    * This internal handling for completed is split out since it happens for both completed acks but also situations which
    * implies no ack is forthcoming (the passive disappearing, for example).
@@ -306,7 +306,7 @@ public class ManagedEntityImpl implements ManagedEntity {
 //  synchronized here because this method must be mutually exclusive with clearQueue
   private synchronized SchedulingRunnable scheduleInOrder(ServerEntityRequest request, ResultCapture results, MessagePayload payload, Runnable r, int ckey) {
     Trace.activeTrace().log("ManagedEntityImpl.scheduleInOrder");
-// this all makes sense because this is only called by the PTH single thread
+// on the active this is only called by the voltron stage threads, which may be several, and is serialized by this lock
 // deferCleared is cleared by one of the request queues
     if (!DirectExecutionMode.isActivated()) {
       if (isInActiveState) {
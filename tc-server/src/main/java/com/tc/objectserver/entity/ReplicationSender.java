@@ -28,14 +28,18 @@ import com.tc.object.FetchID;
 import com.tc.object.session.SessionID;
 import com.tc.objectserver.handler.GroupMessageBatchContext;
 import com.tc.objectserver.handler.ReplicationSendingAction;
+import com.tc.objectserver.handler.ReplicationWindow;
 import com.tc.properties.TCPropertiesImpl;
+import com.tc.text.PrettyPrintable;
 import com.tc.util.Assert;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
@@ -45,12 +49,19 @@ import org.terracotta.tripwire.Event;
 import org.terracotta.tripwire.TripwireFactory;
 
 
-public class ReplicationSender {
+public class ReplicationSender implements PrettyPrintable {
   private static final int DEFAULT_BATCH_LIMIT = 1024;
   private static final int DEFAULT_INFLIGHT_MESSAGES = 1;
+  private static final int DEFAULT_MAXIMUM_INFLIGHT_MESSAGES = 16;
+  private static final long DEFAULT_TARGET_LATENCY_MILLIS = 10;
   // Find out how many messages we should keep in-flight and our maximum batch size.
   private static int maximumBatchSize = TCPropertiesImpl.getProperties().getInt("active-passive.batchsize", DEFAULT_BATCH_LIMIT);
   private static int idealMessagesInFlight = TCPropertiesImpl.getProperties().getInt("active-passive.inflight", DEFAULT_INFLIGHT_MESSAGES);
+  // When tuning is enabled the batch size above is a ceiling and the in-flight count a starting point, both are tuned
+  //  per passive from the ack round trip.
+  private static boolean adaptiveWindow = TCPropertiesImpl.getProperties().getBoolean("active-passive.tuning.enabled", false);
+  private static int maximumMessagesInFlight = TCPropertiesImpl.getProperties().getInt("active-passive.tuning.inflight", DEFAULT_MAXIMUM_INFLIGHT_MESSAGES);
+  private static long targetLatencyMillis = TCPropertiesImpl.getProperties().getLong("active-passive.tuning.latency", DEFAULT_TARGET_LATENCY_MILLIS);
   //  this is all single threaded.  If there is any attempt to make this multi-threaded,
   //  control structures must be fixed
   private final GroupManager<AbstractGroupMessage> group;
@@ -106,6 +117,29 @@ public class ReplicationSender {
 
   }
   
+  /**
+   * Called as acks arrive from a passive so the replication window to it can be tuned.
+   *
+   * @param session the session of the passive
+   * @param highestActivity the highest activity id covered by the ack
+   */
+  public void acknowledged(SessionID session, long highestActivity) {
+    SyncState state = filtering.get(session);
+    if (state != null) {
+      state.batchContext.getWindow().acknowledged(highestActivity, System.nanoTime());
+    }
+  }
+
+  @Override
+  public Map<String, ?> getStateMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("className", this.getClass().getName());
+    Map<String, Object> passives = new LinkedHashMap<>();
+    filtering.forEach((session, state)->passives.put(state.target.getName(), state.batchContext.getWindow().getStateMap()));
+    map.put("windows", passives);
+    return map;
+  }
+
   private SyncState createAndRegisterSyncState(ServerID node, SessionID session, int lane) {
     // We can't already have a state for this passive.
     Assert.assertTrue(!node.isNull());
@@ -160,14 +194,19 @@ public class ReplicationSender {
 
     private final GroupMessageBatchContext<ReplicationMessage, SyncReplicationActivity> batchContext;
     
+    private final ServerID target;
     private final SessionID session;
     private final int executionLane;
         
     public SyncState(ServerID target, SessionID nodeToId, int lane) {
+      this.target = target;
       this.session = nodeToId;
       this.executionLane = lane;
       
-      this.batchContext = new GroupMessageBatchContext<>(ReplicationMessage::createActivityContainer, group, target, maximumBatchSize, idealMessagesInFlight, (node)->flushBatch());  
+      ReplicationWindow window = adaptiveWindow
+          ? ReplicationWindow.adaptive(maximumBatchSize, idealMessagesInFlight, maximumMessagesInFlight, targetLatencyMillis, TimeUnit.MILLISECONDS)
+          : ReplicationWindow.fixed(maximumBatchSize, idealMessagesInFlight);
+      this.batchContext = new GroupMessageBatchContext<>(ReplicationMessage::createActivityContainer, group, target, window, (node)->flushBatch());  
     }
     
     private boolean isSameSession(SessionID session) {
@@ -349,7 +388,8 @@ public class ReplicationSender {
     }
     
     private boolean send(SyncReplicationActivity activity) {
-      if (this.batchContext.batchMessage(activity)) {
+      boolean created = this.batchContext.batchMessage(activity, activity.getActivityID().id);
+      if (created) {
         flushBatch();
       }
       return true;
@@ -51,7 +51,8 @@ public class VoltronMessageSink extends TCMessageHydrateSink<VoltronEntityMessag
   public void putMessage(TCAction message) { 
     if (message instanceof NetworkVoltronEntityMessage) {
       ((NetworkVoltronEntityMessage)message).setMessageCodecSupplier(codecSupplier);
-      if (always_hydrate || TCComm.hasPendingRead() || !helper.isEmpty()) {
+      // a compressed body is always inflated on the hydrate stage
+      if (always_hydrate || message.isBodyCompressed() || TCComm.hasPendingRead() || !helper.isEmpty()) {
         helper.getSink().addToSink(new HydrateContext(message, this.dest));
       } else {
         super.putMessage(message);
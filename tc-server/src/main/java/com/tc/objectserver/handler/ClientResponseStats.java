@@ -0,0 +1,129 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.objectserver.handler;
+
+import com.tc.text.PrettyPrintable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client accounting of the responses flowing through the response stage.  Responses for one client are always
+ * handled by the same stage thread so sends are only ever recorded by that thread.  The instance is attached to the
+ * client channel so it is reported along with the rest of the connection state.
+ */
+public class ClientResponseStats implements PrettyPrintable {
+
+  public static final String ATTACHMENT = "ResponseStats";
+
+  private static final double WEIGHT = 0.2;
+
+  private final LongAdder operations = new LongAdder();
+  private final AtomicInteger operationsSinceSend = new AtomicInteger();
+  private final AtomicInteger pending = new AtomicInteger();
+
+  private long sends;
+  private long lingered;
+  private boolean requeueing;
+  private double averageBatch;
+  private int maxBatch;
+  private long totalLatency;
+  private long maxLatency;
+  private double averageLatency;
+
+  void added() {
+    operations.increment();
+    operationsSinceSend.incrementAndGet();
+  }
+
+  void enqueued() {
+    pending.incrementAndGet();
+  }
+
+  /**
+   * @return true if no response for this client is waiting in the response stage
+   */
+  boolean isIdle() {
+    return pending.get() == 0;
+  }
+
+  /**
+   * A client whose recent responses carried at least {@code batch} operations on average is busy enough that
+   * another trip through its response queue will pick up more acks before the current batch is sent.
+   */
+  synchronized boolean shouldLinger(int batch) {
+    return batch > 0 && averageBatch >= batch;
+  }
+
+  /**
+   * A lingering response is about to go back through the response queue.  Until {@link #requeued()} is called,
+   * responses enqueued for this client wait in {@link #awaitRequeue()} so they cannot overtake it.
+   */
+  synchronized void lingered() {
+    lingered += 1;
+    requeueing = true;
+  }
+
+  synchronized void requeued() {
+    requeueing = false;
+    notifyAll();
+  }
+
+  synchronized void awaitRequeue() {
+    boolean interrupted = false;
+    while (requeueing) {
+      try {
+        wait();
+      } catch (InterruptedException ie) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  synchronized void sent(long latencyNanos) {
+    // responses enqueued before this client was first tracked are not counted as pending
+    pending.updateAndGet(p -> p > 0 ? p - 1 : 0);
+    int batch = operationsSinceSend.getAndSet(0);
+    sends += 1;
+    averageBatch = (sends == 1) ? batch : averageBatch + WEIGHT * (batch - averageBatch);
+    maxBatch = Math.max(maxBatch, batch);
+    totalLatency += latencyNanos;
+    maxLatency = Math.max(maxLatency, latencyNanos);
+    averageLatency = (sends == 1) ? latencyNanos : averageLatency + WEIGHT * (latencyNanos - averageLatency);
+  }
+
+  @Override
+  public synchronized Map<String, ?> getStateMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("operations", operations.sum());
+    map.put("sends", sends);
+    map.put("pending", pending.get());
+    map.put("lingered", lingered);
+    map.put("recentBatch", Math.round(averageBatch * 100) / 100d);
+    map.put("maxBatch", maxBatch);
+    map.put("recentAckLatencyMicros", TimeUnit.NANOSECONDS.toMicros((long)averageLatency));
+    map.put("averageAckLatencyMicros", (sends > 0) ? TimeUnit.NANOSECONDS.toMicros(totalLatency / sends) : 0L);
+    map.put("maxAckLatencyMicros", TimeUnit.NANOSECONDS.toMicros(maxLatency));
+    return map;
+  }
+}
@@ -40,8 +40,7 @@ public class GroupMessageBatchContext<M extends IBatchableGroupMessage<E>, E> {
   private final Function<E, M> messageFactory;
   private final GroupManager<AbstractGroupMessage> groupManager;
   private final ServerID target;
-  private final int maximumBatchSize;
-  private final int idealMessagesInFlight;
+  private final ReplicationWindow window;
   private final Consumer<ServerID> networkDoneTarget;
   
   private int messagesInFlight;
@@ -50,14 +49,21 @@ public class GroupMessageBatchContext<M extends IBatchableGroupMessage<E>, E> {
 
 
   public GroupMessageBatchContext(Function<E, M> messageFactory, GroupManager<AbstractGroupMessage> groupManager, ServerID target, int maximumBatchSize, int idealMessagesInFlight, Consumer<ServerID> networkDoneTarget) {
+    this(messageFactory, groupManager, target, ReplicationWindow.fixed(maximumBatchSize, idealMessagesInFlight), networkDoneTarget);
+  }
+
+  public GroupMessageBatchContext(Function<E, M> messageFactory, GroupManager<AbstractGroupMessage> groupManager, ServerID target, ReplicationWindow window, Consumer<ServerID> networkDoneTarget) {
     this.messageFactory = messageFactory;
     this.groupManager = groupManager;
     this.target = target;
-    this.maximumBatchSize = maximumBatchSize;
-    this.idealMessagesInFlight = idealMessagesInFlight;
+    this.window = window;
     this.networkDoneTarget = networkDoneTarget;
   }
 
+  public ReplicationWindow getWindow() {
+    return window;
+  }
+
   /**
    * Called to send a new activity.  This might be added to an existing batch or used to create a new one.  In either
    *  case, this isn't sent now, but might be sent during the next call to flushBatch().
@@ -70,7 +76,7 @@ public class GroupMessageBatchContext<M extends IBatchableGroupMessage<E>, E> {
     // See if we have an existing message we must batch.
     boolean didCreateNewBatch = false;
     try {
-      while (this.cachedMessage != null && this.cachedMessage.getBatchSize() >= maximumBatchSize) {
+      while (this.cachedMessage != null && this.cachedMessage.getBatchSize() >= window.getBatchSize()) {
         wait();
       }      
     } catch (InterruptedException ie) {
@@ -90,6 +96,19 @@ public class GroupMessageBatchContext<M extends IBatchableGroupMessage<E>, E> {
     return didCreateNewBatch;
   }
 
+  /**
+   * Batches an activity and offers it to the window as a round trip probe.
+   *
+   * @param activity The activity to batch.
+   * @param id The id acks for the activity will carry.
+   * @return True if this required creating a new batch.
+   */
+  public synchronized boolean batchMessage(E activity, long id) {
+    boolean didCreateNewBatch = batchMessage(activity);
+    this.window.activityBatched(id);
+    return didCreateNewBatch;
+  }
+
   /**
    * Called by a thread which is expected to do the message serialization to determine if the current batch is ready to
    *  be flushed to the network.
@@ -155,9 +174,10 @@ public class GroupMessageBatchContext<M extends IBatchableGroupMessage<E>, E> {
       // See if we have a batched message and are ready to send one.
       // Note that we will override the ideal number of in-flight messages if the batch is getting too large.
     if (null != this.cachedMessage) {
-      if ((0 == this.idealMessagesInFlight) ||
-        (this.messagesInFlight < this.idealMessagesInFlight) ||
-        (this.cachedMessage.getBatchSize() >= this.maximumBatchSize) || 
+      int idealMessagesInFlight = this.window.getMessagesInFlight();
+      if ((0 == idealMessagesInFlight) ||
+        (this.messagesInFlight < idealMessagesInFlight) ||
+        (this.cachedMessage.getBatchSize() >= this.window.getBatchSize()) || 
         (this.cachedMessage.getPayloadSize() > THRESHOLD)
       ) {
         // There is a batched message so send it.
@@ -165,6 +185,7 @@ public class GroupMessageBatchContext<M extends IBatchableGroupMessage<E>, E> {
         this.cachedMessage = null;
         notifyAll();
         this.messagesInFlight += 1;
+        this.window.batchSent(messageToSend.getBatchSize(), System.nanoTime());
       }
     }
     return messageToSend;
@@ -29,9 +29,18 @@ import com.tc.net.groups.GroupException;
 import com.tc.net.groups.GroupManager;
 import com.tc.net.groups.GroupMessage;
 import com.tc.net.utils.L2Utils;
+import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
+import com.tc.util.DaemonThreadFactory;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +56,7 @@ public class PassiveAckSender {
   private static final int DEFAULT_INFLIGHT_MESSAGES = 1;
   private static final int MAXIMUMBATCHSIZE = TCPropertiesImpl.getProperties().getInt("passive-active.batchsize", DEFAULT_BATCH_LIMIT);
   private static final int IDEALMESSAGESINFLIGHT = TCPropertiesImpl.getProperties().getInt("passive-active.inflight", DEFAULT_INFLIGHT_MESSAGES);
+  private static final boolean ACK_RANGES = TCPropertiesImpl.getProperties().getBoolean(TCPropertiesConsts.L2_NHA_ACK_RANGES, true);
 
   private final GroupManager<AbstractGroupMessage> groupManager;
   private final Predicate<GroupMessage> sendConfirm;
@@ -56,6 +66,9 @@ public class PassiveAckSender {
   private ServerID cachedMessageAckFrom;
   private GroupMessageBatchContext<ReplicationMessageAck, ReplicationAckTuple> cachedBatchAck;
   private final Sink<Runnable> sentToActive;
+  // Receipts waiting on transaction order persistence, completions for these activities are chained behind them.
+  private final Map<SyncReplicationActivity.ActivityID, CompletableFuture<Void>> pendingDurability = new ConcurrentHashMap<>();
+  private final Executor durabilityWaiter = Executors.newSingleThreadExecutor(new DaemonThreadFactory("passive-ack-durability-"));
 
   public PassiveAckSender(GroupManager<AbstractGroupMessage> groupManager, Predicate<GroupMessage> msgCheck, Sink<Runnable> sentToActive) {
     this.groupManager = groupManager;
@@ -68,27 +81,92 @@ public class PassiveAckSender {
 //  when is the right time to send the ack?
     if (!activeSender.equals(ServerID.NULL_ID)) {
       LOGGER.debug("{} acking {} as {}", activity.getTransactionID(), activity.getActivityID().id, code);
-      prepareAckForSend(activeSender, activity.getActivityID(), code);
+      CompletableFuture<Void> durable = this.pendingDurability.get(activity.getActivityID());
+      if (durable != null) {
+        // the activity is not yet durable so the completion must not overtake the received ack
+        durable.thenRun(()->prepareAckForSend(activeSender, activity.getActivityID(), code));
+      } else {
+        prepareAckForSend(activeSender, activity.getActivityID(), code);
+      }
     }
   }
 
+  /**
+   * Acks the receipt of an activity once the transaction order persistence for it is done.  The calling thread never
+   * waits on the persistence, the ack is chained to it instead.
+   */
   public void ackReceived(ServerID activeSender, SyncReplicationActivity activity, Future<Void> future) {
     if (!activeSender.equals(ServerID.NULL_ID)) {
-      if (future != null) {
+      SyncReplicationActivity.ActivityID activityID = activity.getActivityID();
+      if (future == null || future.isDone()) {
+        checkPersisted(future);
+        prepareAckForSend(activeSender, activityID, ReplicationResultCode.RECEIVED);
+      } else {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        this.pendingDurability.put(activityID, durable);
+        whenPersisted(future, (error)->{
+          try {
+            if (error == null) {
+              prepareAckForSend(activeSender, activityID, ReplicationResultCode.RECEIVED);
+            }
+          } finally {
+            this.pendingDurability.remove(activityID);
+            if (error == null) {
+              durable.complete(null);
+            } else {
+              durable.completeExceptionally(error);
+              persistenceFailed(error);
+            }
+          }
+        });
+      }
+    }
+  }
+
+  private void whenPersisted(Future<Void> future, Consumer<Throwable> done) {
+    if (future instanceof CompletionStage) {
+      ((CompletionStage<?>)future).whenComplete((result, error)->done.accept(error));
+    } else {
+      // the persistence does not offer completion callbacks so the wait moves to a thread of its own rather than
+      //  holding up the caller
+      this.durabilityWaiter.execute(()->{
+        Throwable error = null;
         try {
           future.get();
         } catch (InterruptedException ie) {
-          L2Utils.handleInterrupted(LOGGER, ie);
+          error = ie;
         } catch (ExecutionException e) {
-          throw new RuntimeException("Caught exception while persisting transaction order", e);
+          error = e.getCause();
         }
+        done.accept(error);
+      });
+    }
+  }
+
+  /**
+   * A failed persistence is fatal, as it was when the receipt waited on it.  The failure is thrown on the outgoing
+   * stage so it takes the same path as any other failure of the replication pipeline.
+   */
+  private void persistenceFailed(Throwable error) {
+    this.sentToActive.addToSink(()->{
+      throw new RuntimeException("Caught exception while persisting transaction order", error);
+    });
+  }
+
+  private static void checkPersisted(Future<Void> future) {
+    if (future != null) {
+      try {
+        future.get();
+      } catch (InterruptedException ie) {
+        L2Utils.handleInterrupted(LOGGER, ie);
+      } catch (ExecutionException e) {
+        throw new RuntimeException("Caught exception while persisting transaction order", e);
       }
-      prepareAckForSend(activeSender, activity.getActivityID(), ReplicationResultCode.RECEIVED);
     }
   }
 
   private ReplicationMessageAck createAckMessage(ReplicationAckTuple initialActivity) {
-    ReplicationMessageAck message = ReplicationMessageAck.createBatchAck();
+    ReplicationMessageAck message = ReplicationMessageAck.createBatchAck(ACK_RANGES);
     message.addToBatch(initialActivity);
     return message;
   }
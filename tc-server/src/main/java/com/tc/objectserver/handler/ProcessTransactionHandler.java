@@ -43,6 +43,7 @@ import com.tc.object.EntityID;
 import com.tc.object.StatType;
 import com.tc.object.net.DSOChannelManager;
 import com.tc.object.net.NoSuchChannelException;
+import com.tc.object.tx.ServerTransactionID;
 import com.tc.object.tx.TransactionID;
 import com.tc.objectserver.api.EntityManager;
 import com.tc.objectserver.api.ManagedEntity;
@@ -59,8 +60,11 @@ import com.tc.objectserver.entity.ReconnectListener;
 import com.tc.objectserver.entity.ReferenceMessage;
 import com.tc.objectserver.entity.ServerEntityRequestImpl;
 import com.tc.objectserver.entity.ServerEntityRequestResponse;
+import com.tc.objectserver.handshakemanager.ServerClientHandshakeManager;
 import com.tc.objectserver.persistence.EntityData;
 import com.tc.objectserver.persistence.Persistor;
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
 import com.tc.services.ClientMessageSender;
 import com.tc.services.EntityMessengerService;
 import com.tc.util.Assert;
@@ -80,6 +84,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -91,6 +96,10 @@ import com.tc.net.protocol.tcm.TCAction;
 public class ProcessTransactionHandler implements ReconnectListener {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ProcessTransactionHandler.class);
+  private static final int RESEND_REPLAY_THREADS = TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.L2_RESEND_REPLAY_THREADS, Math.min(8, Runtime.getRuntime().availableProcessors()));
+  private static final int RESPONSE_LINGER_BATCH = TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.L2_RESPONSE_LINGER_BATCH, 4);
+  private static final int RESPONSE_LINGER_BACKLOG = TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.L2_RESPONSE_LINGER_BACKLOG, 64);
+  private static final int RESEND_REPLAY_PARALLEL_THRESHOLD = TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.L2_RESEND_REPLAY_PARALLEL_THRESHOLD, 256);
 
   private final Persistor persistor;
 
@@ -102,17 +111,22 @@ public class ProcessTransactionHandler implements ReconnectListener {
   private List<VoltronEntityMessage> reconnectDone;
   private SparseList<VoltronEntityMessage> resendReplayList;
   private List<VoltronEntityMessage> resendNewList;
+  private ResendReplay resendReplay;
   private boolean reconnecting = true;
+  private volatile boolean resendsProcessed = false;
+  private ServerClientHandshakeManager handshakeManager;
 
   private Stage<ResponseMessage> multiSend;
   private final ConcurrentHashMap<ClientID, VoltronEntityMultiResponse> invokeReturn = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<ClientID, ClientResponseStats> responseStats = new ConcurrentHashMap<>();
   private final ConcurrentHashMap<ClientID, Integer> inflightFetch = new ConcurrentHashMap<>();
-  private final ConcurrentHashMap<TransactionID, Future<Void>> transactionOrderPersistenceFutures = new ConcurrentHashMap<>();
+  // transaction ids are only unique per client and the voltron stage handles several clients at once
+  private final ConcurrentHashMap<ServerTransactionID, Future<Void>> transactionOrderPersistenceFutures = new ConcurrentHashMap<>();
 
   @Override
   public synchronized void reconnectComplete() {
     reconnecting = false;
-    notify();
+    notifyAll();
   }
 
   private final AbstractEventHandler<ResponseMessage> multiSender = new AbstractEventHandler<ResponseMessage>() {
@@ -120,17 +134,21 @@ public class ProcessTransactionHandler implements ReconnectListener {
     public void handleEvent(ResponseMessage context) throws EventHandlerException {
       NodeID destinationID = context.getResponse().getDestinationNodeID();
       TCAction response = context.getResponse();
+      ClientResponseStats stats = responseStats.get(destinationID);
             
       if (response instanceof VoltronEntityMultiResponse) {
         VoltronEntityMultiResponse voltronEntityMultiResponse = (VoltronEntityMultiResponse)response;
+        if (stats != null && !context.hasLingered() && lingerIfBusy(stats, context, voltronEntityMultiResponse)) {
+          return;
+        }
         VoltronEntityMultiResponse sub = (VoltronEntityMultiResponse)response.getChannel().createMessage(TCMessageType.VOLTRON_ENTITY_MULTI_RESPONSE);
         invokeReturn.put((ClientID)destinationID, sub);
         voltronEntityMultiResponse.stopAdding();
         if (!transactionOrderPersistenceFutures.isEmpty()) {
-          waitForTransactions(voltronEntityMultiResponse);
+          waitForTransactions((ClientID)destinationID, voltronEntityMultiResponse);
         }
       } else if (response instanceof VoltronEntityAppliedResponse) {
-        waitForTransactionOrderPersistenceFuture(((VoltronEntityAppliedResponse)response).getTransactionID());
+        waitForTransactionOrderPersistenceFuture((ClientID)destinationID, ((VoltronEntityAppliedResponse)response).getTransactionID());
       } else {
         // only applied messages should be sent back to the client except on resent messages
         // that path is unoptimized so regular received messages can hit this path
@@ -142,28 +160,65 @@ public class ProcessTransactionHandler implements ReconnectListener {
       } else if (LOGGER.isDebugEnabled()) {
         LOGGER.debug("sent " + response);
       }
+      if (stats != null) {
+        stats.sent(System.nanoTime() - context.getCreated());
+      }
     }
   };
 
+  /**
+   * A multi-response carrying nothing the client is blocked on (only retirements, server messages or stats) is
+   * sent back through the response queue of a busy client once so that acks produced in the meantime ride along.
+   * Only the response currently accepting additions may linger, otherwise an ordered response enqueued behind
+   * it would be overtaken.  A long response backlog already coalesces on its own so lingering is limited to short
+   * backlogs, which also keeps this stage thread from blocking on its own full queue.
+   * <p>
+   * The response is re-enqueued outside the stats monitor so a full queue never blocks while holding it.  Ordered
+   * responses for the client wait in {@link #insertMessageInStream} until it is back in the queue.
+   */
+  private boolean lingerIfBusy(ClientResponseStats stats, ResponseMessage context, VoltronEntityMultiResponse vmr) {
+    synchronized (stats) {
+      if (vmr.shouldSend() || multiSend.size() >= RESPONSE_LINGER_BACKLOG || !stats.shouldLinger(RESPONSE_LINGER_BATCH) || invokeReturn.get((ClientID)vmr.getDestinationNodeID()) != vmr) {
+        return false;
+      }
+      context.linger();
+      stats.lingered();
+    }
+    try {
+      multiSend.getSink().addToSink(context);
+    } finally {
+      stats.requeued();
+    }
+    return true;
+  }
+
+  private ClientResponseStats statsFor(ClientID client, MessageChannel channel) {
+    return responseStats.computeIfAbsent(client, c->{
+      ClientResponseStats stats = new ClientResponseStats();
+      channel.addAttachment(ClientResponseStats.ATTACHMENT, stats, true);
+      return stats;
+    });
+  }
+
   public AbstractEventHandler<ResponseMessage> getMultiResponseSender() {
     return multiSender;
   }
 
-  private void waitForTransactions(VoltronEntityMultiResponse vmr) {
+  private void waitForTransactions(ClientID client, VoltronEntityMultiResponse vmr) {
     vmr.replay(new VoltronEntityMultiResponse.ReplayReceiver() {
       @Override
       public void received(TransactionID tid) {
-        waitForTransactionOrderPersistenceFuture(tid);
+        waitForTransactionOrderPersistenceFuture(client, tid);
       }
 
       @Override
       public void retired(TransactionID tid) {
-        waitForTransactionOrderPersistenceFuture(tid);
+        waitForTransactionOrderPersistenceFuture(client, tid);
       }
 
       @Override
       public void result(TransactionID tid, byte[] result) {
-        waitForTransactionOrderPersistenceFuture(tid);
+        waitForTransactionOrderPersistenceFuture(client, tid);
       }
 
       @Override
@@ -207,6 +262,7 @@ public class ProcessTransactionHandler implements ReconnectListener {
         case DISCONNECT_CLIENT:
           //  remove any invoke returns to prevent leak if doing pre-allocation
           invokeReturn.remove(message.getSource());
+          responseStats.remove(message.getSource());
           ClientDisconnectMessage disconnect = (ClientDisconnectMessage)message;
           completion = (raw)->disconnect.run();
           exception = disconnect::disconnectException;
@@ -245,7 +301,8 @@ public class ProcessTransactionHandler implements ReconnectListener {
 //  go right to active state.  this only gets initialized once ACTIVE-COORDINATOR is entered
       reconnectDone = entityManager.enterActiveState();
 
-      server.getClientHandshakeManager().addReconnectListener(ProcessTransactionHandler.this);
+      handshakeManager = server.getClientHandshakeManager();
+      handshakeManager.addReconnectListener(ProcessTransactionHandler.this);
     }
   };
 
@@ -277,6 +334,7 @@ public class ProcessTransactionHandler implements ReconnectListener {
     this.references = new LinkedList<>();
     this.resendReplayList = new SparseList<>();
     this.resendNewList = new LinkedList<>();
+    this.resendReplay = new ResendReplay(entityManager::getEntity, RESEND_REPLAY_THREADS, RESEND_REPLAY_PARALLEL_THRESHOLD);
   }
   /**
    * This is a confusing method used in a confusing way.  This is used to snapshot the current
@@ -299,14 +357,32 @@ public class ProcessTransactionHandler implements ReconnectListener {
     // capture new messages intended to be sent after this one.
     // only actions that were client generated need to be sent back to the client
     if (!msg.getDestinationNodeID().isNull()  && !msg.getTransactionID().isNull()) {
-      VoltronEntityMultiResponse vmr = invokeReturn.remove((ClientID)msg.getDestinationNodeID());
-      if (vmr != null) {
-        vmr.stopAdding();
+      ClientID client = (ClientID)msg.getDestinationNodeID();
+      ClientResponseStats stats = responseStats.get(client);
+      if (stats != null) {
+        // mutually exclusive with the decision to linger a multi-response, wait for a lingering one to be
+        // back in the queue before cutting it off so this message cannot overtake it
+        synchronized (stats) {
+          stats.awaitRequeue();
+          stats.enqueued();
+          cutoff(client);
+        }
+      } else {
+        // no multi-response has ever been built for this client so none can be lingering
+        cutoff(client);
       }
+      // enqueue outside the stats monitor, the response stage needs it to make progress
       multiSend.getSink().addToSink(new ResponseMessage(msg));
     }
   }
 
+  private void cutoff(ClientID client) {
+    VoltronEntityMultiResponse vmr = invokeReturn.remove(client);
+    if (vmr != null) {
+      vmr.stopAdding();
+    }
+  }
+
   private void addSequentially(ClientID target, Predicate<VoltronEntityMultiResponse> adder) {
     // don't bother if the client isNull, no where to send the message
     // if not, compute the result and schedule send if neccessary
@@ -315,14 +391,20 @@ public class ProcessTransactionHandler implements ReconnectListener {
       VoltronEntityMultiResponse vmr = invokeReturn.computeIfAbsent(target, (client)-> {
           Optional<MessageChannel> channel = safeGetChannel(client);
           if (channel.isPresent()) {
+            ClientResponseStats stats = statsFor(client, channel.get());
             VoltronEntityMultiResponse msg = (VoltronEntityMultiResponse)channel.get().createMessage(TCMessageType.VOLTRON_ENTITY_MULTI_RESPONSE);
      //  use direct execution under map lock.  this makes sure there
-     //  is only one for this client
-            if (DirectExecutionMode.isActivated() && msg.shouldSend() && multiSend.isEmpty()) {
+     //  is only one for this client.  only this client's queue matters, 
+     //  other clients are handled by other shards of the response stage
+            if (DirectExecutionMode.isActivated() && msg.shouldSend() && stats.isIdle()) {
               msg.startAdding();
               Assert.assertTrue(adder.test(msg));
+              stats.added();
+              stats.enqueued();
               msg.stopAdding();
+              long start = System.nanoTime();
               msg.send();
+              stats.sent(System.nanoTime() - start);
               return null;
             } else {
      // no direct execution, return the msg
@@ -338,13 +420,20 @@ public class ProcessTransactionHandler implements ReconnectListener {
       } else {
         // enqueue if start adding returns true;  this means first to add
         boolean enqueue = vmr.startAdding();
+        ClientResponseStats stats = responseStats.get(target);
         try {
           if (adder.test(vmr)) {
+            if (stats != null) {
+              stats.added();
+            }
             // added the message, exit the loop
             break;
           }
         } finally {
           if (enqueue) {
+            if (stats != null) {
+              stats.enqueued();
+            }
             multiSend.getSink().addToSink(new ResponseMessage(vmr));
           }
         }
@@ -352,7 +441,7 @@ public class ProcessTransactionHandler implements ReconnectListener {
     }
   }
 
-// only the process transaction thread will add messages here except for on reconnect
+// only the voltron stage threads will add messages here except for on reconnect
   private void addMessage(ClientID sourceNodeID, EntityDescriptor descriptor, ServerEntityAction action, 
           MessagePayload entityMessage, TransactionID transactionID, TransactionID oldestTransactionOnClient, 
           Consumer<byte[]> chaincomplete, Consumer<ServerException> chainfail, boolean requiresReceived, boolean requiresRetired) {
@@ -365,14 +454,12 @@ public class ProcessTransactionHandler implements ReconnectListener {
     // Before we pass this on to the entity or complete it, directly, we can send the received() ACK, since we now know the message order.
     // Note that we only want to persist the messages with a true sourceNodeID.  Synthetic invocations and sync messages
     // don't have one (although sync messages shouldn't come down this path).
-    Future<Void> transactionOrderPersistenceFuture = null;
     // if the client is valid and the transaction id is valid, then this came from a real client
     // and the client expects to be able to reconnect
     ServerEntityRequestImpl request = new ServerEntityRequestImpl(descriptor.getClientInstanceID(), action, sourceNodeID, transactionID, oldestTransactionOnClient, requiresReceived);
-    if (sourceNodeID != null && !sourceNodeID.isNull() && transactionID.isValid()) {
+    boolean ordered = sourceNodeID != null && !sourceNodeID.isNull() && transactionID.isValid();
+    if (ordered) {
       Assert.assertTrue(oldestTransactionOnClient.isValid());
-      // This client still needs transaction order persistence.
-      transactionOrderPersistenceFuture = this.persistor.getTransactionOrderPersistor().updateWithNewMessage(sourceNodeID, transactionID, oldestTransactionOnClient);
     }
 
     Trace trace = null;
@@ -383,6 +470,8 @@ public class ProcessTransactionHandler implements ReconnectListener {
     }
 
     if (ServerEntityAction.CREATE_ENTITY == action) {
+      // creates flush every partition of the voltron stage so nothing is recorded concurrently
+      Future<Void> transactionOrderPersistenceFuture = ordered ? recordOrder(sourceNodeID, transactionID, oldestTransactionOnClient) : null;
       long consumerID = this.persistor.getEntityPersistor().getNextConsumerID();
       // The common pattern for this is to pass an empty array on success ("found") or an exception on failure ("not found").
       LifecycleResultsCapture capture = new LifecycleResultsCapture(descriptor.getEntityID(), descriptor.getClientSideVersion(), consumerID, request, this::insertMessageInStream, chaincomplete, chainfail, entityMessage.getRawPayload(), isReplicatedMessage);
@@ -400,11 +489,17 @@ public class ProcessTransactionHandler implements ReconnectListener {
       try {
         optionalEntity = entityManager.getEntity(descriptor);
       } catch (ServerException ee) {
+        if (ordered) {
+          recordOrder(sourceNodeID, transactionID, oldestTransactionOnClient);
+        }
         ServerEntityRequestResponse rr = new ServerEntityRequestResponse(request, this::insertMessageInStream, ()->safeGetChannel(sourceNodeID), chaincomplete, chainfail, isReplicatedMessage);
         rr.failure(ee);
         return;
       }
       if (!optionalEntity.isPresent()) {
+        if (ordered) {
+          recordOrder(sourceNodeID, transactionID, oldestTransactionOnClient);
+        }
         if (!descriptor.isIndexed()) {
           ServerEntityRequestResponse rr = new ServerEntityRequestResponse(request, this::insertMessageInStream, ()->safeGetChannel(sourceNodeID), chaincomplete, chainfail, isReplicatedMessage);
           rr.failure(ServerException.createNotFoundException(descriptor.getEntityID()));
@@ -420,40 +515,45 @@ public class ProcessTransactionHandler implements ReconnectListener {
         }
       }
       ManagedEntity entity = optionalEntity.get();
-      // Note that it is possible to trigger an exception when decoding a message in addInvokeRequest.
-      if (ServerEntityAction.INVOKE_ACTION == action) {
-        InvokeHandler handler = new InvokeHandler(request, this::insertMessageInStream, chaincomplete, chainfail, requiresReceived, requiresRetired);
-        handler.addMessage();
-        if(transactionOrderPersistenceFuture != null) {
-          transactionOrderPersistenceFutures.put(transactionID, transactionOrderPersistenceFuture);
-        }
-        entity.addRequestMessage(handler, entityMessage, handler);
-      } else if (action.isLifecycle()) {
-        EntityID eid;
-        long version;
-        long consumerID;
-        if (descriptor.isIndexed()) {
-          consumerID = descriptor.getFetchID().toLong();
-          version = entity.getVersion();
-          eid = entity.getID();
+      // messages from different clients can reach one entity on different voltron stage threads, recording the
+      // order under the entity lock keeps the persisted order the same as the order the entity schedules them in
+      synchronized (entity) {
+        Future<Void> transactionOrderPersistenceFuture = ordered ? recordOrder(sourceNodeID, transactionID, oldestTransactionOnClient) : null;
+        // Note that it is possible to trigger an exception when decoding a message in addInvokeRequest.
+        if (ServerEntityAction.INVOKE_ACTION == action) {
+          InvokeHandler handler = new InvokeHandler(request, this::insertMessageInStream, chaincomplete, chainfail, requiresReceived, requiresRetired);
+          handler.addMessage();
+          if(transactionOrderPersistenceFuture != null) {
+            transactionOrderPersistenceFutures.put(new ServerTransactionID(sourceNodeID, transactionID), transactionOrderPersistenceFuture);
+          }
+          entity.addRequestMessage(handler, entityMessage, handler);
+        } else if (action.isLifecycle()) {
+          EntityID eid;
+          long version;
+          long consumerID;
+          if (descriptor.isIndexed()) {
+            consumerID = descriptor.getFetchID().toLong();
+            version = entity.getVersion();
+            eid = entity.getID();
+          } else {
+            eid = descriptor.getEntityID();
+            version = descriptor.getClientSideVersion();
+            consumerID = entity.getConsumerID();
+          }
+          LifecycleResultsCapture capture = new LifecycleResultsCapture(eid, version, consumerID, request, this::insertMessageInStream, chaincomplete, chainfail, entityMessage.getRawPayload(), isReplicatedMessage);
+          capture.setTransactionOrderPersistenceFuture(transactionOrderPersistenceFuture);
+          entity.addRequestMessage(capture, entityMessage, capture);
+        } else if (action == ServerEntityAction.MANAGED_ENTITY_GC && entity.isRemoveable()) {
+          // MANAGED_ENTITY_GC may not be removeable if the entity was immediately recreated 
+          // after destroy.  If this is the case, just schedule the action and it will act like a flush
+          LOGGER.debug("removing " + entity.getID());
+          entityManager.removeDestroyed(descriptor.getFetchID());
+          //  no need to schedule for an entity that is removed
         } else {
-          eid = descriptor.getEntityID();
-          version = descriptor.getClientSideVersion();
-          consumerID = entity.getConsumerID();
+          ServerEntityRequestResponse rr = new ServerEntityRequestResponse(request, this::insertMessageInStream, ()->safeGetChannel(sourceNodeID), chaincomplete, chainfail, isReplicatedMessage);
+          rr.setTransactionOrderPersistenceFuture(transactionOrderPersistenceFuture);
+          entity.addRequestMessage(rr, entityMessage, rr);
         }
-        LifecycleResultsCapture capture = new LifecycleResultsCapture(eid, version, consumerID, request, this::insertMessageInStream, chaincomplete, chainfail, entityMessage.getRawPayload(), isReplicatedMessage);
-        capture.setTransactionOrderPersistenceFuture(transactionOrderPersistenceFuture);
-        entity.addRequestMessage(capture, entityMessage, capture);
-      } else if (action == ServerEntityAction.MANAGED_ENTITY_GC && entity.isRemoveable()) {
-        // MANAGED_ENTITY_GC may not be removeable if the entity was immediately recreated 
-        // after destroy.  If this is the case, just schedule the action and it will act like a flush
-        LOGGER.debug("removing " + entity.getID());
-        entityManager.removeDestroyed(descriptor.getFetchID());
-        //  no need to schedule for an entity that is removed
-      } else {
-        ServerEntityRequestResponse rr = new ServerEntityRequestResponse(request, this::insertMessageInStream, ()->safeGetChannel(sourceNodeID), chaincomplete, chainfail, isReplicatedMessage);
-        rr.setTransactionOrderPersistenceFuture(transactionOrderPersistenceFuture);
-        entity.addRequestMessage(rr, entityMessage, rr);
       }
       if (trace != null) {
         trace.end();
@@ -461,9 +561,14 @@ public class ProcessTransactionHandler implements ReconnectListener {
     }
   }
 
-  private void waitForTransactionOrderPersistenceFuture(TransactionID transactionID) {
+  private Future<Void> recordOrder(ClientID sourceNodeID, TransactionID transactionID, TransactionID oldestTransactionOnClient) {
+    // This client still needs transaction order persistence.
+    return this.persistor.getTransactionOrderPersistor().updateWithNewMessage(sourceNodeID, transactionID, oldestTransactionOnClient);
+  }
+
+  private void waitForTransactionOrderPersistenceFuture(ClientID client, TransactionID transactionID) {
     if (!transactionOrderPersistenceFutures.isEmpty()) {
-      Future<Void> future = transactionOrderPersistenceFutures.remove(transactionID);
+      Future<Void> future = transactionOrderPersistenceFutures.remove(new ServerTransactionID(client, transactionID));
       if(future != null) {
         try {
           future.get();
@@ -557,10 +662,14 @@ public class ProcessTransactionHandler implements ReconnectListener {
           response.complete();
         }
         response.retired();
-      } else if (index >= 0) {
-        this.resendReplayList.insert(index, resentMessage);
       } else {
-        this.resendNewList.add(resentMessage);
+        if (index >= 0) {
+          this.resendReplayList.insert(index, resentMessage);
+        } else {
+          this.resendNewList.add(resentMessage);
+        }
+        // start decoding while the reconnect window is still open
+        this.resendReplay.collect(resentMessage);
       }
     } catch (ServerException ee) {
       ServerEntityRequest request = new ServerEntityRequestImpl(resentMessage.getEntityDescriptor().getClientInstanceID(), cachedType, resentMessage.getSource(), resentMessage.getTransactionID(), resentMessage.getOldestTransactionOnClient(), true);
@@ -573,22 +682,31 @@ public class ProcessTransactionHandler implements ReconnectListener {
   }
 
   private void processAllResends(VoltronEntityMessage trigger) {
-    //   TODO:  investigate the need to fold FETCH and RELEASE resends on top of each other
-    if (this.references == null && this.resendReplayList == null && this.resendNewList == null) {
+    if (resendsProcessed) {
       return;
-    } else {
+    }
+    // every partition of the voltron stage comes through here with its first message, the first one replays
+    // the resends while the others wait for it so that no new message overtakes a resent one
+    synchronized (this) {
+      if (this.references == null && this.resendReplayList == null && this.resendNewList == null) {
+        resendsProcessed = true;
+        return;
+      }
       LOGGER.debug("RESENDS:START");
-      synchronized (this) {
-        while (reconnecting) {
-          try {
-            this.wait();
-          } catch (InterruptedException ie) {
-            throw new RuntimeException(ie);
-          }
+      while (reconnecting) {
+        try {
+          this.wait();
+        } catch (InterruptedException ie) {
+          throw new RuntimeException(ie);
         }
       }
+      replayResends();
+      resendsProcessed = true;
     }
+  }
 
+  private void replayResends() {
+    //   TODO:  investigate the need to fold FETCH and RELEASE resends on top of each other
     // Clear the transaction order persistor since we are starting fresh.
     this.persistor.getTransactionOrderPersistor().clearAllRecords();
 
@@ -611,22 +729,29 @@ public class ProcessTransactionHandler implements ReconnectListener {
     }
     this.reconnectDone = null;
 
-    // Replay all the already-ordered messages.
-    for (VoltronEntityMessage message : this.resendReplayList) {
-      LOGGER.debug("RESENDS:" + message);
-      executeResend(message);
-    }
+    // Replay all the already-ordered messages followed by the new messages found during resends.
+    ResendReplay replay = this.resendReplay;
+    replay.order(this.resendReplayList);
+    replay.order(this.resendNewList);
     this.resendReplayList = null;
+    this.resendNewList = null;
+    this.resendReplay = null;
 
-    // Replay all the new messages found during resends.
-    for (VoltronEntityMessage message : this.resendNewList) {
+    replay.prepare();
+    long dispatchStart = System.nanoTime();
+    replay.replay((message, payload)->{
       LOGGER.debug("RESENDS:" + message);
-      executeResend(message);
-    }
+      executeResend(message, payload);
+    });
+    long dispatchNanos = System.nanoTime() - dispatchStart;
 //  remove tracking for any resent create journal entries
     this.persistor.getEntityPersistor().removeTrackingForClient(ClientID.NULL_ID);
     LOGGER.debug("RESENDS:END");
-    this.resendNewList = null;
+    if (this.handshakeManager != null) {
+      this.handshakeManager.resendReplayComplete(replay.size(), replay.getPartitionCount(), replay.getLargestPartition(),
+          replay.getDecodedInWindow(), replay.getDecodedAhead(), replay.getParallelism(), TimeUnit.NANOSECONDS.toMillis(replay.getPrepareNanos()),
+          TimeUnit.NANOSECONDS.toMillis(dispatchNanos));
+    }
 
   }
 
@@ -642,18 +767,18 @@ public class ProcessTransactionHandler implements ReconnectListener {
   }
 
   private void executeResend(VoltronEntityMessage message) {
+    executeResend(message, MessagePayload.commonMessagePayloadNotBusy(message.getExtendedData(), message.getEntityMessage(), message.doesRequireReplication()));
+  }
+
+  private void executeResend(VoltronEntityMessage message, MessagePayload payload) {
     ClientID sourceNodeID = message.getSource();
     EntityDescriptor descriptor = message.getEntityDescriptor();
     ServerEntityAction action = decodeMessageType(message.getVoltronType());
     // Note that we currently don't expect messages which already have an EntityMessage instance to appear here.
-    EntityMessage entityMessage = message.getEntityMessage();
-    Assert.assertNull(entityMessage);
-    TCByteBuffer extendedData = message.getExtendedData();
+    Assert.assertNull(message.getEntityMessage());
 
     TransactionID transactionID = message.getTransactionID();
-    boolean doesRequireReplication = message.doesRequireReplication();
     TransactionID oldestTransactionOnClient = message.getOldestTransactionOnClient();
-    MessagePayload payload = MessagePayload.commonMessagePayloadNotBusy(extendedData, entityMessage, doesRequireReplication);
     payload.setDebugId(message.toString());
 
     boolean requestedReceived = message.doesRequestReceived();
@@ -21,8 +21,11 @@ import com.tc.async.api.AbstractEventHandler;
 import com.tc.async.api.ConfigurationContext;
 import com.tc.net.groups.TCGroupManagerImpl;
 import com.tc.net.groups.TCGroupMessageWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ReceiveGroupMessageHandler extends AbstractEventHandler<TCGroupMessageWrapper> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReceiveGroupMessageHandler.class);
   private final TCGroupManagerImpl manager;
   
   public ReceiveGroupMessageHandler(TCGroupManagerImpl manager) {
@@ -31,6 +34,16 @@ public class ReceiveGroupMessageHandler extends AbstractEventHandler<TCGroupMess
   
   @Override
   public void handleEvent(TCGroupMessageWrapper wrapper) {
+    if (wrapper.isBodyCompressed()) {
+      // the comm thread leaves compressed messages for this stage to inflate and hydrate
+      try {
+        wrapper.hydrate();
+      } catch (Exception e) {
+        LOGGER.error("Error hydrating message of type " + wrapper.getMessageType(), e);
+        wrapper.getChannel().close();
+        return;
+      }
+    }
     manager.messageReceived(wrapper.getGroupMessage(), wrapper.getChannel());
   }
 
@@ -0,0 +1,412 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.objectserver.handler;
+
+import com.tc.bytes.TCByteBufferFactory;
+import com.tc.io.TCByteBufferInputStream;
+import com.tc.io.TCByteBufferOutputStream;
+import com.tc.l2.msg.ReplicationMessage;
+import com.tc.net.ServerID;
+import com.tc.text.PrettyPrintable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Disk backed history of the replication stream seen by a relay.  Messages are appended to memory mapped segment
+ * files which are rotated when full and dropped oldest first once the log exceeds its byte or time retention.  The
+ * log only has to survive as long as this server process, a restarted relay always resyncs its consumer, so nothing
+ * is forced to disk and segments from a previous run are deleted on open.
+ * <p>
+ * Record layout: int length (0 marks the end of a segment), long sequence, long timestamp millis, serialized message.
+ * <p>
+ * Segments are unmapped as soon as they are dropped so neither the mapping nor the disk space waits for a GC.
+ * <p>
+ * Not thread safe, the relay handler serializes access.
+ */
+public class RelayLog implements PrettyPrintable, Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RelayLog.class);
+
+  private static final String PREFIX = "relay-";
+  private static final String SUFFIX = ".log";
+  private static final int HEADER = Integer.BYTES + Long.BYTES + Long.BYTES;
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final long retentionBytes;
+  private final long retentionMillis;
+  private final Deque<Segment> segments = new ArrayDeque<>();
+
+  // where the last read stopped so reading on from there does not scan the segment again
+  private Segment readSegment;
+  private int readPosition;
+  private long readSequence = -1;
+  // the last sequence of the newest segment dropped so far
+  private long droppedThrough = Long.MIN_VALUE;
+
+  private long totalBytes;
+  private long appended;
+  private long dropped;
+  private long replays;
+  private long replayed;
+  private long replayedBytes;
+  private long replayNanos;
+
+  public RelayLog(Path directory, int segmentBytes, long retentionBytes, long retentionMillis) throws IOException {
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.retentionBytes = retentionBytes;
+    this.retentionMillis = retentionMillis;
+    Files.createDirectories(directory);
+    try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+      for (Path p : stale) {
+        Files.deleteIfExists(p);
+      }
+    }
+  }
+
+  public void append(ReplicationMessage msg) {
+    byte[] data = serialize(msg);
+    Segment current = segments.peekLast();
+    if (current == null || !current.fits(data.length)) {
+      if (current != null) {
+        current.seal();
+      }
+      current = openSegment(msg.getSequenceID(), Math.max(segmentBytes, HEADER + data.length + Integer.BYTES));
+      segments.addLast(current);
+    }
+    long now = System.currentTimeMillis();
+    totalBytes += current.write(msg.getSequenceID(), now, data);
+    appended += 1;
+    expire(now);
+  }
+
+  private void expire(long now) {
+    while (segments.size() > 1) {
+      Segment oldest = segments.peekFirst();
+      boolean overSize = retentionBytes > 0 && totalBytes > retentionBytes;
+      boolean overAge = retentionMillis > 0 && oldest.lastTime < now - retentionMillis;
+      if (!overSize && !overAge) {
+        break;
+      }
+      segments.removeFirst();
+      totalBytes -= oldest.position;
+      dropped += oldest.count;
+      droppedThrough = oldest.lastSeq;
+      oldest.delete();
+    }
+  }
+
+  /**
+   * @return true if {@code lastSeen} is in the log, every later message is then handed to {@code replay} in order
+   */
+  public boolean replay(long lastSeen, Consumer<ReplicationMessage> replay) {
+    List<ReplicationMessage> next = read(lastSeen, 1024);
+    if (next == null) {
+      return false;
+    }
+    while (!next.isEmpty()) {
+      next.forEach(replay);
+      next = read(next.get(next.size() - 1).getSequenceID(), 1024);
+    }
+    return true;
+  }
+
+  /**
+   * Reads the messages following {@code after}, at most {@code max} of them.  Reading on from the last message
+   * returned picks up where the previous read stopped.
+   *
+   * @return the messages in order, empty if {@code after} is the newest, or null if {@code after} is not in the log
+   *  and is not the message immediately preceding the oldest one retained
+   */
+  public List<ReplicationMessage> read(long after, int max) {
+    long start = System.nanoTime();
+    Segment current = null;
+    int pos = 0;
+    if (readSequence == after && readSegment != null && readSegment.isMapped()) {
+      current = readSegment;
+      pos = readPosition;
+    } else {
+      Iterator<Segment> it = segments.iterator();
+      while (it.hasNext() && current == null) {
+        Segment s = it.next();
+        if (s.firstSeq <= after && after <= s.lastSeq) {
+          long found = s.after(after);
+          if (found >= 0) {
+            current = s;
+            pos = (int)found;
+          }
+        }
+      }
+      if (current == null) {
+        Segment oldest = segments.peekFirst();
+        if (oldest == null || (after != droppedThrough && after + 1 != oldest.firstSeq)) {
+          return null;
+        }
+        // nothing after {@code after} was dropped, start from the oldest message retained
+        current = oldest;
+      }
+      replays += 1;
+    }
+    List<ReplicationMessage> messages = new ArrayList<>();
+    long last = after;
+    while (messages.size() < max) {
+      if (pos < current.position) {
+        ByteBuffer view = current.buffer.duplicate();
+        int len = view.getInt(pos);
+        last = view.getLong(pos + Integer.BYTES);
+        byte[] data = new byte[len];
+        view.position(pos + HEADER);
+        view.get(data);
+        messages.add(deserialize(data));
+        replayed += 1;
+        replayedBytes += len;
+        pos += HEADER + len;
+      } else {
+        Segment next = following(current);
+        if (next == null) {
+          break;
+        }
+        current = next;
+        pos = 0;
+      }
+    }
+    readSegment = current;
+    readPosition = pos;
+    readSequence = last;
+    replayNanos += System.nanoTime() - start;
+    return messages;
+  }
+
+  private Segment following(Segment segment) {
+    Iterator<Segment> it = segments.iterator();
+    while (it.hasNext()) {
+      if (it.next() == segment) {
+        return it.hasNext() ? it.next() : null;
+      }
+    }
+    return null;
+  }
+
+  public long getOldestSequence() {
+    Segment s = segments.peekFirst();
+    return s == null ? -1L : s.firstSeq;
+  }
+
+  public long getNewestSequence() {
+    Segment s = segments.peekLast();
+    return s == null ? -1L : s.lastSeq;
+  }
+
+  public long getSizeInBytes() {
+    return totalBytes;
+  }
+
+  public int getSegmentCount() {
+    return segments.size();
+  }
+
+  @Override
+  public void close() {
+    while (!segments.isEmpty()) {
+      segments.removeFirst().delete();
+    }
+    readSegment = null;
+    totalBytes = 0;
+  }
+
+  @Override
+  public Map<String, ?> getStateMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("directory", directory.toString());
+    map.put("segments", segments.size());
+    map.put("sizeBytes", totalBytes);
+    map.put("oldestSequence", getOldestSequence());
+    map.put("newestSequence", getNewestSequence());
+    Segment oldest = segments.peekFirst();
+    if (oldest != null) {
+      map.put("oldestAgeMillis", System.currentTimeMillis() - oldest.firstTime);
+    }
+    map.put("appended", appended);
+    map.put("dropped", dropped);
+    map.put("replays", replays);
+    map.put("replayed", replayed);
+    long millis = TimeUnit.NANOSECONDS.toMillis(replayNanos);
+    if (millis > 0) {
+      map.put("replayMessagesPerSecond", replayed * 1000 / millis);
+      map.put("replayBytesPerSecond", replayedBytes * 1000 / millis);
+    }
+    return map;
+  }
+
+  private Segment openSegment(long firstSeq, int size) {
+    Path file = directory.resolve(String.format("%s%020d%s", PREFIX, firstSeq, SUFFIX));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // the mapping stays valid after the channel is closed
+      return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), firstSeq);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  private static byte[] serialize(ReplicationMessage msg) {
+    TCByteBufferOutputStream out = new TCByteBufferOutputStream();
+    msg.serializeTo(out);
+    out.close();
+    try (TCByteBufferInputStream in = new TCByteBufferInputStream(out.accessBuffers())) {
+      byte[] data = new byte[in.available()];
+      in.read(data);
+      return data;
+    }
+  }
+
+  private static ReplicationMessage deserialize(byte[] data) {
+    ReplicationMessage msg = new ReplicationMessage();
+    try (TCByteBufferInputStream in = new TCByteBufferInputStream(TCByteBufferFactory.wrap(data))) {
+      msg.deserializeFrom(in);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    msg.setMessageOrginator(ServerID.NULL_ID);
+    return msg;
+  }
+
+  /**
+   * Releases the mapping now rather than when the buffer is collected.  The buffer must not be touched afterwards.
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    try {
+      try {
+        // Java 9 and later
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        invokeCleaner.invoke(theUnsafe.get(null), buffer);
+      } catch (NoSuchMethodException java8) {
+        Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(buffer);
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOGGER.warn("unable to unmap relay log segment, it is released when collected", e);
+    }
+  }
+
+  private static class Segment {
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final long firstSeq;
+    private long lastSeq;
+    private long firstTime;
+    private long lastTime;
+    private int position;
+    private int count;
+    private boolean mapped = true;
+
+    Segment(Path file, MappedByteBuffer buffer, long firstSeq) {
+      this.file = file;
+      this.buffer = buffer;
+      this.firstSeq = firstSeq;
+      this.lastSeq = firstSeq;
+    }
+
+    boolean fits(int len) {
+      // always leave room for the end marker
+      return position + HEADER + len + Integer.BYTES <= buffer.capacity();
+    }
+
+    int write(long seq, long time, byte[] data) {
+      int start = position;
+      buffer.position(start);
+      buffer.putInt(data.length);
+      buffer.putLong(seq);
+      buffer.putLong(time);
+      buffer.put(data);
+      position = buffer.position();
+      lastSeq = seq;
+      if (count++ == 0) {
+        firstTime = time;
+      }
+      lastTime = time;
+      return position - start;
+    }
+
+    void seal() {
+      buffer.putInt(position, 0);
+    }
+
+    boolean contains(long seq) {
+      return after(seq) >= 0;
+    }
+
+    /**
+     * @return the offset of the record following {@code seq}, or -1 if {@code seq} is not in this segment
+     */
+    long after(long seq) {
+      int pos = 0;
+      while (pos < position) {
+        int len = buffer.getInt(pos);
+        int next = pos + HEADER + len;
+        if (buffer.getLong(pos + Integer.BYTES) == seq) {
+          return next;
+        }
+        pos = next;
+      }
+      return -1;
+    }
+
+    boolean isMapped() {
+      return mapped;
+    }
+
+    void delete() {
+      if (mapped) {
+        mapped = false;
+        unmap(buffer);
+      }
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException ioe) {
+        LOGGER.warn("unable to delete relay log segment {}", file, ioe);
+      }
+    }
+  }
+}
@@ -29,6 +29,8 @@ import com.tc.net.groups.GroupException;
 import com.tc.net.groups.GroupManager;
 import com.tc.net.groups.GroupMessage;
 import com.tc.net.utils.L2Utils;
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.function.Predicate;
@@ -46,6 +48,7 @@ public class RelaySender {
   private static final int DEFAULT_INFLIGHT_MESSAGES = 1;
   private static final int MAXIMUMBATCHSIZE = Integer.MAX_VALUE;
   private static final int IDEALMESSAGESINFLIGHT = 1;
+  private static final boolean ACK_RANGES = TCPropertiesImpl.getProperties().getBoolean(TCPropertiesConsts.L2_NHA_ACK_RANGES, true);
 
   private final GroupManager<AbstractGroupMessage> groupManager;
   private final Predicate<GroupMessage> sendConfirm;
@@ -87,7 +90,7 @@ public class RelaySender {
   }
 
   private ReplicationMessageAck createAckMessage(ReplicationAckTuple initialActivity) {
-    ReplicationMessageAck message = ReplicationMessageAck.createBatchAck();
+    ReplicationMessageAck message = ReplicationMessageAck.createBatchAck(ACK_RANGES);
     message.addToBatch(initialActivity);
     return message;
   }
@@ -36,16 +36,30 @@ import com.tc.net.groups.AbstractGroupMessage;
 import com.tc.net.groups.GroupException;
 import com.tc.net.groups.GroupManager;
 import com.tc.objectserver.core.api.ServerConfigurationContext;
+import com.tc.properties.TCProperties;
+import com.tc.properties.TCPropertiesImpl;
+import com.tc.text.PrettyPrintable;
 import com.tc.util.Assert;
 import com.tc.util.SimpleRingBuffer;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terracotta.server.ServerEnv;
 
 
-public class RelayTransactionHandler {
+public class RelayTransactionHandler implements PrettyPrintable {
   private static final Logger PLOGGER = LoggerFactory.getLogger(MessagePayload.class);
   private static final Logger LOGGER = LoggerFactory.getLogger(RelayTransactionHandler.class);
+  // catch up replays are sent in the same batches as replication to a passive
+  private static final int REPLAY_BATCH_SIZE = TCPropertiesImpl.getProperties().getInt("active-passive.batchsize", 1024);
+  private static final int REPLAY_MESSAGES_IN_FLIGHT = TCPropertiesImpl.getProperties().getInt("active-passive.inflight", 1);
 
   private final GroupManager<AbstractGroupMessage> groupManager;
   private final PassiveAckSender ackSender;
@@ -53,13 +67,42 @@ public class RelayTransactionHandler {
   private StateManager stateMgr;
   private ServerID endTarget = ServerID.NULL_ID;
   private volatile GroupMessageBatchContext<RelayMessage, ReplicationMessage> forward;
+  // set while a resumed consumer is caught up from the history, live messages are then only recorded and the catch
+  //  up reads them back in order
+  private boolean catchingUp;
   
   private final SimpleRingBuffer<ReplicationMessage> history = new SimpleRingBuffer<>(5000);
+  // optional disk backed history for consumers that fall further behind than the ring, closed with the stage
+  private RelayLog log;
   
   public RelayTransactionHandler(Stage<Runnable> sendToActive, GroupManager<AbstractGroupMessage> groupManager) {
+    this(sendToActive, groupManager, createRelayLog());
+  }
+
+  public RelayTransactionHandler(Stage<Runnable> sendToActive, GroupManager<AbstractGroupMessage> groupManager, RelayLog log) {
     this.groupManager = groupManager;
     this.ackSender = new PassiveAckSender(groupManager, m->true, sendToActive.getSink());
     this.relaySender = sendToActive;
+    this.log = log;
+  }
+
+  private static RelayLog createRelayLog() {
+    TCProperties props = TCPropertiesImpl.getProperties();
+    String dir = props.getProperty("l2.relay.log.dir", true);
+    if (dir == null || dir.trim().isEmpty()) {
+      return null;
+    }
+    // servers may share the configured directory, each one only ever opens and cleans its own subdirectory
+    String server = ServerEnv.getServer().getIdentifier().replaceAll("[^A-Za-z0-9._-]", "_");
+    try {
+      return new RelayLog(Paths.get(dir.trim()).resolve(server),
+          props.getInt("l2.relay.log.segment.bytes", 64 * 1024 * 1024),
+          props.getLong("l2.relay.log.retention.bytes", 1024L * 1024 * 1024),
+          TimeUnit.SECONDS.toMillis(props.getLong("l2.relay.log.retention.seconds", 0L)));
+    } catch (IOException ioe) {
+      LOGGER.warn("unable to open relay log in {}, relay history is limited to memory", dir, ioe);
+      return null;
+    }
   }
   
   private static RelayMessage createRelayMessage(ReplicationMessage first) {
@@ -85,13 +128,25 @@ public class RelayTransactionHandler {
       ServerConfigurationContext scxt = (ServerConfigurationContext)context;
       stateMgr = scxt.getL2Coordinator().getStateManager();
     } 
+
+    @Override
+    public void destroy() {
+      closeLog();
+    }
   };
+
+  private synchronized void closeLog() {
+    if (log != null) {
+      log.close();
+      log = null;
+    }
+  }
   
   public boolean resumeRelayConsumer(ServerID node, long lastSeen) {
     NodeID active = stateMgr.getActiveNodeID();
     TCLogging.getConsoleLogger().info("remote node connected for resumption of duplication {}", node);
     if (!active.isNull() && endTarget.equals(node)) {
-      return replayHistory(new GroupMessageBatchContext<>(RelayTransactionHandler::createRelayMessage, groupManager, node, Integer.MAX_VALUE, 1, n->sendToRelayTarget()), lastSeen);
+      return replayHistory(new GroupMessageBatchContext<>(RelayTransactionHandler::createRelayMessage, groupManager, node, REPLAY_BATCH_SIZE, REPLAY_MESSAGES_IN_FLIGHT, n->sendToRelayTarget()), lastSeen);
     } else {
       return false;
     }
@@ -125,27 +180,97 @@ public class RelayTransactionHandler {
     for (SyncReplicationActivity activity : rep.getActivities()) {
       ackSender.acknowledge(activeSender, activity, ReplicationResultCode.NONE);
     }
-    addToHistory(rep);
-    
-    if (this.forward.batchMessage(rep)) {
+    GroupMessageBatchContext<RelayMessage, ReplicationMessage> target = addToHistory(rep);
+
+    if (target != null && target.batchMessage(rep)) {
       sendToRelayTarget();
     }
   }
-  
-  private synchronized void addToHistory(ReplicationMessage msg) {
+
+  /**
+   * @return where to forward the message now, null while a catch up will pick it up from the history
+   */
+  private synchronized GroupMessageBatchContext<RelayMessage, ReplicationMessage> addToHistory(ReplicationMessage msg) {
     history.put(msg);
+    if (log != null) {
+      try {
+        log.append(msg);
+      } catch (RuntimeException e) {
+        LOGGER.warn("unable to append to relay log, relay history is limited to memory", e);
+      }
+    }
+    return catchingUp ? null : this.forward;
   }
-  
-  private synchronized boolean replayHistory(GroupMessageBatchContext<RelayMessage, ReplicationMessage> batcher, long lastSeen) {
-    boolean valid = history.stream().filter(m->m.getSequenceID() == lastSeen).findFirst().isPresent();
-    if (valid) {
-      history.stream().filter(m->m.getSequenceID() > lastSeen).peek(m->System.out.println("replaying:" + m)).forEach(batcher::batchMessage);
-      sendToRelayTarget();
+
+  /**
+   * Sends the consumer everything after {@code lastSeen}.  The history is read a batch at a time under the lock and
+   * each batch is handed to the sender outside of it, which waits for the previous batch to go out, so neither the
+   * heap nor live forwarding is held up by a long catch up.  Live messages arriving meanwhile are read back from the
+   * history and the switch to forwarding them directly happens under the lock once nothing is left to read.
+   */
+  private boolean replayHistory(GroupMessageBatchContext<RelayMessage, ReplicationMessage> batcher, long lastSeen) {
+    GroupMessageBatchContext<RelayMessage, ReplicationMessage> previous;
+    synchronized (this) {
+      if (readHistory(lastSeen, 1) == null) {
+        return false;
+      }
+      previous = this.forward;
       this.forward = batcher;
-      return true;
+      this.catchingUp = true;
+    }
+    long cursor = lastSeen;
+    long replayed = 0;
+    while (true) {
+      List<ReplicationMessage> next;
+      synchronized (this) {
+        next = readHistory(cursor, REPLAY_BATCH_SIZE);
+        if (next == null) {
+          // fell out of the history while catching up, the consumer has to start over
+          LOGGER.warn("relay history after {} was dropped during catch up", cursor);
+          this.forward = previous;
+          this.catchingUp = false;
+          return false;
+        } else if (next.isEmpty()) {
+          this.catchingUp = false;
+          LOGGER.info("replayed {} relay messages after {}", replayed, lastSeen);
+          return true;
+        }
+      }
+      for (ReplicationMessage m : next) {
+        if (batcher.batchMessage(m)) {
+          sendToRelayTarget();
+        }
+      }
+      replayed += next.size();
+      cursor = next.get(next.size() - 1).getSequenceID();
+    }
+  }
+
+  /**
+   * @return up to {@code max} messages following {@code after}, from the in-memory ring if it still holds
+   *  {@code after} and from the disk log otherwise, or null if neither does
+   */
+  private List<ReplicationMessage> readHistory(long after, int max) {
+    if (history.stream().anyMatch(m->m.getSequenceID() == after)) {
+      return history.stream().filter(m->m.getSequenceID() > after).limit(max).collect(Collectors.toList());
+    } else if (log != null) {
+      // the consumer is further behind than the in-memory ring, try the disk log
+      return log.read(after, max);
     } else {
-      return false;
+      return null;
+    }
+  }
+
+  @Override
+  public synchronized Map<String, ?> getStateMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("className", this.getClass().getName());
+    map.put("relayTarget", endTarget.toString());
+    map.put("catchingUp", catchingUp);
+    if (log != null) {
+      map.put("log", log.getStateMap());
     }
+    return map;
   }
   
   private void sendToRelayTarget() {
@@ -0,0 +1,201 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.objectserver.handler;
+
+import com.tc.text.PrettyPrintable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The batch size and in-flight message limits used by a {@link GroupMessageBatchContext}.  A fixed window always
+ * reports the limits it was built with.  An adaptive window starts from the configured limits and tunes them from
+ * the ack round trip of the replication link.
+ * <p>
+ * One activity at a time is used as a probe.  The time from sending the batch holding the probe to the first ack
+ * covering it is the round trip of the link.  Time the probe spent queued for a batch slot is left out, it grows as
+ * the window shrinks and would otherwise keep a busy link at its smallest window.  If a sample is over the target
+ * latency the in-flight limit is halved, or the batch size limit once only one message is allowed in flight.  If a
+ * sample is within the target and a batch reached the size limit since the last sample, the link has room and
+ * demand, so the batch size limit grows by one step, or the in-flight limit by one once the batch size is at its
+ * maximum.
+ */
+public class ReplicationWindow implements PrettyPrintable {
+
+  private static final double WEIGHT = 0.125;
+  private static final int MINIMUM_BATCH_SIZE = 16;
+
+  private final boolean adaptive;
+  private final int maximumBatchSize;
+  private final int maximumMessagesInFlight;
+  private final int batchStep;
+  private final long targetLatency;
+
+  private volatile int batchSize;
+  private volatile int messagesInFlight;
+
+  private long probe = -1;
+  private boolean probeSent;
+  private long probeStart;
+  private boolean filled;
+  private long samples;
+  private long increases;
+  private long decreases;
+  private double smoothedLatency;
+  private long minimumLatency = Long.MAX_VALUE;
+
+  private ReplicationWindow(boolean adaptive, int batchSize, int maximumBatchSize, int messagesInFlight, int maximumMessagesInFlight, long targetLatencyNanos) {
+    this.adaptive = adaptive;
+    this.batchSize = batchSize;
+    this.maximumBatchSize = maximumBatchSize;
+    this.messagesInFlight = messagesInFlight;
+    this.maximumMessagesInFlight = maximumMessagesInFlight;
+    this.batchStep = Math.max(1, maximumBatchSize / 16);
+    this.targetLatency = targetLatencyNanos;
+  }
+
+  /**
+   * @param batchSize the batch size limit
+   * @param messagesInFlight the ideal number of messages in flight, zero for no limit
+   */
+  public static ReplicationWindow fixed(int batchSize, int messagesInFlight) {
+    return new ReplicationWindow(false, batchSize, batchSize, messagesInFlight, messagesInFlight, 0);
+  }
+
+  /**
+   * @param maximumBatchSize the batch size limit to start from and never exceed
+   * @param messagesInFlight the number of messages in flight to start from
+   * @param maximumMessagesInFlight the largest number of messages in flight
+   * @param targetLatency the ack round trip to stay under
+   * @param unit the unit of {@code targetLatency}
+   */
+  public static ReplicationWindow adaptive(int maximumBatchSize, int messagesInFlight, int maximumMessagesInFlight, long targetLatency, TimeUnit unit) {
+    int ceiling = Math.max(1, maximumMessagesInFlight);
+    int start = Math.min(ceiling, Math.max(1, messagesInFlight));
+    return new ReplicationWindow(true, maximumBatchSize, maximumBatchSize, start, ceiling, unit.toNanos(targetLatency));
+  }
+
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public int getMessagesInFlight() {
+    return messagesInFlight;
+  }
+
+  /**
+   * Called when a batch leaves for the network.  The probe is timed from the first batch sent after it was batched,
+   * which is the batch holding it.
+   *
+   * @param count the number of activities in the batch
+   * @param now the current {@link System#nanoTime()}
+   */
+  public void batchSent(int count, long now) {
+    if (adaptive) {
+      synchronized (this) {
+        if (count >= batchSize) {
+          filled = true;
+        }
+        if (probe >= 0 && !probeSent) {
+          probeSent = true;
+          probeStart = now;
+        }
+      }
+    }
+  }
+
+  /**
+   * Called when an activity has been batched, under the same lock as the batch is sent so the next batch sent is
+   * the one holding it.  The activity becomes the probe if no probe is outstanding.
+   *
+   * @param id the activity id, ids are expected to grow over time
+   */
+  public void activityBatched(long id) {
+    if (adaptive) {
+      synchronized (this) {
+        if (probe < 0) {
+          probe = id;
+          probeSent = false;
+        }
+      }
+    }
+  }
+
+  /**
+   * Called when the passive acks activities.
+   *
+   * @param highestId the highest activity id covered by the ack
+   * @param now the current {@link System#nanoTime()}
+   */
+  public void acknowledged(long highestId, long now) {
+    if (adaptive) {
+      synchronized (this) {
+        if (probe >= 0 && probeSent && highestId >= probe) {
+          probe = -1;
+          sample(Math.max(0, now - probeStart));
+        }
+      }
+    }
+  }
+
+  private void sample(long latency) {
+    samples += 1;
+    smoothedLatency = (samples == 1) ? latency : smoothedLatency + WEIGHT * (latency - smoothedLatency);
+    minimumLatency = Math.min(minimumLatency, latency);
+    if (latency > targetLatency) {
+      if (messagesInFlight > 1) {
+        messagesInFlight = messagesInFlight / 2;
+      } else {
+        batchSize = Math.max(Math.min(MINIMUM_BATCH_SIZE, maximumBatchSize), batchSize / 2);
+      }
+      decreases += 1;
+    } else if (filled) {
+      if (batchSize < maximumBatchSize) {
+        batchSize = Math.min(maximumBatchSize, batchSize + batchStep);
+        increases += 1;
+      } else if (messagesInFlight < maximumMessagesInFlight) {
+        messagesInFlight += 1;
+        increases += 1;
+      }
+    }
+    filled = false;
+  }
+
+  @Override
+  public synchronized Map<String, ?> getStateMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("adaptive", adaptive);
+    map.put("batchSize", batchSize);
+    map.put("messagesInFlight", messagesInFlight);
+    if (adaptive) {
+      map.put("maximumBatchSize", maximumBatchSize);
+      map.put("maximumMessagesInFlight", maximumMessagesInFlight);
+      map.put("targetLatencyMicros", TimeUnit.NANOSECONDS.toMicros(targetLatency));
+      map.put("samples", samples);
+      map.put("increases", increases);
+      map.put("decreases", decreases);
+      map.put("recentLatencyMicros", TimeUnit.NANOSECONDS.toMicros((long)smoothedLatency));
+      map.put("minimumLatencyMicros", (samples > 0) ? TimeUnit.NANOSECONDS.toMicros(minimumLatency) : 0L);
+    }
+    return map;
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.objectserver.handler;
+
+import com.tc.entity.VoltronEntityMessage;
+import com.tc.exception.ServerException;
+import com.tc.object.EntityDescriptor;
+import com.tc.objectserver.api.ManagedEntity;
+import com.tc.objectserver.entity.MessagePayload;
+import com.tc.util.DaemonThreadFactory;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import org.terracotta.entity.MessageCodec;
+import org.terracotta.entity.MessageCodecException;
+
+/**
+ * The set of resent messages collected during a reconnect window, in the order they must be replayed.
+ * <p>
+ * Resends are partitioned by the entity they target.  Invoke payloads are decoded ahead of replay so the process
+ * transaction thread only has to schedule them.  Once enough resends have been collected, decoding starts on a small
+ * worker pool while the reconnect window is still open, so it overlaps the wait for the remaining clients.  Decoding
+ * within a partition is chained so a codec never sees two messages of the same entity at once, and scheduling still
+ * happens one message at a time on the calling thread in global replay order, so ordering by entity and by
+ * concurrency key is exactly what a serial replay would produce.
+ * <p>
+ * Collection and replay are driven by the threads of the reconnect handshake and are expected to be serialized by
+ * the caller.
+ */
+class ResendReplay {
+
+  private final EntityLookup lookup;
+  private final int threads;
+  private final int threshold;
+  private final Map<VoltronEntityMessage, Resend> collected = new IdentityHashMap<>();
+  private final Map<Object, Partition> partitions = new LinkedHashMap<>();
+  private final List<Resend> ordered = new ArrayList<>();
+  private ExecutorService pool;
+  private int decodedInWindow;
+  private int decodedAhead;
+  private int parallelism = 1;
+  private long prepareNanos;
+
+  /**
+   * @param lookup resolves the managed entity for a descriptor; called on the collecting thread only
+   * @param threads maximum number of worker threads to use
+   * @param threshold minimum number of resends before a worker pool is used at all
+   */
+  ResendReplay(EntityLookup lookup, int threads, int threshold) {
+    this.lookup = lookup;
+    this.threads = threads;
+    this.threshold = threshold;
+  }
+
+  /**
+   * Collect a resend as it arrives during the reconnect window.  Replay order is decided later by {@link #order}.
+   */
+  void collect(VoltronEntityMessage message) {
+    MessagePayload payload = MessagePayload.commonMessagePayloadNotBusy(message.getExtendedData(), message.getEntityMessage(), message.doesRequireReplication());
+    Resend resend = new Resend(message, payload);
+    collected.put(message, resend);
+    EntityDescriptor descriptor = message.getEntityDescriptor();
+    Object key = descriptor.isIndexed() ? descriptor.getFetchID() : descriptor.getEntityID();
+    Partition partition = partitions.computeIfAbsent(key, k -> new Partition(lookup(descriptor)));
+    partition.pending.add(resend);
+    partition.size += 1;
+    if (pool != null) {
+      submit(partition);
+    } else if (threads > 1 && collected.size() >= threshold) {
+      parallelism = threads;
+      pool = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("resend-replay-"));
+      partitions.values().forEach(this::submit);
+    }
+  }
+
+  /**
+   * Fix the replay order.  Every message must have been collected first.
+   */
+  void order(Iterable<VoltronEntityMessage> messages) {
+    for (VoltronEntityMessage message : messages) {
+      Resend resend = collected.get(message);
+      if (resend == null) {
+        throw new IllegalStateException("resend was not collected " + message);
+      }
+      ordered.add(resend);
+    }
+  }
+
+  /**
+   * Wait for the decoding started during the window and decode whatever is left on the calling thread.  Partitions
+   * targeting entities which are created as part of this replay are left alone and are decoded by the entity when
+   * they are scheduled.
+   */
+  void prepare() {
+    long start = System.nanoTime();
+    try {
+      decodedInWindow = getDecoded();
+      for (Partition p : partitions.values()) {
+        p.chain.join();
+        p.pending.forEach(r->decode(r, p.codec));
+        p.pending.clear();
+      }
+    } finally {
+      if (pool != null) {
+        pool.shutdown();
+      }
+    }
+    for (Resend r : ordered) {
+      if (r.decoded) {
+        decodedAhead += 1;
+      }
+    }
+    prepareNanos = System.nanoTime() - start;
+  }
+
+  private void submit(Partition partition) {
+    for (Resend r : partition.pending) {
+      partition.chain = partition.chain.thenRunAsync(()->decode(r, partition.codec), pool);
+    }
+    partition.pending.clear();
+  }
+
+  private MessageCodec<?, ?> lookup(EntityDescriptor descriptor) {
+    try {
+      Optional<ManagedEntity> entity = lookup.getEntity(descriptor);
+      return entity.isPresent() ? entity.get().getCodec() : null;
+    } catch (ServerException ee) {
+      // the entity will report this properly when the message is scheduled
+      return null;
+    }
+  }
+
+  private static void decode(Resend r, MessageCodec<?, ?> codec) {
+    if (codec != null && r.getMessage().getVoltronType() == VoltronEntityMessage.Type.INVOKE_ACTION) {
+      try {
+        r.getPayload().decodeMessage(raw->codec.decodeMessage(raw));
+      } catch (MessageCodecException ce) {
+        // the failure is cached in the payload and delivered through the normal invoke path
+      }
+      r.decoded = true;
+    }
+  }
+
+  void replay(BiConsumer<VoltronEntityMessage, MessagePayload> target) {
+    for (Resend r : ordered) {
+      target.accept(r.getMessage(), r.getPayload());
+    }
+  }
+
+  int size() {
+    return ordered.size();
+  }
+
+  int getPartitionCount() {
+    return partitions.size();
+  }
+
+  int getLargestPartition() {
+    int max = 0;
+    for (Partition p : partitions.values()) {
+      max = Math.max(max, p.size);
+    }
+    return max;
+  }
+
+  /**
+   * @return the number of collected resends decoded so far; called on the collecting thread only
+   */
+  int getDecoded() {
+    int decoded = 0;
+    for (Resend r : collected.values()) {
+      if (r.decoded) {
+        decoded += 1;
+      }
+    }
+    return decoded;
+  }
+
+  int getDecodedInWindow() {
+    return decodedInWindow;
+  }
+
+  int getDecodedAhead() {
+    return decodedAhead;
+  }
+
+  int getParallelism() {
+    return parallelism;
+  }
+
+  long getPrepareNanos() {
+    return prepareNanos;
+  }
+
+  interface EntityLookup {
+    Optional<ManagedEntity> getEntity(EntityDescriptor descriptor) throws ServerException;
+  }
+
+  private static class Partition {
+    private final MessageCodec<?, ?> codec;
+    private final List<Resend> pending = new ArrayList<>();
+    private CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+    private int size;
+
+    Partition(MessageCodec<?, ?> codec) {
+      this.codec = codec;
+    }
+  }
+
+  static class Resend {
+    private final VoltronEntityMessage message;
+    private final MessagePayload payload;
+    private volatile boolean decoded;
+
+    Resend(VoltronEntityMessage message, MessagePayload payload) {
+      this.message = message;
+      this.payload = payload;
+    }
+
+    VoltronEntityMessage getMessage() {
+      return message;
+    }
+
+    MessagePayload getPayload() {
+      return payload;
+    }
+  }
+}
@@ -24,6 +24,8 @@ import com.tc.net.protocol.tcm.TCAction;
 public class ResponseMessage implements MultiThreadedEventContext {
 
   private final TCAction response;
+  private final long created = System.nanoTime();
+  private boolean lingered;
 
   public ResponseMessage(TCAction response) {
     this.response = response;
@@ -33,6 +35,18 @@ public class ResponseMessage implements MultiThreadedEventContext {
     return response;
   }
 
+  long getCreated() {
+    return created;
+  }
+
+  boolean hasLingered() {
+    return lingered;
+  }
+
+  void linger() {
+    lingered = true;
+  }
+
   @Override
   public Object getSchedulingKey() {
     return response.getDestinationNodeID();
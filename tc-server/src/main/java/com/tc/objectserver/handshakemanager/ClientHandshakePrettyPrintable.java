@@ -18,6 +18,7 @@
 package com.tc.objectserver.handshakemanager;
 
 import com.tc.net.protocol.tcm.MessageChannel;
+import com.tc.objectserver.handler.ClientResponseStats;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import com.tc.text.PrettyPrintable;
@@ -47,6 +48,10 @@ public class ClientHandshakePrettyPrintable implements PrettyPrintable {
             hs.put("version", target.getVersion());
             hs.put("revision", target.getRevision());
             hs.put("clientReportedAddress", target.getClientReportedAddress());
+            Object responses = c.getAttachment(ClientResponseStats.ATTACHMENT);
+            if (responses instanceof PrettyPrintable) {
+              hs.put("responses", ((PrettyPrintable)responses).getStateMap());
+            }
             map.put(c.toString(), hs);
           }
         }
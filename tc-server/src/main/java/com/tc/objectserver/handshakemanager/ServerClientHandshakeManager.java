@@ -46,12 +46,15 @@ import com.tc.objectserver.entity.ReferenceMessage;
 import com.tc.objectserver.handler.ProcessTransactionHandler;
 import com.tc.productinfo.ProductInfo;
 import com.tc.properties.TCPropertiesImpl;
+import com.tc.text.PrettyPrintable;
 import com.tc.util.Assert;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Timer;
@@ -60,7 +63,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 
-public class ServerClientHandshakeManager {
+public class ServerClientHandshakeManager implements PrettyPrintable {
   private static enum State {
     INIT,
     STARTING,
@@ -80,6 +83,7 @@ public class ServerClientHandshakeManager {
   private final Logger consoleLogger;
   private final Sink<VoltronEntityMessage> voltron;
   private final ProductInfo productInfo;
+  private ReconnectTimings               timings                   = new ReconnectTimings();
 
   public ServerClientHandshakeManager(Logger logger, ConsistencyManager consistency, DSOChannelManager channelManager,
                                       Timer timer, Supplier<Long> reconnectTimeoutSupplier, Sink<VoltronEntityMessage> voltron,
@@ -124,6 +128,8 @@ public class ServerClientHandshakeManager {
         sendAckMessageFor(clientID);
       } else if (this.state == State.STARTING) {
         // This is a client reconnecting after a restart.
+        long handshakeStart = System.nanoTime();
+        int resends = 0;
         
         this.channelManager.makeChannelActiveNoAck(handshake.getChannel());
         
@@ -152,7 +158,9 @@ public class ServerClientHandshakeManager {
         for (ResendVoltronEntityMessage resentMessage : handshake.getResendMessages()) {
           logger.debug("RESENT:" + resentMessage.getVoltronType() + " " + resentMessage.getEntityDescriptor());
           transactionHandler.handleResentMessage(resentMessage);
+          resends += 1;
         }
+        timings.clientReconnected(handshakeStart, handshake.getReconnectReferences().size(), resends);
 
         // Now that we have processed everything from this resend, see if it was the last one.
         this.logger.debug("Removing client " + clientID + " from set of existing unconnected clients.");
@@ -196,6 +204,7 @@ public class ServerClientHandshakeManager {
           .info("Reconnect window closing.  Killing any previously connected clients that failed to connect in time: "
                 + this.unconnectedClients);
       this.channelManager.closeAll(this.unconnectedClients);
+      this.timings.windowClosed("TIMEOUT", this.unconnectedClients.size());
       this.unconnectedClients.clear();
       this.consoleLogger.info("Reconnect window closed. All dead clients removed.");
       start();
@@ -207,6 +216,8 @@ public class ServerClientHandshakeManager {
   // Should be called from within the sync block
   private void start() {
     this.timer.cancel();
+    long activationStart = System.nanoTime();
+    this.timings.windowClosed(this.timings.expectedClients == 0 ? "NO_CLIENTS" : "ALL_CLIENTS", 0);
     final Set<NodeID> cids = Collections.unmodifiableSet(this.channelManager.getAllClientIDs());
     if (!cids.isEmpty()) {
       this.consoleLogger.info("Reconnection with {} clients ", cids.size());
@@ -230,6 +241,7 @@ public class ServerClientHandshakeManager {
       }
     }
     this.state = State.STARTED;
+    this.timings.activated(activationStart);
     notifyComplete(!cids.isEmpty());
     // Tell the transaction handler the message to replay any resends we received.  Schedule a noop 
     // in case all the clients are waiting on resends
@@ -255,6 +267,8 @@ public class ServerClientHandshakeManager {
   public synchronized void setStarting(Set<ClientID> existingClients) {
     assertInit();
     this.state = State.STARTING;
+    this.timings = new ReconnectTimings();
+    this.timings.windowOpened(existingClients.size(), existingClients.isEmpty() ? 0 : reconnectTimeoutSupplier.get());
     if (existingClients.isEmpty()) {
       start();
     } else {
@@ -298,6 +312,24 @@ public class ServerClientHandshakeManager {
     }
   }
 
+  /**
+   * Called by the transaction handler once every resend collected during the reconnect window has been scheduled.
+   */
+  public synchronized void resendReplayComplete(int resends, int partitions, int largestPartition, int decodedInWindow,
+                                                int decodedAhead, int parallelism, long prepareMillis, long dispatchMillis) {
+    this.timings.replayed(resends, partitions, largestPartition, decodedInWindow, decodedAhead, parallelism, prepareMillis, dispatchMillis);
+  }
+
+  @Override
+  public synchronized Map<String, ?> getStateMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("className", this.getClass().getName());
+    map.put("state", this.state);
+    map.put("unconnectedClients", this.unconnectedClients.size());
+    map.put("reconnect", this.timings.getStateMap());
+    return map;
+  }
+
   private void assertInit() {
     if (this.state != State.INIT) { throw new AssertionError("Should be in STARTING state: " + this.state); }
   }
@@ -315,6 +347,117 @@ public class ServerClientHandshakeManager {
     return this.unconnectedClients.remove(cid) && this.unconnectedClients.isEmpty();
   }
 
+  /**
+   * Wall clock accounting of each phase of the reconnect window.  All offsets are millis since the window opened.
+   * Guarded by the handshake manager monitor.
+   */
+  private static class ReconnectTimings {
+    private long windowOpenedNanos;
+    private long windowOpenedAt;
+    private long windowMillis;
+    private int expectedClients;
+    private int reconnectedClients;
+    private long firstClientOffset = -1;
+    private long lastClientOffset = -1;
+    private int resentReferences;
+    private int resentMessages;
+    private long handshakeNanos;
+    private long maxHandshakeNanos;
+    private String closedBy;
+    private int droppedClients;
+    private long windowClosedOffset = -1;
+    private long activationNanos;
+    private long activatedOffset = -1;
+    private int replayedResends;
+    private int replayPartitions;
+    private int replayLargestPartition;
+    private int replayDecodedInWindow;
+    private int replayDecodedAhead;
+    private int replayParallelism;
+    private long replayPrepareMillis;
+    private long replayDispatchMillis;
+    private long replayedOffset = -1;
+
+    void windowOpened(int expected, long windowMillis) {
+      this.windowOpenedNanos = System.nanoTime();
+      this.windowOpenedAt = System.currentTimeMillis();
+      this.windowMillis = windowMillis;
+      this.expectedClients = expected;
+    }
+
+    void clientReconnected(long startNanos, int references, int resends) {
+      long now = System.nanoTime();
+      if (firstClientOffset < 0) {
+        firstClientOffset = offset(now);
+      }
+      lastClientOffset = offset(now);
+      reconnectedClients += 1;
+      resentReferences += references;
+      resentMessages += resends;
+      handshakeNanos += now - startNanos;
+      maxHandshakeNanos = Math.max(maxHandshakeNanos, now - startNanos);
+    }
+
+    void windowClosed(String reason, int dropped) {
+      if (closedBy == null) {
+        closedBy = reason;
+        droppedClients = dropped;
+        windowClosedOffset = offset(System.nanoTime());
+      }
+    }
+
+    void activated(long startNanos) {
+      long now = System.nanoTime();
+      activationNanos = now - startNanos;
+      activatedOffset = offset(now);
+    }
+
+    void replayed(int resends, int partitions, int largestPartition, int decodedInWindow, int decodedAhead, int parallelism, long prepareMillis, long dispatchMillis) {
+      replayedResends = resends;
+      replayPartitions = partitions;
+      replayLargestPartition = largestPartition;
+      replayDecodedInWindow = decodedInWindow;
+      replayDecodedAhead = decodedAhead;
+      replayParallelism = parallelism;
+      replayPrepareMillis = prepareMillis;
+      replayDispatchMillis = dispatchMillis;
+      replayedOffset = offset(System.nanoTime());
+    }
+
+    private long offset(long nanos) {
+      return TimeUnit.NANOSECONDS.toMillis(nanos - windowOpenedNanos);
+    }
+
+    Map<String, Object> getStateMap() {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("windowOpenedAt", windowOpenedAt);
+      map.put("windowMillis", windowMillis);
+      map.put("expectedClients", expectedClients);
+      map.put("reconnectedClients", reconnectedClients);
+      map.put("firstClientMillis", firstClientOffset);
+      map.put("lastClientMillis", lastClientOffset);
+      map.put("resentReferences", resentReferences);
+      map.put("resentMessages", resentMessages);
+      map.put("handshakeMillis", TimeUnit.NANOSECONDS.toMillis(handshakeNanos));
+      map.put("maxHandshakeMillis", TimeUnit.NANOSECONDS.toMillis(maxHandshakeNanos));
+      map.put("closedBy", closedBy);
+      map.put("droppedClients", droppedClients);
+      map.put("windowClosedMillis", windowClosedOffset);
+      map.put("activationMillis", TimeUnit.NANOSECONDS.toMillis(activationNanos));
+      map.put("activatedMillis", activatedOffset);
+      map.put("replayedResends", replayedResends);
+      map.put("replayPartitions", replayPartitions);
+      map.put("replayLargestPartition", replayLargestPartition);
+      map.put("replayDecodedInWindow", replayDecodedInWindow);
+      map.put("replayDecodedAhead", replayDecodedAhead);
+      map.put("replayParallelism", replayParallelism);
+      map.put("replayPrepareMillis", replayPrepareMillis);
+      map.put("replayDispatchMillis", replayDispatchMillis);
+      map.put("replayedMillis", replayedOffset);
+      return map;
+    }
+  }
+
   /**
    * Notifies handshake manager that the reconnect time has passed.
    * 
@@ -153,6 +153,7 @@ import com.tc.server.TCServer;
 import com.tc.services.CommunicatorService;
 import com.tc.services.EntityMessengerProvider;
 import com.tc.services.LocalMonitoringProducer;
+import com.tc.services.SingleThreadedTimer;
 import com.tc.services.TerracottaServiceProviderRegistryImpl;
 import com.tc.stats.counter.CounterManager;
 import com.tc.stats.counter.CounterManagerImpl;
@@ -269,6 +270,9 @@ public class DistributedObjectServer {
   protected NetworkListener                      l1Diagnostics;
   private CommunicationsManager                  communicationsManager;
   private ServerConfigurationContext             context;
+  private RelayTransactionHandler                relayHandler;
+  private ReplicationSender                      replicationSender;
+  private SingleThreadedTimer                    serverTimer;
   private CounterManager                         sampledCounterManager;
   private ServerManagementContext                managementContext;
   private Persistor                              persistor;
@@ -378,7 +382,13 @@ public class DistributedObjectServer {
     if (managementContext != null) {
       collectState(new ClientHandshakePrettyPrintable(this.managementContext.getChannelManager().getActiveChannels()), pp);
     }
+    if (this.context != null) {
+      collectState(this.context.getClientHandshakeManager(), pp);
+    }
     collectState(this.groupCommManager, pp);
+    collectState(this.relayHandler, pp);
+    collectState(this.replicationSender, pp);
+    collectState(this.serverTimer, pp);
     collectState(this.l2Coordinator, pp);
     collectState(this.entityManager, pp);
     collectState(this.serviceRegistry, pp);
@@ -507,7 +517,10 @@ public class DistributedObjectServer {
     final ProductInfo pInfo = server.productInfo();
     PlatformServer thisServer = new PlatformServer(server.getL2Identifier(), host, ip.getHostAddress(), bindAddress, serverPort, l2DSOConfig.getGroupPort().getPort(), pInfo.buildVersion(), pInfo.buildID(), ServerEnv.getServer().getStartTime());
 
-    final LocalMonitoringProducer monitoringShimService = new LocalMonitoringProducer(this.configSetupManager.getServiceLocator().getServiceLoader(), this.serviceRegistry, thisServer, this.threadGroup);
+    // one timer thread serves the monitoring shim and the group handshakes
+    this.serverTimer = new SingleThreadedTimer(null, this.threadGroup, ServerEnv.getServer().getIdentifier() + " - Server timer", true);
+    this.serverTimer.start();
+    final LocalMonitoringProducer monitoringShimService = new LocalMonitoringProducer(this.configSetupManager.getServiceLocator().getServiceLoader(), this.serviceRegistry, thisServer, this.threadGroup, this.serverTimer);
     this.serviceRegistry.registerImplementationProvided(monitoringShimService);
 
     // ***** NOTE:  At this point, since we are about to create a subregistry for the platform, the serviceRegistry must be complete!
@@ -684,25 +697,33 @@ public class DistributedObjectServer {
     entityManager = new EntityManagerImpl(this.serviceRegistry, clientEntityStateManager, eventCollector, processor, this::flushLocalPipeline, this.configSetupManager.getServiceLocator());
     // We need to set up a stage to point at the ProcessTransactionHandler and we also need to register it for events, below.
     final ProcessTransactionHandler processTransactionHandler = new ProcessTransactionHandler(this.persistor, channelManager, entityManager);
-    stageManager.createStage(ServerConfigurationContext.VOLTRON_MESSAGE_STAGE, VoltronEntityMessage.class, processTransactionHandler.getVoltronMessageHandler(), 1, fastStageSize, USE_DIRECT, true).setSpinningCount(1000);
-    stageManager.createStage(ServerConfigurationContext.RESPOND_TO_REQUEST_STAGE, ResponseMessage.class, processTransactionHandler.getMultiResponseSender(), L2Utils.getOptimalCommWorkerThreads());
+    // partitioned by client, see VoltronEntityMessage.getSchedulingKey()
+    int voltronThreads = L2Utils.getOptimalVoltronStageThreads();
+    int fastPathThreads = L2Utils.getVoltronFastPathThreads();
+    logger.info("voltron message stage partitions:{} fast path partitions:{}", voltronThreads, fastPathThreads);
+    stageManager.createStage(ServerConfigurationContext.VOLTRON_MESSAGE_STAGE, VoltronEntityMessage.class, processTransactionHandler.getVoltronMessageHandler(), voltronThreads, fastStageSize, USE_DIRECT, true).setSpinningCount(1000);
+    final int elasticMax = L2Utils.getOptimalCommWorkerThreads();
+    final int elasticMin = L2Utils.getElasticStageMinThreads(elasticMax);
+    logger.info("response and hydrate stage threads:{}..{}", elasticMin, elasticMax);
+    stageManager.createElasticStage(ServerConfigurationContext.RESPOND_TO_REQUEST_STAGE, ResponseMessage.class, processTransactionHandler.getMultiResponseSender(), elasticMin, elasticMax, stageManager.getDefaultStageMaximumCapacity());
 //  add the server -> client communicator service
     final CommunicatorService communicatorService = new CommunicatorService(processTransactionHandler.getClientMessageSender());
     channelManager.addEventListener(communicatorService);
     communicatorService.initialized();
     serviceRegistry.registerImplementationProvided(communicatorService);
 
-    VoltronMessageHandler voltron = new VoltronMessageHandler(channelManager, USE_DIRECT);
+    // direct execution runs the whole pipeline on the fast path thread so it needs that thread to be the only one
+    VoltronMessageHandler voltron = new VoltronMessageHandler(channelManager, USE_DIRECT && fastPathThreads == 1);
     // We need to connect the IInterEntityMessengerProvider to the voltronMessageSink.
 
-    Stage<VoltronEntityMessage> fast = stageManager.createStage(ServerConfigurationContext.SINGLE_THREADED_FAST_PATH, VoltronEntityMessage.class, voltron, 1);
+    Stage<VoltronEntityMessage> fast = stageManager.createStage(ServerConfigurationContext.SINGLE_THREADED_FAST_PATH, VoltronEntityMessage.class, voltron, fastPathThreads);
     messengerProvider.setMessageSink(fast.getSink());
     entityManager.setMessageSink(fast.getSink());
 
     this.groupCommManager = this.serverBuilder.createGroupCommManager(this.configSetupManager, stageManager, connectionManager,
                                                                       this.thisServerNodeID,
                                                                       this.stripeIDStateManager, this.globalWeightGeneratorFactory,
-                                                                      bufferManagerFactory);
+                                                                      bufferManagerFactory, this.serverTimer);
 
     if (consistencyMgr instanceof GroupEventsListener) {
       this.groupCommManager.registerForGroupEvents((GroupEventsListener)consistencyMgr);
@@ -710,7 +731,7 @@ public class DistributedObjectServer {
     
     final Stage<ClientHandshakeMessage> clientHandshake = stageManager.createStage(ServerConfigurationContext.CLIENT_HANDSHAKE_STAGE, ClientHandshakeMessage.class, createHandShakeHandler(entityManager, processTransactionHandler, getVersionCompatibility()), 1);
 
-    Stage<HydrateContext> hydrator = stageManager.createStage(ServerConfigurationContext.HYDRATE_MESSAGE_STAGE, HydrateContext.class, new HydrateHandler(), L2Utils.getOptimalCommWorkerThreads());
+    Stage<HydrateContext> hydrator = stageManager.createElasticStage(ServerConfigurationContext.HYDRATE_MESSAGE_STAGE, HydrateContext.class, new HydrateHandler(), elasticMin, elasticMax, stageManager.getDefaultStageMaximumCapacity());
     Stage<TCAction> diagStage = stageManager.createStage(ServerConfigurationContext.MONITOR_STAGE, TCAction.class, new DiagnosticsHandler(this, this.server.getJMX()), 1, 1, false, true);
 
     VoltronMessageSink voltronSink = new VoltronMessageSink(hydrator, fast.getSink(), entityManager);
@@ -770,6 +791,7 @@ public class DistributedObjectServer {
         stageManager.createStage(ServerConfigurationContext.ACTIVE_TO_PASSIVE_DRIVER_FLUSH_STAGE,
                                  ReplicationSendingAction.class, new GenericHandler<>(), max(3, knownPeers)).getSink();
     ReplicationSender replicationSender = new ReplicationSender(replicationSenderStage, replicationSenderFlushStage, groupCommManager);
+    this.replicationSender = replicationSender;
     final Sink<ReplicationReceivingAction> replicationReceivingStage =
         stageManager.createStage(ServerConfigurationContext.PASSIVE_TO_ACTIVE_DRIVER_STAGE,
                                  ReplicationReceivingAction.class, new GenericHandler<>(), max(3, knownPeers)).getSink();
@@ -904,6 +926,8 @@ public class DistributedObjectServer {
       this.context.shutdown();
       this.entityManager.shutdown();
       this.serviceRegistry.shutdown();
+      this.serverTimer.cancelAll();
+      this.serverTimer.stop();
       this.configSetupManager.close();
       stopped.complete(null);
     } catch (Throwable in) {
@@ -1393,6 +1417,7 @@ public class DistributedObjectServer {
     
   private EventHandler<ReplicationMessage> createAndRouteRelayTransactionHandler(Stage<Runnable> current) {
     RelayTransactionHandler handler = new RelayTransactionHandler(current, groupCommManager);
+    this.relayHandler = handler;
     Stage<RelayMessage> relays = this.seda.getStageManager().createStage(ServerConfigurationContext.PASSIVE_RELAY_STAGE, RelayMessage.class, new AbstractEventHandler<RelayMessage>() {
       @Override
       public void handleEvent(RelayMessage context) throws EventHandlerException {
@@ -38,6 +38,7 @@ import com.tc.object.net.DSOChannelManager;
 import com.tc.objectserver.core.api.ServerConfigurationContext;
 import com.tc.objectserver.handshakemanager.ServerClientHandshakeManager;
 import com.tc.objectserver.persistence.Persistor;
+import com.tc.services.SingleThreadedTimer;
 
 import java.io.IOException;
 
@@ -48,7 +49,8 @@ public interface ServerBuilder extends PostInit {
                                                             TCConnectionManager connectionManager,
                                                             ServerID serverNodeID,
                                                             StripeIDStateManager stripeStateManager, WeightGeneratorFactory weightGeneratorFactory,
-                                                            SocketEndpointFactory bufferManagerFactory);
+                                                            SocketEndpointFactory bufferManagerFactory,
+                                                            SingleThreadedTimer timer);
 
   ServerConfigurationContext createServerConfigurationContext(String id, StageManager stageManager, DSOChannelManager channelManager,
                                                               ChannelStatsImpl channelStats,
@@ -44,6 +44,7 @@ import com.tc.objectserver.core.api.ServerConfigurationContext;
 import com.tc.objectserver.core.impl.ServerConfigurationContextImpl;
 import com.tc.objectserver.handshakemanager.ServerClientHandshakeManager;
 import com.tc.objectserver.persistence.Persistor;
+import com.tc.services.SingleThreadedTimer;
 import com.tc.util.Assert;
 
 import org.terracotta.persistence.IPlatformPersistence;
@@ -65,9 +66,10 @@ public class StandardServerBuilder implements ServerBuilder {
                                                                    TCConnectionManager connections,
                                                                    ServerID serverNodeID,
                                                                    StripeIDStateManager stripeStateManager, WeightGeneratorFactory weightGeneratorFactory,
-                                                                   SocketEndpointFactory bufferManagerFactory) {
+                                                                   SocketEndpointFactory bufferManagerFactory,
+                                                                   SingleThreadedTimer timer) {
     return new TCGroupManagerImpl(configManager, stageManager, connections, serverNodeID, this.groupConfiguration.getCurrentNode(),
-                                  weightGeneratorFactory, bufferManagerFactory);
+                                  weightGeneratorFactory, bufferManagerFactory, timer);
   }
 
   @Override
@@ -17,7 +17,10 @@
  */
 package com.tc.objectserver.persistence;
 
+import com.tc.net.ClientID;
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
 
 
 
@@ -86,4 +89,50 @@ public class EntityData {
       return "JournalEntry{" + "operation=" + operation + ", transactionID=" + transactionID + '}';
     }
   }
+
+  public static enum RecordType implements Serializable {
+    ENTITY_PUT,
+    ENTITY_REMOVE,
+    CLIENT_ADD,
+    CLIENT_REMOVE,
+    CLIENT_JOURNAL,
+    COUNTER,
+  }
+
+  /**
+   * A single incremental change appended to the entity journal.  Only the fields relevant to the type are set.
+   */
+  public static class Record implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public RecordType type;
+    // ENTITY_PUT and ENTITY_REMOVE.
+    public Key key;
+    public Value value;
+    // CLIENT_ADD, CLIENT_REMOVE and CLIENT_JOURNAL.
+    public ClientID clientID;
+    public long oldestTransactionOnClient;
+    public JournalEntry entry;
+    // COUNTER.
+    public String counter;
+    public long count;
+
+    @Override
+    public String toString() {
+      return "Record{" + "type=" + type + '}';
+    }
+  }
+
+  /**
+   * The compacted state of the entity journal.  Records of the same generation are replayed on top of it.
+   */
+  public static class Snapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public long generation;
+    public int stripes;
+    public HashMap<Key, Value> entities;
+    public HashMap<ClientID, List<JournalEntry>> entityLifeJournal;
+    public HashMap<String, Long> counters;
+  }
 }
@@ -24,6 +24,7 @@ import com.tc.object.EntityID;
 import com.tc.objectserver.persistence.EntityData.JournalEntry;
 import com.tc.objectserver.persistence.EntityData.Key;
 import com.tc.objectserver.persistence.EntityData.Value;
+import com.tc.properties.TCPropertiesImpl;
 import com.tc.util.Assert;
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -37,6 +38,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,80 +49,191 @@ import org.terracotta.persistence.IPlatformPersistence;
 
 /**
  * Stores the information relating to the entities currently alive on the platform into persistent storage.
+ * <p>
+ * Changes are appended to the storage as small, per-stripe journal records instead of rewriting the entire entity
+ * and journal maps on every mutation.  Entities are striped by their key and client journals by their ClientID so
+ * unrelated lifecycle operations do not contend on a single monitor.  Once enough records accumulate, the whole state
+ * is compacted into one snapshot element and a new generation of records is started.  On restart, the snapshot is
+ * loaded and the records of its generation are replayed, stripe by stripe, in the order they were written.
  */
 public class EntityPersistor {
   private static final Logger LOGGER = LoggerFactory.getLogger(EntityPersistor.class);
 
+  // the legacy whole-map elements, only read to upgrade existing data
   private static final String ENTITIES_ALIVE_FILE_NAME = "entities_alive.map";
   private static final String JOURNAL_CONTAINER_FILE_NAME = "journal_container.map";
   private static final String COUNTERS_FILE_NAME = "counters.map";
+  private static final String SNAPSHOT_FILE_NAME = "entity_journal.snapshot";
+  private static final String RECORD_FILE_PREFIX = "entity_journal.";
   private static final String COUNTERS_CONSUMER_ID = "counters:consumerID";
 
+  private static final int DEFAULT_STRIPES = 16;
+  private static final int DEFAULT_COMPACTION_THRESHOLD = 4096;
+
   private final IPlatformPersistence storageManager;
-  private final HashMap<EntityData.Key, EntityData.Value> entities;
-  private final HashMap<EntityData.Key, EntityData.Value> deletes = new HashMap<>();
-  private final HashMap<ClientID, List<EntityData.JournalEntry>> entityLifeJournal;
-  private final HashMap<String, Long> counters;
+  private final ConcurrentHashMap<EntityData.Key, EntityData.Value> entities = new ConcurrentHashMap<>();
+  private final Map<EntityData.Key, EntityData.Value> deletes = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<ClientID, List<EntityData.JournalEntry>> entityLifeJournal = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Long> counters = new ConcurrentHashMap<>();
   private final Map<EntityID, PermanentEntityResult> result = new ConcurrentHashMap<>();
 
-  @SuppressWarnings({ "unchecked" })
+  private final Stripe[] stripes;
+  private final int compactionThreshold;
+  private final AtomicInteger pendingRecords = new AtomicInteger();
+  private final AtomicBoolean compacting = new AtomicBoolean();
+  // only changed while holding every stripe lock
+  private volatile long generation;
+  private int replayedStripes;
+
   public EntityPersistor(IPlatformPersistence storageManager) {
+    this(storageManager, TCPropertiesImpl.getProperties().getInt("entity-persistor.stripes", DEFAULT_STRIPES),
+        TCPropertiesImpl.getProperties().getInt("entity-persistor.compaction.threshold", DEFAULT_COMPACTION_THRESHOLD));
+  }
+
+  EntityPersistor(IPlatformPersistence storageManager, int stripeCount, int compactionThreshold) {
     this.storageManager = storageManager;
+    this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1)];
+    for (int x = 0; x < this.stripes.length; x++) {
+      this.stripes[x] = new Stripe();
+    }
+    this.compactionThreshold = Math.max(1, compactionThreshold);
+    boolean mustCompact;
     try {
+      mustCompact = load();
+    } catch (IOException e) {
+      // We don't expect this during startup so just throw it as runtime.
+      throw new RuntimeException("Failure reading EntityPersistor map files", e);
+    }
+    // Make sure that the consumerID is initialized to 1 (0 reserved for platform).
+    if (this.counters.putIfAbsent(COUNTERS_CONSUMER_ID, 1L) == null) {
+      mustCompact = true;
+    }
+    if (mustCompact) {
+      long replayedGeneration = this.generation;
+      compact();
+      if (this.replayedStripes != this.stripes.length) {
+        // the records were written with a different stripe count so compact() could not account for them
+        try {
+          purge(replayedGeneration, this.replayedStripes);
+        } catch (IOException e) {
+          throw new RuntimeException("Failure reading EntityPersistor map files", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Loads the latest snapshot (or the legacy whole-map elements) and replays the journal records written after it.
+   *
+   * @return true if the loaded state should be compacted into a fresh snapshot
+   */
+  @SuppressWarnings({ "unchecked" })
+  private boolean load() throws IOException {
+    EntityData.Snapshot snapshot = (EntityData.Snapshot) this.storageManager.loadDataElement(SNAPSHOT_FILE_NAME);
+    boolean mustCompact = false;
+    int recordStripes = this.stripes.length;
+    if (snapshot != null) {
+      this.generation = snapshot.generation;
+      recordStripes = snapshot.stripes;
+      this.entities.putAll(snapshot.entities);
+      this.entityLifeJournal.putAll(snapshot.entityLifeJournal);
+      this.counters.putAll(snapshot.counters);
+      if (this.generation > 0) {
+        // a crash may have happened after the snapshot was written but before the old records were removed
+        purge(this.generation - 1, recordStripes);
+      }
+    } else {
       HashMap<EntityData.Key, EntityData.Value> entities = (HashMap<Key, Value>) this.storageManager.loadDataElement(ENTITIES_ALIVE_FILE_NAME);
-      this.entities = (null != entities) ? entities : new HashMap<>();
       HashMap<ClientID, List<EntityData.JournalEntry>> entityLifeJournal = (HashMap<ClientID, List<JournalEntry>>) this.storageManager.loadDataElement(JOURNAL_CONTAINER_FILE_NAME);
-      this.entityLifeJournal = (null != entityLifeJournal) ? entityLifeJournal : new HashMap<>();
       HashMap<String, Long> counters = (HashMap<String, Long>) this.storageManager.loadDataElement(COUNTERS_FILE_NAME);
-      this.counters = (null != counters) ? counters : new HashMap<>();
-      // Make sure that the consumerID is initialized to 1 (0 reserved for platform).
-      if (!this.counters.containsKey(COUNTERS_CONSUMER_ID)) {
-        this.counters.put(COUNTERS_CONSUMER_ID, new Long(1));
+      if (entities != null) {
+        this.entities.putAll(entities);
       }
-    } catch (IOException e) {
-      // We don't expect this during startup so just throw it as runtime.
-      throw new RuntimeException("Failure reading EntityPersistor map files", e);
+      if (entityLifeJournal != null) {
+        this.entityLifeJournal.putAll(entityLifeJournal);
+      }
+      if (counters != null) {
+        this.counters.putAll(counters);
+      }
+      // always write out a snapshot so the stripe count of the records is known on the next restart
+      mustCompact = true;
     }
+    int replayed = 0;
+    for (int stripe = 0; stripe < recordStripes; stripe++) {
+      long seq = 0;
+      EntityData.Record record = (EntityData.Record) this.storageManager.loadDataElement(recordName(this.generation, stripe, seq));
+      while (record != null) {
+        apply(record);
+        seq += 1;
+        record = (EntityData.Record) this.storageManager.loadDataElement(recordName(this.generation, stripe, seq));
+      }
+      if (recordStripes == this.stripes.length) {
+        this.stripes[stripe].nextRecord = seq;
+      }
+      replayed += seq;
+    }
+    LOGGER.debug("replayed " + replayed + " entity journal records of generation " + this.generation);
+    this.pendingRecords.set(replayed);
+    this.replayedStripes = recordStripes;
+    return mustCompact || recordStripes != this.stripes.length || replayed >= this.compactionThreshold;
   }
 
-  public synchronized void clear() {
-    this.entities.clear();
-    this.entityLifeJournal.clear();
-    this.counters.clear();
-    if (!this.counters.containsKey(COUNTERS_CONSUMER_ID)) {
-      this.counters.put(COUNTERS_CONSUMER_ID, new Long(1));
+  private void apply(EntityData.Record record) {
+    switch (record.type) {
+      case ENTITY_PUT:
+        this.entities.put(record.key, record.value);
+        break;
+      case ENTITY_REMOVE:
+        this.entities.remove(record.key);
+        break;
+      case CLIENT_ADD:
+        this.entityLifeJournal.putIfAbsent(record.clientID, new ArrayList<>());
+        break;
+      case CLIENT_REMOVE:
+        this.entityLifeJournal.remove(record.clientID);
+        break;
+      case CLIENT_JOURNAL:
+        applyJournalEntry(record.clientID, record.oldestTransactionOnClient, record.entry);
+        break;
+      case COUNTER:
+        this.counters.put(record.counter, record.count);
+        break;
+      default:
+        throw new AssertionError("unknown record type " + record.type);
     }
-    // We can destroy the backing for these objects.
+  }
+
+  public void clear() {
+    lockAll();
     try {
-      this.storageManager.storeDataElement(ENTITIES_ALIVE_FILE_NAME, null);
-      this.storageManager.storeDataElement(JOURNAL_CONTAINER_FILE_NAME, null);
-      this.storageManager.storeDataElement(COUNTERS_FILE_NAME, null);
-    } catch (IOException e) {
-      // In general, we have no way of solving this problem so throw it.
-      throw new RuntimeException("Failure storing EntityPersistor map files", e);
+      this.entities.clear();
+      this.deletes.clear();
+      this.entityLifeJournal.clear();
+      this.counters.clear();
+      this.counters.put(COUNTERS_CONSUMER_ID, 1L);
+      compact();
+    } finally {
+      unlockAll();
     }
   }
   
-  public synchronized void clearEntityClientJournal() {
-    this.entityLifeJournal.clear();
+  public void clearEntityClientJournal() {
+    lockAll();
     try {
-      this.storageManager.storeDataElement(JOURNAL_CONTAINER_FILE_NAME, null);
-    } catch (IOException e) {
-      // In general, we have no way of solving this problem so throw it.
-      throw new RuntimeException("Failure storing EntityPersistor map files", e);
+      this.entityLifeJournal.clear();
+      compact();
+    } finally {
+      unlockAll();
     }
   }
 
-  public synchronized Collection<EntityData.Value> loadEntityData() {
+  public Collection<EntityData.Value> loadEntityData() {
     return this.entities.values();
   }
 
-  public synchronized boolean containsEntity(EntityID id) {
+  public boolean containsEntity(EntityID id) {
     LOGGER.debug("containsEntity " + id);
-    // This is new so look up the answer and store it in the journal.
-    EntityData.Key key = new EntityData.Key();
-    key.className = id.getClassName();
-    key.entityName = id.getEntityName();
+    EntityData.Key key = keyFor(id);
     // Make sure that the EntityID makes sense.
     Assert.assertNotNull(key.className);
     Assert.assertNotNull(key.entityName);
@@ -130,7 +245,7 @@ public class EntityPersistor {
    * If an attempt was made, true is returned (on success) or EntityException is thrown (if it was a failure).
    * False is returned if this clientID and transactionID seem new.
    */
-  public synchronized boolean wasEntityCreatedInJournal(EntityID eid, ClientID clientID, long transactionID) throws ServerException {
+  public boolean wasEntityCreatedInJournal(EntityID eid, ClientID clientID, long transactionID) throws ServerException {
     boolean didSucceed = false;
     LOGGER.debug("wasEntityCreatedInJournal " + clientID + " " + transactionID);
     EntityData.JournalEntry entry = getEntryForTransaction(clientID, transactionID);
@@ -149,15 +264,16 @@ public class EntityPersistor {
     return didSucceed;
   }
 
-  public synchronized void entityCreateFailed(EntityID eid, ClientID clientID, long transactionID, long oldestTransactionOnClient, ServerException error) {
+  public void entityCreateFailed(EntityID eid, ClientID clientID, long transactionID, long oldestTransactionOnClient, ServerException error) {
     LOGGER.debug("createFailed " + clientID + " " + transactionID, error);
     addToJournal(clientID, transactionID, oldestTransactionOnClient, EntityData.Operation.CREATE, null, error);
     if (clientID.isNull()) {
       permanentEntityCreated(eid, 0, error);
     }
+    compactIfNecessary();
   } 
 
-  public synchronized void entityCreated(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id, long version, long consumerID, boolean canDelete, byte[] configuration) {
+  public void entityCreated(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id, long version, long consumerID, boolean canDelete, byte[] configuration) {
     LOGGER.debug("entityCreated " + clientID + " " + transactionID + " " + id + " " + version);
     Assert.assertTrue(canDelete);
     Assert.assertFalse(clientID.isNull());
@@ -165,15 +281,17 @@ public class EntityPersistor {
     
     // Record this in the journal - null error on success.
     addToJournal(clientID, transactionID, oldestTransactionOnClient, EntityData.Operation.CREATE, null, null);
+    compactIfNecessary();
   }
   
-  public synchronized void entityCreatedNoJournal(EntityID id, long version, long consumerID, boolean canDelete, byte[] configuration) {
+  public void entityCreatedNoJournal(EntityID id, long version, long consumerID, boolean canDelete, byte[] configuration) {
     LOGGER.debug("entityCreatedNoJournal " + id);
     addNewEntityToMap(id, version, consumerID, canDelete, configuration);
     if (!canDelete) {
       permanentEntityCreated(id, consumerID, null);
     }
     // (Note that we don't store this into the journal - this is used for passive sync).
+    compactIfNecessary();
   }
 
   /**
@@ -181,7 +299,7 @@ public class EntityPersistor {
    * If an attempt was made, true is returned (on success) or EntityAlreadyExistsException is thrown.
    * False is returned if this clientID and transactionID seem new.
    */
-  public synchronized boolean wasEntityDestroyedInJournal(EntityID eid, ClientID clientID, long transactionID) throws ServerException {
+  public boolean wasEntityDestroyedInJournal(EntityID eid, ClientID clientID, long transactionID) throws ServerException {
     LOGGER.debug("wasEntityDestroyedInJournal " + clientID + " " + transactionID);
     boolean didSucceed = false;
     EntityData.JournalEntry entry = getEntryForTransaction(clientID, transactionID);
@@ -200,27 +318,37 @@ public class EntityPersistor {
     return didSucceed;
   }
 
-  public synchronized void entityDestroyFailed(ClientID clientID, long transactionID, long oldestTransactionOnClient, ServerException error) {
+  public void entityDestroyFailed(ClientID clientID, long transactionID, long oldestTransactionOnClient, ServerException error) {
     LOGGER.debug("entityDestroyFailed " + clientID + " " + transactionID);
     addToJournal(clientID, transactionID, oldestTransactionOnClient, EntityData.Operation.DESTROY, null, error);
+    compactIfNecessary();
   }
 
-  public synchronized void entityDestroyed(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id) {
+  public void entityDestroyed(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id) {
     LOGGER.debug("entityDestroyed " + clientID + " " + transactionID + " " + id);
-    EntityData.Key key = new EntityData.Key();
-    key.className = id.getClassName();
-    key.entityName = id.getEntityName();
-    Assert.assertTrue(this.entities.containsKey(key) || this.deletes.containsKey(key));
-    if (this.deletes.remove(key) == null) {
-      this.entities.remove(key);
+    EntityData.Key key = keyFor(id);
+    int index = stripeIndex(key);
+    Stripe stripe = this.stripes[index];
+    stripe.lock.lock();
+    try {
+      Assert.assertTrue(this.entities.containsKey(key) || this.deletes.containsKey(key));
+      if (this.deletes.remove(key) == null) {
+        this.entities.remove(key);
+        EntityData.Record record = new EntityData.Record();
+        record.type = EntityData.RecordType.ENTITY_REMOVE;
+        record.key = key;
+        append(stripe, index, record);
+      }
+    } finally {
+      stripe.lock.unlock();
     }
-    storeToDisk(ENTITIES_ALIVE_FILE_NAME, this.entities);
     
     // Record this in the journal - null error on success.
     addToJournal(clientID, transactionID, oldestTransactionOnClient, EntityData.Operation.DESTROY, null, null);
+    compactIfNecessary();
   }
 
-  public synchronized byte[] reconfiguredResultInJournal(EntityID eid, ClientID clientID, long transactionID) throws ServerException {
+  public byte[] reconfiguredResultInJournal(EntityID eid, ClientID clientID, long transactionID) throws ServerException {
     LOGGER.debug("reconfiguredResultInJournal " + clientID + " " + transactionID);
     byte[] cachedResult = null;
     EntityData.JournalEntry entry = getEntryForTransaction(clientID, transactionID);
@@ -240,88 +368,139 @@ public class EntityPersistor {
     return cachedResult;
   }
 
-  public synchronized void entityReconfigureFailed(ClientID clientID, long transactionID, long oldestTransactionOnClient, ServerException error) {
+  public void entityReconfigureFailed(ClientID clientID, long transactionID, long oldestTransactionOnClient, ServerException error) {
     LOGGER.debug("entityReconfigureFailed " + clientID + " " + transactionID);
     addToJournal(clientID, transactionID, oldestTransactionOnClient, EntityData.Operation.RECONFIGURE, null, error);
+    compactIfNecessary();
   }
 
   /**
    * @return The over-written configuration value.
    */
-  public synchronized byte[] entityReconfigureSucceeded(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id, long version, byte[] configuration) {
+  public byte[] entityReconfigureSucceeded(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id, long version, byte[] configuration) {
     LOGGER.debug("entityReconfigureSucceeded " + clientID + " " + transactionID);
-    String className = id.getClassName();
-    String entityName = id.getEntityName();
-
-    EntityData.Key key = new EntityData.Key();
-    key.className = className;
-    key.entityName = entityName;
-    
-    EntityData.Value val = this.entities.get(key);
-    byte[] previousConfiguration = val.configuration;
-    Assert.assertNotNull(previousConfiguration);
-    val.configuration = configuration;
-    Assert.assertEquals(version, val.version);
-    
-    this.entities.put(key, val);
-    storeToDisk(ENTITIES_ALIVE_FILE_NAME, this.entities);
+    EntityData.Key key = keyFor(id);
+    int index = stripeIndex(key);
+    Stripe stripe = this.stripes[index];
+    byte[] previousConfiguration;
+    stripe.lock.lock();
+    try {
+      EntityData.Value val = this.entities.get(key);
+      previousConfiguration = val.configuration;
+      Assert.assertNotNull(previousConfiguration);
+      Assert.assertEquals(version, val.version);
+      // copy the value rather than changing it in place since older records or snapshots may still reference it
+      EntityData.Value updated = new EntityData.Value();
+      updated.className = val.className;
+      updated.version = val.version;
+      updated.consumerID = val.consumerID;
+      updated.canDelete = val.canDelete;
+      updated.entityName = val.entityName;
+      updated.configuration = configuration;
+      this.entities.put(key, updated);
+      EntityData.Record record = new EntityData.Record();
+      record.type = EntityData.RecordType.ENTITY_PUT;
+      record.key = key;
+      record.value = updated;
+      append(stripe, index, record);
+    } finally {
+      stripe.lock.unlock();
+    }
     
     // Record this in the journal.
     addToJournal(clientID, transactionID, oldestTransactionOnClient, EntityData.Operation.RECONFIGURE, previousConfiguration, null);
+    compactIfNecessary();
     
     // Return what we over-wrote.
     return previousConfiguration;
   }
 
-  public synchronized long getNextConsumerID() {
-    long consumerID = this.counters.get(COUNTERS_CONSUMER_ID);
-    this.counters.put(COUNTERS_CONSUMER_ID, new Long(consumerID + 1));
-    storeToDisk(COUNTERS_FILE_NAME, this.counters);
+  public long getNextConsumerID() {
+    int index = stripeIndex(COUNTERS_CONSUMER_ID);
+    Stripe stripe = this.stripes[index];
+    long consumerID;
+    stripe.lock.lock();
+    try {
+      consumerID = this.counters.get(COUNTERS_CONSUMER_ID);
+      storeCounter(stripe, index, COUNTERS_CONSUMER_ID, consumerID + 1);
+    } finally {
+      stripe.lock.unlock();
+    }
+    compactIfNecessary();
     return consumerID;
   }
 
-  public synchronized void setNextConsumerID(long consumerID) {
-    long checkID = this.counters.get(COUNTERS_CONSUMER_ID);
-    if (consumerID >= checkID) {
-      this.counters.put(COUNTERS_CONSUMER_ID, new Long(consumerID + 1));
-      storeToDisk(COUNTERS_FILE_NAME, this.counters);
+  public void setNextConsumerID(long consumerID) {
+    int index = stripeIndex(COUNTERS_CONSUMER_ID);
+    Stripe stripe = this.stripes[index];
+    stripe.lock.lock();
+    try {
+      long checkID = this.counters.get(COUNTERS_CONSUMER_ID);
+      if (consumerID >= checkID) {
+        storeCounter(stripe, index, COUNTERS_CONSUMER_ID, consumerID + 1);
+      }
+    } finally {
+      stripe.lock.unlock();
     }
+    compactIfNecessary();
   }
   
-  public synchronized void addTrackingForClient(ClientID sourceNodeID) {
-    if (this.entityLifeJournal.putIfAbsent(sourceNodeID, new ArrayList<>()) == null) {
-      storeToDisk(JOURNAL_CONTAINER_FILE_NAME, this.entityLifeJournal);
+  public void addTrackingForClient(ClientID sourceNodeID) {
+    int index = stripeIndex(sourceNodeID);
+    Stripe stripe = this.stripes[index];
+    stripe.lock.lock();
+    try {
+      if (this.entityLifeJournal.putIfAbsent(sourceNodeID, new ArrayList<>()) == null) {
+        EntityData.Record record = new EntityData.Record();
+        record.type = EntityData.RecordType.CLIENT_ADD;
+        record.clientID = sourceNodeID;
+        append(stripe, index, record);
+      }
+    } finally {
+      stripe.lock.unlock();
     }
+    compactIfNecessary();
   }
   
-  public synchronized void removeTrackingForClient(ClientID sourceNodeID) {
-    this.entityLifeJournal.remove(sourceNodeID);
-    storeToDisk(JOURNAL_CONTAINER_FILE_NAME, this.entityLifeJournal);
+  public void removeTrackingForClient(ClientID sourceNodeID) {
+    int index = stripeIndex(sourceNodeID);
+    Stripe stripe = this.stripes[index];
+    stripe.lock.lock();
+    try {
+      if (this.entityLifeJournal.remove(sourceNodeID) != null) {
+        EntityData.Record record = new EntityData.Record();
+        record.type = EntityData.RecordType.CLIENT_REMOVE;
+        record.clientID = sourceNodeID;
+        append(stripe, index, record);
+      }
+    } finally {
+      stripe.lock.unlock();
+    }
+    compactIfNecessary();
   }
 
   public void reportStateToMap(Map<String, Object> map) {
     map.put("className", this.getClass().getName());
     List<String> entityList = new ArrayList<>();
     map.put("existingEntities", entityList);
-    if(entities != null) {
-      for (Key key : entities.keySet()) {
-        entityList.add(key.className +"-" + key.entityName);
-      }
+    for (Key key : entities.keySet()) {
+      entityList.add(key.className +"-" + key.entityName);
     }
 
-    if(entityLifeJournal != null) {
-      Map<String, Object> journals = new LinkedHashMap<>();
-      map.put("journals", journals);
-      for (Map.Entry<ClientID, List<EntityData.JournalEntry>> entry : entityLifeJournal.entrySet()) {
-        List<String> items = new ArrayList<>();
-        journals.put(entry.getKey().toString(), items);
-        for (JournalEntry journalEntry : entry.getValue()) {
-          items.add(journalEntry.toString());
-        }
+    Map<String, Object> journals = new LinkedHashMap<>();
+    map.put("journals", journals);
+    for (Map.Entry<ClientID, List<EntityData.JournalEntry>> entry : entityLifeJournal.entrySet()) {
+      List<String> items = new ArrayList<>();
+      journals.put(entry.getKey().toString(), items);
+      for (JournalEntry journalEntry : entry.getValue()) {
+        items.add(journalEntry.toString());
       }
     }
 
     map.put("nextConsumerID", this.counters.get(COUNTERS_CONSUMER_ID));
+    map.put("journalGeneration", this.generation);
+    map.put("journalStripes", this.stripes.length);
+    map.put("pendingJournalRecords", this.pendingRecords.get());
   }
   
   private List<JournalEntry> filterJournal(List<JournalEntry> list, long oldestTransactionOnClient) {
@@ -337,34 +516,60 @@ public class EntityPersistor {
 
   private void addToJournal(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityData.Operation operation, byte[] reconfigureResult, ServerException error) {
     if (!clientID.isNull()) {
-      List<EntityData.JournalEntry> rawJournal = this.entityLifeJournal.get(clientID);
-      // If the list is not here, the client has already left the custer, don't bother saving the result
-      if (rawJournal != null) {
-        List<EntityData.JournalEntry> clientJournal = filterJournal(rawJournal, oldestTransactionOnClient);
+      int index = stripeIndex(clientID);
+      Stripe stripe = this.stripes[index];
+      stripe.lock.lock();
+      try {
         JournalEntry newEntry = new JournalEntry();
         newEntry.operation = operation;
         newEntry.transactionID = transactionID;
         newEntry.failure = error;
         newEntry.reconfigureResponse = reconfigureResult;
-        clientJournal.add(newEntry);
-        this.entityLifeJournal.put(clientID, clientJournal);
-        storeToDisk(JOURNAL_CONTAINER_FILE_NAME, this.entityLifeJournal);
+        if (applyJournalEntry(clientID, oldestTransactionOnClient, newEntry)) {
+          EntityData.Record record = new EntityData.Record();
+          record.type = EntityData.RecordType.CLIENT_JOURNAL;
+          record.clientID = clientID;
+          record.oldestTransactionOnClient = oldestTransactionOnClient;
+          record.entry = newEntry;
+          append(stripe, index, record);
+        }
+      } finally {
+        stripe.lock.unlock();
       }
     }
   }
 
+  private boolean applyJournalEntry(ClientID clientID, long oldestTransactionOnClient, JournalEntry newEntry) {
+    List<EntityData.JournalEntry> rawJournal = this.entityLifeJournal.get(clientID);
+    // If the list is not here, the client has already left the custer, don't bother saving the result
+    if (rawJournal != null) {
+      List<EntityData.JournalEntry> clientJournal = filterJournal(rawJournal, oldestTransactionOnClient);
+      clientJournal.add(newEntry);
+      this.entityLifeJournal.put(clientID, clientJournal);
+      return true;
+    } else {
+      return false;
+    }
+  }
+
   private JournalEntry getEntryForTransaction(ClientID clientID, long transactionID) {
     JournalEntry foundEntry = null;
-    List<EntityData.JournalEntry> clientJournal =  this.entityLifeJournal.get(clientID);
-    // Note that we may not know anything about this client.
-    LOGGER.debug("checking " + clientID + " " + clientJournal);
-    if (null != clientJournal) {
-      for (JournalEntry entry : clientJournal) {
-        if (entry.transactionID == transactionID) {
-          foundEntry = entry;
-          break;
+    Stripe stripe = this.stripes[stripeIndex(clientID)];
+    stripe.lock.lock();
+    try {
+      List<EntityData.JournalEntry> clientJournal =  this.entityLifeJournal.get(clientID);
+      // Note that we may not know anything about this client.
+      LOGGER.debug("checking " + clientID + " " + clientJournal);
+      if (null != clientJournal) {
+        for (JournalEntry entry : clientJournal) {
+          if (entry.transactionID == transactionID) {
+            foundEntry = entry;
+            break;
+          }
         }
       }
+    } finally {
+      stripe.lock.unlock();
     }
     return foundEntry;
   }
@@ -373,21 +578,30 @@ public class EntityPersistor {
     String className = id.getClassName();
     String entityName = id.getEntityName();
     
-    EntityData.Key key = new EntityData.Key();
+    EntityData.Key key = keyFor(id);
     EntityData.Value value = new EntityData.Value();
-    key.className = className;
-    key.entityName = entityName;
     value.className = className;
     value.version = version;
     value.consumerID = consumerID;
     value.canDelete = canDelete;
     value.entityName = entityName;
     value.configuration = configuration;
-    EntityData.Value previous = this.entities.put(key, value);
-    if (previous != null) {
-      deletes.put(key, value);
+    int index = stripeIndex(key);
+    Stripe stripe = this.stripes[index];
+    stripe.lock.lock();
+    try {
+      EntityData.Value previous = this.entities.put(key, value);
+      if (previous != null) {
+        deletes.put(key, value);
+      }
+      EntityData.Record record = new EntityData.Record();
+      record.type = EntityData.RecordType.ENTITY_PUT;
+      record.key = key;
+      record.value = value;
+      append(stripe, index, record);
+    } finally {
+      stripe.lock.unlock();
     }
-    storeToDisk(ENTITIES_ALIVE_FILE_NAME, this.entities);
   }
   
   private void permanentEntityCreated(EntityID id, long consumerid, Exception e) {
@@ -400,23 +614,32 @@ public class EntityPersistor {
     perm.waitForResult();
   }
   
-  public synchronized void removeOrphanedClientsFromJournal(Set<ClientID> connectedClients) {
-    this.entityLifeJournal.entrySet().removeIf(e->!connectedClients.contains(e.getKey()));
-    storeToDisk(JOURNAL_CONTAINER_FILE_NAME, this.entityLifeJournal);
+  public void removeOrphanedClientsFromJournal(Set<ClientID> connectedClients) {
+    for (ClientID client : new ArrayList<>(this.entityLifeJournal.keySet())) {
+      if (!connectedClients.contains(client)) {
+        removeTrackingForClient(client);
+      }
+    }
   }
   
-  public synchronized void serialize(ObjectOutput bucket) throws IOException {
-    Set<ClientID> locals = this.entityLifeJournal.keySet();
-    int size = locals.size();
-    bucket.writeInt(size);
-    for (ClientID local : locals) {
-      bucket.writeObject(local);
-      bucket.writeObject(this.entityLifeJournal.get(local));
-    }
-    bucket.writeLong(this.counters.get(COUNTERS_CONSUMER_ID));
+  public void serialize(ObjectOutput bucket) throws IOException {
+    lockAll();
+    try {
+      Set<ClientID> locals = this.entityLifeJournal.keySet();
+      int size = locals.size();
+      bucket.writeInt(size);
+      for (ClientID local : locals) {
+        bucket.writeObject(local);
+        bucket.writeObject(this.entityLifeJournal.get(local));
+      }
+      bucket.writeLong(this.counters.get(COUNTERS_CONSUMER_ID));
+    } finally {
+      unlockAll();
+    }
   }  
   
-  public synchronized void layer(ObjectInput bucket) throws IOException {
+  public void layer(ObjectInput bucket) throws IOException {
+    lockAll();
     try {
       int size = bucket.readInt();
       LOGGER.debug("log size " + size);
@@ -429,26 +652,138 @@ public class EntityPersistor {
           this.entityLifeJournal.put(key, journal);
           LOGGER.debug(key + " putting " + journal);
         } else {
+          List<EntityData.JournalEntry> merged = new ArrayList<>(check);
           int pos = 0;
           for (JournalEntry je : journal) {
-            while (pos < check.size() && check.get(pos).transactionID < je.transactionID) {
+            while (pos < merged.size() && merged.get(pos).transactionID < je.transactionID) {
               pos += 1;
             }
-            if (pos == check.size() || check.get(pos).transactionID != je.transactionID) {
-              check.add(pos, je);
+            if (pos == merged.size() || merged.get(pos).transactionID != je.transactionID) {
+              merged.add(pos, je);
             }
           }
-          LOGGER.debug(key + " layering " + journal + " " + check);
-          this.entityLifeJournal.put(key, check);
+          LOGGER.debug(key + " layering " + journal + " " + merged);
+          this.entityLifeJournal.put(key, merged);
         }
       }
+      long nextConsumer = bucket.readLong();
+      this.counters.put(COUNTERS_CONSUMER_ID, nextConsumer);
+      compact();
     } catch (ClassNotFoundException cnf) {
       throw new IOException(cnf);
+    } finally {
+      unlockAll();
     }
-    storeToDisk(JOURNAL_CONTAINER_FILE_NAME, this.entityLifeJournal);
-    long nextConsumer = bucket.readLong();
-    this.counters.put(COUNTERS_CONSUMER_ID, nextConsumer);
-    storeToDisk(COUNTERS_FILE_NAME, this.counters);
+  }
+
+  private void storeCounter(Stripe stripe, int index, String counter, long count) {
+    this.counters.put(counter, count);
+    EntityData.Record record = new EntityData.Record();
+    record.type = EntityData.RecordType.COUNTER;
+    record.counter = counter;
+    record.count = count;
+    append(stripe, index, record);
+  }
+
+  /**
+   * Appends a record to the journal of the given stripe.  The caller must hold the stripe lock.
+   */
+  private void append(Stripe stripe, int index, EntityData.Record record) {
+    storeToDisk(recordName(this.generation, index, stripe.nextRecord), record);
+    stripe.nextRecord += 1;
+    this.pendingRecords.incrementAndGet();
+  }
+
+  private void compactIfNecessary() {
+    if (this.pendingRecords.get() >= this.compactionThreshold && this.compacting.compareAndSet(false, true)) {
+      try {
+        compact();
+      } finally {
+        this.compacting.set(false);
+      }
+    }
+  }
+
+  /**
+   * Writes the entire state as a snapshot of the next generation and then removes the records it covers.  The
+   * snapshot is a single element so it either replaces the previous generation entirely or not at all.
+   */
+  private void compact() {
+    long previous;
+    long[] written = new long[this.stripes.length];
+    boolean legacy;
+    lockAll();
+    try {
+      previous = this.generation;
+      EntityData.Snapshot snapshot = new EntityData.Snapshot();
+      snapshot.generation = previous + 1;
+      snapshot.stripes = this.stripes.length;
+      snapshot.entities = new HashMap<>(this.entities);
+      snapshot.entityLifeJournal = new HashMap<>();
+      for (Map.Entry<ClientID, List<EntityData.JournalEntry>> entry : this.entityLifeJournal.entrySet()) {
+        snapshot.entityLifeJournal.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+      }
+      snapshot.counters = new HashMap<>(this.counters);
+      legacy = previous == 0;
+      storeToDisk(SNAPSHOT_FILE_NAME, snapshot);
+      this.generation = snapshot.generation;
+      for (int x = 0; x < this.stripes.length; x++) {
+        written[x] = this.stripes[x].nextRecord;
+        this.stripes[x].nextRecord = 0;
+      }
+      this.pendingRecords.set(0);
+    } finally {
+      unlockAll();
+    }
+    // The snapshot now covers everything so the old records (and any legacy whole-map elements) can go.
+    for (int x = 0; x < written.length; x++) {
+      for (long seq = 0; seq < written[x]; seq++) {
+        storeToDisk(recordName(previous, x, seq), null);
+      }
+    }
+    if (legacy) {
+      storeToDisk(ENTITIES_ALIVE_FILE_NAME, null);
+      storeToDisk(JOURNAL_CONTAINER_FILE_NAME, null);
+      storeToDisk(COUNTERS_FILE_NAME, null);
+    }
+  }
+
+  private void purge(long oldGeneration, int recordStripes) throws IOException {
+    for (int stripe = 0; stripe < recordStripes; stripe++) {
+      long seq = 0;
+      while (this.storageManager.loadDataElement(recordName(oldGeneration, stripe, seq)) != null) {
+        storeToDisk(recordName(oldGeneration, stripe, seq), null);
+        seq += 1;
+      }
+    }
+  }
+
+  private void lockAll() {
+    for (Stripe stripe : this.stripes) {
+      stripe.lock.lock();
+    }
+  }
+
+  private void unlockAll() {
+    for (int x = this.stripes.length - 1; x >= 0; x--) {
+      this.stripes[x].lock.unlock();
+    }
+  }
+
+  private int stripeIndex(Object key) {
+    int h = key.hashCode();
+    return (h ^ (h >>> 16)) & (this.stripes.length - 1);
+  }
+
+  private static String recordName(long generation, int stripe, long seq) {
+    return RECORD_FILE_PREFIX + generation + "." + stripe + "." + seq;
+  }
+
+  private static EntityData.Key keyFor(EntityID id) {
+    EntityData.Key key = new EntityData.Key();
+    key.className = id.getClassName();
+    key.entityName = id.getEntityName();
+    return key;
   }
 
   private void storeToDisk(String dataName, Serializable dataElement) {
@@ -463,6 +798,12 @@ public class EntityPersistor {
   public void close() {
     this.result.values().forEach(r->r.setResult(-1L, new IOException("closed")));
   }
+
+  private static class Stripe {
+    private final ReentrantLock lock = new ReentrantLock();
+    // the sequence of the next record of the current generation, guarded by lock
+    private long nextRecord;
+  }
   
   private static class PermanentEntityResult {
     boolean finished;
@@ -22,16 +22,15 @@ import org.terracotta.persistence.IPlatformPersistence;
 import com.tc.net.ClientID;
 import com.tc.object.tx.TransactionID;
 import com.tc.util.Assert;
+import com.tc.util.LongObjectHashMap;
+import com.tc.util.LongRingDeque;
 import com.tc.net.core.ProductID;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,14 +42,22 @@ import java.util.concurrent.Future;
  * Stores the information mapping the client-local TransactionIDs of in-flight transactions into a global order.
  * This is persisted because reconnect on restart needs to ensure that the transactions being replayed are done so in
  * the same order as their original order.
+ * <p>
+ * The in-flight transactions of every tracked client, permanent clients included, are mirrored in memory as
+ * primitive per-client sequences.  Each transaction holds a slot in a {@link GlobalOrder}, handed out in the order
+ * global sequence ids are assigned, so the position of a transaction in the global order is a prefix count over the
+ * slots rather than a sort of everything in flight.
  */
 public class TransactionOrderPersistor {
   private final IPlatformPersistence storageManager;
   private Long receivedTransactionCount = 0L;
     
-  private List<ClientTransaction> globalList = null;
+  private final GlobalOrder globalOrder = new GlobalOrder();
   private final Set<ClientID> permNodeIDs = new HashSet<>();
-  private final Map<ClientID, List<ClientTransaction>> fastSequenceCache = new HashMap<>();
+  // keyed by ClientID.toLong() so in-flight transactions of regular clients are kept as primitives
+  private final LongObjectHashMap<ClientSequence> fastSequenceCache = new LongObjectHashMap<>();
+  // the in-memory mirror of what is stored for permanent clients, keyed the same way
+  private final LongObjectHashMap<ClientSequence> permSequenceCache = new LongObjectHashMap<>();
   
   public TransactionOrderPersistor(IPlatformPersistence storageManager, Set<ClientID> clients) {
     this.storageManager = storageManager;
@@ -58,6 +65,39 @@ public class TransactionOrderPersistor {
     for (ClientID oneClient : clients) {
       this.permNodeIDs.add(oneClient);
     }
+    loadPermanentSequences();
+  }
+
+  /**
+   * Mirrors the stored transactions of the permanent clients, slotting them into the global order by their stored
+   * global sequence ids.
+   */
+  private void loadPermanentSequences() {
+    TreeMap<Long, ClientTransaction> sortMap = new TreeMap<>();
+    for (ClientID clientID : this.permNodeIDs) {
+      this.permSequenceCache.put(clientID.toLong(), new ClientSequence());
+      List<IPlatformPersistence.SequenceTuple> transactions = null;
+      try {
+        transactions = this.storageManager.loadSequence(clientID.toLong());
+      } catch (IOException e) {
+        Assert.fail(e.getLocalizedMessage());
+      }
+      if (transactions != null) {
+        for (IPlatformPersistence.SequenceTuple tuple : transactions) {
+          ClientTransaction transaction = new ClientTransaction();
+          transaction.clientID = clientID.toLong();
+          transaction.localTransactionID = tuple.localSequenceID;
+          transaction.globalTransactionID = tuple.globalSequenceID;
+          sortMap.put(tuple.globalSequenceID, transaction);
+        }
+      }
+    }
+    for (ClientTransaction transaction : sortMap.values()) {
+      append(this.permSequenceCache.get(transaction.clientID), transaction.localTransactionID, transaction.globalTransactionID);
+    }
+    if (!sortMap.isEmpty()) {
+      this.receivedTransactionCount = Math.max(this.receivedTransactionCount, sortMap.lastKey());
+    }
   }
 
   /**
@@ -74,9 +114,6 @@ public class TransactionOrderPersistor {
       throw new IllegalArgumentException("Oldest transaction cannot come after new transaction");
     }
     
-    // This operation requires that the globalList be rebuilt.
-    this.globalList = null;
-    
     // Increment the number of received transactions.
     this.receivedTransactionCount += 1;
     
@@ -90,12 +127,14 @@ public class TransactionOrderPersistor {
         transaction.localSequenceID = transactionID.toLong();
         transaction.globalSequenceID = this.receivedTransactionCount;
 
+        ClientSequence mirror = this.permSequenceCache.get(source.toLong());
+        if (mirror != null) {
+          trim(mirror, oldestTransactionOnClient.toLong());
+          append(mirror, transaction.localSequenceID, transaction.globalSequenceID);
+        }
         return this.storageManager.fastStoreSequence(source.toLong(), transaction, oldestTransactionOnClient.toLong());
       } else {
-        ClientTransaction transaction = new ClientTransaction();
-        transaction.localTransactionID = transactionID.toLong();
-        transaction.globalTransactionID = this.receivedTransactionCount;
-        return fastStoreSequence(source, transaction, oldestTransactionOnClient.toLong());
+        return fastStoreSequence(source.toLong(), transactionID.toLong(), this.receivedTransactionCount, oldestTransactionOnClient.toLong());
       }
     } else {
       return null;
@@ -106,8 +145,11 @@ public class TransactionOrderPersistor {
     // Make sure we have tracking for this client.
     if (product.isPermanent()) {
       this.permNodeIDs.add(source);
+      if (!this.permSequenceCache.containsKey(source.toLong())) {
+        this.permSequenceCache.put(source.toLong(), new ClientSequence());
+      }
     } else if (product.isReconnectEnabled()) {
-      this.fastSequenceCache.put(source, new LinkedList<>());
+      this.fastSequenceCache.put(source.toLong(), new ClientSequence());
     } else {
       // do nothing, this type of client will never reconnect
     }
@@ -120,35 +162,171 @@ public class TransactionOrderPersistor {
     long sourceID = source.toLong();
     try {
       if (this.permNodeIDs.remove(source)) {
+        release(this.permSequenceCache.remove(sourceID));
         this.storageManager.deleteSequence(sourceID);
       } else {
-        fastSequenceCache.remove(source);
+        release(fastSequenceCache.remove(sourceID));
       }
     } catch (IOException e) {
       Assert.fail(e.getLocalizedMessage());
     }
   }
 
-  private Future<Void> fastStoreSequence(ClientID sequenceIndex, ClientTransaction newEntry, long oldestValidSequenceID) {
-    List<ClientTransaction> sequence = fastSequenceCache.get(sequenceIndex);
+  private Future<Void> fastStoreSequence(long sequenceIndex, long localTransactionID, long globalTransactionID, long oldestValidSequenceID) {
+    ClientSequence sequence = fastSequenceCache.get(sequenceIndex);
     if (sequence != null) {
-      if (!sequence.isEmpty()) {
+      trim(sequence, oldestValidSequenceID);
+      append(sequence, localTransactionID, globalTransactionID);
+    } else {
+      // must be a client that will not reconnect
+    }
+    return null;
+  }
+
+  private void trim(ClientSequence sequence, long oldestValidSequenceID) {
   //  exploiting the knowledge that sequences are always updated in an increasing fashion, as soon as the first
   //  cleaning function fails, bail on the iteration
-        Iterator<ClientTransaction> tuple = sequence.iterator();
-        while (tuple.hasNext()) {
-          if (tuple.next().localTransactionID < oldestValidSequenceID) {
-            tuple.remove();
-          } else {
-            break;
-          }
+    while (!sequence.local.isEmpty() && sequence.local.peekFirst() < oldestValidSequenceID) {
+      sequence.local.removeFirst();
+      sequence.global.removeFirst();
+      this.globalOrder.remove(sequence.slot.removeFirst());
+    }
+  }
+
+  private void append(ClientSequence sequence, long localTransactionID, long globalTransactionID) {
+    if (this.globalOrder.isFull()) {
+      compactGlobalOrder();
+    }
+    sequence.local.addLast(localTransactionID);
+    sequence.global.addLast(globalTransactionID);
+    sequence.slot.addLast(this.globalOrder.add());
+  }
+
+  private void release(ClientSequence sequence) {
+    if (sequence != null) {
+      for (int x = 0; x < sequence.slot.size(); x++) {
+        this.globalOrder.remove(sequence.slot.get(x));
+      }
+    }
+  }
+
+  /**
+   * Renumbers the slots of all in-flight transactions densely, keeping their order.  Slots are only reclaimed here so
+   * this runs when the slot range is used up, at most once for every half of the range handed out.
+   */
+  private void compactGlobalOrder() {
+    List<ClientSequence> all = new ArrayList<>(this.fastSequenceCache.values());
+    all.addAll(this.permSequenceCache.values());
+    int live = 0;
+    for (ClientSequence sequence : all) {
+      live += sequence.slot.size();
+    }
+    long[] slots = new long[live];
+    int pos = 0;
+    for (ClientSequence sequence : all) {
+      for (int x = 0; x < sequence.slot.size(); x++) {
+        slots[pos++] = sequence.slot.get(x);
+      }
+    }
+    Arrays.sort(slots);
+    for (ClientSequence sequence : all) {
+      for (int x = sequence.slot.size(); x > 0; x--) {
+        sequence.slot.addLast(Arrays.binarySearch(slots, sequence.slot.removeFirst()));
+      }
+    }
+    this.globalOrder.reset(live);
+  }
+
+  /**
+   * The in-flight transactions of a client as three parallel, primitive sequences ordered oldest first.
+   */
+  private static class ClientSequence {
+    private final LongRingDeque local = new LongRingDeque();
+    private final LongRingDeque global = new LongRingDeque();
+    private final LongRingDeque slot = new LongRingDeque();
+
+    /**
+     * @return the position of the transaction in this sequence or -1 if it is not in flight
+     */
+    private int indexOf(long localTransactionID) {
+      int low = 0;
+      int high = this.local.size() - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        long value = this.local.get(mid);
+        if (value < localTransactionID) {
+          low = mid + 1;
+        } else if (value > localTransactionID) {
+          high = mid - 1;
+        } else {
+          return mid;
         }
       }
-      sequence.add(newEntry);
-    } else {
-      // must be a client that will not reconnect
+      return -1;
+    }
+  }
+
+  /**
+   * Counts in-flight transactions by slot with a Fenwick tree.  Slots are handed out in increasing order as
+   * transactions arrive, so the number of live slots before a transaction's slot is its index in the global order.
+   */
+  private static class GlobalOrder {
+    private static final int MINIMUM_CAPACITY = 64;
+
+    private int[] tree = new int[MINIMUM_CAPACITY + 1];
+    private int next;
+
+    boolean isFull() {
+      return next == tree.length - 1;
+    }
+
+    long add() {
+      int slot = next++;
+      update(slot, 1);
+      return slot;
+    }
+
+    void remove(long slot) {
+      update((int)slot, -1);
+    }
+
+    /**
+     * @return the number of live slots before the given one
+     */
+    int countBefore(long slot) {
+      int count = 0;
+      for (int x = (int)slot; x > 0; x -= x & -x) {
+        count += tree[x];
+      }
+      return count;
+    }
+
+    /**
+     * Starts over with slots [0, live) in use and room for at least as many again.
+     */
+    void reset(int live) {
+      int capacity = MINIMUM_CAPACITY;
+      while (capacity < live * 2) {
+        capacity <<= 1;
+      }
+      tree = new int[capacity + 1];
+      for (int x = 1; x <= capacity; x++) {
+        if (x <= live) {
+          tree[x] += 1;
+        }
+        int parent = x + (x & -x);
+        if (parent <= capacity) {
+          tree[parent] += tree[x];
+        }
+      }
+      next = live;
+    }
+
+    private void update(int slot, int delta) {
+      for (int x = slot + 1; x < tree.length; x += x & -x) {
+        tree[x] += delta;
+      }
     }
-    return null;
   }
     
   private static class ClientTransaction {
@@ -183,65 +361,34 @@ public class TransactionOrderPersistor {
     }
   }
   
-  private synchronized List<ClientTransaction> buildGlobalListIfNecessary() {
-    if (null == this.globalList) {
-      TreeMap<Long, ClientTransaction> sortMap = new TreeMap<>();
-      for (ClientID clientID : this.permNodeIDs) {
-        List<IPlatformPersistence.SequenceTuple> transactions = null;
-        try {
-          transactions = this.storageManager.loadSequence(clientID.toLong());
-        } catch (IOException e) {
-          Assert.fail(e.getLocalizedMessage());
-        }
-        if (transactions != null) {
-          for (IPlatformPersistence.SequenceTuple tuple : transactions) {
-            ClientTransaction transaction = new ClientTransaction();
-            transaction.clientID = clientID.toLong();
-            transaction.localTransactionID = tuple.localSequenceID;
-            transaction.globalTransactionID = tuple.globalSequenceID;
-            sortMap.put(tuple.globalSequenceID, transaction);
-          }
-        }
-      }
-      for (List<ClientTransaction> all : this.fastSequenceCache.values()) {
-        if (all != null) {
-          for (ClientTransaction t : all) {
-            sortMap.put(t.globalTransactionID, t);
-          }
-        }
-      }
-      globalList = Collections.unmodifiableList(new ArrayList<>(sortMap.values()));
-      receivedTransactionCount = !sortMap.isEmpty() ? sortMap.lastKey() : 0L;
-    }
-    return globalList;
-  }
-
   /**
    * Called to ask where a given client-local transaction exists in the global transaction list.
    * Returns the index or -1 if it isn't known.
    */
-  public int getIndexToReplay(ClientID source, TransactionID transaction) {
+  public synchronized int getIndexToReplay(ClientID source, TransactionID transaction) {
     long sourceID = source.toLong();
-    long transactionID = transaction.toLong();
-    
-    int index = -1;
-    List<ClientTransaction> list = buildGlobalListIfNecessary();
-    int seek = 0;
-    for (ClientTransaction oneTransaction : list) {
-      if ((oneTransaction.clientID == sourceID) && (oneTransaction.localTransactionID == transactionID)) {
-        index = seek;
-        break;
+    ClientSequence sequence = this.permSequenceCache.get(sourceID);
+    if (sequence == null) {
+      sequence = this.fastSequenceCache.get(sourceID);
+    }
+    if (sequence != null) {
+      int position = sequence.indexOf(transaction.toLong());
+      if (position >= 0) {
+        return this.globalOrder.countBefore(sequence.slot.get(position));
       }
-      seek += 1;
     }
-    return index;
+    return -1;
   }
 
   /**
    * Clears all internal state.
    */
   public synchronized  void clearAllRecords() {
-    this.globalList = null;
+    this.permSequenceCache.forEach((client, sequence) -> {
+      sequence.local.clear();
+      sequence.global.clear();
+      sequence.slot.clear();
+    });
     for (ClientID nodeID : this.permNodeIDs) {
       try {
         this.storageManager.deleteSequence(nodeID.toLong());
@@ -250,6 +397,7 @@ public class TransactionOrderPersistor {
       }
     }
     this.fastSequenceCache.clear();
+    this.globalOrder.reset(0);
   }
 
   /**
@@ -284,15 +432,13 @@ public class TransactionOrderPersistor {
 
     Map<String, Object> clientMap = new LinkedHashMap<>();
     map.put("regularClients", clientMap);
-    for (Map.Entry<ClientID, List<ClientTransaction>> entry : fastSequenceCache.entrySet()) {
+    fastSequenceCache.forEach((client, sequence) -> {
       List<String> trans = new ArrayList<>();
-      if (entry.getValue() != null) {
-        clientMap.put(entry.getKey().toString(), trans);
-        for (ClientTransaction transaction : entry.getValue()) {
-          trans.add("Global seq Id = " + transaction.globalTransactionID + ", local seq id = " + transaction.localTransactionID);
-        }
+      clientMap.put(new ClientID(client).toString(), trans);
+      for (int x = 0; x < sequence.local.size(); x++) {
+        trans.add("Global seq Id = " + sequence.global.get(x) + ", local seq id = " + sequence.local.get(x));
       }
-    }
+    });
     return map;
   }
 }
@@ -105,6 +105,15 @@ public class BestEffortsMonitoring {
     requestFlushIfNonePending();
   }
 
+  public synchronized void pushBestEffortsBatch(long[] consumerIDs, String[] names, Serializable[] data) {
+    for (int i = 0; i < consumerIDs.length; ++i) {
+      this.bestEffortsCache.computeIfAbsent(consumerIDs[i], (id)->new HashMap<String, Serializable>()).put(names[i], data[i]);
+    }
+    if (consumerIDs.length > 0) {
+      requestFlushIfNonePending();
+    }
+  }
+
   /**
    * Called by the internal background thread running the timer.
    */
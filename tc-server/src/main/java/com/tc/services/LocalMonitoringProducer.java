@@ -18,10 +18,20 @@
 package com.tc.services;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +47,8 @@ import org.terracotta.monitoring.PlatformServer;
 import com.tc.classloader.BuiltinService;
 import com.tc.net.ServerID;
 import com.tc.objectserver.api.ManagedEntity;
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
 import com.tc.server.ServiceClassLoader;
 import java.io.Closeable;
 import java.util.Arrays;
@@ -59,6 +71,14 @@ import java.util.Arrays;
  *
  * XXX: The synchronization through this class should be re-thought since it introduces bottlenecks and brittle code which
  *  probably has better solutions.
+ *
+ * To keep callers such as fetch and release off that lock, the producers handed out by getService publish their calls
+ *  to a lock free ring and return.  A background thread drains the ring in batches, drops additions which a later
+ *  event on the same node supersedes and applies the rest, in order, under a single acquisition of the lock.  The
+ *  producers still answer addNode and removeNode from a lock free view of the nodes they have published, so an add
+ *  under a missing parent or a remove of a missing node fails at the call as it would inline.  When the ring is full,
+ *  events queue behind it rather than wait for room.  Setting {@code l2.monitoring.async} to false applies every call
+ *  inline instead.
  */
 @BuiltinService
 public class LocalMonitoringProducer implements ImplementationProvidedServiceProvider, ManagedEntity.LifecycleListener, Closeable {
@@ -73,25 +93,72 @@ public class LocalMonitoringProducer implements ImplementationProvidedServicePro
   private BestEffortsMonitoring bestEfforts;
   private final ServiceClassLoader classLoader;
   private final SingleThreadedTimer timer;
+  private final boolean ownsTimer;
+  private final MonitoringEventRing<MonitoringEvent> ring;
+  private final Thread batcher;
+  private final AtomicBoolean batcherParked = new AtomicBoolean();
+  // keys of the nodes published through the ring, by MonitoringEvent.pathKey
+  private final ConcurrentNavigableMap<String, Boolean> publishedNodes = new ConcurrentSkipListMap<>();
+  // events published while the ring was full, guarded by itself
+  private final ArrayDeque<MonitoringEvent> overflow = new ArrayDeque<>();
+  private volatile boolean overflowing;
+  private volatile boolean running = true;
+
+  private static final int RING_SIZE = 16 * 1024;
+  private static final int MAX_BATCH = 512;
 
   public LocalMonitoringProducer(ClassLoader loader, TerracottaServiceProviderRegistry globalRegistry, PlatformServer thisServer, ThreadGroup groupForTimer) {
+    this(loader, globalRegistry, thisServer, groupForTimer, new SingleThreadedTimer(null, groupForTimer), true);
+  }
+
+  /**
+   * Schedules on a shared timer which the caller starts and stops.
+   */
+  public LocalMonitoringProducer(ClassLoader loader, TerracottaServiceProviderRegistry globalRegistry, PlatformServer thisServer, ThreadGroup groupForTimer, SingleThreadedTimer timer) {
+    this(loader, globalRegistry, thisServer, groupForTimer, timer, false);
+  }
+
+  private LocalMonitoringProducer(ClassLoader loader, TerracottaServiceProviderRegistry globalRegistry, PlatformServer thisServer, ThreadGroup groupForTimer, SingleThreadedTimer timer, boolean ownsTimer) {
     this.globalRegistry = globalRegistry;
     this.thisServer = thisServer;
     this.otherServers = new HashMap<>();
     this.cachedTreeRoot = new HashMap<>();
-    this.timer = new SingleThreadedTimer(null, groupForTimer);
-    this.timer.start();
+    this.timer = timer;
+    this.ownsTimer = ownsTimer;
+    if (ownsTimer) {
+      this.timer.start();
+    }
     this.bestEfforts = new BestEffortsMonitoring(timer);
     this.classLoader = new ServiceClassLoader(loader);
+    if (TCPropertiesImpl.getProperties().getBoolean(TCPropertiesConsts.L2_MONITORING_ASYNC, true)) {
+      this.ring = new MonitoringEventRing<>(RING_SIZE);
+      this.batcher = new Thread(groupForTimer, this::drainEvents, "monitoring-event-batcher");
+      this.batcher.setDaemon(true);
+      this.batcher.start();
+    } else {
+      this.ring = null;
+      this.batcher = null;
+    }
   }
 
   @Override
   public void close() {
-    this.timer.cancelAll();
-    try {
-      this.timer.stop();
-    } catch (InterruptedException ie) {
-      Thread.currentThread().interrupt();
+    if (this.batcher != null) {
+      this.running = false;
+      LockSupport.unpark(this.batcher);
+      try {
+        this.batcher.join();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (this.ownsTimer) {
+      this.timer.cancelAll();
+      try {
+        this.timer.stop();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
     }
   }
   
@@ -105,6 +172,7 @@ public class LocalMonitoringProducer implements ImplementationProvidedServicePro
     if (this.cachedTreeRoot != null) {
       this.cachedTreeRoot.remove(sender.getConsumerID());
     }
+    forgetPublishedNodes(sender.getConsumerID() + "/");
   }
 
   public ClassLoader getWireLoader() {
@@ -133,15 +201,39 @@ public class LocalMonitoringProducer implements ImplementationProvidedServicePro
       service = type.cast(new IMonitoringProducer() {
         @Override
         public boolean addNode(String[] parents, String name, Serializable value) {
-          return addNodeFromShim(consumerID, underlyingCollector, parents, name, value);
+          // classes are registered with the wire loader before anything which needs them is decoded
+          if (ring == null || value instanceof Class) {
+            return addNodeFromShim(consumerID, underlyingCollector, parents, name, value);
+          }
+          int depth = parents == null ? 0 : parents.length;
+          if (depth > 0 && !publishedNodes.containsKey(MonitoringEvent.pathKey(consumerID, parents, depth - 1, parents[depth - 1]))) {
+            return false;
+          }
+          boolean fresh = publishedNodes.put(MonitoringEvent.pathKey(consumerID, parents, depth, name), Boolean.TRUE) == null;
+          publish(new MonitoringEvent(MonitoringEvent.ADD, consumerID, underlyingCollector, parents, name, value, fresh));
+          return true;
         }
         @Override
         public boolean removeNode(String[] parents, String name) {
-          return removeNodeFromShim(consumerID, underlyingCollector, parents, name);
+          if (ring == null) {
+            return removeNodeFromShim(consumerID, underlyingCollector, parents, name);
+          }
+          String key = MonitoringEvent.pathKey(consumerID, parents, parents == null ? 0 : parents.length, name);
+          if (publishedNodes.remove(key) == null) {
+            return false;
+          }
+          // the node takes its children with it
+          forgetPublishedNodes(key + "/");
+          publish(new MonitoringEvent(MonitoringEvent.REMOVE, consumerID, underlyingCollector, parents, name, null, false));
+          return true;
         }
         @Override
         public void pushBestEffortsData(String name, Serializable data) {
-          pushBestEffortsFromShim(consumerID, underlyingCollector, name, data);
+          if (ring == null) {
+            pushBestEffortsFromShim(consumerID, underlyingCollector, name, data);
+          } else {
+            publish(new MonitoringEvent(MonitoringEvent.BEST_EFFORTS, consumerID, underlyingCollector, null, name, data, false));
+          }
         }
       });
     }
@@ -380,6 +472,169 @@ public class LocalMonitoringProducer implements ImplementationProvidedServicePro
     }
   }
 
+  private void publish(MonitoringEvent event) {
+    if (Thread.currentThread() == this.batcher) {
+      // published while applying a batch, the ring may be full so never wait on it here
+      applyBatch(Collections.singletonList(event));
+      return;
+    }
+    if (!this.overflowing && this.ring.offer(event)) {
+      if (this.batcherParked.get()) {
+        LockSupport.unpark(this.batcher);
+      }
+      return;
+    }
+    synchronized (this.overflow) {
+      // the ring is full, queue behind it until the batcher catches up.  Everything published from here on joins the
+      // queue so that no thread's events overtake each other.
+      if (!this.overflowing) {
+        LOGGER.debug("monitoring event ring is full, queueing behind it");
+        this.overflowing = true;
+      }
+      this.overflow.add(event);
+    }
+    LockSupport.unpark(this.batcher);
+  }
+
+  private void forgetPublishedNodes(String prefix) {
+    this.publishedNodes.subMap(prefix, prefix.substring(0, prefix.length() - 1) + (char)('/' + 1)).clear();
+  }
+
+  private void drainEvents() {
+    List<MonitoringEvent> batch = new ArrayList<>(MAX_BATCH);
+    while (true) {
+      for (MonitoringEvent event = this.ring.poll(); event != null; event = batch.size() < MAX_BATCH ? this.ring.poll() : null) {
+        batch.add(event);
+      }
+      if (this.overflowing && batch.size() < MAX_BATCH) {
+        synchronized (this.overflow) {
+          // whatever made it into the ring was published before the queued events
+          for (MonitoringEvent event = this.ring.poll(); event != null; event = this.ring.poll()) {
+            batch.add(event);
+          }
+          batch.addAll(this.overflow);
+          this.overflow.clear();
+          this.overflowing = false;
+        }
+      }
+      if (!batch.isEmpty()) {
+        try {
+          applyBatch(coalesce(batch));
+        } catch (RuntimeException e) {
+          // monitoring is not critical, keep draining
+          LOGGER.warn("failed to apply monitoring events", e);
+        }
+        batch.clear();
+      } else if (!this.running) {
+        return;
+      } else {
+        // flag before the last look so a publisher either sees the flag or the consumer sees the event
+        this.batcherParked.set(true);
+        if (this.ring.isEmpty() && !this.overflowing && this.running) {
+          LockSupport.park(this);
+        }
+        this.batcherParked.set(false);
+      }
+    }
+  }
+
+  private synchronized void applyBatch(List<MonitoringEvent> batch) {
+    Map<String, MonitoringEvent> bestEffortsData = null;
+    for (MonitoringEvent event : batch) {
+      switch (event.kind) {
+        case MonitoringEvent.ADD:
+          if (!addNodeFromShim(event.consumerID, event.collector, event.parents, event.name, event.value)) {
+            LOGGER.warn("monitoring add of {} under {} was not stored", event.name, Arrays.toString(event.parents));
+          }
+          break;
+        case MonitoringEvent.REMOVE:
+          if (!removeNodeFromShim(event.consumerID, event.collector, event.parents, event.name)) {
+            LOGGER.warn("monitoring remove of {} under {} found nothing", event.name, Arrays.toString(event.parents));
+          }
+          break;
+        default:
+          if (bestEffortsData == null) {
+            bestEffortsData = new LinkedHashMap<>();
+          }
+          // only the latest value of a key is worth sending
+          bestEffortsData.put(event.consumerID + ":" + event.name, event);
+          break;
+      }
+    }
+    if (bestEffortsData != null) {
+      if (this.bestEfforts != null) {
+        int size = bestEffortsData.size();
+        long[] consumerIDs = new long[size];
+        String[] keys = new String[size];
+        Serializable[] values = new Serializable[size];
+        int index = 0;
+        for (MonitoringEvent event : bestEffortsData.values()) {
+          consumerIDs[index] = event.consumerID;
+          keys[index] = event.name;
+          values[index] = event.value;
+          index += 1;
+        }
+        this.bestEfforts.pushBestEffortsBatch(consumerIDs, keys, values);
+      } else {
+        for (MonitoringEvent event : bestEffortsData.values()) {
+          event.collector.pushBestEffortsData(this.thisServer, event.name, event.value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Drops each addition of a node which is followed, in the same batch, by another addition or a removal of that node,
+   * the later event leaves the node in the same state.  An addition is kept if anything below the node is touched
+   * before the later event since that needs the node in place.  A removal which cancels out the addition of a node that
+   * did not exist before is dropped with it, the node never reaches the collector so there is nothing to remove.
+   */
+  static List<MonitoringEvent> coalesce(List<MonitoringEvent> batch) {
+    Map<String, Integer> pendingAdds = new HashMap<>();
+    // pending additions of nodes which did not exist before the first of them
+    Set<String> freshAdds = new HashSet<>();
+    MonitoringEvent[] kept = batch.toArray(new MonitoringEvent[batch.size()]);
+    int dropped = 0;
+    for (int x = 0; x < kept.length; x++) {
+      MonitoringEvent event = kept[x];
+      if (event.kind == MonitoringEvent.BEST_EFFORTS) {
+        continue;
+      }
+      String[] parents = event.parents == null ? new String[0] : event.parents;
+      for (int depth = 0; depth < parents.length; depth++) {
+        String parentKey = MonitoringEvent.pathKey(event.consumerID, parents, depth, parents[depth]);
+        pendingAdds.remove(parentKey);
+        freshAdds.remove(parentKey);
+      }
+      String key = MonitoringEvent.pathKey(event.consumerID, parents, parents.length, event.name);
+      Integer superseded = pendingAdds.remove(key);
+      boolean fresh = freshAdds.remove(key);
+      if (superseded != null) {
+        kept[superseded] = null;
+        dropped += 1;
+      }
+      if (event.kind == MonitoringEvent.ADD) {
+        pendingAdds.put(key, x);
+        if (event.fresh || fresh) {
+          freshAdds.add(key);
+        }
+      } else if (fresh) {
+        kept[x] = null;
+        dropped += 1;
+      }
+    }
+    if (dropped == 0) {
+      return batch;
+    }
+    List<MonitoringEvent> result = new ArrayList<>(kept.length - dropped);
+    for (MonitoringEvent event : kept) {
+      if (event != null) {
+        result.add(event);
+      }
+    }
+    return result;
+  }
+
   private CacheNode findParent(long consumerID, String[] parents) {
     CacheNode parentNode = null;
     if (null != this.cachedTreeRoot) {
@@ -443,4 +698,37 @@ public class LocalMonitoringProducer implements ImplementationProvidedServicePro
     public void didEnterNode(String[] parents, String name, Serializable value);
   }
 
+  static final class MonitoringEvent {
+    static final int ADD = 0;
+    static final int REMOVE = 1;
+    static final int BEST_EFFORTS = 2;
+
+    final int kind;
+    final long consumerID;
+    final IStripeMonitoring collector;
+    final String[] parents;
+    final String name;
+    final Serializable value;
+    // an addition of a node which had not been published before
+    final boolean fresh;
+
+    MonitoringEvent(int kind, long consumerID, IStripeMonitoring collector, String[] parents, String name, Serializable value, boolean fresh) {
+      this.kind = kind;
+      this.consumerID = consumerID;
+      this.collector = collector;
+      this.parents = parents;
+      this.name = name;
+      this.value = value;
+      this.fresh = fresh;
+    }
+
+    static String pathKey(long consumerID, String[] parents, int depth, String name) {
+      StringBuilder key = new StringBuilder().append(consumerID);
+      for (int x = 0; x < depth; x++) {
+        key.append('/').append(parents[x]);
+      }
+      return key.append('/').append(name).toString();
+    }
+  }
+
 }
@@ -0,0 +1,93 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock free ring with many producers and a single consumer.  Each slot carries a sequence number which
+ * tells a producer when the slot is free and the consumer when it has been filled, so producers only contend on
+ * the claim of a position.
+ */
+class MonitoringEventRing<E> {
+  private final AtomicReferenceArray<E> slots;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  // only touched by the consumer
+  private long head;
+
+  MonitoringEventRing(int capacity) {
+    if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two " + capacity);
+    }
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    this.mask = capacity - 1;
+    for (int x = 0; x < capacity; x++) {
+      sequences.set(x, x);
+    }
+  }
+
+  /**
+   * @return false if the ring is full
+   */
+  boolean offer(E event) {
+    long pos = tail.get();
+    while (true) {
+      int slot = (int) (pos & mask);
+      long diff = sequences.get(slot) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          slots.lazySet(slot, event);
+          sequences.set(slot, pos + 1);
+          return true;
+        }
+        pos = tail.get();
+      } else if (diff < 0) {
+        return false;
+      } else {
+        pos = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Consumer only.
+   */
+  E poll() {
+    int slot = (int) (head & mask);
+    if (sequences.get(slot) != head + 1) {
+      return null;
+    }
+    E event = slots.get(slot);
+    slots.lazySet(slot, null);
+    sequences.set(slot, head + mask + 1);
+    head += 1;
+    return event;
+  }
+
+  /**
+   * Consumer only.
+   */
+  boolean isEmpty() {
+    return sequences.get((int) (head & mask)) != head + 1;
+  }
+}
@@ -18,9 +18,13 @@
 package com.tc.services;
 
 import com.tc.net.utils.L2Utils;
+import com.tc.text.PrettyPrintable;
+import com.tc.util.LongObjectHashMap;
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.tc.util.Assert;
 import org.terracotta.server.ServerEnv;
@@ -29,42 +33,85 @@ import org.terracotta.server.ServerEnv;
 /**
  * A basic utility class which allows tasks to be scheduled to be run, in a background thread, at some delayed point in the
  *  future.
+ * <p>
+ * Tasks are kept in a hashed timing wheel:  each task is placed in the bucket of the tick its start time falls in and a
+ *  lookup table by id allows cancellation without searching, so both scheduling and cancelling are O(1).  When the
+ *  clock advances, every bucket between the last processed tick and the current one is swept and all due tasks are
+ *  expired as one batch.  Tasks further away than one revolution of the wheel simply stay in their bucket until a
+ *  later sweep finds them due.
  * NOTE:  This timer is single-threaded as it is expected that all tasks it runs are small.
  */
-public class SingleThreadedTimer implements ISimpleTimer {
+public class SingleThreadedTimer implements ISimpleTimer, PrettyPrintable {
+  private static final long DEFAULT_TICK_MILLIS = 10;
+  private static final int DEFAULT_WHEEL_SIZE = 512;
+
   private final TimeSource timeSource;
   private final Thread timerThread;
   private boolean threadIsRunning = false;
   private long nextId = 1L;
-  private final PriorityQueue<ListElement> queue = new PriorityQueue<>(1, new Comparator<ListElement>(){
-    @Override
-    public int compare(ListElement o1, ListElement o2) {
-      long delta = o1.startTimeMillis - o2.startTimeMillis;
-      return (0 == delta)
-          ? 0
-          : ((delta < 0) ? -1 : 1);
-    }});
+  private final long tickMillis;
+  private final Bucket[] wheel;
+  private final LongObjectHashMap<ListElement> elements = new LongObjectHashMap<>();
+  // the last tick whose bucket has been swept
+  private long lastTick;
   private boolean isInPoke = false;
 
+  // statistics, guarded by this
+  private long expiredTasks;
+  private long expiredBatches;
+  private long totalLagMillis;
+  private long maxLagMillis;
+  private int maxBatchSize;
+
   public SingleThreadedTimer(TimeSource source, ThreadGroup group) {
+    this(source, group, ServerEnv.getServer().getIdentifier() + " - SingleThreadedTimer", false);
+  }
+
+  /**
+   * @param name the name of the timer thread
+   * @param daemon true if the timer thread should not keep the JVM alive
+   */
+  public SingleThreadedTimer(TimeSource source, ThreadGroup group, String name, boolean daemon) {
+    this(source, group, name, daemon, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+  }
+
+  SingleThreadedTimer(TimeSource source, ThreadGroup group, long tickMillis, int wheelSize) {
+    this(source, group, ServerEnv.getServer().getIdentifier() + " - SingleThreadedTimer", false, tickMillis, wheelSize);
+  }
+
+  private SingleThreadedTimer(TimeSource source, ThreadGroup group, String name, boolean daemon, long tickMillis, int wheelSize) {
     this.timeSource = (null != source) ? source : new TimeSource() {
       @Override
       public long currentTimeMillis() {
         return System.currentTimeMillis();
       }
     };
+    Assert.assertTrue(tickMillis > 0);
+    this.tickMillis = tickMillis;
+    this.wheel = new Bucket[Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1];
+    for (int x = 0; x < this.wheel.length; x++) {
+      this.wheel[x] = new Bucket();
+    }
+    this.lastTick = this.timeSource.currentTimeMillis() / tickMillis;
     timerThread = new Thread(group, () -> {
-      Runnable nextRunnable = SingleThreadedTimer.this.getNextRunnable();
-      while (null != nextRunnable) {
-        try {
-          nextRunnable.run();
-        } catch (Throwable t) {
-          System.err.println("ERROR:  Unexpected exception in timer (timed events may be dropped)");
-          t.printStackTrace();
+      List<ListElement> batch = SingleThreadedTimer.this.getNextBatch();
+      while (null != batch) {
+        for (ListElement next : batch) {
+          // an earlier task of the same batch may have cancelled this one
+          if (SingleThreadedTimer.this.isStillScheduled(next)) {
+            try {
+              next.toRun.run();
+            } catch (Throwable t) {
+              System.err.println("ERROR:  Unexpected exception in timer (timed events may be dropped)");
+              t.printStackTrace();
+            }
+            SingleThreadedTimer.this.finished(next);
+          }
         }
-        nextRunnable = SingleThreadedTimer.this.getNextRunnable();
+        batch = SingleThreadedTimer.this.getNextBatch();
       }
-    }, ServerEnv.getServer().getIdentifier() + " - SingleThreadedTimer");
+    }, name);
+    timerThread.setDaemon(daemon);
   }
 
   @Override
@@ -79,7 +126,10 @@ public class SingleThreadedTimer implements ISimpleTimer {
       this.threadIsRunning = false;
       this.notifyAll();
     }
-    this.timerThread.join();
+    // a task may stop the timer which owns it
+    if (Thread.currentThread() != this.timerThread) {
+      this.timerThread.join();
+    }
   }
 
   public synchronized void poke() {
@@ -114,77 +164,191 @@ public class SingleThreadedTimer implements ISimpleTimer {
 
   @Override
   public synchronized boolean cancel(long id) {
-    // Note that, if this is a hot-point, we could change it to be a side Map which points into the list but this keeps things simple and the list is currently always short.
-    boolean didCancel = false;
-    Iterator<ListElement> iterator = this.queue.iterator();
-    while (!didCancel && iterator.hasNext()) {
-      ListElement next = iterator.next();
-      if (next.id == id) {
-        iterator.remove();
-        didCancel = true;
-      }
+    ListElement element = this.elements.remove(id);
+    if (element != null) {
+      element.unlink();
+      element.cancelled = true;
+      return true;
+    } else {
+      return false;
     }
-    return didCancel;
   }
 
   public synchronized void cancelAll() {
-    this.queue.clear();
-  }
-
-
-  private synchronized Runnable getNextRunnable() {
-    Runnable toRun = null;
-    while (this.threadIsRunning && (null == toRun)) {
-      long millisToSleep = 0;
-      ListElement head = this.queue.peek();
-      if (null != head) {
-        long now = this.timeSource.currentTimeMillis();
-        if (head.startTimeMillis <= now) {
-          // We will run this.
-          toRun = head.toRun;
-          this.queue.remove();
-          // See if we want to discard this or re-enqueue it.
-          if (head.periodTimeMillis > 0) {
-            ListElement newElement = new ListElement(head.id, head.toRun, head.startTimeMillis + head.periodTimeMillis, head.periodTimeMillis);
-            this.queue.add(newElement);
-          }
-        } else {
-          // We will sleep.
-          millisToSleep = head.startTimeMillis - now;
-        }
-      }
-      if (null == toRun) {
+    this.elements.forEach((id, element) -> element.cancelled = true);
+    this.elements.clear();
+    for (Bucket bucket : this.wheel) {
+      bucket.clear();
+    }
+  }
+
+  @Override
+  public synchronized Map<String, ?> getStateMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("className", this.getClass().getName());
+    map.put("tickMillis", this.tickMillis);
+    map.put("wheelSize", this.wheel.length);
+    map.put("backlog", this.elements.size());
+    map.put("overdue", countOverdue(this.timeSource.currentTimeMillis()));
+    map.put("expiredTasks", this.expiredTasks);
+    map.put("expiredBatches", this.expiredBatches);
+    map.put("maxBatchSize", this.maxBatchSize);
+    map.put("maxLagMillis", this.maxLagMillis);
+    map.put("averageLagMillis", (this.expiredTasks > 0) ? this.totalLagMillis / this.expiredTasks : 0L);
+    return map;
+  }
+
+  private synchronized boolean isStillScheduled(ListElement element) {
+    return !element.cancelled;
+  }
+
+  private synchronized void finished(ListElement element) {
+    // one-shot tasks stay cancellable until they have run
+    if (element.periodTimeMillis == 0 && !element.cancelled) {
+      this.elements.remove(element.id);
+    }
+  }
+
+  private synchronized List<ListElement> getNextBatch() {
+    List<ListElement> batch = null;
+    while (this.threadIsRunning && (null == batch)) {
+      long now = this.timeSource.currentTimeMillis();
+      batch = expire(now);
+      if (null == batch) {
         // This will cause us to sleep until the next event, unless someone notifies us, first.
         if (this.isInPoke) {
           this.isInPoke = false;
           this.notifyAll();
         }
         try {
-          this.wait(millisToSleep);
+          this.wait(millisToNextOccupiedTick(now));
         } catch (InterruptedException e) {
           L2Utils.handleInterrupted(null, e);
         }
       }
     }
-    return toRun;
+    return batch;
+  }
+
+  /**
+   * Sweeps every bucket up to the current tick, collecting all due tasks.  Periodic tasks are rescheduled before they
+   *  run so they can cancel themselves.  Elements touched by the timer thread are only changed while holding this.
+   *
+   * @return the due tasks ordered by start time, or null if none are due
+   */
+  private List<ListElement> expire(long now) {
+    long currentTick = now / this.tickMillis;
+    List<ListElement> batch = null;
+    if (currentTick >= this.lastTick) {
+      // one revolution visits every bucket so there is no point in sweeping more than that
+      long firstTick = Math.max(this.lastTick, currentTick - this.wheel.length + 1);
+      for (long tick = firstTick; tick <= currentTick; tick++) {
+        Bucket bucket = this.wheel[(int) (tick & (this.wheel.length - 1))];
+        ListElement element = bucket.head;
+        while (element != null) {
+          ListElement next = element.next;
+          if (element.startTimeMillis <= now) {
+            if (batch == null) {
+              batch = new ArrayList<>();
+            }
+            batch.add(element);
+            element.unlink();
+          }
+          element = next;
+        }
+      }
+      this.lastTick = currentTick;
+    }
+    if (batch != null) {
+      batch.sort(Comparator.comparingLong((ListElement e) -> e.startTimeMillis).thenComparingLong(e -> e.id));
+      this.expiredBatches += 1;
+      this.maxBatchSize = Math.max(this.maxBatchSize, batch.size());
+      for (ListElement element : batch) {
+        long lag = now - element.startTimeMillis;
+        this.expiredTasks += 1;
+        this.totalLagMillis += lag;
+        this.maxLagMillis = Math.max(this.maxLagMillis, lag);
+        if (element.periodTimeMillis > 0) {
+          element.startTimeMillis += element.periodTimeMillis;
+          schedule(element);
+        }
+      }
+    }
+    return batch;
+  }
+
+  /**
+   * @return how long to wait for the next bucket holding any task, 0 (forever) if the wheel is empty
+   */
+  private long millisToNextOccupiedTick(long now) {
+    if (this.elements.isEmpty()) {
+      return 0;
+    }
+    // the bucket of the last swept tick may still hold tasks due later within that tick
+    for (long tick = this.lastTick; tick < this.lastTick + this.wheel.length; tick++) {
+      if (this.wheel[(int) (tick & (this.wheel.length - 1))].head != null) {
+        return Math.max(1, Math.max(tick, this.lastTick + 1) * this.tickMillis - now);
+      }
+    }
+    return Math.max(1, this.tickMillis);
+  }
+
+  private int countOverdue(long now) {
+    int[] overdue = new int[1];
+    this.elements.forEach((id, element) -> {
+      if (element.startTimeMillis <= now) {
+        overdue[0] += 1;
+      }
+    });
+    return overdue[0];
   }
 
   private long enqueueNewElement(Runnable toRun, long startTimeMillis, long repeatPeriodMillis) {
     long id = this.nextId;
     this.nextId += 1;
     ListElement element = new ListElement(id, toRun, startTimeMillis, repeatPeriodMillis);
-    this.queue.add(element);
+    this.elements.put(id, element);
+    schedule(element);
     this.notifyAll();
     
     return id;
   }
 
+  private void schedule(ListElement element) {
+    // anything already due goes in the bucket of the last swept tick, which every sweep visits again, rather than
+    // in one that will not come around until the next revolution
+    long tick = Math.max(element.startTimeMillis / this.tickMillis, this.lastTick);
+    this.wheel[(int) (tick & (this.wheel.length - 1))].add(element);
+  }
+
+
+  private static class Bucket {
+    private ListElement head;
+
+    private void add(ListElement element) {
+      element.bucket = this;
+      element.prev = null;
+      element.next = this.head;
+      if (this.head != null) {
+        this.head.prev = element;
+      }
+      this.head = element;
+    }
+
+    private void clear() {
+      this.head = null;
+    }
+  }
 
   private static class ListElement {
     public final long id;
     public final Runnable toRun;
-    public final long startTimeMillis;
+    public long startTimeMillis;
     public final long periodTimeMillis;
+    private boolean cancelled;
+    private Bucket bucket;
+    private ListElement prev;
+    private ListElement next;
     
     public ListElement(long id, Runnable toRun, long startTimeMillis, long periodTimeMillis) {
       this.id = id;
@@ -192,6 +356,22 @@ public class SingleThreadedTimer implements ISimpleTimer {
       this.startTimeMillis = startTimeMillis;
       this.periodTimeMillis = periodTimeMillis;
     }
+
+    private void unlink() {
+      if (this.bucket != null) {
+        if (this.prev != null) {
+          this.prev.next = this.next;
+        } else {
+          this.bucket.head = this.next;
+        }
+        if (this.next != null) {
+          this.next.prev = this.prev;
+        }
+        this.bucket = null;
+        this.prev = null;
+        this.next = null;
+      }
+    }
   }
 
 }
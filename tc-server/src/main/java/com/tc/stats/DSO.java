@@ -20,6 +20,7 @@ package com.tc.stats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tc.async.api.Stage;
 import com.tc.management.TerracottaManagement;
 import com.tc.net.core.TCConnectionManager;
 import com.tc.net.groups.GroupManager;
@@ -88,6 +89,7 @@ public class DSO extends AbstractNotifyingMBean implements DSOMBean {
   private final ConnectionPolicy                       connectionPolicy;
   private final VoltronMessageHandler               messageHandler;
   private final VoltronMessageSink                  messageSink;
+  private final ServerConfigurationContext          configContext;
   
   private volatile int jmxRemotePort = DEFAULT_JMX_REMOTE_PORT;
   private volatile JMXConnectorServer jmxConnectorServer;
@@ -105,6 +107,7 @@ public class DSO extends AbstractNotifyingMBean implements DSOMBean {
     this.messageSink = managementContext.getVoltronMessageSink();
     this.connections = managementContext.getConnectionManager();
     this.group = configContext.getL2Coordinator().getGroupManager();
+    this.configContext = configContext;
     // add various listeners (do this before the setupXXX() methods below so we don't ever miss anything)
     channelMgr.addEventListener(new ChannelManagerListener());
     configContext.addShutdownItem(pool::shutdown);
@@ -506,4 +509,17 @@ public class DSO extends AbstractNotifyingMBean implements DSOMBean {
   public boolean isAlwaysHydrate() {
     return this.messageSink.isAlwaysHydrate();
   }
+
+  @Override
+  public String setStageThreadBounds(String stage, int minThreads, int maxThreads) {
+    Stage<?> s = this.configContext.getStage(stage, Object.class);
+    if (s == null) {
+      return "no stage named " + stage;
+    }
+    try {
+      return s.setThreadBounds(minThreads, maxThreads) ? stage + " threads set to " + minThreads + ".." + maxThreads : stage + " has a fixed number of threads";
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    }
+  }
 }
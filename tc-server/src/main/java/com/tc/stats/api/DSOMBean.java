@@ -88,4 +88,11 @@ public interface DSOMBean extends TerracottaMBean {
   void setAlwaysHydrate(boolean hydrate);
   
   boolean isAlwaysHydrate();
+
+  /**
+   * Sets the thread bounds of an elastic stage, its current sizes and recent resizes are in the stage state.
+   *
+   * @return a description of the result
+   */
+  String setStageThreadBounds(String stage, int minThreads, int maxThreads);
 }
@@ -0,0 +1,106 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.objectserver.handler;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class ClientResponseStatsTest {
+
+  @Test
+  public void testPendingTracksQueuedResponses() throws Exception {
+    ClientResponseStats stats = new ClientResponseStats();
+    Assert.assertTrue(stats.isIdle());
+    stats.enqueued();
+    Assert.assertFalse(stats.isIdle());
+    stats.sent(1000);
+    Assert.assertTrue(stats.isIdle());
+    // a send never tracked as pending does not drive the count negative
+    stats.sent(1000);
+    stats.enqueued();
+    Assert.assertFalse(stats.isIdle());
+  }
+
+  @Test
+  public void testLingerFollowsRecentBatchSize() throws Exception {
+    ClientResponseStats stats = new ClientResponseStats();
+    Assert.assertFalse(stats.shouldLinger(4));
+    for (int x = 0; x < 10; x++) {
+      stats.enqueued();
+      for (int y = 0; y < 8; y++) {
+        stats.added();
+      }
+      stats.sent(1000);
+    }
+    Assert.assertTrue(stats.shouldLinger(4));
+    Assert.assertFalse(stats.shouldLinger(0));
+    for (int x = 0; x < 20; x++) {
+      stats.enqueued();
+      stats.added();
+      stats.sent(1000);
+    }
+    Assert.assertFalse(stats.shouldLinger(4));
+  }
+
+  @Test
+  public void testStateReportsLatency() throws Exception {
+    ClientResponseStats stats = new ClientResponseStats();
+    stats.enqueued();
+    stats.added();
+    stats.added();
+    stats.sent(4000);
+    stats.enqueued();
+    stats.added();
+    stats.sent(2000);
+    Map<String, ?> state = stats.getStateMap();
+    Assert.assertEquals(3L, state.get("operations"));
+    Assert.assertEquals(2L, state.get("sends"));
+    Assert.assertEquals(2, state.get("maxBatch"));
+    Assert.assertEquals(3L, state.get("averageAckLatencyMicros"));
+    Assert.assertEquals(4L, state.get("maxAckLatencyMicros"));
+  }
+
+  @Test
+  public void testEnqueueWaitsForLingeringRequeue() throws Exception {
+    ClientResponseStats stats = new ClientResponseStats();
+    // nothing lingering, no wait
+    stats.awaitRequeue();
+    stats.lingered();
+    CountDownLatch done = new CountDownLatch(1);
+    Thread producer = new Thread(()->{
+      synchronized (stats) {
+        stats.awaitRequeue();
+        stats.enqueued();
+      }
+      done.countDown();
+    });
+    producer.start();
+    Assert.assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+    // the waiting producer does not hold the monitor
+    stats.sent(1000);
+    stats.requeued();
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    producer.join();
+    Assert.assertFalse(stats.isIdle());
+    Assert.assertEquals(1L, stats.getStateMap().get("lingered"));
+  }
+}
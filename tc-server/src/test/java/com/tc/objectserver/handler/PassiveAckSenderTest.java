@@ -0,0 +1,98 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.objectserver.handler;
+
+import com.tc.async.api.Sink;
+import com.tc.l2.msg.ReplicationResultCode;
+import com.tc.l2.msg.SyncReplicationActivity;
+import com.tc.net.ServerID;
+import com.tc.net.groups.AbstractGroupMessage;
+import com.tc.net.groups.GroupManager;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+
+public class PassiveAckSenderTest {
+
+  private final ServerID active = new ServerID("active", "active".getBytes());
+  private BlockingQueue<Runnable> outgoing;
+  private PassiveAckSender sender;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    outgoing = new LinkedBlockingQueue<>();
+    Sink<Runnable> sink = outgoing::add;
+    sender = new PassiveAckSender(mock(GroupManager.class), m->true, sink);
+  }
+
+  @Test
+  public void testFailedCompletionStageIsFatal() throws Exception {
+    SyncReplicationActivity activity = SyncReplicationActivity.createStartMessage();
+    CompletableFuture<Void> persisted = new CompletableFuture<>();
+    sender.ackReceived(active, activity, persisted);
+    // chained behind the receipt
+    sender.acknowledge(active, activity, ReplicationResultCode.SUCCESS);
+    assertNull(outgoing.poll());
+
+    persisted.completeExceptionally(new IOException("disk gone"));
+    assertFatal(outgoing.poll(5, TimeUnit.SECONDS));
+    assertNoLongerPending(activity);
+  }
+
+  @Test
+  public void testFailedFutureIsFatal() throws Exception {
+    SyncReplicationActivity activity = SyncReplicationActivity.createStartMessage();
+    FutureTask<Void> persisted = new FutureTask<>(()->{
+      throw new IOException("disk gone");
+    });
+    sender.ackReceived(active, activity, persisted);
+    sender.acknowledge(active, activity, ReplicationResultCode.SUCCESS);
+    persisted.run();
+    assertFatal(outgoing.poll(5, TimeUnit.SECONDS));
+    assertNoLongerPending(activity);
+  }
+
+  private static void assertFatal(Runnable task) {
+    assertNotNull(task);
+    try {
+      task.run();
+      fail();
+    } catch (RuntimeException expected) {
+      assertEquals(IOException.class, expected.getCause().getClass());
+    }
+  }
+
+  private void assertNoLongerPending(SyncReplicationActivity activity) throws InterruptedException {
+    // nothing is left waiting on the failed receipt, a later ack goes straight to the batch
+    sender.acknowledge(active, activity, ReplicationResultCode.SUCCESS);
+    assertNotNull(outgoing.poll(5, TimeUnit.SECONDS));
+  }
+}
@@ -24,6 +24,7 @@ import static org.mockito.Mockito.when;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import com.tc.async.api.AbstractEventHandler;
 import com.tc.async.api.EventHandlerException;
@@ -35,6 +36,7 @@ import com.tc.classloader.ServiceLocator;
 import com.tc.entity.NetworkVoltronEntityMessage;
 import com.tc.entity.VoltronEntityAppliedResponse;
 import com.tc.entity.VoltronEntityMessage;
+import com.tc.entity.VoltronEntityMultiResponse;
 import com.tc.entity.VoltronEntityReceivedResponse;
 import com.tc.entity.VoltronEntityRetiredResponse;
 import com.tc.l2.api.L2Coordinator;
@@ -50,6 +52,7 @@ import com.tc.object.EntityID;
 import com.tc.object.FetchID;
 import com.tc.object.net.DSOChannelManager;
 import com.tc.object.net.NoSuchChannelException;
+import com.tc.object.tx.ServerTransactionID;
 import com.tc.object.tx.TransactionID;
 import com.tc.objectserver.api.ServerEntityAction;
 import com.tc.objectserver.core.api.ServerConfigurationContext;
@@ -69,9 +72,17 @@ import com.tc.services.InternalServiceRegistry;
 import com.tc.services.TerracottaServiceProviderRegistry;
 import com.tc.util.Assert;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -92,6 +103,7 @@ public class ProcessTransactionHandlerTest {
   private ClientEntityStateManager clientEntityStateManager;
   private ManagementTopologyEventCollector eventCollector;
   private EntityManagerImpl entityManager;
+  private DSOChannelManager channelManager;
   
   
   @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -120,7 +132,7 @@ public class ProcessTransactionHandlerTest {
     when(retire.getTransactionID()).thenReturn(TransactionID.NULL_ID);
     when(messageChannel.createMessage(TCMessageType.VOLTRON_ENTITY_RETIRED_RESPONSE)).thenReturn(retire);
     
-    DSOChannelManager channelManager = mock(DSOChannelManager.class);
+    this.channelManager = mock(DSOChannelManager.class);
     when(channelManager.getActiveChannel(this.source)).thenReturn(messageChannel);
     when(channelManager.getActiveChannel(eq(ClientID.NULL_ID))).thenThrow(new NoSuchChannelException());
     
@@ -289,6 +301,78 @@ public class ProcessTransactionHandlerTest {
   }
 
 
+
+  /**
+   * Several clients, each on its own voltron stage thread, invoke one entity with the same transaction ids.  Every
+   * transaction must have its order recorded once and its response must wait on its own client's persistence.
+   */
+  @Test
+  public void testConcurrentClientsWithSameTransactionIDs() throws Exception {
+    EntityID entityID = createMockEntity("foo");
+    NetworkVoltronEntityMessage createRequest = createMockRequest(VoltronEntityMessage.Type.CREATE_ENTITY, entityID, new TransactionID(1));
+    this.processTransactionHandler.getVoltronMessageHandler().handleEvent(createRequest);
+    this.requestProcessorSink.runUntilEmpty();
+
+    int clientCount = 4;
+    int transactions = 200;
+    Map<ServerTransactionID, TrackingFuture> recorded = new ConcurrentHashMap<>();
+    AtomicInteger duplicates = new AtomicInteger();
+    when(this.transactionOrderPersistor.updateWithNewMessage(any(ClientID.class), any(TransactionID.class), any(TransactionID.class))).then(invocation -> {
+      TrackingFuture future = new TrackingFuture();
+      if (recorded.put(new ServerTransactionID(invocation.getArgument(0), invocation.getArgument(1)), future) != null) {
+        duplicates.incrementAndGet();
+      }
+      return future;
+    });
+
+    List<ClientID> clients = new ArrayList<>();
+    for (int c = 0; c < clientCount; c++) {
+      ClientID client = new ClientID(100 + c);
+      MessageChannel channel = mock(MessageChannel.class);
+      // responses accept everything added to them, they are never actually sent
+      when(channel.createMessage(TCMessageType.VOLTRON_ENTITY_MULTI_RESPONSE)).then(i -> mock(VoltronEntityMultiResponse.class,
+          call -> call.getMethod().getReturnType() == boolean.class ? Boolean.TRUE : Mockito.RETURNS_DEFAULTS.answer(call)));
+      when(this.channelManager.getActiveChannel(client)).thenReturn(channel);
+      clients.add(client);
+    }
+    CyclicBarrier start = new CyclicBarrier(clientCount);
+    List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> threads = new ArrayList<>();
+    for (ClientID client : clients) {
+      Thread t = new Thread(() -> {
+        try {
+          start.await();
+          for (int x = 2; x < transactions + 2; x++) {
+            this.processTransactionHandler.getVoltronMessageHandler().handleEvent(createMockRequestWithSender(VoltronEntityMessage.Type.INVOKE_ACTION, entityID, new TransactionID(x), client));
+          }
+        } catch (Throwable e) {
+          failures.add(e);
+        }
+      }, ServerConfigurationContext.VOLTRON_MESSAGE_STAGE + "-" + client.toLong());
+      threads.add(t);
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    Assert.assertTrue(failures.toString(), failures.isEmpty());
+    this.requestProcessorSink.runUntilEmpty();
+    Assert.assertEquals(0, duplicates.get());
+    Assert.assertEquals(clientCount * transactions, recorded.size());
+
+    // each applied response waits on the persistence of its own client's transaction and no other
+    for (ClientID client : clients) {
+      for (int x = 2; x < transactions + 2; x++) {
+        TransactionID tid = new TransactionID(x);
+        VoltronEntityAppliedResponse applied = mock(VoltronEntityAppliedResponse.class);
+        when(applied.getDestinationNodeID()).thenReturn(client);
+        when(applied.getTransactionID()).thenReturn(tid);
+        this.processTransactionHandler.getMultiResponseSender().handleEvent(new ResponseMessage(applied));
+        Assert.assertEquals(1, recorded.get(new ServerTransactionID(client, tid)).waited.get());
+      }
+    }
+  }
+
   /**
    * This is pulled out as its own helper since the mocked EntityIDs aren't .equals() each other so using the same
    * instance gives convenient de facto equality.
@@ -340,12 +424,12 @@ public class ProcessTransactionHandlerTest {
     private final Queue<Runnable> runnableQueue;
 
     public RunnableSink() {
-      this.runnableQueue = new LinkedList<>();
+      this.runnableQueue = new ConcurrentLinkedQueue<>();
     }
 
     public void runUntilEmpty() {
-      while (!this.runnableQueue.isEmpty()) {
-        Runnable task = this.runnableQueue.poll();
+      Runnable task;
+      while ((task = this.runnableQueue.poll()) != null) {
         task.run();
       }
     }
@@ -356,6 +440,21 @@ public class ProcessTransactionHandlerTest {
   }
 
 
+  private static class TrackingFuture extends CompletableFuture<Void> {
+    private final AtomicInteger waited = new AtomicInteger();
+
+    TrackingFuture() {
+      complete(null);
+    }
+
+    @Override
+    public Void get() throws InterruptedException, ExecutionException {
+      waited.incrementAndGet();
+      return super.get();
+    }
+  }
+
+
   private static class ForwardingSink extends NoStatsSink<VoltronEntityMessage> {
     private final AbstractEventHandler<VoltronEntityMessage> target;
 
@@ -0,0 +1,160 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.objectserver.handler;
+
+import com.tc.bytes.TCByteBufferFactory;
+import com.tc.l2.msg.ReplicationMessage;
+import com.tc.l2.msg.SyncReplicationActivity;
+import com.tc.net.ClientID;
+import com.tc.object.ClientInstanceID;
+import com.tc.object.FetchID;
+import com.tc.object.tx.TransactionID;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class RelayLogTest {
+
+  private Path dir;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("relay-log");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    try (Stream<Path> files = Files.list(dir)) {
+      files.forEach(p -> p.toFile().delete());
+    }
+    Files.deleteIfExists(dir);
+  }
+
+  @Test
+  public void testReplayAcrossSegments() throws Exception {
+    RelayLog log = new RelayLog(dir, 4096, 0, 0);
+    for (long x = 1; x <= 200; x++) {
+      log.append(message(x));
+    }
+    Assert.assertTrue(log.getSegmentCount() > 1);
+    Assert.assertEquals(1L, log.getOldestSequence());
+    List<Long> seen = new ArrayList<>();
+    Assert.assertTrue(log.replay(17, m -> seen.add(m.getSequenceID())));
+    Assert.assertEquals(183, seen.size());
+    for (int x = 0; x < seen.size(); x++) {
+      Assert.assertEquals(18L + x, (long)seen.get(x));
+    }
+    Assert.assertFalse(log.replay(1000, m -> Assert.fail()));
+    log.close();
+  }
+
+  @Test
+  public void testRetentionDropsOldestSegments() throws Exception {
+    RelayLog log = new RelayLog(dir, 4096, 8192, 0);
+    for (long x = 1; x <= 500; x++) {
+      log.append(message(x));
+    }
+    Assert.assertTrue(log.getSizeInBytes() <= 8192 + 4096);
+    Assert.assertTrue(log.getOldestSequence() > 1);
+    Assert.assertEquals(500L, log.getNewestSequence());
+    Assert.assertFalse(log.replay(1, m -> Assert.fail()));
+    List<Long> seen = new ArrayList<>();
+    Assert.assertTrue(log.replay(499, m -> seen.add(m.getSequenceID())));
+    Assert.assertEquals(1, seen.size());
+    // dropped segments are gone from disk, not only from the log
+    try (Stream<Path> files = Files.list(dir)) {
+      Assert.assertEquals(log.getSegmentCount(), files.count());
+    }
+    log.close();
+    try (Stream<Path> files = Files.list(dir)) {
+      Assert.assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  public void testReadOnWhileAppending() throws Exception {
+    RelayLog log = new RelayLog(dir, 4096, 16384, 0);
+    for (long x = 1; x <= 50; x++) {
+      log.append(message(x));
+    }
+    List<ReplicationMessage> read = log.read(10, 16);
+    Assert.assertEquals(16, read.size());
+    Assert.assertEquals(11L, read.get(0).getSequenceID());
+    long last = read.get(15).getSequenceID();
+    // appends between reads, across segment rotations, are picked up by the next read
+    for (long x = 51; x <= 100; x++) {
+      log.append(message(x));
+    }
+    long expected = last + 1;
+    while (!(read = log.read(last, 16)).isEmpty()) {
+      for (ReplicationMessage m : read) {
+        Assert.assertEquals(expected++, m.getSequenceID());
+      }
+      last = read.get(read.size() - 1).getSequenceID();
+    }
+    Assert.assertEquals(101L, expected);
+    // once the reader falls behind retention it has to start over
+    for (long x = 101; x <= 1000; x++) {
+      log.append(message(x));
+    }
+    Assert.assertNull(log.read(last, 16));
+    log.close();
+  }
+
+  @Test
+  public void testReadFromJustBeforeTheOldest() throws Exception {
+    RelayLog log = new RelayLog(dir, 4096, 8192, 0);
+    // nothing dropped yet, the log starts part way into the stream
+    for (long x = 5; x <= 20; x++) {
+      log.append(message(x));
+    }
+    List<ReplicationMessage> read = log.read(4, 8);
+    Assert.assertEquals(8, read.size());
+    Assert.assertEquals(5L, read.get(0).getSequenceID());
+    Assert.assertNull(log.read(3, 8));
+    for (long x = 21; x <= 500; x++) {
+      log.append(message(x));
+    }
+    long oldest = log.getOldestSequence();
+    Assert.assertTrue(oldest > 5);
+    // the consumer has everything up to the retained history, it continues with the oldest message
+    read = log.read(oldest - 1, 8);
+    Assert.assertEquals(8, read.size());
+    Assert.assertEquals(oldest, read.get(0).getSequenceID());
+    Assert.assertNull(log.read(oldest - 2, 8));
+    List<Long> seen = new ArrayList<>();
+    Assert.assertTrue(log.replay(oldest - 1, m -> seen.add(m.getSequenceID())));
+    Assert.assertEquals(500 - oldest + 1, seen.size());
+    log.close();
+  }
+
+  private static ReplicationMessage message(long seq) {
+    SyncReplicationActivity activity = SyncReplicationActivity.createInvokeMessage(new FetchID(seq), new ClientID(1), new ClientInstanceID(1),
+        new TransactionID(seq), TransactionID.NULL_ID, SyncReplicationActivity.ActivityType.INVOKE_ACTION, TCByteBufferFactory.wrap(new byte[64]), 0, "");
+    ReplicationMessage msg = ReplicationMessage.createActivityContainer(activity);
+    msg.setSequenceID(seq);
+    return msg;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.objectserver.handler;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class ReplicationWindowTest {
+
+  @Test
+  public void testFixedWindowIgnoresAcks() throws Exception {
+    ReplicationWindow window = ReplicationWindow.fixed(1024, 1);
+    window.activityBatched(1);
+    window.batchSent(1024, 0);
+    window.acknowledged(1, TimeUnit.SECONDS.toNanos(5));
+    Assert.assertEquals(1024, window.getBatchSize());
+    Assert.assertEquals(1, window.getMessagesInFlight());
+    Assert.assertFalse(window.getStateMap().containsKey("samples"));
+  }
+
+  @Test
+  public void testFullBatchesWithinTargetOpenTheWindow() throws Exception {
+    ReplicationWindow window = ReplicationWindow.adaptive(1024, 1, 4, 10, TimeUnit.MILLISECONDS);
+    long now = 0;
+    for (int x = 1; x <= 10; x++) {
+      window.activityBatched(x);
+      window.batchSent(window.getBatchSize(), now);
+      now += TimeUnit.MILLISECONDS.toNanos(1);
+      window.acknowledged(x, now);
+    }
+    Assert.assertEquals(1024, window.getBatchSize());
+    Assert.assertEquals(4, window.getMessagesInFlight());
+    // without full batches there is no demand to grow for
+    window.activityBatched(11);
+    window.batchSent(10, now);
+    window.acknowledged(11, now);
+    Assert.assertEquals(3L, window.getStateMap().get("increases"));
+  }
+
+  @Test
+  public void testSlowAcksCloseTheWindow() throws Exception {
+    ReplicationWindow window = ReplicationWindow.adaptive(1024, 4, 4, 10, TimeUnit.MILLISECONDS);
+    long slow = TimeUnit.MILLISECONDS.toNanos(50);
+    long now = 0;
+    for (int x = 1; x <= 3; x++) {
+      window.activityBatched(x);
+      window.batchSent(1, now);
+      now += slow;
+      window.acknowledged(x, now);
+    }
+    Assert.assertEquals(1, window.getMessagesInFlight());
+    Assert.assertEquals(512, window.getBatchSize());
+    for (int x = 4; x <= 20; x++) {
+      window.activityBatched(x);
+      window.batchSent(1, now);
+      now += slow;
+      window.acknowledged(x, now);
+    }
+    Assert.assertEquals(16, window.getBatchSize());
+    Assert.assertEquals(50000L, window.getStateMap().get("recentLatencyMicros"));
+  }
+
+  @Test
+  public void testOnlyOneProbeIsOutstanding() throws Exception {
+    ReplicationWindow window = ReplicationWindow.adaptive(1024, 1, 4, 10, TimeUnit.MILLISECONDS);
+    window.activityBatched(5);
+    // the probe is timed from the batch holding it
+    window.batchSent(1, TimeUnit.MILLISECONDS.toNanos(10));
+    // a later activity does not restart the probe
+    window.activityBatched(6);
+    window.batchSent(1, TimeUnit.MILLISECONDS.toNanos(20));
+    // an ack for an earlier activity does not complete it
+    window.acknowledged(4, TimeUnit.MILLISECONDS.toNanos(30));
+    Assert.assertEquals(0L, window.getStateMap().get("samples"));
+    window.acknowledged(6, TimeUnit.MILLISECONDS.toNanos(40));
+    Assert.assertEquals(1L, window.getStateMap().get("samples"));
+    Assert.assertEquals(30000L, window.getStateMap().get("recentLatencyMicros"));
+  }
+
+  @Test
+  public void testSustainedBacklogKeepsTheWindowOpen() throws Exception {
+    ReplicationWindow window = ReplicationWindow.adaptive(1024, 1, 4, 10, TimeUnit.MILLISECONDS);
+    long roundTrip = TimeUnit.MILLISECONDS.toNanos(2);
+    long now = 0;
+    // more is offered than the link can carry so every probe waits longer and longer for its batch to go out, the
+    //  link itself stays well within the target
+    for (int x = 1; x <= 200; x++) {
+      window.activityBatched(x);
+      now += x * TimeUnit.MILLISECONDS.toNanos(1);
+      window.batchSent(window.getBatchSize(), now);
+      now += roundTrip;
+      window.acknowledged(x, now);
+    }
+    Assert.assertEquals(1024, window.getBatchSize());
+    Assert.assertEquals(4, window.getMessagesInFlight());
+    Assert.assertEquals(0L, window.getStateMap().get("decreases"));
+  }
+}
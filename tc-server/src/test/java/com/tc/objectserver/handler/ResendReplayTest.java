@@ -0,0 +1,214 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.objectserver.handler;
+
+import com.tc.bytes.TCByteBufferFactory;
+import com.tc.entity.VoltronEntityMessage;
+import com.tc.object.ClientInstanceID;
+import com.tc.object.EntityDescriptor;
+import com.tc.object.FetchID;
+import com.tc.objectserver.api.ManagedEntity;
+import com.tc.objectserver.entity.MessagePayload;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.terracotta.entity.EntityMessage;
+import org.terracotta.entity.EntityResponse;
+import org.terracotta.entity.MessageCodec;
+import org.terracotta.entity.MessageCodecException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ResendReplayTest {
+
+  private final RecordingCodec codec = new RecordingCodec();
+  private final ManagedEntity entity = entityWith(codec);
+
+  @Test
+  public void testSerialDecodeBelowThreshold() throws Exception {
+    ResendReplay replay = new ResendReplay(d->Optional.of(entity), 4, 100);
+    List<VoltronEntityMessage> messages = invokes(10, 2);
+    messages.forEach(replay::collect);
+    // nothing runs ahead while the window is open
+    assertEquals(0, codec.decoded.get());
+    replay.order(messages);
+    replay.prepare();
+
+    assertEquals(10, codec.decoded.get());
+    assertEquals(0, replay.getDecodedInWindow());
+    assertEquals(10, replay.getDecodedAhead());
+    assertEquals(1, replay.getParallelism());
+    assertEquals(Collections.singleton(Thread.currentThread().getName()), codec.threads.keySet());
+  }
+
+  @Test
+  public void testDecodeStartsDuringWindow() throws Exception {
+    ResendReplay replay = new ResendReplay(d->Optional.of(entity), 2, 4);
+    List<VoltronEntityMessage> messages = invokes(20, 4);
+    messages.subList(0, 3).forEach(replay::collect);
+    assertEquals(0, codec.decoded.get());
+    messages.subList(3, 20).forEach(replay::collect);
+    // the reconnect window is still open, the workers decode everything collected so far
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (replay.getDecoded() < 20 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(20, codec.decoded.get());
+    replay.order(messages);
+    replay.prepare();
+
+    assertEquals(20, replay.getDecodedInWindow());
+    assertEquals(20, replay.getDecodedAhead());
+    assertEquals(2, replay.getParallelism());
+    assertEquals(4, replay.getPartitionCount());
+    assertEquals(5, replay.getLargestPartition());
+    for (String name : codec.threads.keySet()) {
+      assertTrue(name, name.startsWith("resend-replay-"));
+    }
+  }
+
+  @Test
+  public void testPartitionDecodesOneAtATimeInArrivalOrder() throws Exception {
+    codec.delayMillis = 2;
+    ResendReplay replay = new ResendReplay(d->Optional.of(entity), 4, 1);
+    List<VoltronEntityMessage> messages = invokes(40, 1);
+    messages.forEach(replay::collect);
+    replay.order(messages);
+    replay.prepare();
+
+    assertEquals(1, codec.maxConcurrent.get());
+    List<Integer> expected = new ArrayList<>();
+    for (int x = 0; x < 40; x++) {
+      expected.add(x);
+    }
+    assertEquals(expected, codec.order);
+  }
+
+  @Test
+  public void testReplayFollowsOrderNotArrival() throws Exception {
+    ResendReplay replay = new ResendReplay(d->Optional.of(entity), 2, 1);
+    List<VoltronEntityMessage> messages = invokes(3, 1);
+    messages.forEach(replay::collect);
+    replay.order(Arrays.asList(messages.get(2), messages.get(0)));
+    replay.order(Collections.singletonList(messages.get(1)));
+    replay.prepare();
+
+    List<VoltronEntityMessage> replayed = new ArrayList<>();
+    replay.replay((message, payload)->{
+      replayed.add(message);
+      try {
+        assertEquals(messages.indexOf(message), ((Marker)payload.decodeMessage(raw->{throw new AssertionError("not decoded ahead");})).index);
+      } catch (MessageCodecException ce) {
+        throw new AssertionError(ce);
+      }
+    });
+    assertEquals(Arrays.asList(messages.get(2), messages.get(0), messages.get(1)), replayed);
+  }
+
+  @Test
+  public void testMissingEntityIsNotDecoded() throws Exception {
+    ResendReplay replay = new ResendReplay(d->Optional.empty(), 2, 1);
+    List<VoltronEntityMessage> messages = invokes(8, 2);
+    messages.forEach(replay::collect);
+    replay.order(messages);
+    replay.prepare();
+
+    assertEquals(0, codec.decoded.get());
+    assertEquals(0, replay.getDecodedAhead());
+    assertEquals(8, replay.size());
+  }
+
+  private static List<VoltronEntityMessage> invokes(int count, int entities) {
+    List<VoltronEntityMessage> list = new ArrayList<>(count);
+    for (int x = 0; x < count; x++) {
+      VoltronEntityMessage message = mock(VoltronEntityMessage.class);
+      when(message.getVoltronType()).thenReturn(VoltronEntityMessage.Type.INVOKE_ACTION);
+      when(message.getEntityDescriptor()).thenReturn(EntityDescriptor.createDescriptorForInvoke(new FetchID(1 + x % entities), new ClientInstanceID(1)));
+      when(message.getExtendedData()).thenReturn(TCByteBufferFactory.wrap(new byte[] {(byte)x}));
+      list.add(message);
+    }
+    return list;
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static ManagedEntity entityWith(MessageCodec codec) {
+    ManagedEntity entity = mock(ManagedEntity.class);
+    when((MessageCodec)entity.getCodec()).thenReturn(codec);
+    return entity;
+  }
+
+  private static class Marker implements EntityMessage {
+    private final int index;
+
+    Marker(int index) {
+      this.index = index;
+    }
+  }
+
+  private static class RecordingCodec implements MessageCodec<EntityMessage, EntityResponse> {
+    private final AtomicInteger decoded = new AtomicInteger();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private final Map<String, Boolean> threads = new ConcurrentHashMap<>();
+    private final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    private volatile long delayMillis;
+
+    @Override
+    public EntityMessage decodeMessage(byte[] payload) throws MessageCodecException {
+      int now = concurrent.incrementAndGet();
+      maxConcurrent.accumulateAndGet(now, Math::max);
+      threads.put(Thread.currentThread().getName(), Boolean.TRUE);
+      try {
+        if (delayMillis > 0) {
+          Thread.sleep(delayMillis);
+        }
+      } catch (InterruptedException ie) {
+        throw new MessageCodecException("interrupted", ie);
+      }
+      order.add((int)payload[0]);
+      concurrent.decrementAndGet();
+      decoded.incrementAndGet();
+      return new Marker(payload[0]);
+    }
+
+    @Override
+    public byte[] encodeMessage(EntityMessage message) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public byte[] encodeResponse(EntityResponse response) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public EntityResponse decodeResponse(byte[] payload) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -39,13 +39,17 @@ import com.tc.objectserver.entity.LocalPipelineFlushMessage;
 import com.tc.objectserver.handler.ProcessTransactionHandler;
 import com.tc.productinfo.ProductInfo;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.function.Supplier;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -203,4 +207,59 @@ public class ServerClientHandshakeManagerTest {
     assertTrue(this.manager.getUnconnectedClients().isEmpty());
     verify(timer).cancel();
   }
-}
\ No newline at end of file
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testReconnectTimings() throws Exception {
+    ClientID client1 = new ClientID(1);
+    ClientID client2 = new ClientID(2);
+    Set<ClientID> existingConnections = new HashSet<>();
+    existingConnections.add(client1);
+    existingConnections.add(client2);
+    this.manager.setStarting(existingConnections);
+
+    Map<String, Object> reconnect = (Map<String, Object>) this.manager.getStateMap().get("reconnect");
+    assertEquals(2, reconnect.get("expectedClients"));
+    assertEquals(1000L, reconnect.get("windowMillis"));
+    assertEquals(-1L, reconnect.get("firstClientMillis"));
+
+    ClientHandshakeMessage message1 = mock(ClientHandshakeMessage.class);
+    when(message1.getClientVersion()).thenReturn("");
+    when(message1.getChannel()).thenReturn(mock(MessageChannel.class));
+    when(message1.getSourceNodeID()).thenReturn(client1);
+    when(message1.getResendMessages()).thenReturn(Arrays.asList(mock(ResendVoltronEntityMessage.class), mock(ResendVoltronEntityMessage.class)));
+    this.manager.notifyClientConnect(message1, entityManager, transactionHandler);
+
+    reconnect = (Map<String, Object>) this.manager.getStateMap().get("reconnect");
+    assertEquals(1, reconnect.get("reconnectedClients"));
+    assertEquals(2, reconnect.get("resentMessages"));
+    assertTrue((Long) reconnect.get("firstClientMillis") >= 0);
+    assertNull(reconnect.get("closedBy"));
+    assertEquals(-1L, reconnect.get("windowClosedMillis"));
+
+    ClientHandshakeMessage message2 = mock(ClientHandshakeMessage.class);
+    when(message2.getClientVersion()).thenReturn("");
+    when(message2.getChannel()).thenReturn(mock(MessageChannel.class));
+    when(message2.getSourceNodeID()).thenReturn(client2);
+    this.manager.notifyClientConnect(message2, entityManager, transactionHandler);
+
+    // the last client closes the window early and activates the server
+    reconnect = (Map<String, Object>) this.manager.getStateMap().get("reconnect");
+    assertEquals(2, reconnect.get("reconnectedClients"));
+    assertEquals("ALL_CLIENTS", reconnect.get("closedBy"));
+    assertEquals(0, reconnect.get("droppedClients"));
+    long closed = (Long) reconnect.get("windowClosedMillis");
+    long activated = (Long) reconnect.get("activatedMillis");
+    assertTrue(closed >= (Long) reconnect.get("lastClientMillis"));
+    assertTrue(activated >= closed);
+    assertEquals(-1L, reconnect.get("replayedMillis"));
+
+    this.manager.resendReplayComplete(2, 1, 2, 1, 2, 1, 0, 0);
+    reconnect = (Map<String, Object>) this.manager.getStateMap().get("reconnect");
+    assertEquals(2, reconnect.get("replayedResends"));
+    assertEquals(1, reconnect.get("replayPartitions"));
+    assertEquals(1, reconnect.get("replayDecodedInWindow"));
+    assertEquals(2, reconnect.get("replayDecodedAhead"));
+    assertTrue((Long) reconnect.get("replayedMillis") >= activated);
+  }
+}
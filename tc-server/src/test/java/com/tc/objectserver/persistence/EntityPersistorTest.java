@@ -247,4 +247,46 @@ public class EntityPersistorTest extends TCTestCase {
       // expected
     }
   }    
+
+  /**
+   * Test that the incremental journal records are replayed when a new persistor is built over the same storage.
+   */
+  public void testReplayAfterRestart() throws Exception {
+    EntityID kept = new EntityID("class name", "kept");
+    EntityID destroyed = new EntityID("class name", "destroyed");
+    this.entityPersistor.entityCreated(this.client, 1, 1, kept, 1, 1, true, new byte[0]);
+    this.entityPersistor.entityCreated(this.client, 2, 1, destroyed, 1, 2, true, new byte[0]);
+    this.entityPersistor.entityReconfigureSucceeded(this.client, 3, 1, kept, 1, new byte[2]);
+    this.entityPersistor.entityDestroyed(this.client, 4, 1, destroyed);
+    long consumerID = this.entityPersistor.getNextConsumerID();
+
+    EntityPersistor restarted = new EntityPersistor(this.persistentStorage);
+    Assert.assertTrue(restarted.containsEntity(kept));
+    Assert.assertFalse(restarted.containsEntity(destroyed));
+    Assert.assertEquals(2, restarted.loadEntityData().iterator().next().configuration.length);
+    Assert.assertTrue(restarted.wasEntityCreatedInJournal(kept, this.client, 1));
+    Assert.assertTrue(restarted.wasEntityDestroyedInJournal(destroyed, this.client, 4));
+    Assert.assertEquals(consumerID + 1, restarted.getNextConsumerID());
+  }
+
+  /**
+   * Test that compaction folds the journal records into a snapshot without losing any state.
+   */
+  public void testCompaction() throws Exception {
+    EntityPersistor persistor = new EntityPersistor(this.persistentStorage, 4, 8);
+    persistor.addTrackingForClient(this.client);
+    for (int x = 0; x < 20; x++) {
+      EntityID id = new EntityID("class name", "entity " + x);
+      persistor.entityCreated(this.client, x + 1, x + 1, id, 1, x, true, new byte[0]);
+    }
+    // at most one generation of records below the threshold can be left over
+    long records = this.persistentStorage.nameToDataMap.keySet().stream().filter(n->n.startsWith("entity_journal.") && !n.endsWith("snapshot")).count();
+    Assert.assertTrue(records < 8);
+
+    EntityPersistor restarted = new EntityPersistor(this.persistentStorage, 2, 8);
+    Assert.assertEquals(20, restarted.loadEntityData().size());
+    Assert.assertTrue(restarted.wasEntityCreatedInJournal(new EntityID("class name", "entity 19"), this.client, 20));
+    // older journal entries were filtered out by oldestTransactionOnClient
+    Assert.assertFalse(restarted.wasEntityCreatedInJournal(new EntityID("class name", "entity 0"), this.client, 1));
+  }
 }
@@ -24,8 +24,11 @@ import com.tc.test.TCTestCase;
 import com.tc.net.core.ProductID;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -245,6 +248,68 @@ public class TransactionOrderPersistorTest extends TCTestCase {
     assertEquals(0, this.orderPersistor.getIndexToReplay(this.client1, newTransaction));
   }
 
+  /**
+   * Test that the global order survives many expiring transactions across clients, which forces the order to be
+   * compacted several times along the way.
+   */
+  public void testGlobalOrderWithExpiryAndDisconnect() {
+    ClientID client3 = new ClientID(3);
+    this.orderPersistor.addTrackingForClient(client3, ProductID.STRIPE);
+    ClientID[] clients = new ClientID[] {this.client1, this.client2, client3};
+    // client1 keeps everything, the others only keep their last 3 transactions
+    List<String> expected = new ArrayList<>();
+    for (int i = 1; i < 500; ++i) {
+      for (int c = 0; c < clients.length; c++) {
+        TransactionID oldest = new TransactionID(c == 0 ? 1 : Math.max(1, i - 2));
+        this.orderPersistor.updateWithNewMessage(clients[c], new TransactionID(i), oldest);
+        expected.add(c + ":" + i);
+        if (c > 0) {
+          expected.remove(c + ":" + (i - 3));
+        }
+      }
+    }
+    verifyOrder(clients, expected, 500);
+
+    this.orderPersistor.removeTrackingForClient(this.client2);
+    expected.removeIf(e -> e.startsWith("1:"));
+    assertEquals(-1, this.orderPersistor.getIndexToReplay(this.client2, new TransactionID(499)));
+    verifyOrder(new ClientID[] {this.client1, null, client3}, expected, 500);
+  }
+
+  private void verifyOrder(ClientID[] clients, List<String> expected, int transactions) {
+    for (int c = 0; c < clients.length; c++) {
+      if (clients[c] != null) {
+        for (int i = 1; i < transactions; ++i) {
+          assertEquals(c + ":" + i, expected.indexOf(c + ":" + i), this.orderPersistor.getIndexToReplay(clients[c], new TransactionID(i)));
+        }
+      }
+    }
+  }
+
+  /**
+   * Test that a reloaded persistor restores the global order of the permanent clients and continues after it.
+   */
+  public void testReloadRestoresGlobalOrder() {
+    NullPlatformPersistentStorage storage = new NullPlatformPersistentStorage();
+    TransactionOrderPersistor persistor = new TransactionOrderPersistor(storage, Collections.emptySet());
+    persistor.addTrackingForClient(this.client1, ProductID.PERMANENT);
+    persistor.addTrackingForClient(this.client2, ProductID.PERMANENT);
+    TransactionID oldest = new TransactionID(1L);
+    for (int i = 1; i < 10; ++i) {
+      persistor.updateWithNewMessage(this.client2, new TransactionID(i), oldest);
+      persistor.updateWithNewMessage(this.client1, new TransactionID(i), oldest);
+    }
+
+    persistor = new TransactionOrderPersistor(storage, new HashSet<>(Arrays.asList(this.client1, this.client2)));
+    assertEquals(18L, persistor.getReceivedTransactionCount());
+    for (int i = 1; i < 10; ++i) {
+      assertEquals((i - 1) * 2, persistor.getIndexToReplay(this.client2, new TransactionID(i)));
+      assertEquals((i - 1) * 2 + 1, persistor.getIndexToReplay(this.client1, new TransactionID(i)));
+    }
+    persistor.updateWithNewMessage(this.client1, new TransactionID(10), oldest);
+    assertEquals(18, persistor.getIndexToReplay(this.client1, new TransactionID(10)));
+  }
+
   public void testSaveReloadEmpty() throws IOException {
     // Create the storage.
     NullPlatformPersistentStorage storage = new NullPlatformPersistentStorage();
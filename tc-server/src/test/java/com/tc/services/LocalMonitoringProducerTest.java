@@ -19,6 +19,9 @@ package com.tc.services;
 
 import com.tc.objectserver.api.ManagedEntity;
 import com.tc.util.Assert;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -69,6 +72,7 @@ public class LocalMonitoringProducerTest {
   
   @After
   public void tearDown() {
+    producer.close();
   }
 
   @Test
@@ -77,4 +81,46 @@ public class LocalMonitoringProducerTest {
     Assert.assertNotNull(producer.getService(1, entity, new BasicServiceConfiguration<>(IMonitoringProducer.class)));
     verify(entity).addLifecycleListener(any(ManagedEntity.LifecycleListener.class));
   }
+
+  @Test
+  public void testCoalesceDropsSupersededAdds() {
+    String[] fetched = new String[] {"platform", "fetched"};
+    List<LocalMonitoringProducer.MonitoringEvent> batch = new ArrayList<>();
+    // an update then a release, only the release is needed
+    batch.add(event(LocalMonitoringProducer.MonitoringEvent.ADD, fetched, "a", false));
+    batch.add(event(LocalMonitoringProducer.MonitoringEvent.REMOVE, fetched, "a", false));
+    // two updates, only the last is needed
+    batch.add(event(LocalMonitoringProducer.MonitoringEvent.ADD, fetched, "b", false));
+    batch.add(event(LocalMonitoringProducer.MonitoringEvent.ADD, fetched, "b", false));
+    // a child was added below c so the first addition of c has to stay
+    batch.add(event(LocalMonitoringProducer.MonitoringEvent.ADD, fetched, "c", false));
+    batch.add(event(LocalMonitoringProducer.MonitoringEvent.ADD, new String[] {"platform", "fetched", "c"}, "child", true));
+    batch.add(event(LocalMonitoringProducer.MonitoringEvent.ADD, fetched, "c", false));
+    // fetch, update, then release of a new node, none of it reaches the collector
+    batch.add(event(LocalMonitoringProducer.MonitoringEvent.ADD, fetched, "d", true));
+    batch.add(event(LocalMonitoringProducer.MonitoringEvent.ADD, fetched, "d", false));
+    batch.add(event(LocalMonitoringProducer.MonitoringEvent.REMOVE, fetched, "d", false));
+
+    List<LocalMonitoringProducer.MonitoringEvent> result = LocalMonitoringProducer.coalesce(batch);
+    Assert.assertEquals(Arrays.asList(batch.get(1), batch.get(3), batch.get(4), batch.get(5), batch.get(6)), result);
+  }
+
+  @Test
+  public void testProducerReportsUnbalancedCalls() {
+    IMonitoringProducer monitoring = producer.getService(1, null, new BasicServiceConfiguration<>(IMonitoringProducer.class));
+    String[] root = new String[] {"root"};
+    Assert.assertFalse(monitoring.addNode(root, "a", "a"));
+    Assert.assertFalse(monitoring.removeNode(root, "a"));
+    Assert.assertTrue(monitoring.addNode(new String[0], "root", null));
+    Assert.assertTrue(monitoring.addNode(root, "a", "a"));
+    Assert.assertTrue(monitoring.addNode(new String[] {"root", "a"}, "child", "child"));
+    Assert.assertTrue(monitoring.removeNode(new String[0], "root"));
+    // the children went with it
+    Assert.assertFalse(monitoring.removeNode(root, "a"));
+    Assert.assertFalse(monitoring.addNode(new String[] {"root", "a"}, "child", "child"));
+  }
+
+  private static LocalMonitoringProducer.MonitoringEvent event(int kind, String[] parents, String name, boolean fresh) {
+    return new LocalMonitoringProducer.MonitoringEvent(kind, 1L, null, parents, name, kind == LocalMonitoringProducer.MonitoringEvent.REMOVE ? null : name, fresh);
+  }
 }
@@ -0,0 +1,80 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *  Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.tc.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class MonitoringEventRingTest {
+
+  @Test
+  public void testFullRing() {
+    MonitoringEventRing<Integer> ring = new MonitoringEventRing<>(4);
+    for (int x = 0; x < 4; x++) {
+      assertTrue(ring.offer(x));
+    }
+    assertFalse(ring.offer(4));
+    assertEquals(0, (int) ring.poll());
+    assertTrue(ring.offer(4));
+    for (int x = 1; x <= 4; x++) {
+      assertEquals(x, (int) ring.poll());
+    }
+    assertNull(ring.poll());
+    assertTrue(ring.isEmpty());
+  }
+
+  @Test
+  public void testProducersKeepTheirOrder() throws Exception {
+    MonitoringEventRing<long[]> ring = new MonitoringEventRing<>(64);
+    int producers = 4;
+    int count = 20000;
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      long producer = p;
+      Thread t = new Thread(() -> {
+        for (long x = 0; x < count; x++) {
+          while (!ring.offer(new long[] {producer, x})) {
+            Thread.yield();
+          }
+        }
+      });
+      t.start();
+      threads.add(t);
+    }
+    long[] next = new long[producers];
+    int received = 0;
+    while (received < producers * count) {
+      long[] event = ring.poll();
+      if (event == null) {
+        Thread.yield();
+      } else {
+        assertEquals(next[(int) event[0]]++, event[1]);
+        received += 1;
+      }
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertTrue(ring.isEmpty());
+  }
+}
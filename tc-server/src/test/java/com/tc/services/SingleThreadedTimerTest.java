@@ -17,8 +17,10 @@
  */
 package com.tc.services;
 
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -114,6 +116,47 @@ public class SingleThreadedTimerTest {
     Assert.assertTrue(1 == runnable.getCounter());
   }
 
+  @Test
+  public void testManyTasksAcrossWheelRevolutions() throws Exception {
+    // a tiny wheel so that tasks wrap around it several times
+    SingleThreadedTimer small = new SingleThreadedTimer(this.source, null, 10, 8);
+    small.start();
+    try {
+      AtomicInteger ran = new AtomicInteger();
+      long start = this.source.currentTimeMillis() + 1;
+      long[] ids = new long[1000];
+      for (int x = 0; x < ids.length; x++) {
+        ids[x] = small.addDelayed(ran::incrementAndGet, start + x);
+      }
+      for (int x = 0; x < ids.length; x += 2) {
+        Assert.assertTrue(small.cancel(ids[x]));
+      }
+      this.source.passTime(ids.length / 2);
+      small.poke();
+      Assert.assertEquals(250, ran.get());
+      this.source.passTime(ids.length);
+      small.poke();
+      Assert.assertEquals(500, ran.get());
+      Map<String, ?> state = small.getStateMap();
+      Assert.assertEquals(0, state.get("backlog"));
+      Assert.assertEquals(500L, state.get("expiredTasks"));
+      Assert.assertTrue((Long)state.get("expiredBatches") >= 2L);
+    } finally {
+      small.stop();
+    }
+  }
+
+  @Test
+  public void testCancelLaterTaskOfSameBatch() throws Exception {
+    long startTime = this.source.currentTimeMillis() + INTERVAL_MILLIS;
+    AtomicBoolean later = new AtomicBoolean();
+    long laterId = this.timer.addDelayed(() -> later.set(true), startTime + 1);
+    this.timer.addDelayed(() -> Assert.assertTrue(this.timer.cancel(laterId)), startTime);
+    this.source.passTime(2 * INTERVAL_MILLIS);
+    this.timer.poke();
+    Assert.assertFalse(later.get());
+  }
+
 
   private static class SelfDestructingRunnable implements Runnable {
     private SingleThreadedTimer timer;